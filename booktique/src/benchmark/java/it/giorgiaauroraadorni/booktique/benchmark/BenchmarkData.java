@@ -0,0 +1,172 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.model.*;
+import it.giorgiaauroraadorni.booktique.validation.FiscalCodeValidator;
+import it.giorgiaauroraadorni.booktique.validation.IsbnValidator;
+import it.giorgiaauroraadorni.booktique.validation.VatNumberValidator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Creates detached entities for the benchmarks. The values mirror the ones used by the test factories, but the
+ * entities are built without the Spring context, so that the benchmarks measure only the model code.
+ */
+public class BenchmarkData {
+
+    public static Author createAuthor(int idx) {
+        var author = new Author();
+
+        author.setId((long) idx);
+        var fiscalCode = "CGNNMO00T00A00" + idx;
+        author.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
+        author.setName("Nome" + idx);
+        author.setSurname("Cognome" + idx);
+        author.setDateOfBirth(LocalDate.of(1980, 1, 1).plusDays(idx));
+        author.setEmail(author.getName() + author.getSurname() + "@author-mail.com");
+        author.setMobilePhone("333333333" + idx);
+        author.setWebSiteURL("https://www." + author.getName() + author.getSurname() + ".org");
+        author.setBiography(author.getName() + " " + author.getSurname() + " is the author of many books.");
+
+        return author;
+    }
+
+    public static Book createBook(int idx, int authors) {
+        var book = new Book();
+
+        book.setId((long) idx);
+        var isbn = String.format("978-00-00-%05d-", idx);
+        book.setIsbn(isbn + IsbnValidator.checkDigit13(isbn));
+        book.setTitle("Titolo" + idx);
+        book.setSubtitle("Sottotitolo");
+        book.setPublisher("Editore");
+        book.setBookFormat(Book.Format.HARDCOVER);
+        book.setEdition(1);
+        book.setLanguage("Lingua");
+        book.setPublicationDate(LocalDate.of(1999, 1, 1));
+
+        Set<Author> bookAuthors = new HashSet<>();
+        for (int i = 0; i < authors; i++) {
+            bookAuthors.add(createAuthor(idx * authors + i));
+        }
+        book.setAuthors(bookAuthors);
+
+        return book;
+    }
+
+    public static Address createAddress(int idx) {
+        var address = new Address();
+
+        address.setId((long) idx);
+        address.setStreetAddress("Via Nomevia " + idx);
+        address.setBuilding("Appartamento 2 terzo piano");
+        address.setCity("Città");
+        address.setProvince("CT");
+        address.setRegion("Regione");
+        address.setPostalCode("00000");
+        address.setCountry("Stato");
+
+        return address;
+    }
+
+    public static Supplier createSupplier(int idx) {
+        var supplier = new Supplier();
+
+        supplier.setId((long) idx);
+        supplier.setCompanyName("Compagnia" + idx);
+        supplier.setEmail(supplier.getCompanyName() + "@mail.com");
+        supplier.setPhoneNumber("02000000" + idx);
+        supplier.setAddress(createAddress(idx));
+
+        return supplier;
+    }
+
+    public static Customer createCustomer(int idx) {
+        var customer = new Customer();
+
+        customer.setId((long) idx);
+        var fiscalCode = "CGNNMO00T00C00" + idx;
+        customer.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
+        customer.setName("Nome" + idx);
+        customer.setSurname("Cognome" + idx);
+        customer.setUsername("CUserNo" + idx);
+        customer.setPassword("Qwerty1234");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        customer.setEmail(customer.getName() + customer.getSurname() + "@customer-mail.com");
+        customer.setMobilePhone("333111111" + idx);
+        customer.setVatNumber("IT1000000000" + VatNumberValidator.checkDigit("1000000000"));
+        customer.setAddress(createAddress(idx));
+
+        return customer;
+    }
+
+    public static Employee createEmployee(int idx) {
+        var employee = new Employee();
+
+        employee.setId((long) idx);
+        var fiscalCode = "CGNNMO00T00E00" + idx;
+        employee.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
+        employee.setName("Nome" + idx);
+        employee.setSurname("Cognome" + idx);
+        employee.setUsername("EUserNo" + idx);
+        employee.setPassword("Qwerty1234");
+        employee.setDateOfBirth(LocalDate.of(1985, 1, 1));
+        employee.setEmail(employee.getName() + employee.getSurname() + "@employee-mail.com");
+        employee.setMobilePhone("333000000" + idx);
+        employee.setHireDate(LocalDate.of(2015, 1, 1));
+        employee.setAddress(createAddress(idx));
+        employee.setSupervisor(employee);
+
+        return employee;
+    }
+
+    public static Payment createPayment(int idx) {
+        var payment = new Payment();
+
+        payment.setId((long) idx);
+        payment.setCardNumber("0000000000000000");
+        payment.setCardholderName("Nome Cognome");
+        payment.setExpireDate(LocalDate.of(2030, 1, 1));
+        payment.setCVC("000");
+        payment.setPaymentDate(LocalDate.of(2020, 1, 1));
+
+        return payment;
+    }
+
+    public static Item createItem(int idx, Book book, Supplier supplier) {
+        var item = new Item();
+
+        item.setId((long) idx);
+        // prices between 5.00 and 54.99
+        item.setUnitPrice(BigDecimal.valueOf(500 + idx % 5000, 2));
+        item.setQuantityPerUnit(1 + idx % 3);
+        item.setBookItem(book);
+        item.setSupplier(supplier);
+
+        return item;
+    }
+
+    public static Purchase createPurchase(int idx, int items) {
+        var purchase = new Purchase();
+        var book = createBook(idx, 1);
+        var supplier = createSupplier(idx);
+
+        purchase.setId((long) idx);
+        purchase.setOrderDate(LocalDate.of(2020, 1, 1));
+        purchase.setShippingDate(LocalDate.of(2020, 1, 2));
+        purchase.setStatus(Purchase.Status.IN_PRODUCTION);
+        purchase.setCustomer(createCustomer(idx));
+        purchase.setEmployee(createEmployee(idx));
+        purchase.setPaymentDetails(createPayment(idx));
+
+        Set<Item> purchaseItems = new HashSet<>();
+        for (int i = 0; i < items; i++) {
+            purchaseItems.add(createItem(i, book, supplier));
+        }
+        purchase.setItems(purchaseItems);
+
+        return purchase;
+    }
+}
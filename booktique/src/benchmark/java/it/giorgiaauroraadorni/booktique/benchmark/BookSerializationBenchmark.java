@@ -0,0 +1,53 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.giorgiaauroraadorni.booktique.model.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization of the pages of books returned by {@code GET /books}.
+ * The object mapper is built like the one used by Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"1", "3"})
+    private int authors;
+
+    private ObjectMapper objectMapper;
+
+    private Page<Book> page;
+
+    @Setup
+    public void createPage() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            books.add(BenchmarkData.createBook(i, authors));
+        }
+        page = new PageImpl<>(books, PageRequest.of(0, pageSize), 10L * pageSize);
+    }
+
+    @Benchmark
+    public byte[] serializeBookPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,84 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.model.Author;
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.Customer;
+import it.giorgiaauroraadorni.booktique.model.Item;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.utility.Associations;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the utilities used to compare entities: the conversion to dictionary, the comparison by attributes and the
+ * comparison of associations.
+ * Every comparison is performed between two distinct instances with the same attributes, which is the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityComparisonBenchmark {
+
+    // number of authors of the book, and of the items of the purchase
+    @Param({"1", "10", "100"})
+    private int size;
+
+    private Book book;
+    private Book sameBook;
+    private Customer customer;
+    private Customer sameCustomer;
+    private Purchase purchase;
+    private Purchase samePurchase;
+
+    @Setup
+    public void createEntities() {
+        book = BenchmarkData.createBook(0, size);
+        sameBook = BenchmarkData.createBook(0, size);
+        customer = BenchmarkData.createCustomer(0);
+        sameCustomer = BenchmarkData.createCustomer(0);
+        purchase = BenchmarkData.createPurchase(0, size);
+        samePurchase = BenchmarkData.createPurchase(0, size);
+    }
+
+    @Benchmark
+    public Map<String, Object> bookEntityToDict() {
+        return book.entityToDict(true);
+    }
+
+    @Benchmark
+    public boolean bookEqualsByAttributes() {
+        return book.equalsByAttributes(sameBook, true);
+    }
+
+    @Benchmark
+    public boolean customerEqualsByAttributes() {
+        return customer.equalsByAttributes(sameCustomer, true);
+    }
+
+    @Benchmark
+    public boolean purchaseEqualsByAttributes() {
+        return purchase.equalsByAttributes(samePurchase, true);
+    }
+
+    @Benchmark
+    public boolean authorsAssociationEquals() {
+        Set<Author> expected = book.getAuthors();
+        Set<Author> actual = sameBook.getAuthors();
+
+        return Associations.associationEquals(expected, actual, true);
+    }
+
+    @Benchmark
+    public boolean itemsAssociationEquals() {
+        Set<Item> expected = purchase.getItems();
+        Set<Item> actual = samePurchase.getItems();
+
+        return Associations.associationEquals(expected, actual, true);
+    }
+}
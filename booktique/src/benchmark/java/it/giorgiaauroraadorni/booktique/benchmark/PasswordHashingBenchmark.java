@@ -0,0 +1,49 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of hashing and verifying a password at different costs, to choose
+ * {@code booktique.password.iterations}: the cost should be the highest one whose verification, multiplied by the
+ * expected logins per second, fits in the hashing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    private static final String PASSWORD = "Qwerty1234";
+
+    @Param({"100000", "310000", "600000"})
+    private int iterations;
+
+    private PasswordService passwordService;
+
+    private String hash;
+
+    @Setup
+    public void createService() {
+        passwordService = new PasswordService(iterations, iterations, 1, 1);
+        hash = passwordService.hash(PASSWORD);
+    }
+
+    @TearDown
+    public void shutdown() {
+        passwordService.shutdown();
+    }
+
+    @Benchmark
+    public String hash() {
+        return passwordService.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return passwordService.verify(PASSWORD, hash);
+    }
+}
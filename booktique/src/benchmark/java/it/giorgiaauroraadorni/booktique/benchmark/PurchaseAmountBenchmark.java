@@ -0,0 +1,74 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.model.Item;
+import it.giorgiaauroraadorni.booktique.model.Money;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the computation of the total amount of a purchase over item sets of increasing size. The amount is
+ * computed when the items are set, while reading it only returns the stored value.
+ * The sum of the items is also measured with the previous implementation, that allocates a BigDecimal for every
+ * operation, with {@link Money} instances, and with the cents of the prices summed in a long.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurchaseAmountBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int items;
+
+    private Purchase purchase;
+
+    @Setup
+    public void createPurchase() {
+        purchase = BenchmarkData.createPurchase(0, items);
+    }
+
+    @Benchmark
+    public BigDecimal computeAmount() {
+        purchase.setItems(purchase.getItems());
+        return purchase.getAmount();
+    }
+
+    @Benchmark
+    public BigDecimal getAmount() {
+        return purchase.getAmount();
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal amount = new BigDecimal(0);
+        for (Item i: purchase.getItems()) {
+            BigDecimal unitPrice = i.getUnitPrice();
+            BigDecimal quantityPerUnit = BigDecimal.valueOf(i.getQuantityPerUnit());
+            amount = amount.add(unitPrice.multiply(quantityPerUnit));
+        }
+        return amount;
+    }
+
+    @Benchmark
+    public BigDecimal sumMoney() {
+        Money amount = Money.ZERO;
+        for (Item i: purchase.getItems()) {
+            amount = amount.plus(i.getTotalPrice());
+        }
+        return amount.toBigDecimal();
+    }
+
+    @Benchmark
+    public BigDecimal sumCents() {
+        long cents = 0;
+        for (Item i: purchase.getItems()) {
+            cents = Math.addExact(cents, i.getTotalPriceCents());
+        }
+        return Money.ofCents(cents).toBigDecimal();
+    }
+}
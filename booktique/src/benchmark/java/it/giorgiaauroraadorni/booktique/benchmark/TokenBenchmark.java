@@ -0,0 +1,41 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.service.LoginService;
+import it.giorgiaauroraadorni.booktique.service.TokenService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of issuing and verifying an access token, that replaces the lookup of the account on every
+ * authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+    private TokenService tokenService;
+
+    private String token;
+
+    @Setup
+    public void createService() {
+        tokenService = new TokenService("1:" + Base64.getEncoder().encodeToString(new byte[32]), 3_600_000,
+                86_400_000);
+        token = tokenService.issue(LoginService.Account.CUSTOMER, 42).getValue();
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokenService.issue(LoginService.Account.CUSTOMER, 42).getValue();
+    }
+
+    @Benchmark
+    public long verify() {
+        return tokenService.verify(token).getPersonId();
+    }
+}
@@ -0,0 +1,82 @@
+package it.giorgiaauroraadorni.booktique.benchmark;
+
+import it.giorgiaauroraadorni.booktique.validation.CardNumberValidator;
+import it.giorgiaauroraadorni.booktique.validation.EmailAddressValidator;
+import it.giorgiaauroraadorni.booktique.validation.IsbnValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the validators of the email addresses, ISBNs and card numbers with the regular expressions they replaced.
+ * The adversarial inputs are the ones that make the regular expressions backtrack: a long run of characters matched
+ * in more ways, followed by a character that makes the match fail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[0-9a-zA-Z]+([0-9a-zA-Z]*[-._+])*[0-9a-zA-Z]+@" +
+            "[0-9a-zA-Z]+([-.][0-9a-zA-Z]+)*([0-9a-zA-Z]*[.])[a-zA-Z]{2,6}$");
+
+    private static final Pattern ISBN_PATTERN = Pattern.compile("^((978[\\--– ])?[0-9][0-9\\--– ]{10}[\\--– ]" +
+            "[0-9xX])|((978)?[0-9]{9}[0-9Xx])$");
+
+    private static final Pattern CARD_NUMBER_PATTERN = Pattern.compile("^(\\d{4}-){3}\\d{4}$|^(\\d{4} ){3}\\d{4}$|" +
+            "^\\d{16}$");
+
+    // length of the run of the adversarial inputs, 0 for valid inputs
+    @Param({"0", "16", "24"})
+    private int length;
+
+    private String email;
+    private String isbn;
+    private String cardNumber;
+
+    @Setup
+    public void createInputs() {
+        if (length == 0) {
+            email = "nome.cognome@mail.com";
+            isbn = "978-0-306-40615-7";
+            cardNumber = "4111-1111-1111-1111";
+        } else {
+            email = "a".repeat(length) + "!";
+            isbn = "978-" + "0".repeat(length) + "!";
+            cardNumber = "1".repeat(length) + "!";
+        }
+    }
+
+    @Benchmark
+    public boolean emailPattern() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailValidator() {
+        return EmailAddressValidator.isValid(email);
+    }
+
+    @Benchmark
+    public boolean isbnPattern() {
+        return ISBN_PATTERN.matcher(isbn).matches();
+    }
+
+    @Benchmark
+    public boolean isbnValidator() {
+        return IsbnValidator.isValid(isbn);
+    }
+
+    @Benchmark
+    public boolean cardNumberPattern() {
+        return CARD_NUMBER_PATTERN.matcher(cardNumber).matches();
+    }
+
+    @Benchmark
+    public boolean cardNumberValidator() {
+        return CardNumberValidator.isValid(cardNumber);
+    }
+}
@@ -0,0 +1,136 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import it.giorgiaauroraadorni.booktique.validation.IsbnValidator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * The scenarios of the {@code /books} endpoints.
+ * The ids of the books created are kept in a pool, from which the updates and the deletions pick their target.
+ */
+public class BookScenarios {
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final ConcurrentLinkedDeque<Long> bookIds = new ConcurrentLinkedDeque<>();
+
+    // the ISBN and the author fiscal code must be unique, the run prefix avoids collisions with the previous runs
+    private final AtomicLong sequence = new AtomicLong((System.currentTimeMillis() / 1000 % 10_000) * 1_000_000);
+
+    private final int pageSize;
+
+    public BookScenarios(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public List<LoadScenario> createScenarios() {
+        return List.of(new GetBooks(), new PostBook(), new PutBook(), new DeleteBook());
+    }
+
+    /**
+     * Create the books used by the updates and the deletions before the load starts.
+     * @param client the client used to send the requests.
+     * @param baseUri the address of the application under test.
+     * @param count the number of books to create.
+     */
+    public void seed(HttpClient client, URI baseUri, int count) throws IOException, InterruptedException {
+        var post = new PostBook();
+        for (int i = 0; i < count; i++) {
+            post.onResponse(client.send(post.createRequest(baseUri), HttpResponse.BodyHandlers.ofString()));
+        }
+    }
+
+    private String createBookJson() {
+        var n = sequence.incrementAndGet();
+        // the seeded books have the 978 prefix
+        var isbn = String.format("979%09d", n % 1_000_000_000L);
+
+        return "{\"isbn\": \"" + isbn + IsbnValidator.checkDigit13(isbn) + "\", " +
+                "\"title\": \"Titolo" + n + "\", " +
+                "\"publisher\": \"Editore\", " +
+                "\"edition\": 1, " +
+                "\"language\": \"Italiano\", " +
+                "\"bookFormat\": \"PAPERBACK\", " +
+                "\"publicationDate\": \"2019-01-01\", " +
+                "\"authors\": [{\"name\": \"Nome" + n + "\", \"surname\": \"Cognome" + n + "\"}]}";
+    }
+
+    private static HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    private class GetBooks implements LoadScenario {
+        @Override
+        public String getName() {
+            return "get-books";
+        }
+
+        @Override
+        public HttpRequest createRequest(URI baseUri) {
+            var page = ThreadLocalRandom.current().nextInt(Math.max(bookIds.size() / pageSize, 1));
+            return HttpRequest.newBuilder(baseUri.resolve("/books?page=" + page + "&size=" + pageSize)).GET().build();
+        }
+    }
+
+    private class PostBook implements LoadScenario {
+        @Override
+        public String getName() {
+            return "post-books";
+        }
+
+        @Override
+        public HttpRequest createRequest(URI baseUri) {
+            return json(baseUri.resolve("/books")).POST(HttpRequest.BodyPublishers.ofString(createBookJson())).build();
+        }
+
+        @Override
+        public void onResponse(HttpResponse<String> response) {
+            var matcher = ID_PATTERN.matcher(response.body());
+            if (response.statusCode() == 200 && matcher.find()) {
+                bookIds.add(Long.valueOf(matcher.group(1)));
+            }
+        }
+    }
+
+    private class PutBook implements LoadScenario {
+        @Override
+        public String getName() {
+            return "put-books";
+        }
+
+        @Override
+        public HttpRequest createRequest(URI baseUri) {
+            var id = bookIds.peekLast();
+            if (id == null) {
+                return null;
+            }
+            var body = "{\"title\": \"Titolo aggiornato\", \"publisher\": \"Editore\"}";
+            return json(baseUri.resolve("/books/" + id)).PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+        }
+    }
+
+    private class DeleteBook implements LoadScenario {
+        @Override
+        public String getName() {
+            return "delete-books";
+        }
+
+        @Override
+        public HttpRequest createRequest(URI baseUri) {
+            // the oldest books are deleted, the updates target the newest ones
+            var id = bookIds.pollFirst();
+            if (id == null) {
+                return null;
+            }
+            return HttpRequest.newBuilder(baseUri.resolve("/books/" + id)).DELETE().build();
+        }
+    }
+}
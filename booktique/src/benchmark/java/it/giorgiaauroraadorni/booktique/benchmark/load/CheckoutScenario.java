@@ -0,0 +1,59 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import it.giorgiaauroraadorni.booktique.benchmark.repository.DatasetSeeder;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The scenario of the {@code POST /purchases/checkout} endpoint.
+ * The carts reference the customers, employees, books and suppliers of the dataset created by the
+ * {@link it.giorgiaauroraadorni.booktique.benchmark.repository.RepositoryBenchmark} with the same scale, whose ids
+ * are assigned in known ranges.
+ */
+public class CheckoutScenario implements LoadScenario {
+    private final DatasetSeeder dataset;
+
+    private final int maxItems;
+
+    public CheckoutScenario(DatasetSeeder dataset, int maxItems) {
+        this.dataset = dataset;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public String getName() {
+        return "post-checkout";
+    }
+
+    @Override
+    public HttpRequest createRequest(URI baseUri) {
+        return HttpRequest.newBuilder(baseUri.resolve("/purchases/checkout"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(createCartJson()))
+                .build();
+    }
+
+    private String createCartJson() {
+        var random = ThreadLocalRandom.current();
+        var customerId = dataset.getFirstCustomerId() + random.nextLong(dataset.getCustomers());
+        var employeeId = dataset.getFirstEmployeeId() + random.nextLong(dataset.getEmployees());
+        var cart = new StringBuilder()
+                .append("{\"customerId\": ").append(customerId)
+                .append(", \"employeeId\": ").append(employeeId)
+                .append(", \"payment\": {\"cardNumber\": \"0000000000000000\", \"cardholderName\": \"Nome Cognome\", ")
+                .append("\"expireDate\": \"2030-01-01\", \"cvc\": \"000\"}, \"items\": [");
+
+        var items = 1 + random.nextInt(maxItems);
+        for (int i = 0; i < items; i++) {
+            // the supplier that lists the book in the dataset, the checkout charges its price
+            var bookId = 1 + random.nextLong(dataset.getScale());
+            cart.append(i > 0 ? ", " : "")
+                    .append("{\"bookId\": ").append(bookId)
+                    .append(", \"supplierId\": ").append(1 + bookId % dataset.getSuppliers())
+                    .append(", \"quantity\": ").append(1 + random.nextInt(3)).append("}");
+        }
+        return cart.append("]}").toString();
+    }
+}
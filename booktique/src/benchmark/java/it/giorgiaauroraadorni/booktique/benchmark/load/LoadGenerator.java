@@ -0,0 +1,241 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import it.giorgiaauroraadorni.booktique.BooktiqueApplication;
+import it.giorgiaauroraadorni.booktique.benchmark.repository.DatasetSeeder;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends a configurable mix of requests to the application at a fixed arrival rate and reports the throughput and the
+ * latency percentiles of every scenario.
+ * <p>
+ * The generator follows an open model: the requests are scheduled at the configured rate whether or not the previous
+ * ones have completed, as real clients do, and every latency is measured from the scheduled time. A saturated server
+ * therefore shows up as growing latencies instead of a silently reduced rate.
+ * <p>
+ * Unless {@code --load.target} is given, the application is booted in-process against the local database. The options
+ * are:
+ * <ul>
+ *     <li>{@code --load.target}: the address of an application already running, for example
+ *     {@code http://localhost:8080};</li>
+ *     <li>{@code --load.rate}: the requests per second (default 100);</li>
+ *     <li>{@code --load.arrival}: {@code constant} or {@code poisson} inter-arrival times (default poisson);</li>
+ *     <li>{@code --load.warmup} and {@code --load.duration}: the length of the warm-up, whose requests are not
+ *     recorded, and of the measurement, as ISO-8601 durations (default PT10S and PT60S);</li>
+ *     <li>{@code --load.mix}: the weighted scenarios (default
+ *     {@code get-books:70,post-books:20,put-books:5,delete-books:5});</li>
+ *     <li>{@code --load.seed-books}: the books created before the load starts (default 1000);</li>
+ *     <li>{@code --load.dataset-scale}: the scale of the dataset seeded by the repository benchmark, required by the
+ *     {@code post-checkout} and {@code post-login} scenarios to reference existing customers, employees, books and
+ *     suppliers;</li>
+ *     <li>{@code --load.checkout-items}: the maximum number of items of every cart (default 5);</li>
+ *     <li>{@code --load.threads}: the threads handling the responses (default 16);</li>
+ *     <li>{@code --load.max-outstanding}: the requests in flight after which new requests are dropped and counted as
+ *     errors (default 10000).</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    private final SimpleCommandLinePropertySource arguments;
+
+    private final Map<String, ScenarioStatistics> statistics = new LinkedHashMap<>();
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private LoadGenerator(String[] args) {
+        this.arguments = new SimpleCommandLinePropertySource(args);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(args).run(args);
+    }
+
+    private String property(String name, String defaultValue) {
+        var value = arguments.getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Create all the scenarios that can be used in the mix.
+     * @param datasetScenarios the scenarios referencing the seeded dataset, empty if no dataset is available.
+     * @return the scenarios indexed by name.
+     */
+    static Map<String, LoadScenario> createScenarios(BookScenarios bookScenarios,
+                                                     List<LoadScenario> datasetScenarios) {
+        Map<String, LoadScenario> scenarios = new LinkedHashMap<>();
+        for (LoadScenario scenario: bookScenarios.createScenarios()) {
+            scenarios.put(scenario.getName(), scenario);
+        }
+        for (LoadScenario scenario: datasetScenarios) {
+            scenarios.put(scenario.getName(), scenario);
+        }
+        return scenarios;
+    }
+
+    private void run(String[] args) throws Exception {
+        ConfigurableApplicationContext context = null;
+        var target = arguments.getProperty("load.target");
+        if (target == null) {
+            // the application runs against the local database configured by the default profile
+            context = new SpringApplicationBuilder(BooktiqueApplication.class)
+                    .profiles("default", "benchmark")
+                    .properties("server.port=0")
+                    .run(args);
+            target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        var rate = Double.parseDouble(property("load.rate", "100"));
+        var poisson = property("load.arrival", "poisson").equals("poisson");
+        var warmup = Duration.parse(property("load.warmup", "PT10S"));
+        var duration = Duration.parse(property("load.duration", "PT60S"));
+        var maxOutstanding = Integer.parseInt(property("load.max-outstanding", "10000"));
+        var threads = Integer.parseInt(property("load.threads", "16"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var baseUri = URI.create(target);
+            var client = HttpClient.newBuilder().executor(executor).build();
+
+            var bookScenarios = new BookScenarios(20);
+            var datasetScale = arguments.getProperty("load.dataset-scale");
+            List<LoadScenario> datasetScenarios = List.of();
+            if (datasetScale != null) {
+                var dataset = new DatasetSeeder(null, Long.parseLong(datasetScale), null);
+                datasetScenarios = List.of(
+                        new CheckoutScenario(dataset, Integer.parseInt(property("load.checkout-items", "5"))),
+                        new LoginScenario(dataset));
+            }
+            var mix = new ScenarioMix(property("load.mix", "get-books:70,post-books:20,put-books:5,delete-books:5"),
+                    createScenarios(bookScenarios, datasetScenarios));
+            for (LoadScenario scenario: mix.getScenarios()) {
+                statistics.put(scenario.getName(), new ScenarioStatistics(scenario.getName()));
+            }
+
+            bookScenarios.seed(client, baseUri, Integer.parseInt(property("load.seed-books", "1000")));
+
+            var start = System.nanoTime();
+            var measurementStart = start + warmup.toNanos();
+            var end = measurementStart + duration.toNanos();
+            var meanIntervalNanos = 1_000_000_000 / rate;
+
+            var intended = start;
+            while (intended < end) {
+                var now = System.nanoTime();
+                if (intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                send(client, baseUri, mix.pick(), intended, intended >= measurementStart, maxOutstanding);
+
+                var interval = poisson ?
+                        -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos :
+                        meanIntervalNanos;
+                intended += (long) interval;
+            }
+
+            // wait for the requests still in flight
+            while (outstanding.get() > 0 && System.nanoTime() - end < TimeUnit.MINUTES.toNanos(1)) {
+                Thread.sleep(10);
+            }
+
+            report(rate, duration);
+        } finally {
+            executor.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void send(HttpClient client, URI baseUri, LoadScenario scenario, long intended, boolean recorded,
+                      int maxOutstanding) {
+        var scenarioStatistics = statistics.get(scenario.getName());
+        var request = scenario.createRequest(baseUri);
+        if (request == null) {
+            if (recorded) {
+                scenarioStatistics.recordSkipped();
+            }
+            return;
+        }
+        if (outstanding.get() >= maxOutstanding) {
+            if (recorded) {
+                scenarioStatistics.recordFailure(System.nanoTime() - intended);
+            }
+            return;
+        }
+
+        outstanding.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    var latency = System.nanoTime() - intended;
+                    outstanding.decrementAndGet();
+                    if (failure != null) {
+                        if (recorded) {
+                            scenarioStatistics.recordFailure(latency);
+                        }
+                        return;
+                    }
+                    scenario.onResponse(response);
+                    if (recorded) {
+                        scenarioStatistics.recordResponse(latency, response.statusCode());
+                    }
+                });
+    }
+
+    private void report(double rate, Duration duration) throws FileNotFoundException {
+        var seconds = duration.toMillis() / 1000.0;
+        var total = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+        long errors = 0;
+
+        var table = new StringBuilder();
+        table.append(String.format("Target rate: %.1f req/s, measured for %.0f s%n", rate, seconds));
+        table.append(String.format("%-16s %10s %10s %8s %8s %10s %10s %10s %10s %10s%n", "Scenario", "Requests",
+                "Req/s", "Errors", "Skipped", "P50 (ms)", "P90 (ms)", "P99 (ms)", "P99.9 (ms)", "Max (ms)"));
+        for (ScenarioStatistics scenario: statistics.values()) {
+            table.append(format(scenario.getName(), scenario.getLatencies(), seconds, scenario.getErrors(),
+                    scenario.getSkipped()));
+            total.add(scenario.getLatencies());
+            errors += scenario.getErrors();
+        }
+        table.append(format("total", total, seconds, errors, 0));
+        System.out.print(table);
+
+        // the full distributions can be plotted with the HdrHistogram plotter
+        var output = new File(property("load.output", "target/benchmarks"));
+        output.mkdirs();
+        var reportFile = new File(output, "load-" + System.currentTimeMillis() / 1000 + ".hgrm");
+        try (var stream = new PrintStream(reportFile)) {
+            for (ScenarioStatistics scenario: statistics.values()) {
+                stream.println("# " + scenario.getName());
+                scenario.getLatencies().outputPercentileDistribution(stream, 1000.0);
+            }
+        }
+        System.out.println("Latency distributions written to " + reportFile);
+    }
+
+    private static String format(String name, Histogram latencies, double seconds, long errors, long skipped) {
+        return String.format("%-16s %10d %10.1f %8d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name, latencies.getTotalCount(), latencies.getTotalCount() / seconds, errors, skipped,
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0, latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,32 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * A type of request sent by the {@link LoadGenerator}, such as {@code GET /books}.
+ * New endpoints are added to the load test by implementing a scenario and registering it in
+ * {@link LoadGenerator#createScenarios}.
+ */
+public interface LoadScenario {
+
+    /**
+     * @return the name used to select the scenario in the request mix, for example {@code get-books}.
+     */
+    String getName();
+
+    /**
+     * Create the next request of the scenario.
+     * @param baseUri the address of the application under test.
+     * @return the request, or {@code null} if the scenario cannot send a request now (for example when there are no
+     *         books left to delete).
+     */
+    HttpRequest createRequest(URI baseUri);
+
+    /**
+     * Called when a response to a request of the scenario is received, for example to remember the created resources.
+     * @param response the response received.
+     */
+    default void onResponse(HttpResponse<String> response) {}
+}
@@ -0,0 +1,36 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import it.giorgiaauroraadorni.booktique.benchmark.repository.DatasetSeeder;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The scenario of the {@code POST /customers/login} endpoint.
+ * The customers of the dataset created by the
+ * {@link it.giorgiaauroraadorni.booktique.benchmark.repository.RepositoryBenchmark} are named {@code customer<id>} and
+ * share the same password, hashed at the cost of the application, so every login verifies one hash.
+ */
+public class LoginScenario implements LoadScenario {
+    private final DatasetSeeder dataset;
+
+    public LoginScenario(DatasetSeeder dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public String getName() {
+        return "post-login";
+    }
+
+    @Override
+    public HttpRequest createRequest(URI baseUri) {
+        var customerId = dataset.getFirstCustomerId() + ThreadLocalRandom.current().nextLong(dataset.getCustomers());
+        return HttpRequest.newBuilder(baseUri.resolve("/customers/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"customer" + customerId + "\", " +
+                        "\"password\": \"Qwerty1234\"}"))
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the scenario of every request according to the weights of the mix, for example
+ * {@code get-books:70,post-books:20,put-books:5,delete-books:5}.
+ */
+public class ScenarioMix {
+    private final List<LoadScenario> scenarios = new ArrayList<>();
+
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+
+    private int totalWeight;
+
+    public ScenarioMix(String mix, Map<String, LoadScenario> available) {
+        for (String entry: mix.split(",")) {
+            var parts = entry.trim().split(":");
+            var scenario = available.get(parts[0]);
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + parts[0] + ", the available scenarios are " +
+                        available.keySet());
+            }
+            var weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            if (weight <= 0) {
+                throw new IllegalArgumentException("The weight of the scenario " + parts[0] + " must be positive");
+            }
+            totalWeight += weight;
+            scenarios.add(scenario);
+            cumulativeWeights.add(totalWeight);
+        }
+    }
+
+    public List<LoadScenario> getScenarios() {
+        return scenarios;
+    }
+
+    public LoadScenario pick() {
+        var value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (value < cumulativeWeights.get(i)) {
+                return scenarios.get(i);
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+}
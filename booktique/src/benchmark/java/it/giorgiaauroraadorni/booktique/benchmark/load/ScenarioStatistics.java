@@ -0,0 +1,59 @@
+package it.giorgiaauroraadorni.booktique.benchmark.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies and the outcomes of the requests of a scenario.
+ * Latencies are recorded in microseconds from the time the request was scheduled to be sent, not from the time it was
+ * actually sent, so that the time spent waiting behind slow requests is included (coordinated omission correction).
+ */
+public class ScenarioStatistics {
+    private final String name;
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    public ScenarioStatistics(String name) {
+        this.name = name;
+    }
+
+    public void recordResponse(long latencyNanos, int statusCode) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos),
+                latencies.getHighestTrackableValue()));
+        if (statusCode >= 400) {
+            errors.increment();
+        }
+    }
+
+    public void recordFailure(long latencyNanos) {
+        recordResponse(latencyNanos, 599);
+    }
+
+    public void recordSkipped() {
+        skipped.increment();
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains the HTTP load generator, that measures the throughput and the latency percentiles of the application under
+ * a configurable mix of requests sent at a fixed arrival rate.
+ */
+package it.giorgiaauroraadorni.booktique.benchmark.load;
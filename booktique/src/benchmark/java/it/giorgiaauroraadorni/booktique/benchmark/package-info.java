@@ -0,0 +1,8 @@
+/**
+ * Contains the <i>JMH</i> benchmarks of the model hot paths.
+ * The benchmarks are built and run only with the {@code benchmark} Maven profile:
+ * {@code mvn -Pbenchmark test-compile exec:exec}. The JMH options, such as the benchmarks to run or the profilers,
+ * can be passed with {@code -Dbenchmark.args}, by default the GC profiler is enabled and the results are written to
+ * {@code target/jmh-result.json}.
+ */
+package it.giorgiaauroraadorni.booktique.benchmark;
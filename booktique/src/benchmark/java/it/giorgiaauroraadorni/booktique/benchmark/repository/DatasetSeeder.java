@@ -0,0 +1,256 @@
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Populates the database with a synthetic dataset of the requested scale.
+ * The rows are generated by PostgreSQL with {@code generate_series}, so that millions of rows can be inserted without
+ * transferring them from the JVM. Every table holding the main entities (books, authors, items, payments, purchases)
+ * receives {@code scale} rows, while customers, employees, suppliers and addresses are scaled down as in a real store.
+ * <p>
+ * The persons are inserted in the tables of the mapping of the schema: a table per subclass joined with the persons
+ * table, or the single persons table of the {@code single-table} profile.
+ */
+public class DatasetSeeder {
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSeeder.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long scale;
+
+    // The hash of the password shared by the customers and the employees, the passwords in clear are never verified
+    private final String passwordHash;
+
+    public DatasetSeeder(JdbcTemplate jdbcTemplate, long scale, String passwordHash) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scale = scale;
+        this.passwordHash = passwordHash;
+    }
+
+    /**
+     * @return {@code true} if the persons are mapped to a single table, that is the schema has no customers table.
+     */
+    public boolean isSingleTable() {
+        return jdbcTemplate.queryForObject("select to_regclass('customers') is null", Boolean.class);
+    }
+
+    public long getScale() {
+        return scale;
+    }
+
+    public long getAddresses() {
+        return Math.max(scale / 10, 10);
+    }
+
+    public long getCustomers() {
+        return Math.max(scale / 10, 10);
+    }
+
+    public long getEmployees() {
+        return Math.max(scale / 1000, 10);
+    }
+
+    public long getSuppliers() {
+        return Math.max(scale / 1000, 10);
+    }
+
+    // The persons table is shared by authors, customers and employees, their ids are assigned in consecutive ranges
+    public long getFirstCustomerId() {
+        return scale + 1;
+    }
+
+    public long getFirstEmployeeId() {
+        return scale + getCustomers() + 1;
+    }
+
+    /**
+     * Seed the dataset, unless the database already contains a dataset of the same scale.
+     * @return {@code true} if the dataset has been created, {@code false} if it has been reused.
+     */
+    public boolean seed() {
+        var books = jdbcTemplate.queryForObject("select count(*) from books", Long.class);
+        if (books != null && books == scale) {
+            logger.info("Reusing the existing dataset of {} rows", scale);
+            applyImportScript();
+            return false;
+        }
+
+        var singleTable = isSingleTable();
+        logger.info("Seeding a dataset of {} rows, persons mapped to {}", scale,
+                singleTable ? "a single table" : "joined tables");
+        var start = System.nanoTime();
+
+        jdbcTemplate.execute("truncate purchases_items, purchases, items, payments, catalog_prices, books_authors, " +
+                "books, " + (singleTable ? "" : "authors, customers, employees, ") +
+                "persons, suppliers, addresses cascade");
+
+        // the street makes every address different, the keys are unique but are not the hashes computed by Address
+        insert("addresses", "insert into addresses (id, created_at, updated_at, building, city, country, " +
+                "postal_code, province, region, street_address, canonical_key) " +
+                "select i, now(), now(), 'Scala ' || (i % 4), 'Città' || (i % 8000), 'Italia', " +
+                "lpad((i % 100000)::text, 5, '0'), 'PR', 'Regione' || (i % 20), 'Via Nomevia ' || i, " +
+                "md5('address' || i) " +
+                "from generate_series(1, ?::int) as i", getAddresses());
+
+        if (singleTable) {
+            insertSingleTablePersons();
+        } else {
+            insertJoinedPersons();
+        }
+
+        // titles are repeated twice on average
+        insert("books", "insert into books (id, created_at, updated_at, book_format, edition, isbn, language, " +
+                "publication_date, publisher, subtitle, title, prequel_id) " +
+                "select i, now(), now(), 'PAPERBACK', 1, '978' || lpad(i::text, 10, '0'), 'Italiano', " +
+                "date '1950-01-01' + (i % 25000), 'Editore' || (i % 100), 'Sottotitolo', " +
+                "'Titolo' || (i % greatest(? / 2, 1)), null " +
+                "from generate_series(1, ?::int) as i", scale, scale);
+
+        insert("books_authors", "insert into books_authors (book_id, authors_id) " +
+                "select i, i from generate_series(1, ?::int) as i", scale);
+
+        insert("suppliers", "insert into suppliers (id, created_at, updated_at, company_name, email, phone_number, " +
+                "address_id) " +
+                "select i, now(), now(), 'Compagnia' || i, 'supplier' || i || '@mail.com', '0' || (200000000 + i), " +
+                "1 + i % " + getAddresses() + " " +
+                "from generate_series(1, ?::int) as i", getSuppliers());
+
+        // payments and purchases are spread over ten years
+        insert("payments", "insert into payments (id, created_at, updated_at, cvc, card_number, cardholder_name, " +
+                "expire_date, payment_date) " +
+                "select i, now(), now(), '000', lpad(i::text, 16, '0'), 'Nome' || (i % 1000) || ' Cognome', " +
+                "date '2030-01-01', date '2010-01-01' + (i % 3650) " +
+                "from generate_series(1, ?::int) as i", scale);
+
+        insert("items", "insert into items (id, created_at, updated_at, quantity_per_unit, unit_price, " +
+                "book_item_id, supplier_id) " +
+                "select i, now(), now(), 1 + i % 3, 5 + (i % 5000) / 100.0, i, 1 + i % " + getSuppliers() + " " +
+                "from generate_series(1, ?::int) as i", scale);
+
+        // every book is listed by the supplier of its item, at the same price
+        insert("catalog_prices", "insert into catalog_prices (id, created_at, updated_at, unit_price, book_id, " +
+                "supplier_id) " +
+                "select i, now(), now(), 5 + (i % 5000) / 100.0, i, 1 + i % " + getSuppliers() + " " +
+                "from generate_series(1, ?::int) as i", scale);
+
+        // every purchase contains the item with the same id, so the amount is computed from the same expressions;
+        // as in a store with a long history, only 2% of the purchases are still to be fulfilled
+        insert("purchases", "insert into purchases (id, created_at, updated_at, amount, order_date, shipping_date, " +
+                "status, customer_id, employee_id, payment_details_id) " +
+                "select i, now(), now(), (5 + (i % 5000) / 100.0) * (1 + i % 3), " +
+                "date '2010-01-01' + (i % 3650), date '2010-01-01' + (i % 3650) + 3, " +
+                "case when i % 50 = 0 " +
+                "then (array['PENDING_PAYMENT', 'PAYMENT_REVIEW', 'PROCESSING', 'IN_PRODUCTION'])[1 + (i / 50) % 4] " +
+                "else (array['CANCELED', 'COMPLETED', 'SHIPPED'])[1 + i % 3] end, " +
+                "? + i % " + getCustomers() + ", ? + i % " + getEmployees() + ", i " +
+                "from generate_series(1, ?::int) as i", getFirstCustomerId(), getFirstEmployeeId(), scale);
+
+        insert("purchases_items", "insert into purchases_items (purchase_id, items_id) " +
+                "select i, i from generate_series(1, ?::int) as i", scale);
+
+        // move the sequence after the generated ids, and refresh the planner statistics
+        jdbcTemplate.queryForObject("select setval('hibernate_sequence', ?)", Long.class,
+                getFirstEmployeeId() + getEmployees());
+        applyImportScript();
+        jdbcTemplate.execute("analyze");
+
+        logger.info("Dataset seeded in {} s", (System.nanoTime() - start) / 1_000_000_000);
+        return true;
+    }
+
+    // The columns shared by all the persons, followed by the columns of the subclass
+    private static final String PERSON_COLUMNS = "id, created_at, updated_at, date_of_birth, email, fiscal_code, " +
+            "mobile_phone, name, surname";
+
+    private static final String PERSON_VALUES = "i, now(), now(), date '1950-01-01' + (i % 18000), " +
+            "'person' || i || '@mail.com', 'F' || lpad(i::text, 15, '0'), '+39' || (3100000000 + i), " +
+            "'Nome' || (i % 1000), 'Cognome' || (i % 5000)";
+
+    private void insertJoinedPersons() {
+        insert("persons", "insert into persons (" + PERSON_COLUMNS + ") " +
+                "select " + PERSON_VALUES + " " +
+                "from generate_series(1, ?::int) as i", scale + getCustomers() + getEmployees());
+
+        insert("authors", "insert into authors (id, biography, web_siteurl) " +
+                "select i, 'Biografia', 'www.author' || i || '.org' from generate_series(1, ?::int) as i", scale);
+
+        insert("customers", "insert into customers (id, username, password, vat_number, address_id) " +
+                "select i, 'customer' || i, ?, null, 1 + i % " + getAddresses() + " " +
+                "from generate_series(?::int, ?::int) as i", passwordHash, getFirstCustomerId(),
+                getFirstEmployeeId() - 1);
+
+        insert("employees", "insert into employees (id, username, password, hire_date, address_id, supervisor_id) " +
+                "select i, 'employee' || i, ?, date '2010-01-01' + (i % 3000), 1 + i % " +
+                getAddresses() + ", " + supervisorId() + " " +
+                "from generate_series(?::int, ?::int) as i",
+                passwordHash, getFirstEmployeeId(), getFirstEmployeeId() + getEmployees() - 1);
+    }
+
+    // The same rows of insertJoinedPersons, with the columns of every subclass in the persons table
+    private void insertSingleTablePersons() {
+        insert("persons (authors)", "insert into persons (person_type, " + PERSON_COLUMNS + ", biography, " +
+                "web_siteurl) " +
+                "select 'AUTHOR', " + PERSON_VALUES + ", 'Biografia', 'www.author' || i || '.org' " +
+                "from generate_series(1, ?::int) as i", scale);
+
+        insert("persons (customers)", "insert into persons (person_type, " + PERSON_COLUMNS + ", username, " +
+                "password, vat_number, address_id) " +
+                "select 'CUSTOMER', " + PERSON_VALUES + ", 'customer' || i, ?, null, 1 + i % " +
+                getAddresses() + " " +
+                "from generate_series(?::int, ?::int) as i", passwordHash, getFirstCustomerId(),
+                getFirstEmployeeId() - 1);
+
+        insert("persons (employees)", "insert into persons (person_type, " + PERSON_COLUMNS + ", username, " +
+                "password, hire_date, address_id, supervisor_id) " +
+                "select 'EMPLOYEE', " + PERSON_VALUES + ", 'employee' || i, ?, " +
+                "date '2010-01-01' + (i % 3000), 1 + i % " + getAddresses() + ", " + supervisorId() + " " +
+                "from generate_series(?::int, ?::int) as i",
+                passwordHash, getFirstEmployeeId(), getFirstEmployeeId() + getEmployees() - 1);
+    }
+
+    // The employees form a tree where everyone supervises ten employees, the first one supervises himself
+    private String supervisorId() {
+        return "case when i = " + getFirstEmployeeId() + " then i else " + getFirstEmployeeId() + " + (i - " +
+                getFirstEmployeeId() + " - 1) / 10 end";
+    }
+
+    /**
+     * Create the triggers and the indexes of import.sql, and the view and the checks of import-single-table.sql when
+     * the persons are mapped to a single table, that Hibernate executes only when it creates the schema, while the
+     * benchmarks update the existing one. The triggers are created after the rows are inserted, so that they do not
+     * slow down the seeding.
+     */
+    private void applyImportScript() {
+        applyScript("import.sql");
+        if (isSingleTable()) {
+            applyScript("import-single-table.sql");
+        }
+    }
+
+    private void applyScript(String script) {
+        try (var reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(script).getInputStream(), StandardCharsets.UTF_8))) {
+            reader.lines()
+                    .map(String::trim)
+                    .filter((line) -> !line.isEmpty() && !line.startsWith("--"))
+                    .forEach(jdbcTemplate::execute);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void insert(String table, String sql, Object... args) {
+        var start = System.nanoTime();
+        var rows = jdbcTemplate.update(sql, args);
+        logger.info("Inserted {} rows in {} ({} ms)", rows, table, (System.nanoTime() - start) / 1_000_000);
+    }
+}
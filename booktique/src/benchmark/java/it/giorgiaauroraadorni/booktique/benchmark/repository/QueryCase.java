@@ -0,0 +1,35 @@
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * A repository query to benchmark.
+ * The SQL parameters are the values bound to the statement generated by Hibernate, in the same order, and are used to
+ * execute the {@code EXPLAIN} of the statement.
+ */
+public class QueryCase {
+    private final String name;
+
+    private final Supplier<?> query;
+
+    private final Object[] sqlParameters;
+
+    public QueryCase(String name, Supplier<?> query, Object... sqlParameters) {
+        this.name = name;
+        this.query = query;
+        this.sqlParameters = sqlParameters;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public Supplier<?> getQuery() {
+        return query;
+    }
+
+    public Object[] getSqlParameters() {
+        return sqlParameters;
+    }
+}
@@ -0,0 +1,111 @@
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The results of a run of the repository benchmark, serialized as JSON so that runs can be compared.
+ */
+public class QueryReport {
+    private Instant date;
+
+    private long scale;
+
+    // The mapping of the persons: joined or single-table
+    private String personsMapping;
+
+    private List<QueryResult> results = new ArrayList<>();
+
+    // The size in bytes of the tables of the persons, including their indexes
+    private Map<String, Long> tableSizes = new TreeMap<>();
+
+    // Getters and Setters
+    public Instant getDate() {
+        return date;
+    }
+
+    public void setDate(Instant date) {
+        this.date = date;
+    }
+
+    public long getScale() {
+        return scale;
+    }
+
+    public void setScale(long scale) {
+        this.scale = scale;
+    }
+
+    public String getPersonsMapping() {
+        return personsMapping;
+    }
+
+    public void setPersonsMapping(String personsMapping) {
+        this.personsMapping = personsMapping;
+    }
+
+    public List<QueryResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<QueryResult> results) {
+        this.results = results;
+    }
+
+    public Map<String, Long> getTableSizes() {
+        return tableSizes;
+    }
+
+    public void setTableSizes(Map<String, Long> tableSizes) {
+        this.tableSizes = tableSizes;
+    }
+
+    /**
+     * Format the results as a table. When a baseline report is given, the median of every query is compared with the
+     * median of the same query in the baseline, and the size of the tables with the size of the same tables.
+     * @param baseline the report of a previous run, or {@code null}.
+     * @return the formatted table.
+     */
+    public String format(QueryReport baseline) {
+        var table = new StringBuilder();
+        table.append(String.format("%-40s %6s %12s %12s %12s %12s %10s%n",
+                "Query", "Stmts", "Mean (us)", "P50 (us)", "P95 (us)", "P99 (us)", "P50 diff"));
+
+        for (QueryResult result: results) {
+            var difference = "";
+            if (baseline != null) {
+                difference = baseline.getResults()
+                        .stream()
+                        .filter((r) -> r.getName().equals(result.getName()) && r.getP50Micros() > 0)
+                        .findFirst()
+                        .map((r) -> String.format("%+.1f%%", 100 * (result.getP50Micros() / r.getP50Micros() - 1)))
+                        .orElse("new");
+            }
+            table.append(String.format("%-40s %6d %12.1f %12.1f %12.1f %12.1f %10s%n",
+                    result.getName(), result.getStatements(), result.getMeanMicros(), result.getP50Micros(),
+                    result.getP95Micros(), result.getP99Micros(), difference));
+        }
+
+        // the tables differ between the mappings of the persons, so their total is compared too
+        var sizes = new TreeMap<>(tableSizes);
+        sizes.put("total", tableSizes.values().stream().mapToLong(Long::longValue).sum());
+        table.append(String.format("%n%-40s %12s %10s%n", "Persons tables (" + personsMapping + ")", "Size (MB)",
+                "Diff"));
+        sizes.forEach((name, bytes) -> {
+            var difference = "";
+            if (baseline != null) {
+                var baselineBytes = name.equals("total") ?
+                        Long.valueOf(baseline.getTableSizes().values().stream().mapToLong(Long::longValue).sum()) :
+                        baseline.getTableSizes().get(name);
+                difference = baselineBytes == null || baselineBytes == 0 ? "new" :
+                        String.format("%+.1f%%", 100 * ((double) bytes / baselineBytes - 1));
+            }
+            table.append(String.format("%-40s %12.1f %10s%n", name, bytes / 1048576.0, difference));
+        });
+
+        return table.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The timings of a repository query, together with the statement executed and its plan.
+ */
+public class QueryResult {
+    private String name;
+
+    private String sql;
+
+    private List<String> plan;
+
+    private int statements;
+
+    private int iterations;
+
+    private double meanMicros;
+
+    private double p50Micros;
+
+    private double p95Micros;
+
+    private double p99Micros;
+
+    private double maxMicros;
+
+    // required by Jackson
+    public QueryResult() {}
+
+    public QueryResult(String name, String sql, List<String> plan, int statements, long[] nanos) {
+        this.name = name;
+        this.sql = sql;
+        this.plan = plan;
+        this.statements = statements;
+        this.iterations = nanos.length;
+
+        var sorted = nanos.clone();
+        Arrays.sort(sorted);
+        this.meanMicros = Arrays.stream(sorted).average().orElse(0) / 1000;
+        this.p50Micros = percentile(sorted, 0.50);
+        this.p95Micros = percentile(sorted, 0.95);
+        this.p99Micros = percentile(sorted, 0.99);
+        this.maxMicros = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1000.0;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public List<String> getPlan() {
+        return plan;
+    }
+
+    public void setPlan(List<String> plan) {
+        this.plan = plan;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public void setStatements(int statements) {
+        this.statements = statements;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public void setMeanMicros(double meanMicros) {
+        this.meanMicros = meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public void setP50Micros(double p50Micros) {
+        this.p50Micros = p50Micros;
+    }
+
+    public double getP95Micros() {
+        return p95Micros;
+    }
+
+    public void setP95Micros(double p95Micros) {
+        this.p95Micros = p95Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public void setP99Micros(double p99Micros) {
+        this.p99Micros = p99Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    public void setMaxMicros(double maxMicros) {
+        this.maxMicros = maxMicros;
+    }
+}
@@ -0,0 +1,341 @@
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import it.giorgiaauroraadorni.booktique.BooktiqueApplication;
+import it.giorgiaauroraadorni.booktique.model.Author;
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.model.Person;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.*;
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
+import it.giorgiaauroraadorni.booktique.statistics.StatementCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Times every derived query of the repositories against a synthetic dataset of realistic volume.
+ * For every query the benchmark records the latency percentiles, the number of statements executed and the plan
+ * chosen by PostgreSQL, and writes a JSON report that can be compared with the report of a previous run.
+ * <p>
+ * The report also contains the cost of inserting an author and an employee, and the size of the tables of the persons,
+ * so that the two mappings of the persons can be compared: the default one joins a table per subclass, while the
+ * {@code single-table} profile keeps all the persons in one table. Every mapping needs its own database, for example
+ * with {@code --spring.profiles.active=single-table --spring.datasource.url=jdbc:postgresql://localhost:5432/single}.
+ * <p>
+ * The benchmark is run with the {@code benchmark} Maven profile:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=it.giorgiaauroraadorni.booktique.benchmark.repository.RepositoryBenchmark \
+ *     -Dbenchmark.args="--benchmark.scale=1000000 --benchmark.baseline=target/benchmarks/previous.json"
+ * </pre>
+ */
+public class RepositoryBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryBenchmark.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Value("${benchmark.scale:10000}")
+    private long scale;
+
+    @Value("${benchmark.warmup:20}")
+    private int warmup;
+
+    @Value("${benchmark.iterations:100}")
+    private int iterations;
+
+    @Value("${benchmark.output:target/benchmarks}")
+    private File output;
+
+    @Value("${benchmark.baseline:}")
+    private String baseline;
+
+    public static void main(String[] args) throws IOException {
+        // the benchmark runs against the local database configured by the default profile
+        try (var context = new SpringApplicationBuilder(BooktiqueApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("default", "benchmark")
+                .run(args)) {
+            context.getAutowireCapableBeanFactory().createBean(RepositoryBenchmark.class).run();
+        }
+    }
+
+    public void run() throws IOException {
+        var seeder = new DatasetSeeder(jdbcTemplate, scale, passwordService.hash("Qwerty1234"));
+        seeder.seed();
+
+        var report = new QueryReport();
+        report.setDate(Instant.now());
+        report.setScale(scale);
+        report.setPersonsMapping(seeder.isSingleTable() ? "single-table" : "joined");
+        for (QueryCase queryCase: createQueryCases(seeder)) {
+            logger.info("Benchmarking {}", queryCase.getName());
+            report.getResults().add(benchmark(queryCase));
+        }
+        report.getResults().add(benchmarkInsert("AuthorRepository.save", () -> authorRepository.save(newAuthor())));
+        var supervisor = seeder.getFirstEmployeeId();
+        report.getResults().add(benchmarkInsert("EmployeeRepository.save",
+                () -> employeeRepository.save(newEmployee(employeeRepository.getOne(supervisor)))));
+        // the views are excluded, the employees of the single table are a view of the persons table
+        jdbcTemplate.query("select relname, pg_total_relation_size(oid) from pg_class " +
+                        "where relname in ('persons', 'authors', 'customers', 'employees') and relkind = 'r'",
+                (row) -> { report.getTableSizes().put(row.getString(1), row.getLong(2)); });
+
+        var objectMapper = Jackson2ObjectMapperBuilder.json().build().enable(SerializationFeature.INDENT_OUTPUT);
+        output.mkdirs();
+        var reportFile = new File(output, "repository-" + scale + "-" + report.getDate().getEpochSecond() + ".json");
+        objectMapper.writeValue(reportFile, report);
+
+        QueryReport baselineReport = null;
+        if (!baseline.isEmpty()) {
+            baselineReport = objectMapper.readValue(new File(baseline), QueryReport.class);
+        }
+        logger.info("Report written to {}\n{}", reportFile, report.format(baselineReport));
+    }
+
+    private QueryResult benchmark(QueryCase queryCase) {
+        // execute the query once to capture the statements generated by Hibernate
+        StatementCounter.start();
+        execute(queryCase);
+        var statistics = StatementCounter.stop();
+        var sql = statistics.getStatements().keySet().iterator().next();
+
+        for (int i = 0; i < warmup; i++) {
+            execute(queryCase);
+        }
+        var nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            execute(queryCase);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        var plan = jdbcTemplate.queryForList("explain (analyze, buffers) " + sql, String.class,
+                queryCase.getSqlParameters());
+
+        return new QueryResult(queryCase.getName(), sql, plan, statistics.getCount(), nanos);
+    }
+
+    /**
+     * Time the insert of an entity, flushed and rolled back in a new transaction so that the dataset does not change.
+     * The statements executed are recorded, but not their plans: explaining an insert would execute it.
+     */
+    private QueryResult benchmarkInsert(String name, Supplier<?> insert) {
+        logger.info("Benchmarking {}", name);
+        StatementCounter.start();
+        executeInsert(insert);
+        var statistics = StatementCounter.stop();
+        var sql = String.join(";\n", statistics.getStatements().keySet());
+
+        for (int i = 0; i < warmup; i++) {
+            executeInsert(insert);
+        }
+        var nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            executeInsert(insert);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        return new QueryResult(name, sql, List.of(), statistics.getCount(), nanos);
+    }
+
+    private void executeInsert(Supplier<?> insert) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute((status) -> {
+            insert.get();
+            entityManager.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+
+    private static Author newAuthor() {
+        var author = new Author();
+        author.setFiscalCode("RSSMRA85T10A562S");
+        author.setName("Nome");
+        author.setSurname("Cognome");
+        author.setBiography("Biografia");
+        return author;
+    }
+
+    private static Employee newEmployee(Employee supervisor) {
+        var employee = new Employee();
+        employee.setFiscalCode("RSSMRA85T10A562S");
+        employee.setName("Nome");
+        employee.setSurname("Cognome");
+        employee.setUsername("benchmark");
+        employee.setPassword("Qwerty1234");
+        employee.setSupervisor(supervisor);
+        return employee;
+    }
+
+    /**
+     * Execute the query in a new read-only transaction, so that every execution starts from an empty persistence
+     * context.
+     */
+    private void execute(QueryCase queryCase) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.execute((status) -> queryCase.getQuery().get());
+    }
+
+    private List<QueryCase> createQueryCases(DatasetSeeder seeder) {
+        // the values searched are taken from the middle of the generated ranges, following the seeder formulas
+        var book = scale / 2;
+        var customer = seeder.getFirstCustomerId() + seeder.getCustomers() / 2;
+        var employee = seeder.getFirstEmployeeId() + seeder.getEmployees() / 2;
+        var supervisor = seeder.getFirstEmployeeId();
+        var lastEmployee = seeder.getFirstEmployeeId() + seeder.getEmployees() - 1;
+        var supplier = seeder.getSuppliers() / 2;
+
+        var title = "Titolo" + book % Math.max(scale / 2, 1);
+        var isbn = String.format("978%010d", book);
+        var name = "Nome" + book % 1000;
+        var surname = "Cognome" + book % 5000;
+        var cardholderName = "Nome" + book % 1000 + " Cognome";
+        var date = LocalDate.of(2010, 1, 1).plusDays(book % 3650);
+
+        List<QueryCase> cases = new ArrayList<>();
+
+        cases.add(new QueryCase("BookRepository.findByTitle", () -> bookRepository.findByTitle(title), title));
+        cases.add(new QueryCase("BookRepository.findByIsbn", () -> bookRepository.findByIsbn(isbn), isbn));
+        cases.add(new QueryCase("BookRepository.findByAuthors_Name",
+                () -> bookRepository.findByAuthors_Name(name), name));
+
+        // a polymorphic query, that joins the tables of all the subclasses when they are mapped to joined tables
+        cases.add(new QueryCase("Person.findByEmail", () -> entityManager
+                .createQuery("select p from Person p where p.email = :email", Person.class)
+                .setParameter("email", email(customer))
+                .getResultList(), email(customer)));
+
+        cases.add(new QueryCase("AuthorRepository.findByName", () -> authorRepository.findByName(name), name));
+        cases.add(new QueryCase("AuthorRepository.findBySurname",
+                () -> authorRepository.findBySurname(surname), surname));
+        cases.add(new QueryCase("AuthorRepository.findByFiscalCode",
+                () -> authorRepository.findByFiscalCode(fiscalCode(book)), fiscalCode(book)));
+        cases.add(new QueryCase("AuthorRepository.findByEmail",
+                () -> authorRepository.findByEmail(email(book)), email(book)));
+
+        cases.add(new QueryCase("CustomerRepository.findByName", () -> customerRepository.findByName(name), name));
+        cases.add(new QueryCase("CustomerRepository.findBySurname",
+                () -> customerRepository.findBySurname(surname), surname));
+        cases.add(new QueryCase("CustomerRepository.findByFiscalCode",
+                () -> customerRepository.findByFiscalCode(fiscalCode(customer)), fiscalCode(customer)));
+        cases.add(new QueryCase("CustomerRepository.findByUsername",
+                () -> customerRepository.findByUsername("customer" + customer), "customer" + customer));
+
+        cases.add(new QueryCase("EmployeeRepository.findByName", () -> employeeRepository.findByName(name), name));
+        cases.add(new QueryCase("EmployeeRepository.findBySurname",
+                () -> employeeRepository.findBySurname(surname), surname));
+        cases.add(new QueryCase("EmployeeRepository.findByFiscalCode",
+                () -> employeeRepository.findByFiscalCode(fiscalCode(employee)), fiscalCode(employee)));
+        cases.add(new QueryCase("EmployeeRepository.findByUsername",
+                () -> employeeRepository.findByUsername("employee" + employee), "employee" + employee));
+        cases.add(new QueryCase("EmployeeRepository.findBySupervisor",
+                () -> employeeRepository.findBySupervisor(employeeRepository.getOne(supervisor)), supervisor));
+        // the second employee heads a tenth of the tree, the last one is at the bottom of it
+        cases.add(new QueryCase("EmployeeRepository.findSubordinates",
+                () -> employeeRepository.findSubordinates(supervisor + 1), supervisor + 1, supervisor + 1));
+        cases.add(new QueryCase("EmployeeRepository.findManagementChain",
+                () -> employeeRepository.findManagementChain(lastEmployee), lastEmployee));
+
+        cases.add(new QueryCase("ItemRepository.findByBookItem",
+                () -> itemRepository.findByBookItem(bookRepository.getOne(book)), book));
+        cases.add(new QueryCase("ItemRepository.findByBookItem_Title",
+                () -> itemRepository.findByBookItem_Title(title), title));
+
+        cases.add(new QueryCase("PaymentRepository.findByCardholderName",
+                () -> paymentRepository.findByCardholderName(cardholderName), cardholderName));
+        cases.add(new QueryCase("PaymentRepository.findByPaymentDate",
+                () -> paymentRepository.findByPaymentDate(date), date));
+
+        cases.add(new QueryCase("PurchaseRepository.findByOrderDate",
+                () -> purchaseRepository.findByOrderDate(date), date));
+        cases.add(new QueryCase("PurchaseRepository.findByCustomer",
+                () -> purchaseRepository.findByCustomer(customerRepository.getOne(customer)), customer));
+        cases.add(new QueryCase("PurchaseRepository.findByEmployee",
+                () -> purchaseRepository.findByEmployee(employeeRepository.getOne(employee)), employee));
+        cases.add(new QueryCase("PurchaseRepository.findHistoryIdsByCustomerId",
+                () -> purchaseRepository.findHistoryIdsByCustomerId(customer, PageRequest.of(0, 20)).getContent(),
+                customer, 20));
+        cases.add(new QueryCase("PurchaseRepository.findByStatusAndOrderDateBetween",
+                () -> purchaseRepository.findByStatusAndOrderDateBetween(Purchase.Status.PROCESSING, date,
+                        date.plusDays(30), PageRequest.of(0, 20)).getContent(),
+                Purchase.Status.PROCESSING.name(), date, date.plusDays(30), 20));
+        cases.add(new QueryCase("PurchaseRepository.findByStatusInOrderByOrderDateAscIdAsc",
+                () -> purchaseRepository.findByStatusInOrderByOrderDateAscIdAsc(Purchase.Status.ACTIVE,
+                        PageRequest.of(0, 20)).getContent(),
+                Stream.concat(Purchase.Status.ACTIVE.stream().map(Enum::name), Stream.of(20)).toArray()));
+
+        cases.add(new QueryCase("SupplierRepository.findByCompanyName",
+                () -> supplierRepository.findByCompanyName("Compagnia" + supplier), "Compagnia" + supplier));
+        cases.add(new QueryCase("SupplierRepository.findByEmail",
+                () -> supplierRepository.findByEmail("supplier" + supplier + "@mail.com"),
+                "supplier" + supplier + "@mail.com"));
+
+        return cases;
+    }
+
+    private static String fiscalCode(long personId) {
+        return String.format("F%015d", personId);
+    }
+
+    private static String email(long personId) {
+        return "person" + personId + "@mail.com";
+    }
+}
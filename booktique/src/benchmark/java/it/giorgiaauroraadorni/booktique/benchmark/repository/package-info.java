@@ -0,0 +1,7 @@
+/**
+ * Contains the benchmark of the repository queries at realistic data volumes.
+ * The {@code RepositoryBenchmark} seeds a dataset of 10k, 1M or 10M rows, selected with {@code --benchmark.scale},
+ * times every derived query and writes a JSON report containing the latency percentiles and the {@code EXPLAIN} plans.
+ * Passing a previous report with {@code --benchmark.baseline} prints the difference between the two runs.
+ */
+package it.giorgiaauroraadorni.booktique.benchmark.repository;
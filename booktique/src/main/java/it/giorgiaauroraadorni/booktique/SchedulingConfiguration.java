@@ -0,0 +1,16 @@
+package it.giorgiaauroraadorni.booktique;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the background tasks of the services, such as the flush of the stocks and the publisher of the outbox events,
+ * unless {@code booktique.scheduling.enabled} is {@code false}. The tests disable them, since all their application
+ * contexts share one database whose schema is dropped and created by every context, and run the tasks they check.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "booktique.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfiguration {
+}
@@ -1,15 +1,23 @@
 package it.giorgiaauroraadorni.booktique.controller;
 
+import it.giorgiaauroraadorni.booktique.dto.SupplierPrice;
 import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
 import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
 import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.service.JournalService;
+import it.giorgiaauroraadorni.booktique.service.OptimisticRetry;
+import it.giorgiaauroraadorni.booktique.service.SupplierPriceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 public class BookController {
@@ -17,23 +25,80 @@ public class BookController {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private SupplierPriceService supplierPriceService;
+
+    @Autowired
+    private JournalService journalService;
+
     @GetMapping("/books")
     public Page<Book> getBooks(Pageable pageable) {
         return bookRepository.findAll(pageable);
     }
 
+    /**
+     * Return the price of the book in the price list of every supplier that sells it, from the cheapest.
+     */
+    @GetMapping("/books/{bookId}/prices")
+    public List<SupplierPrice> getPrices(@PathVariable Long bookId) {
+        var prices = supplierPriceService.getPrices(bookId);
+        if (prices.isEmpty() && !bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found with id " + bookId);
+        }
+        return prices;
+    }
+
+    /**
+     * Set the price of the book in the price list of the supplier.
+     */
+    @PutMapping("/books/{bookId}/prices/{supplierId}")
+    public SupplierPrice setPrice(@PathVariable Long bookId, @PathVariable Long supplierId,
+                                  @Valid @RequestBody SupplierPrice price) {
+        return supplierPriceService.setPrice(bookId, supplierId, price.getUnitPrice());
+    }
+
+    /**
+     * Remove the book from the price list of the supplier.
+     */
+    @DeleteMapping("/books/{bookId}/prices/{supplierId}")
+    public ResponseEntity<?> deletePrice(@PathVariable Long bookId, @PathVariable Long supplierId) {
+        supplierPriceService.deletePrice(bookId, supplierId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Get a page of the changes of the book, from the most recent one. The history of a deleted book is kept.
+     */
+    @GetMapping("/books/{bookId}/history")
+    public Page<JournalEntry> getHistory(@PathVariable Long bookId, @PageableDefault(size = 20) Pageable pageable) {
+        return journalService.getHistory(Book.class, bookId, pageable);
+    }
+
     @PostMapping("/books")
     public Book createBook(@Valid @RequestBody Book book) {
         return bookRepository.save(book);
     }
 
+    /**
+     * Update the title of a book. With the {@code If-Match} header the update is applied only if the book still has
+     * the version returned in the ETag, otherwise it is retried on the latest version when it conflicts with a
+     * concurrent update.
+     */
     @PutMapping("/books/{bookId}")
-    public Book updateBook(@PathVariable Long bookId, @Valid @RequestBody Book bookRequest) {
-        return bookRepository.findById(bookId)
+    public ResponseEntity<Book> updateBook(@PathVariable Long bookId, @Valid @RequestBody Book bookRequest,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                   String ifMatch) {
+        var expectedVersion = ETags.toVersion(ifMatch);
+        var updatedBook = optimisticRetry.execute(() -> bookRepository.findById(bookId)
                 .map(book -> {
+                    OptimisticRetry.checkVersion(book, expectedVersion);
                     book.setTitle(bookRequest.getTitle());
-                    return bookRepository.save(book);
-                }).orElseThrow(() -> new ResourceNotFoundException("Book not found with id " + bookId));
+                    return bookRepository.saveAndFlush(book);
+                }).orElseThrow(() -> new ResourceNotFoundException("Book not found with id " + bookId)));
+        return ResponseEntity.ok().eTag(ETags.fromVersion(updatedBook.getVersion())).body(updatedBook);
     }
 
     @DeleteMapping("/books/{bookId}")
@@ -0,0 +1,39 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.exception.PreconditionFailedException;
+
+/**
+ * Conversions between the versions of the entities and the entity tags of the HTTP headers.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String fromVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch the value of the {@code If-Match} header, or {@code null} if it is missing.
+     * @return the version required by the header, or {@code null} if any version is accepted.
+     * @throws PreconditionFailedException if the header does not contain a version.
+     */
+    static Long toVersion(String ifMatch) throws PreconditionFailedException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            // a tag that was not created by the application never matches
+            throw new PreconditionFailedException("Unknown entity tag " + ifMatch);
+        }
+    }
+}
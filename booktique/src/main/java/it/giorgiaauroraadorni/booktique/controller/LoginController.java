@@ -0,0 +1,54 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.dto.LoginRequest;
+import it.giorgiaauroraadorni.booktique.dto.LoginResponse;
+import it.giorgiaauroraadorni.booktique.service.LoginService;
+import it.giorgiaauroraadorni.booktique.service.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+public class LoginController {
+
+    @Autowired
+    private LoginService loginService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    /**
+     * Authenticate a customer. The password is verified on the hashing threads, the request thread is released in the
+     * meantime.
+     */
+    @PostMapping("/customers/login")
+    public CompletableFuture<LoginResponse> loginCustomer(@Valid @RequestBody LoginRequest request) {
+        return loginService.login(LoginService.Account.CUSTOMER, request.getUsername(), request.getPassword());
+    }
+
+    /**
+     * Authenticate an employee. The password is verified on the hashing threads, the request thread is released in
+     * the meantime.
+     */
+    @PostMapping("/employees/login")
+    public CompletableFuture<LoginResponse> loginEmployee(@Valid @RequestBody LoginRequest request) {
+        return loginService.login(LoginService.Account.EMPLOYEE, request.getUsername(), request.getPassword());
+    }
+
+    /**
+     * Revoke the access token of the {@code Authorization} header.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false)
+                                            String authorization) {
+        tokenService.revoke(tokenService.verifyAuthorization(authorization));
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,83 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.dto.CheckoutRequest;
+import it.giorgiaauroraadorni.booktique.dto.PurchaseHistoryEntry;
+import it.giorgiaauroraadorni.booktique.dto.PurchaseSummary;
+import it.giorgiaauroraadorni.booktique.exception.ForbiddenException;
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.service.JournalService;
+import it.giorgiaauroraadorni.booktique.service.LoginService;
+import it.giorgiaauroraadorni.booktique.service.PurchaseService;
+import it.giorgiaauroraadorni.booktique.service.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+public class PurchaseController {
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private JournalService journalService;
+
+    @PostMapping("/purchases/checkout")
+    public PurchaseSummary checkout(@Valid @RequestBody CheckoutRequest checkoutRequest) {
+        return new PurchaseSummary(purchaseService.checkout(checkoutRequest));
+    }
+
+    /**
+     * Get a page of the purchases of a customer, from the most recent one, with their items and books.
+     */
+    @GetMapping("/customers/{customerId}/purchases")
+    public Page<PurchaseHistoryEntry> getPurchaseHistory(@PathVariable Long customerId,
+                                                         @PageableDefault(size = 20) Pageable pageable) {
+        return purchaseService.getPurchaseHistory(customerId, pageable);
+    }
+
+    /**
+     * Get a page of the purchases of the customer authenticated by the access token, identified by the token without
+     * reading the customer.
+     */
+    @GetMapping("/customers/me/purchases")
+    public Page<PurchaseHistoryEntry> getOwnPurchaseHistory(@RequestHeader(value = HttpHeaders.AUTHORIZATION,
+                                                                    required = false) String authorization,
+                                                            @PageableDefault(size = 20) Pageable pageable) {
+        var token = tokenService.verifyAuthorization(authorization);
+        if (token.getAccount() != LoginService.Account.CUSTOMER) {
+            throw new ForbiddenException("Only the customers have a purchase history");
+        }
+        return purchaseService.getPurchaseHistory(token.getPersonId(), pageable);
+    }
+
+    /**
+     * Change the status of a purchase, only if it still has the version of the {@code If-Match} header when given.
+     */
+    @PutMapping("/purchases/{purchaseId}/status")
+    public ResponseEntity<?> changeStatus(@PathVariable Long purchaseId, @RequestBody Purchase.Status status,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch) {
+        var purchase = purchaseService.changeStatus(purchaseId, status, ETags.toVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.fromVersion(purchase.getVersion())).build();
+    }
+
+    /**
+     * Get a page of the changes of the purchase, from the most recent one.
+     */
+    @GetMapping("/purchases/{purchaseId}/history")
+    public Page<JournalEntry> getHistory(@PathVariable Long purchaseId,
+                                         @PageableDefault(size = 20) Pageable pageable) {
+        return journalService.getHistory(Purchase.class, purchaseId, pageable);
+    }
+}
@@ -0,0 +1,63 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.dto.ReconciliationReport;
+import it.giorgiaauroraadorni.booktique.model.DailySales;
+import it.giorgiaauroraadorni.booktique.repository.DailySalesRepository;
+import it.giorgiaauroraadorni.booktique.repository.SalesTotal;
+import it.giorgiaauroraadorni.booktique.service.PaymentReconciliationService;
+import it.giorgiaauroraadorni.booktique.service.PurchaseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+public class ReportController {
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private PaymentReconciliationService paymentReconciliationService;
+
+    /**
+     * Return the revenue of every book, supplier or employee, or of the whole store, in the date range, from the
+     * highest to the lowest.
+     */
+    @GetMapping("/reports/sales")
+    public List<SalesTotal> getSales(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     @RequestParam(defaultValue = "TOTAL") DailySales.Dimension dimension) {
+        return dailySalesRepository.sumByDimensionAndDayBetween(dimension, from, to);
+    }
+
+    /**
+     * Return the revenue of every day of the date range for a book, supplier or employee, or for the whole store.
+     */
+    @GetMapping("/reports/sales/daily")
+    public List<DailySales> getDailySales(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "TOTAL") DailySales.Dimension dimension,
+                                          @RequestParam(defaultValue = "" + PurchaseService.TOTAL_ID)
+                                                  Long dimensionId) {
+        return dailySalesRepository.findByDimensionAndDimensionIdAndDayBetweenOrderByDay(dimension, dimensionId, from,
+                to);
+    }
+
+    /**
+     * Reconcile the payments of the date range with a file of the settlement directory, continuing the previous run
+     * on the same file if it stopped before the end. The mismatches are written to a file next to the settlement
+     * file.
+     */
+    @PostMapping("/reports/reconciliation")
+    public ReconciliationReport reconcile(@RequestParam String file,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return paymentReconciliationService.reconcile(file, from, to);
+    }
+}
@@ -0,0 +1,37 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.dto.StockAvailability;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.service.StockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+public class StockController {
+
+    @Autowired
+    private StockService stockService;
+
+    /**
+     * Return the units of the book from the supplier that can be reserved.
+     */
+    @GetMapping("/stocks")
+    public StockAvailability getStock(@RequestParam Long bookId, @RequestParam Long supplierId) {
+        var available = stockService.getAvailable(bookId, supplierId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock not found for book " + bookId +
+                        " and supplier " + supplierId));
+        return new StockAvailability(bookId, supplierId, available);
+    }
+
+    /**
+     * Add units to the stock of the book from the supplier.
+     */
+    @PostMapping("/stocks")
+    public ResponseEntity<?> restock(@Valid @RequestBody StockAvailability restock) {
+        stockService.restock(restock.getBookId(), restock.getSupplierId(), restock.getQuantity());
+        return ResponseEntity.ok().build();
+    }
+}
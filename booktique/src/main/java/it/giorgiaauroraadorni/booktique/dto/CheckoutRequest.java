@@ -0,0 +1,115 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import it.giorgiaauroraadorni.booktique.model.Payment;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The cart submitted to the checkout: the customer, the employee who takes charge of the order, the payment details
+ * and the books to buy, each one from a supplier.
+ */
+public class CheckoutRequest {
+    @NotNull
+    private Long customerId;
+
+    // Optional, the purchase is assigned to the least loaded employee if missing
+    private Long employeeId;
+
+    @NotNull
+    @Valid
+    private Payment payment;
+
+    @NotEmpty
+    @Valid
+    private List<Line> items;
+
+    public static class Line {
+        @NotNull
+        private Long bookId;
+
+        // Optional, the book is bought from the cheapest supplier with enough units if missing
+        private Long supplierId;
+
+        // Optional, the price the client expects to pay: the line is always charged the price of the book in the
+        // price list of the supplier, and rejected if the two differ
+        @Positive
+        @Digits(integer = 8, fraction = 2)
+        private BigDecimal unitPrice;
+
+        @NotNull
+        @Positive
+        private Integer quantity;
+
+        // Getters and Setters
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public void setBookId(Long bookId) {
+            this.bookId = bookId;
+        }
+
+        public Long getSupplierId() {
+            return supplierId;
+        }
+
+        public void setSupplierId(Long supplierId) {
+            this.supplierId = supplierId;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public void setUnitPrice(BigDecimal unitPrice) {
+            this.unitPrice = unitPrice;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    // Getters and Setters
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public Payment getPayment() {
+        return payment;
+    }
+
+    public void setPayment(Payment payment) {
+        this.payment = payment;
+    }
+
+    public List<Line> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Line> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,39 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * The credentials sent to {@code POST /customers/login} and {@code POST /employees/login}.
+ */
+public class LoginRequest {
+    @NotBlank
+    private String username;
+
+    @NotBlank
+    private String password;
+
+    public LoginRequest() {
+    }
+
+    public LoginRequest(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    // Getters and Setters
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
@@ -0,0 +1,60 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import java.time.Instant;
+
+/**
+ * The customer or employee authenticated by a login, and the access token to send in the {@code Authorization:
+ * Bearer} header of the next requests.
+ */
+public class LoginResponse {
+    private Long id;
+
+    private String username;
+
+    private String token;
+
+    private Instant expiresAt;
+
+    public LoginResponse() {
+    }
+
+    public LoginResponse(Long id, String username, String token, Instant expiresAt) {
+        this.id = id;
+        this.username = username;
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
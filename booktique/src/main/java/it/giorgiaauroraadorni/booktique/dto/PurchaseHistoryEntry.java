@@ -0,0 +1,121 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import it.giorgiaauroraadorni.booktique.model.Money;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseHistoryRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A purchase of the order history of a customer, with the titles of the books it contains.
+ */
+public class PurchaseHistoryEntry {
+    private Long id;
+
+    private LocalDate orderDate;
+
+    private LocalDate shippingDate;
+
+    private Purchase.Status status;
+
+    private BigDecimal amount;
+
+    private List<Line> items = new ArrayList<>();
+
+    public static class Line {
+        private Long bookId;
+
+        private String title;
+
+        private Long supplierId;
+
+        private BigDecimal unitPrice;
+
+        private int quantity;
+
+        private BigDecimal totalPrice;
+
+        public Line(PurchaseHistoryRow row) {
+            this.bookId = row.getBookId();
+            this.title = row.getTitle();
+            this.supplierId = row.getSupplierId();
+            this.unitPrice = row.getUnitPrice();
+            this.quantity = row.getQuantity();
+            this.totalPrice = Money.of(row.getUnitPrice()).times(row.getQuantity()).toBigDecimal();
+        }
+
+        // Getters
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public Long getSupplierId() {
+            return supplierId;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return totalPrice;
+        }
+    }
+
+    /**
+     * Create the entry of a purchase, without items.
+     * @param row any row of the purchase.
+     */
+    public PurchaseHistoryEntry(PurchaseHistoryRow row) {
+        this.id = row.getPurchaseId();
+        this.orderDate = row.getOrderDate();
+        this.shippingDate = row.getShippingDate();
+        this.status = row.getStatus();
+        this.amount = row.getAmount();
+    }
+
+    /**
+     * Add the item of a row of the purchase, if it has one.
+     */
+    public void addItem(PurchaseHistoryRow row) {
+        if (row.getItemId() != null) {
+            items.add(new Line(row));
+        }
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public LocalDate getShippingDate() {
+        return shippingDate;
+    }
+
+    public Purchase.Status getStatus() {
+        return status;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public List<Line> getItems() {
+        return items;
+    }
+}
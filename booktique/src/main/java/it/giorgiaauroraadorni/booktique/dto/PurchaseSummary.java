@@ -0,0 +1,129 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import it.giorgiaauroraadorni.booktique.model.Item;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A purchase with the ids of its associations in place of the associated entities.
+ */
+public class PurchaseSummary {
+    private Long id;
+
+    private Long customerId;
+
+    private Long employeeId;
+
+    private Long paymentId;
+
+    private LocalDate orderDate;
+
+    private LocalDate shippingDate;
+
+    private Purchase.Status status;
+
+    private BigDecimal amount;
+
+    private List<ItemSummary> items = new ArrayList<>();
+
+    public static class ItemSummary {
+        private Long id;
+
+        private Long bookId;
+
+        private Long supplierId;
+
+        private BigDecimal unitPrice;
+
+        private int quantity;
+
+        public ItemSummary(Item item) {
+            this.id = item.getId();
+            this.bookId = item.getBookItem().getId();
+            this.supplierId = item.getSupplier().getId();
+            this.unitPrice = item.getUnitPrice();
+            this.quantity = item.getQuantityPerUnit();
+        }
+
+        // Getters
+        public Long getId() {
+            return id;
+        }
+
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public Long getSupplierId() {
+            return supplierId;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    /**
+     * Create the summary of a purchase. The items must be initialized, while the other associations are only used
+     * to read their ids.
+     * @param purchase the purchase to summarize.
+     */
+    public PurchaseSummary(Purchase purchase) {
+        this.id = purchase.getId();
+        this.customerId = purchase.getCustomer().getId();
+        this.employeeId = purchase.getEmployee().getId();
+        this.paymentId = purchase.getPaymentDetails().getId();
+        this.orderDate = purchase.getOrderDate();
+        this.shippingDate = purchase.getShippingDate();
+        this.status = purchase.getStatus();
+        this.amount = purchase.getAmount();
+        for (Item i: purchase.getItems()) {
+            items.add(new ItemSummary(i));
+        }
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public LocalDate getShippingDate() {
+        return shippingDate;
+    }
+
+    public Purchase.Status getStatus() {
+        return status;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public List<ItemSummary> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,79 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import java.time.LocalDate;
+
+/**
+ * The outcome of the reconciliation of the payments of a date range with a settlement file. The mismatches are
+ * written to a file next to the settlement file.
+ */
+public class ReconciliationReport {
+    private String settlementFile;
+
+    private String mismatchesFile;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    // The payments read from the database and the lines read from the settlement file
+    private long payments;
+
+    private long settled;
+
+    private long matched;
+
+    private long mismatches;
+
+    // True if the reconciliation continued a previous run that stopped before the end
+    private boolean resumed;
+
+    public ReconciliationReport(String settlementFile, String mismatchesFile, LocalDate from, LocalDate to,
+                                long payments, long settled, long matched, long mismatches, boolean resumed) {
+        this.settlementFile = settlementFile;
+        this.mismatchesFile = mismatchesFile;
+        this.from = from;
+        this.to = to;
+        this.payments = payments;
+        this.settled = settled;
+        this.matched = matched;
+        this.mismatches = mismatches;
+        this.resumed = resumed;
+    }
+
+    // Getters
+    public String getSettlementFile() {
+        return settlementFile;
+    }
+
+    public String getMismatchesFile() {
+        return mismatchesFile;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public long getPayments() {
+        return payments;
+    }
+
+    public long getSettled() {
+        return settled;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+}
@@ -0,0 +1,54 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * Units of a book from a supplier: the units to add when sent to {@code POST /stocks}, the units that can be reserved
+ * when returned.
+ */
+public class StockAvailability {
+    @NotNull
+    private Long bookId;
+
+    @NotNull
+    private Long supplierId;
+
+    @NotNull
+    @Positive
+    private Long quantity;
+
+    public StockAvailability() {
+    }
+
+    public StockAvailability(Long bookId, Long supplierId, Long quantity) {
+        this.bookId = bookId;
+        this.supplierId = supplierId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public void setSupplierId(Long supplierId) {
+        this.supplierId = supplierId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+}
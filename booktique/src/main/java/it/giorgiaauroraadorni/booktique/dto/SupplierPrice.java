@@ -0,0 +1,55 @@
+package it.giorgiaauroraadorni.booktique.dto;
+
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+/**
+ * The unit price of a book in the price list of a supplier: the price to set when sent to
+ * {@code PUT /books/{bookId}/prices/{supplierId}}, whose path identifies the book and the supplier.
+ */
+public class SupplierPrice {
+    private Long bookId;
+
+    private Long supplierId;
+
+    @NotNull
+    @Positive
+    @Digits(integer = 8, fraction = 2)
+    private BigDecimal unitPrice;
+
+    public SupplierPrice() {
+    }
+
+    public SupplierPrice(Long bookId, Long supplierId, BigDecimal unitPrice) {
+        this.bookId = bookId;
+        this.supplierId = supplierId;
+        this.unitPrice = unitPrice;
+    }
+
+    // Getters and Setters
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public void setSupplierId(Long supplierId) {
+        this.supplierId = supplierId;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+}
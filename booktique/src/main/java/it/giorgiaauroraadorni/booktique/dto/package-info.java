@@ -0,0 +1,6 @@
+/**
+ * Contains the objects exchanged by the REST endpoints that do not correspond to a model, such as the content of a
+ * cart or the summary of a purchase. They do not contain lazy associations, so they can be serialized after the end
+ * of the transaction.
+ */
+package it.giorgiaauroraadorni.booktique.dto;
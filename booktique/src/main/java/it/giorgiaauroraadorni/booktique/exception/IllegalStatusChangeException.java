@@ -0,0 +1,11 @@
+package it.giorgiaauroraadorni.booktique.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IllegalStatusChangeException extends RuntimeException {
+    public IllegalStatusChangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package it.giorgiaauroraadorni.booktique.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PAYMENT_REQUIRED)
+public class PaymentDeclinedException extends RuntimeException {
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
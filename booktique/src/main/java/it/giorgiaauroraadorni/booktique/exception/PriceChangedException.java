@@ -0,0 +1,38 @@
+package it.giorgiaauroraadorni.booktique.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * The price that the client expects to pay for a book is not the current price of its supplier, that is carried by the
+ * exception so the client can show it before retrying.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PriceChangedException extends RuntimeException {
+    private final Long bookId;
+
+    private final Long supplierId;
+
+    private final BigDecimal currentPrice;
+
+    public PriceChangedException(Long bookId, Long supplierId, BigDecimal currentPrice) {
+        super("The price of the book " + bookId + " from the supplier " + supplierId + " is " + currentPrice);
+        this.bookId = bookId;
+        this.supplierId = supplierId;
+        this.currentPrice = currentPrice;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public BigDecimal getCurrentPrice() {
+        return currentPrice;
+    }
+}
@@ -0,0 +1,27 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.service.AddressService;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithAddress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PrePersist;
+
+/**
+ * Entity listener of the customers, employees and suppliers, that replaces their new address with the existing one
+ * before the address is persisted by the cascade.
+ */
+@Component
+public class AddressInterningListener {
+    // the service depends on the entity manager factory, that creates this listener
+    @Lazy
+    @Autowired
+    private AddressService addressService;
+
+    @PrePersist
+    public void intern(Object entity) {
+        var entityWithAddress = (EntityWithAddress) entity;
+        entityWithAddress.setAddress(addressService.intern(entityWithAddress.getAddress()));
+    }
+}
@@ -0,0 +1,37 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.model.Address;
+import it.giorgiaauroraadorni.booktique.service.AddressService;
+import it.giorgiaauroraadorni.booktique.service.GazetteerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PrePersist;
+
+/**
+ * Entity listener of the addresses, that validates and completes the Italian ones with the gazetteer before they are
+ * inserted, and stops interning the deleted ones. The addresses are never updated.
+ */
+@Component
+public class AddressListener {
+    // the service depends on the entity manager factory, that creates this listener
+    @Lazy
+    @Autowired
+    private AddressService addressService;
+
+    @Lazy
+    @Autowired
+    private GazetteerService gazetteerService;
+
+    @PrePersist
+    public void complete(Address address) {
+        gazetteerService.complete(address);
+    }
+
+    @PostRemove
+    public void removed(Address address) {
+        addressService.addressRemoved(address.getId());
+    }
+}
@@ -0,0 +1,32 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.service.EmployeeAssignmentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+
+/**
+ * Entity listener of the employees, that tracks the new employees in the assignment of the purchases and stops
+ * tracking the deleted ones.
+ */
+@Component
+public class EmployeeAssignmentListener {
+    // the service depends on the entity manager factory, that creates this listener
+    @Lazy
+    @Autowired
+    private EmployeeAssignmentService employeeAssignmentService;
+
+    @PostPersist
+    public void created(Employee employee) {
+        employeeAssignmentService.employeeCreated(employee.getId());
+    }
+
+    @PostRemove
+    public void deleted(Employee employee) {
+        employeeAssignmentService.employeeDeleted(employee.getId());
+    }
+}
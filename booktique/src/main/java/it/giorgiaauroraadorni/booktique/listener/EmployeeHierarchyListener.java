@@ -0,0 +1,29 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.service.EmployeeHierarchyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener of the employees, that discards the hierarchy kept in memory when an employee is changed.
+ */
+@Component
+public class EmployeeHierarchyListener {
+    // the service depends on the entity manager factory, that creates this listener
+    @Lazy
+    @Autowired
+    private EmployeeHierarchyService employeeHierarchyService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Employee employee) {
+        employeeHierarchyService.invalidateAfterCommit();
+    }
+}
@@ -0,0 +1,41 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.model.AuditModel;
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import it.giorgiaauroraadorni.booktique.service.OutboxService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener of the purchases, payments and books, that writes an outbox event with the {@link OutboxService} for
+ * every insert, update and delete of these entities.
+ * The callbacks are invoked by Hibernate while it flushes, after the statement of the change, and the event is
+ * inserted with JDBC on the connection of the same transaction: the event is committed or rolled back together with
+ * the change. Since the row of the entity is already locked when the event id is generated, the events of an entity
+ * have increasing ids in the order the changes are committed.
+ * The changes made by native statements, such as the amounts refreshed by the triggers, do not produce events.
+ */
+@Component
+public class OutboxListener {
+    @Autowired
+    private OutboxService outboxService;
+
+    @PostPersist
+    public void created(AuditModel entity) {
+        outboxService.record(entity, OutboxEvent.Type.CREATED);
+    }
+
+    @PostUpdate
+    public void updated(AuditModel entity) {
+        outboxService.record(entity, OutboxEvent.Type.UPDATED);
+    }
+
+    @PostRemove
+    public void deleted(AuditModel entity) {
+        outboxService.record(entity, OutboxEvent.Type.DELETED);
+    }
+}
@@ -0,0 +1,58 @@
+package it.giorgiaauroraadorni.booktique.listener;
+
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithPassword;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+/**
+ * Entity listener of the customers and employees, that replaces a password set in clear with its hash before the
+ * entity is written, so the passwords are never stored in clear. The constraints of the password are checked on the
+ * clear password, before it is hashed.
+ * <p>
+ * A password is in clear when it differs from the hash last loaded or written, whatever it looks like, so a value
+ * shaped like a hash sent by a client is hashed and checked as any other password.
+ */
+@Component
+public class PasswordHashingListener {
+    // the services depend on the entity manager factory, that creates this listener
+    @Lazy
+    @Autowired
+    private PasswordService passwordService;
+
+    @Lazy
+    @Autowired
+    private Validator validator;
+
+    @PrePersist
+    @PreUpdate
+    public void hash(Object entity) throws ConstraintViolationException {
+        var entityWithPassword = (EntityWithPassword) entity;
+        var password = entityWithPassword.getPassword();
+        if (password == null || password.equals(entityWithPassword.getWrittenPassword())) {
+            return;
+        }
+        var violations = validator.validateValue(entity.getClass(), "password", password);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        entityWithPassword.setPassword(passwordService.hash(password));
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    public void written(Object entity) {
+        var entityWithPassword = (EntityWithPassword) entity;
+        entityWithPassword.setWrittenPassword(entityWithPassword.getPassword());
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains the JPA entity listeners of the models, that hand the changes of the entities over to the services.
+ */
+package it.giorgiaauroraadorni.booktique.listener;
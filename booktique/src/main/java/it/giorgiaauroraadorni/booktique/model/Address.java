@@ -1,16 +1,31 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.giorgiaauroraadorni.booktique.listener.AddressListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
 import it.giorgiaauroraadorni.booktique.utility.EntityToDict;
+import it.giorgiaauroraadorni.booktique.utility.TextNormalizer;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import javax.persistence.*;
 import javax.validation.constraints.Pattern;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * A postal address. The addresses are interned ({@link it.giorgiaauroraadorni.booktique.service.AddressService}), so
+ * one row can be shared by many customers, employees and suppliers, and are never updated in place: an owner moving
+ * to another address is given a new one, for example a {@link #copy()} of the old one with the changed attributes.
+ */
 @Entity
-@Table(name = "addresses")
+@EntityListeners(AddressListener.class)
+@Table(name = "addresses", indexes = {
+        @Index(name = "addresses_canonical_key_idx", columnList = "canonicalKey", unique = true)
+})
 public class Address extends AuditModel implements EntityToDict, EntityEqualsByAttributes {
     @Id
     @GeneratedValue(strategy=GenerationType.AUTO)
@@ -32,7 +47,7 @@ public class Address extends AuditModel implements EntityToDict, EntityEqualsByA
     @Column(length = 25)
     private String region;
 
-    // This is an italian postal code.
+    // This is an italian postal code, checked with the gazetteer when the country is Italy.
     @Column(length = 5, nullable = false)
     @Pattern(regexp = "^\\d+")
     private String postalCode;
@@ -40,6 +55,11 @@ public class Address extends AuditModel implements EntityToDict, EntityEqualsByA
     @Column(length = 30, nullable = false)
     private String country;
 
+    // The hash of the normalized attributes, the same for all the spellings of an address
+    @JsonIgnore
+    @Column(length = 64, nullable = false)
+    private String canonicalKey;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -105,6 +125,61 @@ public class Address extends AuditModel implements EntityToDict, EntityEqualsByA
         this.country = country;
     }
 
+    public String getCanonicalKey() {
+        return canonicalKey;
+    }
+
+    @PrePersist
+    private void updateCanonicalKey() {
+        canonicalKey = computeCanonicalKey();
+    }
+
+    @PreUpdate
+    private void rejectUpdate() {
+        throw new DataIntegrityViolationException("Invalid address. The address can be shared and cannot be " +
+                "updated, a new address must be set instead.");
+    }
+
+    /**
+     * @return a new address with the same attributes, to change and set in place of this one.
+     */
+    public Address copy() {
+        var copy = new Address();
+        copy.setStreetAddress(streetAddress);
+        copy.setBuilding(building);
+        copy.setCity(city);
+        copy.setProvince(province);
+        copy.setRegion(region);
+        copy.setPostalCode(postalCode);
+        copy.setCountry(country);
+        return copy;
+    }
+
+    /**
+     * Compute the canonical key of the address: the SHA-256 hash of its attributes, after removing the accents, the
+     * punctuation, the repeated spaces and the case, so that the same address written in different ways has the same
+     * key.
+     * @return the canonical key, as 64 hexadecimal digits.
+     */
+    public String computeCanonicalKey() {
+        var normalized = new StringBuilder();
+        for (String attribute: new String[] {streetAddress, building, city, province, region, postalCode, country}) {
+            // the separator cannot be part of a normalized attribute
+            normalized.append(TextNormalizer.normalize(attribute)).append('|');
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+            var hex = new StringBuilder();
+            for (byte b: digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     @Override
     public boolean equalsByAttributes(Object expectedObject, boolean optionalId) {
         if (this == expectedObject) return true;
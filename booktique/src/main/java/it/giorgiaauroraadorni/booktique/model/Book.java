@@ -1,13 +1,14 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.listener.OutboxListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
 import it.giorgiaauroraadorni.booktique.utility.EntityToDict;
+import it.giorgiaauroraadorni.booktique.validation.Isbn;
 import org.hibernate.annotations.NaturalId;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.lang.NonNull;
 
 import javax.persistence.*;
-import javax.validation.constraints.Pattern;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -17,15 +18,17 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
+@EntityListeners(OutboxListener.class)
+@Journaled
 @Table(name = "books")
 public class Book extends AuditModel implements Serializable, EntityToDict, EntityEqualsByAttributes {
     @Id
     @GeneratedValue(strategy=GenerationType.AUTO)
     private Long id;
 
-    // The ISBN is a sequence of 10/13 digits start with only 978.
+    // The ISBN is a sequence of 10/13 digits, the 13 digits start with 978 or 979, ending with the check digit.
     @NaturalId
-    @Pattern(regexp = "^((978[\\--– ])?[0-9][0-9\\--– ]{10}[\\--– ][0-9xX])|((978)?[0-9]{9}[0-9Xx])$")
+    @Isbn
     private String isbn;
 
     @Column(length = 100, nullable = false)
@@ -0,0 +1,60 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * The unit price at which a supplier sells a book, set in the price list of the supplier.
+ * The checkout charges this price, the items of the purchases only record the price charged.
+ */
+@Entity
+@Table(name = "catalog_prices", uniqueConstraints = {
+        @UniqueConstraint(name = "catalog_prices_book_supplier_key", columnNames = {"book_id", "supplier_id"})
+})
+public class CatalogPrice extends AuditModel {
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Book book;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Supplier supplier;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public Supplier getSupplier() {
+        return supplier;
+    }
+
+    public void setSupplier(Supplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+}
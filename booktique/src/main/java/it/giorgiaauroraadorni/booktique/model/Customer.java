@@ -1,27 +1,39 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.giorgiaauroraadorni.booktique.listener.AddressInterningListener;
+import it.giorgiaauroraadorni.booktique.listener.PasswordHashingListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithAddress;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithPassword;
+import it.giorgiaauroraadorni.booktique.validation.VatNumber;
 
 import javax.persistence.*;
-import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import java.util.Objects;
 
 @Entity
+@EntityListeners({AddressInterningListener.class, PasswordHashingListener.class})
 @Table(name = "customers")
-public class Customer extends Person implements EntityEqualsByAttributes {
+public class Customer extends Person implements EntityEqualsByAttributes, EntityWithAddress, EntityWithPassword {
 
     @Column(unique = true, length = 32, nullable = false)
     @Size(min = 5)
     private String username;
 
+    // The hash of the password, the limits apply to the password in clear
     @Column(length = 128, nullable = false)
-    @Size(min = 8)
+    @Size(min = 8, max = 128)
     private String password;
 
+    // The hash of the password as last loaded or written, a different password has been set in clear since then
+    @Transient
+    @JsonIgnore
+    private String writtenPassword;
+
     // This is an italian vat number.
     @Column(length = 13)
-    @Pattern(regexp = "^(IT)?[0-9]{11}$")
+    @VatNumber
     private String vatNumber;
 
     // This is a full postal address for the contact represented by this object.
@@ -45,6 +57,14 @@ public class Customer extends Person implements EntityEqualsByAttributes {
         this.password = password;
     }
 
+    public String getWrittenPassword() {
+        return writtenPassword;
+    }
+
+    public void setWrittenPassword(String writtenPassword) {
+        this.writtenPassword = writtenPassword;
+    }
+
     public String getVatNumber() {
         return vatNumber;
     }
@@ -53,10 +73,12 @@ public class Customer extends Person implements EntityEqualsByAttributes {
         this.vatNumber = vatNumber;
     }
 
+    @Override
     public Address getAddress() {
         return address;
     }
 
+    @Override
     public void setAddress(Address address) {
         this.address = address;
     }
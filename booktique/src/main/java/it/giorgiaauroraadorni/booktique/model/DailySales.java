@@ -0,0 +1,106 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue of a day for a dimension of the sales (the whole store, a book, a supplier or an employee).
+ * The rows are updated incrementally when the purchases are completed, shipped or canceled, so that the revenue of
+ * a date range is computed by summing few rows instead of scanning the purchases and their items.
+ */
+@Entity
+@Table(name = "daily_sales", uniqueConstraints = {
+        @UniqueConstraint(name = "daily_sales_day_dimension_key", columnNames = {"day", "dimension", "dimensionId"})
+})
+public class DailySales extends AuditModel {
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    public enum Dimension {
+        TOTAL,
+        BOOK,
+        SUPPLIER,
+        EMPLOYEE
+    }
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Dimension dimension;
+
+    // The id of the book, supplier or employee, 0 for the total of the store
+    @Column(nullable = false)
+    private Long dimensionId;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal revenue;
+
+    // Number of units sold
+    @Column(nullable = false)
+    private Long quantity;
+
+    // Number of purchases contributing to the revenue
+    @Column(nullable = false)
+    private Long purchases;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(Dimension dimension) {
+        this.dimension = dimension;
+    }
+
+    public Long getDimensionId() {
+        return dimensionId;
+    }
+
+    public void setDimensionId(Long dimensionId) {
+        this.dimensionId = dimensionId;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getPurchases() {
+        return purchases;
+    }
+
+    public void setPurchases(Long purchases) {
+        this.purchases = purchases;
+    }
+}
@@ -1,6 +1,13 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import it.giorgiaauroraadorni.booktique.listener.AddressInterningListener;
+import it.giorgiaauroraadorni.booktique.listener.EmployeeAssignmentListener;
+import it.giorgiaauroraadorni.booktique.listener.EmployeeHierarchyListener;
+import it.giorgiaauroraadorni.booktique.listener.PasswordHashingListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithAddress;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithPassword;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
@@ -8,22 +15,33 @@ import java.time.LocalDate;
 import java.util.Objects;
 
 @Entity
-@Table(name = "employees")
-public class Employee extends Person implements EntityEqualsByAttributes {
+@EntityListeners({EmployeeHierarchyListener.class, EmployeeAssignmentListener.class, AddressInterningListener.class,
+        PasswordHashingListener.class})
+@Table(name = "employees", indexes = {
+        @Index(name = "employees_supervisor_idx", columnList = "supervisor_id")
+})
+public class Employee extends Person implements EntityEqualsByAttributes, EntityWithAddress, EntityWithPassword {
 
     @Column(unique = true, length = 32, nullable = false)
     @Size(min = 5)
     private String username;
 
+    // The hash of the password, the limits apply to the password in clear
     @Column(length = 128, nullable = false)
-    @Size(min = 8)
+    @Size(min = 8, max = 128)
     private String password;
 
+    // The hash of the password as last loaded or written, a different password has been set in clear since then
+    @Transient
+    @JsonIgnore
+    private String writtenPassword;
+
     private LocalDate hireDate;
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     private Address address;
 
+    // The employees at the top of the hierarchy are their own supervisors
     @ManyToOne(fetch = FetchType.LAZY, optional = false, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     private Employee supervisor;
 
@@ -36,10 +54,12 @@ public class Employee extends Person implements EntityEqualsByAttributes {
         this.hireDate = hireDate;
     }
 
+    @Override
     public Address getAddress() {
         return address;
     }
 
+    @Override
     public void setAddress(Address address) {
         this.address = address;
     }
@@ -68,6 +88,14 @@ public class Employee extends Person implements EntityEqualsByAttributes {
         this.password = password;
     }
 
+    public String getWrittenPassword() {
+        return writtenPassword;
+    }
+
+    public void setWrittenPassword(String writtenPassword) {
+        this.writtenPassword = writtenPassword;
+    }
+
     @Override
     public boolean equalsByAttributes(Object expectedObject, boolean optionalId) {
         if (this == expectedObject) return true;
@@ -1,7 +1,9 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
 import it.giorgiaauroraadorni.booktique.utility.EntityToDict;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -10,7 +12,9 @@ import java.util.Map;
 import java.util.Objects;
 
 @Entity
-@Table(name = "items")
+@Table(name = "items", indexes = {
+        @Index(name = "items_book_supplier_idx", columnList = "book_item_id, supplier_id, id desc")
+})
 public class Item extends AuditModel implements EntityToDict, EntityEqualsByAttributes {
 
     @Id
@@ -29,6 +33,21 @@ public class Item extends AuditModel implements EntityToDict, EntityEqualsByAttr
     @Column(nullable = false)
     private Integer quantityPerUnit;
 
+    // False when the units of the item are still to be subtracted from its stock, written with the item by the
+    // checkout so that the sales not yet subtracted survive a restart; the rows inserted with native statements have
+    // nothing to subtract
+    @JsonIgnore
+    @ColumnDefault("true")
+    @Column(nullable = false)
+    private boolean stockSynced = true;
+
+    // The unit price converted to cents, valid as long as the unit price is the same instance
+    @Transient
+    private BigDecimal convertedUnitPrice;
+
+    @Transient
+    private long unitPriceCents;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -70,6 +89,42 @@ public class Item extends AuditModel implements EntityToDict, EntityEqualsByAttr
         this.quantityPerUnit = quantityPerUnit;
     }
 
+    public boolean isStockSynced() {
+        return stockSynced;
+    }
+
+    public void setStockSynced(boolean stockSynced) {
+        this.stockSynced = stockSynced;
+    }
+
+    /**
+     * Return the price of the item.
+     * @return the unit price multiplied by the quantity.
+     * @throws ArithmeticException if the unit price has more than two decimal digits or the price overflows.
+     */
+    public Money getTotalPrice() throws ArithmeticException {
+        return Money.ofCents(getTotalPriceCents());
+    }
+
+    // False while the unit price or the quantity are not set, the item cannot be persisted then
+    boolean hasTotalPrice() {
+        return unitPrice != null && quantityPerUnit != null;
+    }
+
+    /**
+     * Return the price of the item as a number of cents, used to aggregate the prices of many items without
+     * allocations. The unit price is converted only the first time after it has been set or loaded.
+     * @return the unit price multiplied by the quantity, in cents.
+     * @throws ArithmeticException if the unit price has more than two decimal digits or the price overflows.
+     */
+    public long getTotalPriceCents() throws ArithmeticException {
+        if (convertedUnitPrice != unitPrice) {
+            unitPriceCents = Money.toCents(unitPrice);
+            convertedUnitPrice = unitPrice;
+        }
+        return Math.multiplyExact(unitPriceCents, quantityPerUnit);
+    }
+
     public Map<String, Object> entityToDict(boolean optionalId) {
         Map<String, Object> dictionaryAttributes = new HashMap<>();
 
@@ -0,0 +1,130 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A committed change of a journaled entity: the attributes changed with their values before and after the change, the
+ * version reached and the customer or employee who made it, if known.
+ * The entries are only appended, by the journal writer, after the transaction of the change has committed.
+ */
+@Entity
+@Table(name = "journal_entries", indexes = {
+        @Index(name = "journal_entries_entity_idx", columnList = "entityType, entityId, id")
+})
+public class JournalEntry extends AuditModel {
+    public enum Operation {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    // The entity name and id of the changed entity
+    @Column(nullable = false, length = 64)
+    private String entityType;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+
+    // The version of the entity after the change
+    private Long entityVersion;
+
+    // The changed attributes as a JSON object, every attribute with the array of its old and new value
+    @Column(nullable = false, columnDefinition = "text")
+    private String changes;
+
+    // The account and the id of the authenticated person who made the change, null if unknown
+    @Column(length = 16)
+    private String actorAccount;
+
+    private Long actorId;
+
+    // When the change was committed
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date changedAt;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public Long getEntityVersion() {
+        return entityVersion;
+    }
+
+    public void setEntityVersion(Long entityVersion) {
+        this.entityVersion = entityVersion;
+    }
+
+    @JsonRawValue
+    public String getChanges() {
+        return changes;
+    }
+
+    public void setChanges(String changes) {
+        this.changes = changes;
+    }
+
+    public String getActorAccount() {
+        return actorAccount;
+    }
+
+    public void setActorAccount(String actorAccount) {
+        this.actorAccount = actorAccount;
+    }
+
+    public Long getActorId() {
+        return actorId;
+    }
+
+    public void setActorId(Long actorId) {
+        this.actorId = actorId;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Date changedAt) {
+        this.changedAt = changedAt;
+    }
+}
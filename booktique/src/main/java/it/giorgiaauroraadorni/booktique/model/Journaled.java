@@ -0,0 +1,16 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the entities whose committed changes are recorded in the change journal, with the attributes changed.
+ * The attributes listed in {@link #ignore()} are never recorded, for example because they are secret.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Journaled {
+    String[] ignore() default {};
+}
@@ -0,0 +1,95 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount of money stored as a number of cents, used to aggregate prices without allocating a {@link BigDecimal}
+ * for every operation.
+ * The conversions from and to {@link BigDecimal}, that is the type of the persisted prices, are exact, and every
+ * arithmetic operation throws an {@link ArithmeticException} instead of overflowing.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Convert a price to money.
+     * @param amount the amount to convert, with at most two decimal digits.
+     * @return the money corresponding to the amount.
+     * @throws ArithmeticException if the amount has more than two decimal digits or does not fit in a long.
+     */
+    public static Money of(BigDecimal amount) throws ArithmeticException {
+        return ofCents(toCents(amount));
+    }
+
+    /**
+     * Convert a price to a number of cents, without creating a Money instance.
+     * @param amount the amount to convert, with at most two decimal digits.
+     * @return the number of cents.
+     * @throws ArithmeticException if the amount has more than two decimal digits or does not fit in a long.
+     */
+    public static long toCents(BigDecimal amount) throws ArithmeticException {
+        // for the prices read from the database, stored with two decimal digits, no BigInteger is created
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        return cents == ((Money) o).cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
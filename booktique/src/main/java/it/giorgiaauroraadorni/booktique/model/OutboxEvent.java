@@ -0,0 +1,104 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A change of a purchase, payment or book, written in the same transaction as the change and published later to the
+ * consumers by the outbox publisher (transactional outbox).
+ * The events of an aggregate, that is of the same entity, are published in the order of their ids, that is the order
+ * in which the changes were committed.
+ */
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent extends AuditModel {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    // The entity name and id of the changed entity
+    @Column(nullable = false)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type eventType;
+
+    // The attributes of the entity after the change, as a JSON object
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    // Null until the event has been delivered to all the sinks
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date publishedAt;
+
+    // The failed deliveries
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public void setAggregateType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public Type getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(Type eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Date getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(Date publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+}
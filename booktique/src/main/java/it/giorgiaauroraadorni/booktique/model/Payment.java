@@ -1,6 +1,8 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.listener.OutboxListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
+import it.giorgiaauroraadorni.booktique.validation.CardNumber;
 
 import javax.persistence.*;
 import javax.validation.constraints.Pattern;
@@ -8,7 +10,8 @@ import java.time.LocalDate;
 import java.util.Objects;
 
 @Entity
-@Table(name = "payments")
+@EntityListeners(OutboxListener.class)
+@Table(name = "payments", indexes = @Index(name = "payments_payment_date_idx", columnList = "paymentDate"))
 public class Payment extends AuditModel implements EntityEqualsByAttributes {
     @Id
     @GeneratedValue(strategy= GenerationType.AUTO)
@@ -16,7 +19,7 @@ public class Payment extends AuditModel implements EntityEqualsByAttributes {
 
     // This is a Card Number. The format allows 16 numbers in groups of 4 separated by -, ,or nothing.
     @Column(nullable = false, length = 16)
-    @Pattern(regexp = "^(\\d{4}-){3}\\d{4}$|^(\\d{4} ){3}\\d{4}$|^\\d{16}$")
+    @CardNumber
     private String cardNumber;
 
     @Column(nullable = false)
@@ -1,10 +1,12 @@
 package it.giorgiaauroraadorni.booktique.model;
 
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
+import it.giorgiaauroraadorni.booktique.validation.EmailAddress;
+import it.giorgiaauroraadorni.booktique.validation.FiscalCode;
+import it.giorgiaauroraadorni.booktique.validation.MobilePhone;
 import org.hibernate.annotations.NaturalId;
 
 import javax.persistence.*;
-import javax.validation.constraints.Pattern;
 import java.time.LocalDate;
 import java.util.Objects;
 
@@ -16,9 +18,9 @@ public abstract class Person extends AuditModel implements EntityEqualsByAttribu
     @GeneratedValue(strategy=GenerationType.AUTO)
     private Long id;
 
-    // This is an italian fiscal code.
+    // This is an italian fiscal code, ending with the check character.
     @NaturalId
-    @Pattern(regexp = "^[A-Za-z]{6}[0-9]{2}[A-Za-z]{1}[0-9]{2}[A-Za-z]{1}[0-9]{3}[A-Za-z]{1}$")
+    @FiscalCode
     private String fiscalCode;
 
     @Column(length = 30, nullable = false)
@@ -32,12 +34,12 @@ public abstract class Person extends AuditModel implements EntityEqualsByAttribu
     // This is an email address. The format allow numbers in the domain name and doesn't allow for top level domains
     // that are less than 2 or more than 6 letters.
     @Column(unique = true)
-    @Pattern(regexp = "^[0-9a-zA-Z]+([0-9a-zA-Z]*[-._+])*[0-9a-zA-Z]+@[0-9a-zA-Z]+([-.][0-9a-zA-Z]+)*([0-9a-zA-Z]*[.])[a-zA-Z]{2,6}$")
+    @EmailAddress
     private String email;
 
     // This is a phone number. It specifies a italian mobile phone numbers.
     @Column(unique = true)
-    @Pattern(regexp = "^([+]39)?(3[1-9][0-9])([\\d]{7})$")
+    @MobilePhone
     private String mobilePhone;
 
     // Getters and Setters
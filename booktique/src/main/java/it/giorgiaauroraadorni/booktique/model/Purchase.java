@@ -1,5 +1,6 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.listener.OutboxListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
 import org.hibernate.annotations.Check;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -11,8 +12,14 @@ import java.time.LocalDate;
 import java.util.*;
 
 @Entity
+@EntityListeners(OutboxListener.class)
+@Journaled
 @Check(constraints = "order_date <= shipping_date")
-@Table(name = "purchases")
+@Table(name = "purchases", indexes = {
+        @Index(name = "purchases_amount_idx", columnList = "amount"),
+        @Index(name = "purchases_customer_amount_idx", columnList = "customer_id, amount"),
+        @Index(name = "purchases_customer_order_date_idx", columnList = "customer_id, orderDate desc, id desc")
+})
 public class Purchase extends AuditModel implements EntityEqualsByAttributes {
     @Id
     @GeneratedValue(strategy= GenerationType.AUTO)
@@ -39,12 +46,50 @@ public class Purchase extends AuditModel implements EntityEqualsByAttributes {
         PROCESSING,
         IN_PRODUCTION,
         PAYMENT_REVIEW,
-        SHIPPED
+        SHIPPED;
+
+        // The statuses that can follow every status, assigned once all the constants exist
+        private Set<Status> nextStatuses;
+
+        static {
+            PENDING_PAYMENT.nextStatuses = EnumSet.of(PAYMENT_REVIEW, PROCESSING, CANCELED);
+            PAYMENT_REVIEW.nextStatuses = EnumSet.of(PENDING_PAYMENT, PROCESSING, CANCELED);
+            PROCESSING.nextStatuses = EnumSet.of(IN_PRODUCTION, COMPLETED, SHIPPED, CANCELED);
+            IN_PRODUCTION.nextStatuses = EnumSet.of(COMPLETED, SHIPPED, CANCELED);
+            COMPLETED.nextStatuses = EnumSet.of(SHIPPED, CANCELED);
+            SHIPPED.nextStatuses = EnumSet.of(COMPLETED, CANCELED);
+            CANCELED.nextStatuses = EnumSet.noneOf(Status.class);
+        }
+
+        // The statuses of the purchases still to be fulfilled, covered by the partial indexes defined in import.sql
+        public static final Set<Status> ACTIVE = Collections.unmodifiableSet(
+                EnumSet.of(PENDING_PAYMENT, PAYMENT_REVIEW, PROCESSING, IN_PRODUCTION));
+
+        /**
+         * @param status the new status.
+         * @return {@code true} if a purchase in this status can be moved to the given one.
+         */
+        public boolean canChangeTo(Status status) {
+            return nextStatuses.contains(status);
+        }
+
+        public Set<Status> getNextStatuses() {
+            return Collections.unmodifiableSet(nextStatuses);
+        }
+
+        public boolean isActive() {
+            return ACTIVE.contains(this);
+        }
     }
 
     @Enumerated(EnumType.STRING)
     private Purchase.Status status;
 
+    // The total of the items. It is computed when the items are set, and the database triggers defined in import.sql
+    // keep it updated when the items are changed afterwards, so the column is never written by an update.
+    @Column(nullable = false, updatable = false, precision = 15, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+
     @OneToOne(optional = false, fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     @JoinColumn(unique = true)
     private Payment paymentDetails;
@@ -90,14 +135,28 @@ public class Purchase extends AuditModel implements EntityEqualsByAttributes {
         this.shippingDate = shippingDate;
     }
 
+    /**
+     * Return the total of the purchase without loading the items.
+     * The changes made to the items of a persisted purchase are applied to the amount by the database, so they are
+     * visible after the purchase has been flushed and refreshed.
+     * @return the sum of the unit price multiplied by the quantity of every item.
+     */
     public BigDecimal getAmount() {
-        BigDecimal amount = new BigDecimal(0);
+        return amount;
+    }
+
+    /**
+     * Compute the total of the items, ignoring the ones without a price or a quantity that cannot be persisted anyway.
+     * The prices are summed as cents, and converted to a BigDecimal only once.
+     * @throws ArithmeticException if the amount overflows.
+     */
+    private void updateAmount() throws ArithmeticException {
+        long cents = 0;
         for (Item i: this.items) {
-            BigDecimal unitPrice = i.getUnitPrice();
-            BigDecimal quantityPerUnit = BigDecimal.valueOf(i.getQuantityPerUnit());
-            amount = amount.add(unitPrice.multiply(quantityPerUnit));
+            if (!i.hasTotalPrice()) continue;
+            cents = Math.addExact(cents, i.getTotalPriceCents());
         }
-        return amount;
+        this.amount = Money.ofCents(cents).toBigDecimal();
     }
 
     public Status getStatus() {
@@ -127,6 +186,7 @@ public class Purchase extends AuditModel implements EntityEqualsByAttributes {
             throw new DataIntegrityViolationException("Invalid purchase. No items have been added to the purchase.");
         } else {
             this.items = Objects.requireNonNull(items);
+            this.updateAmount();
         }
     }
 
@@ -142,6 +202,7 @@ public class Purchase extends AuditModel implements EntityEqualsByAttributes {
      * Called before every insertion and every update to check in the first case that at least one item has been added
      * to the purchase, and in the second case to verify that all the items have not been deleted from the purchase.
      * An exception is returned if one of the previous cases occurs in order to avoid the creation of empty orders.
+     * Before the insertion the amount is also computed, since the items may have been modified after being set.
      * @throws DataIntegrityViolationException when no items have been added to the purchase.
      */
     @PrePersist
@@ -150,6 +211,9 @@ public class Purchase extends AuditModel implements EntityEqualsByAttributes {
         if (this.getItems() == null || this.getItems().isEmpty()) {
             throw new DataIntegrityViolationException("Invalid purchase. No items have been added to the purchase.");
         }
+        if (this.getId() == null) {
+            this.updateAmount();
+        }
     }
 
     @Override
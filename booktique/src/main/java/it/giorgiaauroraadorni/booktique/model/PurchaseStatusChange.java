@@ -0,0 +1,71 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import javax.persistence.*;
+
+/**
+ * A change of the status of a purchase, made by the purchase service. The log of a purchase starts with the change
+ * from no status to the status it is created with, and the creation date of every change is the date of the
+ * transition.
+ */
+@Entity
+@Table(name = "purchase_status_changes", indexes = {
+        @Index(name = "purchase_status_changes_purchase_idx", columnList = "purchase_id, created_at")
+})
+public class PurchaseStatusChange extends AuditModel {
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Purchase purchase;
+
+    // The status before the change, null for the creation of the purchase
+    @Enumerated(EnumType.STRING)
+    private Purchase.Status fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Purchase.Status toStatus;
+
+    public PurchaseStatusChange() {
+    }
+
+    public PurchaseStatusChange(Purchase purchase, Purchase.Status fromStatus, Purchase.Status toStatus) {
+        this.purchase = purchase;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Purchase getPurchase() {
+        return purchase;
+    }
+
+    public void setPurchase(Purchase purchase) {
+        this.purchase = purchase;
+    }
+
+    public Purchase.Status getFromStatus() {
+        return fromStatus;
+    }
+
+    public void setFromStatus(Purchase.Status fromStatus) {
+        this.fromStatus = fromStatus;
+    }
+
+    public Purchase.Status getToStatus() {
+        return toStatus;
+    }
+
+    public void setToStatus(Purchase.Status toStatus) {
+        this.toStatus = toStatus;
+    }
+}
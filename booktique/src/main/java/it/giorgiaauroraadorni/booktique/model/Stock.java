@@ -0,0 +1,62 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import javax.persistence.*;
+
+/**
+ * Units of a book available from a supplier.
+ * The reservations of the checkout are made on the levels kept in memory by the stock service, and the units sold are
+ * subtracted from the quantity in the background. The items sold by the checkout are written with
+ * {@code stockSynced} false, and set to true by the same statement that subtracts their units, so the quantity is
+ * reconciled after a restart by subtracting the items still to be synced.
+ */
+@Entity
+@Table(name = "stocks", uniqueConstraints = {
+        @UniqueConstraint(name = "stocks_book_supplier_key", columnNames = {"book_id", "supplier_id"})
+})
+public class Stock extends AuditModel {
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Book book;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    private Supplier supplier;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public Supplier getSupplier() {
+        return supplier;
+    }
+
+    public void setSupplier(Supplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -1,7 +1,10 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.listener.AddressInterningListener;
 import it.giorgiaauroraadorni.booktique.utility.EntityEqualsByAttributes;
 import it.giorgiaauroraadorni.booktique.utility.EntityToDict;
+import it.giorgiaauroraadorni.booktique.utility.EntityWithAddress;
+import it.giorgiaauroraadorni.booktique.validation.EmailAddress;
 
 import javax.persistence.*;
 import javax.validation.constraints.Pattern;
@@ -10,8 +13,9 @@ import java.util.Map;
 import java.util.Objects;
 
 @Entity
+@EntityListeners(AddressInterningListener.class)
 @Table(name="suppliers")
-public class Supplier extends AuditModel implements EntityToDict, EntityEqualsByAttributes {
+public class Supplier extends AuditModel implements EntityToDict, EntityEqualsByAttributes, EntityWithAddress {
 
     @Id
     @GeneratedValue(strategy= GenerationType.AUTO)
@@ -23,7 +27,7 @@ public class Supplier extends AuditModel implements EntityToDict, EntityEqualsBy
     // This is an email address. The format allow numbers in the domain name and doesn't allow for top level domains
     // that are less than 2 or more than 6 letters.
     @Column(unique = true)
-    @Pattern(regexp = "^[0-9a-zA-Z]+([0-9a-zA-Z]*[-._+])*[0-9a-zA-Z]+@[0-9a-zA-Z]+([-.][0-9a-zA-Z]+)*([0-9a-zA-Z]*[.])[a-zA-Z]{2,6}$")
+    @EmailAddress
     private String email;
 
     // This is a phone number. It specifies a italian fixed telephone numbers.
@@ -67,10 +71,12 @@ public class Supplier extends AuditModel implements EntityToDict, EntityEqualsBy
         this.phoneNumber = phoneNumber;
     }
 
+    @Override
     public Address getAddress() {
         return address;
     }
 
+    @Override
     public void setAddress(Address address) {
         this.address = address;
     }
@@ -2,9 +2,23 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
-    /* no search operations were implemented for this entity */
+    /* implements search operations */
+
+    /**
+     * Find the address with a canonical key. The query does not flush the persistence context, since it is run while
+     * an entity is being persisted.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("select a.id from Address a where a.canonicalKey = :canonicalKey")
+    Optional<Long> findIdByCanonicalKey(@Param("canonicalKey") String canonicalKey);
 }
@@ -2,8 +2,11 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,4 +19,8 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     Book findByIsbn(String isbn);
 
     List<Book> findByAuthors_Name(String name);
-}
\ No newline at end of file
+
+    // used to check that the entities referenced by a request exist, without loading them
+    @Query("select b.id from Book b where b.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,52 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.CatalogPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.TemporalType;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CatalogPriceRepository extends JpaRepository<CatalogPrice, Long> {
+    /* implements update operations */
+
+    /**
+     * Set the price of the book from the supplier, creating it if it does not exist. Every change increments the
+     * version of the row and a price set again after its deletion gets a new id, so the id and the version order the
+     * changes of a price.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into catalog_prices (id, created_at, updated_at, book_id, supplier_id, unit_price) " +
+            "values (nextval('hibernate_sequence'), :now, :now, :bookId, :supplierId, :unitPrice) " +
+            "on conflict (book_id, supplier_id) do update set unit_price = excluded.unit_price, " +
+            "updated_at = excluded.updated_at, version = catalog_prices.version + 1",
+            nativeQuery = true)
+    void setPrice(@Param("bookId") long bookId, @Param("supplierId") long supplierId,
+                  @Param("unitPrice") BigDecimal unitPrice,
+                  @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CatalogPrice p where p.book.id = :bookId and p.supplier.id = :supplierId")
+    int deletePrice(@Param("bookId") Long bookId, @Param("supplierId") Long supplierId);
+
+    /* implements search operations */
+
+    @Query("select p.id as id, p.book.id as bookId, p.supplier.id as supplierId, p.unitPrice as unitPrice, " +
+            "p.version as version from CatalogPrice p")
+    List<CatalogPriceRow> findAllPrices();
+
+    @Query("select p.id as id, p.book.id as bookId, p.supplier.id as supplierId, p.unitPrice as unitPrice, " +
+            "p.version as version from CatalogPrice p where p.book.id = :bookId and p.supplier.id = :supplierId")
+    Optional<CatalogPriceRow> findPrice(@Param("bookId") Long bookId, @Param("supplierId") Long supplierId);
+}
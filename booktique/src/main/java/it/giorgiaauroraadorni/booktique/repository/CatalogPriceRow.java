@@ -0,0 +1,18 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The unit price of a book from a supplier in the price list, read without loading the entity.
+ */
+public interface CatalogPriceRow {
+    Long getId();
+
+    Long getBookId();
+
+    Long getSupplierId();
+
+    BigDecimal getUnitPrice();
+
+    Long getVersion();
+}
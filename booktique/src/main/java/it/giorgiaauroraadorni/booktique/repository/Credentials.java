@@ -0,0 +1,13 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+/**
+ * The id and the stored password of a customer or an employee, read without loading the entity.
+ */
+public interface Credentials {
+    // The shape of the hashes of the PasswordService, the stored passwords not matching it are in clear
+    String HASH_PATTERN = "^pbkdf2_sha256\\$[0-9]+\\$[A-Za-z0-9+/]{22}\\$[A-Za-z0-9+/]{43}$";
+
+    Long getId();
+
+    String getPassword();
+}
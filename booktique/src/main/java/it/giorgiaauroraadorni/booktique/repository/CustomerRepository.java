@@ -2,9 +2,17 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.TemporalType;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
@@ -19,4 +27,29 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     // the customer found will be just one because the username is saved as unique
     Customer findByUsername(String username);
+
+    Optional<Credentials> findCredentialsByUsername(String username);
+
+    /**
+     * @return the credentials whose password is not shaped like a hash, stored in clear before the passwords were
+     *         hashed on write.
+     */
+    @Query(value = "select id as \"id\", password as \"password\" from customers " +
+            "where password !~ '" + Credentials.HASH_PATTERN + "'",
+            nativeQuery = true)
+    List<Credentials> findClearCredentials();
+
+    /* implements update operations */
+
+    /**
+     * Replace the stored password with a hash, unless it has been changed since it was read. The hash is written as it
+     * is, without calling the entity listeners.
+     * @return the number of updated rows, 0 if the password has been changed.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Customer c set c.password = :hash, c.updatedAt = :now, c.version = c.version + 1 " +
+            "where c.id = :id and c.password = :stored")
+    int replacePassword(@Param("id") Long id, @Param("stored") String stored, @Param("hash") String hash,
+                        @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
 }
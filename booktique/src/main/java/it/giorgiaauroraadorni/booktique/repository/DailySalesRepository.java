@@ -0,0 +1,49 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, Long> {
+    /* implements update operations */
+
+    /**
+     * Add the sales to the row of the day and dimension, creating it if it does not exist. The row is updated in a
+     * single statement, so concurrent updates of the same row are never lost. Negative values remove the sales of a
+     * canceled purchase.
+     */
+    @Modifying
+    @Query(value = "insert into daily_sales (id, created_at, updated_at, day, dimension, dimension_id, revenue, " +
+            "quantity, purchases) " +
+            "values (nextval('hibernate_sequence'), now(), now(), :day, :dimension, :dimensionId, :revenue, " +
+            ":quantity, :purchases) " +
+            "on conflict (day, dimension, dimension_id) do update set " +
+            "revenue = daily_sales.revenue + excluded.revenue, quantity = daily_sales.quantity + excluded.quantity, " +
+            "purchases = daily_sales.purchases + excluded.purchases, updated_at = excluded.updated_at, " +
+            "version = daily_sales.version + 1",
+            nativeQuery = true)
+    void addSales(@Param("day") LocalDate day, @Param("dimension") String dimension,
+                  @Param("dimensionId") long dimensionId, @Param("revenue") BigDecimal revenue,
+                  @Param("quantity") long quantity, @Param("purchases") long purchases);
+
+    /* implements search operations */
+
+    List<DailySales> findByDimensionAndDimensionIdAndDayBetweenOrderByDay(DailySales.Dimension dimension,
+                                                                           Long dimensionId, LocalDate from,
+                                                                           LocalDate to);
+
+    @Query("select d.dimensionId as dimensionId, sum(d.revenue) as revenue, sum(d.quantity) as quantity, " +
+            "sum(d.purchases) as purchases from DailySales d " +
+            "where d.dimension = :dimension and d.day between :from and :to " +
+            "group by d.dimensionId order by sum(d.revenue) desc")
+    List<SalesTotal> sumByDimensionAndDayBetween(@Param("dimension") DailySales.Dimension dimension,
+                                                  @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,10 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+/**
+ * An employee and the number of his/her purchases still to be fulfilled.
+ */
+public interface EmployeeLoad {
+    Long getEmployeeId();
+
+    Long getOpenOrders();
+}
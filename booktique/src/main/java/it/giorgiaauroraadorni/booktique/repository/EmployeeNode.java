@@ -0,0 +1,10 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+/**
+ * An employee and his/her supervisor, read without loading the employee entities.
+ */
+public interface EmployeeNode {
+    Long getId();
+
+    Long getSupervisorId();
+}
@@ -2,9 +2,17 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Employee;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.TemporalType;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
@@ -20,5 +28,78 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     // the employee found will be just one because the username is saved as unique
     Employee findByUsername(String username);
 
+    Optional<Credentials> findCredentialsByUsername(String username);
+
+    /**
+     * @return the credentials whose password is not shaped like a hash, stored in clear before the passwords were
+     *         hashed on write.
+     */
+    @Query(value = "select id as \"id\", password as \"password\" from employees " +
+            "where password !~ '" + Credentials.HASH_PATTERN + "'",
+            nativeQuery = true)
+    List<Credentials> findClearCredentials();
+
     List<Employee> findBySupervisor(Employee supervisor);
+
+    /*
+     * The hierarchy queries walk the supervisors with a recursive query, one level per iteration on the supervisor
+     * index. The path of every row stops the recursion when an employee is met again, so the employees supervising
+     * themselves and the cycles of supervisors are visited only once.
+     */
+
+    /**
+     * @return all the employees under the employee, at any level, excluding the employee.
+     */
+    @Query(value = "with recursive subordinates (id, path) as (" +
+            "select e.id, array[e.supervisor_id, e.id] from employees e " +
+            "where e.supervisor_id = :id and e.id <> :id " +
+            "union all " +
+            "select e.id, s.path || e.id from employees e join subordinates s on e.supervisor_id = s.id " +
+            "where e.id <> all(s.path)) " +
+            "select distinct s.id as \"id\", e.supervisor_id as \"supervisorId\" from subordinates s " +
+            "join employees e on e.id = s.id",
+            nativeQuery = true)
+    List<EmployeeNode> findSubordinates(@Param("id") Long id);
+
+    /**
+     * @return the number of employees under the employee, at any level.
+     */
+    @Query(value = "with recursive subordinates (id, path) as (" +
+            "select e.id, array[e.supervisor_id, e.id] from employees e " +
+            "where e.supervisor_id = :id and e.id <> :id " +
+            "union all " +
+            "select e.id, s.path || e.id from employees e join subordinates s on e.supervisor_id = s.id " +
+            "where e.id <> all(s.path)) " +
+            "select count(distinct id) from subordinates",
+            nativeQuery = true)
+    long countSubordinates(@Param("id") Long id);
+
+    /**
+     * @return the supervisors of the employee, from the direct supervisor to the top of the hierarchy.
+     */
+    @Query(value = "with recursive chain (id, supervisor_id, depth, path) as (" +
+            "select e.id, e.supervisor_id, 0, array[e.id] from employees e where e.id = :id " +
+            "union all " +
+            "select e.id, e.supervisor_id, c.depth + 1, c.path || e.id from employees e " +
+            "join chain c on e.id = c.supervisor_id where e.id <> all(c.path)) " +
+            "select id as \"id\", supervisor_id as \"supervisorId\" from chain where depth > 0 order by depth",
+            nativeQuery = true)
+    List<EmployeeNode> findManagementChain(@Param("id") Long id);
+
+    @Query("select e.id as id, e.supervisor.id as supervisorId from Employee e")
+    List<EmployeeNode> findAllNodes();
+
+    /* implements update operations */
+
+    /**
+     * Replace the stored password with a hash, unless it has been changed since it was read. The hash is written as it
+     * is, without calling the entity listeners.
+     * @return the number of updated rows, 0 if the password has been changed.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Employee e set e.password = :hash, e.updatedAt = :now, e.version = e.version + 1 " +
+            "where e.id = :id and e.password = :stored")
+    int replacePassword(@Param("id") Long id, @Param("stored") String stored, @Param("hash") String hash,
+                        @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
 }
@@ -0,0 +1,17 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+    /* implements search operations */
+
+    /**
+     * @return a page of the changes of an entity, from the most recent one.
+     */
+    Page<JournalEntry> findByEntityTypeAndEntityIdOrderByIdDesc(String entityType, Long entityId, Pageable pageable);
+}
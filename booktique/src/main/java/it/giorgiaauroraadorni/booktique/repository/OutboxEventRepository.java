@@ -0,0 +1,52 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.TemporalType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    /* implements search operations */
+
+    /**
+     * Lock the oldest unpublished events, skipping the ones locked by other publishers, and return those that can be
+     * published: an event is left out if an older unpublished event of the same aggregate is not in the batch, so that
+     * the events of an aggregate are never published out of order, even by concurrent publishers. The events left out
+     * stay locked until the transaction ends. Must be called in a transaction.
+     * @param size the maximum number of events to lock.
+     * @return the events to publish, ordered by id.
+     */
+    @Query(value = "with batch as (select id, aggregate_type, aggregate_id from outbox_events " +
+            "where published_at is null order by id limit :size for update skip locked) " +
+            "select e.* from outbox_events e join batch b on b.id = e.id where not exists (" +
+            "select 1 from outbox_events p where p.aggregate_type = b.aggregate_type " +
+            "and p.aggregate_id = b.aggregate_id and p.published_at is null and p.id < b.id " +
+            "and p.id not in (select id from batch)) " +
+            "order by e.id",
+            nativeQuery = true)
+    List<OutboxEvent> lockPublishable(@Param("size") int size);
+
+    List<OutboxEvent> findByAggregateTypeAndAggregateIdOrderByIdAsc(String aggregateType, Long aggregateId);
+
+    long countByPublishedAtIsNull();
+
+    /* implements update operations */
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :now, e.updatedAt = :now where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.updatedAt = :now where e.id in :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids,
+                          @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+}
@@ -0,0 +1,14 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * A payment and the amount of its purchase, read without loading the entities.
+ */
+public interface PaymentAmount {
+    Long getPaymentId();
+
+    Long getPurchaseId();
+
+    BigDecimal getAmount();
+}
@@ -2,10 +2,15 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -14,4 +19,18 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByCardholderName(String cardholderName);
 
     List<Payment> findByPaymentDate(LocalDate paymentDate);
+
+    /**
+     * Stream the payments made in the date range with the amounts of their purchases, ordered by payment id. The rows
+     * are fetched from a server-side cursor, a few hundreds at a time, so the memory used does not depend on the
+     * number of payments. Must be consumed in a transaction and closed.
+     * @param afterId the id of the last payment already read, to resume a previous read.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select pa.id as paymentId, p.id as purchaseId, p.amount as amount " +
+            "from Purchase p join p.paymentDetails pa " +
+            "where pa.paymentDate between :from and :to and pa.id > :afterId order by pa.id")
+    Stream<PaymentAmount> streamAmountsByPaymentDateBetween(@Param("from") LocalDate from,
+                                                            @Param("to") LocalDate to,
+                                                            @Param("afterId") long afterId);
 }
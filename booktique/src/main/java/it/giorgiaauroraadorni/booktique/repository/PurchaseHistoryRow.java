@@ -0,0 +1,34 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * An item of a purchase with the title of its book, read without loading the entities. The purchases without items
+ * have a single row with the item attributes set to null.
+ */
+public interface PurchaseHistoryRow {
+    Long getPurchaseId();
+
+    LocalDate getOrderDate();
+
+    LocalDate getShippingDate();
+
+    Purchase.Status getStatus();
+
+    BigDecimal getAmount();
+
+    Long getItemId();
+
+    Long getBookId();
+
+    String getTitle();
+
+    Long getSupplierId();
+
+    BigDecimal getUnitPrice();
+
+    Integer getQuantity();
+}
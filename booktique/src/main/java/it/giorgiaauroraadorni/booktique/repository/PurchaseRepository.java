@@ -3,19 +3,68 @@ package it.giorgiaauroraadorni.booktique.repository;
 import it.giorgiaauroraadorni.booktique.model.Customer;
 import it.giorgiaauroraadorni.booktique.model.Employee;
 import it.giorgiaauroraadorni.booktique.model.Purchase;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
     /* implements search operations */
 
+    // locks the purchase until the end of the transaction, so that concurrent status changes are serialized
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Purchase> findLockedById(Long id);
+
     List<Purchase> findByOrderDate(LocalDate orderDate);
 
     List<Purchase> findByCustomer(Customer customer);
 
     List<Purchase> findByEmployee(Employee employee);
+
+    // the purchases of a customer can be sorted by amount using the (customer_id, amount) index
+    Page<Purchase> findByCustomer(Customer customer, Pageable pageable);
+
+    List<Purchase> findByAmountBetween(BigDecimal minAmount, BigDecimal maxAmount);
+
+    List<Purchase> findByStatus(Purchase.Status status);
+
+    long countByStatus(Purchase.Status status);
+
+    // the queries on the active statuses use the partial indexes defined in import.sql, whose size does not grow with
+    // the purchases completed
+    Page<Purchase> findByStatusAndOrderDateBetween(Purchase.Status status, LocalDate from, LocalDate to,
+                                                   Pageable pageable);
+
+    // the work queue of the given statuses, from the oldest order
+    Page<Purchase> findByStatusInOrderByOrderDateAscIdAsc(Collection<Purchase.Status> statuses, Pageable pageable);
+
+    // the employees with at least one purchase in the given statuses and the number of these purchases
+    @Query("select p.employee.id as employeeId, count(p) as openOrders from Purchase p " +
+            "where p.status in :statuses group by p.employee.id")
+    List<EmployeeLoad> countByEmployeeAndStatusIn(@Param("statuses") Collection<Purchase.Status> statuses);
+
+    // the ids of the order history of a customer, from the most recent order, read from the
+    // (customer_id, order_date desc, id desc) index; the pageable must not be sorted
+    @Query(value = "select p.id from Purchase p where p.customer.id = :customerId order by p.orderDate desc, p.id desc",
+            countQuery = "select count(p) from Purchase p where p.customer.id = :customerId")
+    Page<Long> findHistoryIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    // the purchases with their items and the titles of the books in a single query, one row per item; the books are
+    // not loaded as entities, because each of them would load its sequel with another query
+    @Query("select p.id as purchaseId, p.orderDate as orderDate, p.shippingDate as shippingDate, " +
+            "p.status as status, p.amount as amount, i.id as itemId, b.id as bookId, b.title as title, " +
+            "i.supplier.id as supplierId, i.unitPrice as unitPrice, i.quantityPerUnit as quantity " +
+            "from Purchase p left join p.items i left join i.bookItem b where p.id in :ids order by p.id, i.id")
+    List<PurchaseHistoryRow> findHistoryRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,14 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.PurchaseStatusChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PurchaseStatusChangeRepository extends JpaRepository<PurchaseStatusChange, Long> {
+    /* implements search operations */
+
+    List<PurchaseStatusChange> findByPurchase_IdOrderByCreatedAtAscIdAsc(Long purchaseId);
+}
@@ -0,0 +1,16 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Revenue of a book, supplier or employee, or of the whole store, over a date range.
+ */
+public interface SalesTotal {
+    Long getDimensionId();
+
+    BigDecimal getRevenue();
+
+    Long getQuantity();
+
+    Long getPurchases();
+}
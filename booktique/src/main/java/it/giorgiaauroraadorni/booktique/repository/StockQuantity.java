@@ -0,0 +1,14 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+/**
+ * Units of a book available from a supplier, read without loading the stock entity and its associations.
+ */
+public interface StockQuantity {
+    Long getId();
+
+    Long getBookId();
+
+    Long getSupplierId();
+
+    Long getQuantity();
+}
@@ -0,0 +1,75 @@
+package it.giorgiaauroraadorni.booktique.repository;
+
+import it.giorgiaauroraadorni.booktique.model.Stock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockRepository extends JpaRepository<Stock, Long> {
+    /* implements update operations */
+
+    /**
+     * Add units to the stock of the book from the supplier, creating it if it does not exist. The row is updated in a
+     * single statement, so concurrent restocks are never lost.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into stocks (id, created_at, updated_at, book_id, supplier_id, quantity) " +
+            "values (nextval('hibernate_sequence'), :now, :now, :bookId, :supplierId, :quantity) " +
+            "on conflict (book_id, supplier_id) do update set quantity = stocks.quantity + excluded.quantity, " +
+            "updated_at = excluded.updated_at, version = stocks.version + 1",
+            nativeQuery = true)
+    void addQuantity(@Param("bookId") long bookId, @Param("supplierId") long supplierId,
+                     @Param("quantity") long quantity,
+                     @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+
+    /**
+     * Subtract from the stock the units of its items not yet synced, marking them as synced in the same statement, so
+     * every item is subtracted exactly once even if the application stops or two flushes overlap.
+     * @return the number of updated rows, 0 if the stock has been deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "with sold as (update items i set stock_synced = true from stocks s " +
+            "where s.id = :id and i.book_item_id = s.book_id and i.supplier_id = s.supplier_id " +
+            "and not i.stock_synced returning i.quantity_per_unit) " +
+            "update stocks set quantity = quantity - (select coalesce(sum(quantity_per_unit), 0) from sold), " +
+            "updated_at = :now, version = version + 1 where id = :id",
+            nativeQuery = true)
+    int subtractSold(@Param("id") long id, @Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+
+    /**
+     * Subtract from every stock the units of its items not yet synced, that is the sales that were not yet written
+     * when the application stopped, marking the items as synced in the same statement.
+     * @return the number of updated stocks.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "with sold as (update items i set stock_synced = true from stocks s " +
+            "where i.book_item_id = s.book_id and i.supplier_id = s.supplier_id and not i.stock_synced " +
+            "returning s.id as stock_id, i.quantity_per_unit) " +
+            "update stocks s set quantity = s.quantity - t.quantity, updated_at = :now, version = s.version + 1 " +
+            "from (select stock_id, sum(quantity_per_unit) as quantity from sold group by stock_id) t " +
+            "where t.stock_id = s.id",
+            nativeQuery = true)
+    int subtractUnsyncedSales(@Param("now") @Temporal(TemporalType.TIMESTAMP) Date now);
+
+    /* implements search operations */
+
+    Optional<Stock> findByBook_IdAndSupplier_Id(Long bookId, Long supplierId);
+
+    List<Stock> findByBook_Id(Long bookId);
+
+    @Query("select s.id as id, s.book.id as bookId, s.supplier.id as supplierId, s.quantity as quantity from Stock s")
+    List<StockQuantity> findAllQuantities();
+}
@@ -2,8 +2,11 @@ package it.giorgiaauroraadorni.booktique.repository;
 
 import it.giorgiaauroraadorni.booktique.model.Supplier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +16,8 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     Supplier findByCompanyName(String companyName);
 
     Supplier findByEmail(String email);
+
+    // used to check that the entities referenced by a request exist, without loading them
+    @Query("select s.id from Supplier s where s.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
 }
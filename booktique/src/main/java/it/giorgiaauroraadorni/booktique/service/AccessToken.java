@@ -0,0 +1,56 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import java.time.Instant;
+
+/**
+ * An access token, as sent to the client, and its claims: the authenticated customer or employee and the validity of
+ * the token.
+ */
+public class AccessToken {
+    private final String value;
+
+    private final LoginService.Account account;
+
+    private final long personId;
+
+    private final long tokenId;
+
+    private final Instant issuedAt;
+
+    private final Instant expiresAt;
+
+    public AccessToken(String value, LoginService.Account account, long personId, long tokenId, Instant issuedAt,
+                       Instant expiresAt) {
+        this.value = value;
+        this.account = account;
+        this.personId = personId;
+        this.tokenId = tokenId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public String getValue() {
+        return value;
+    }
+
+    public LoginService.Account getAccount() {
+        return account;
+    }
+
+    public long getPersonId() {
+        return personId;
+    }
+
+    public long getTokenId() {
+        return tokenId;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
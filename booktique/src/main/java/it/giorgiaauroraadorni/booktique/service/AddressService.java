@@ -0,0 +1,132 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.model.Address;
+import it.giorgiaauroraadorni.booktique.repository.AddressRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the addresses, so that the customers, employees and suppliers living at the same address share one row of
+ * the addresses table instead of inserting a copy of it.
+ * <p>
+ * The addresses are identified by their canonical key ({@link Address#computeCanonicalKey()}), unique in the table.
+ * A new address is replaced by the existing one with the same key, found in order: in the cache of the committed
+ * addresses, among the addresses persisted by the current transaction, so that a bulk import inserts every address
+ * once, and in the index of the table. The cache holds up to {@code booktique.address.cache-size} keys, the others
+ * are read from the index.
+ * <p>
+ * Two transactions inserting the same new address at the same time are not serialized: the unique index rejects the
+ * second one, that can be retried and then finds the address of the first one.
+ * <p>
+ * An interned address is shared by all its owners, so it is never updated in place, and the update of an address
+ * is rejected when flushed. An owner moving to another address is given a new address, interned before it is set:
+ * the new addresses of the customers, employees and suppliers being created are interned by their listener.
+ */
+@Service
+public class AddressService {
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private GazetteerService gazetteerService;
+
+    @Value("${booktique.address.cache-size:100000}")
+    private int cacheSize;
+
+    // The ids of the committed addresses by canonical key
+    private final ConcurrentHashMap<String, Long> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Find the address equal to a new one. An Italian address is first completed with the gazetteer, so that it has
+     * the same key of the complete address.
+     * @param address the address to intern.
+     * @return the existing address with the same canonical key, or the given address if it is new or already saved.
+     * @throws InvalidRequestException if the Italian address is not valid.
+     */
+    public Address intern(Address address) throws InvalidRequestException {
+        if (address == null || address.getId() != null) {
+            return address;
+        }
+        gazetteerService.complete(address);
+        var key = address.computeCanonicalKey();
+        var id = ids.get(key);
+        if (id != null) {
+            return addressRepository.getOne(id);
+        }
+        var pending = pendingAddresses();
+        if (pending != null && pending.containsKey(key)) {
+            // the persisted address can be detached from the persistence context, its id is already generated
+            var persisted = pending.get(key);
+            return persisted.getId() != null ? addressRepository.getOne(persisted.getId()) : persisted;
+        }
+        var existing = addressRepository.findIdByCanonicalKey(key);
+        if (existing.isPresent()) {
+            cache(key, existing.get());
+            return addressRepository.getOne(existing.get());
+        }
+        if (pending != null) {
+            pending.put(key, address);
+        }
+        return address;
+    }
+
+    /**
+     * Forget the canonical key of a deleted address, when the current transaction commits.
+     */
+    public void addressRemoved(Long addressId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    ids.values().remove(addressId);
+                }
+            });
+        } else {
+            ids.values().remove(addressId);
+        }
+    }
+
+    private void cache(String key, Long id) {
+        if (ids.size() < cacheSize) {
+            ids.put(key, id);
+        }
+    }
+
+    // The new addresses persisted by the current transaction, cached when it commits
+    @SuppressWarnings("unchecked")
+    private Map<String, Address> pendingAddresses() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        var pending = (Map<String, Address>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<String, Address> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    created.forEach((key, address) -> {
+                        if (address.getId() != null) {
+                            cache(key, address.getId());
+                        }
+                    });
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(AddressService.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,244 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeLoad;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeNode;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * Assigns the new purchases to the employee with the fewest open orders, that is purchases in an active status,
+ * without counting them in the database for every order.
+ * <p>
+ * The open orders of every employee are loaded when the application starts and kept in memory in a skip list sorted
+ * by load, so the least loaded employee is the head of the list and an assignment takes O(log n). An employee is
+ * moved in the list while holding the lock of his/her entry in a concurrent map, so concurrent changes of the same
+ * employee are serialized, while the changes of different employees never wait for each other.
+ * <p>
+ * The purchases opened in a transaction are counted at once, so that concurrent checkouts are spread over the
+ * employees, and discounted if the transaction rolls back; the purchases closed are discounted when the transaction
+ * commits. The employees are tracked from the commit of their creation. The changes that do not go through the
+ * purchase service, such as the purchases moved to another employee, are only seen by the next {@link #reload()}.
+ */
+@Service
+public class EmployeeAssignmentService {
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeAssignmentService.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    // The current entry of every tracked employee
+    private final ConcurrentHashMap<Long, Load> loads = new ConcurrentHashMap<>();
+
+    // The entries of the employees, from the least loaded one
+    private final ConcurrentSkipListSet<Load> queue = new ConcurrentSkipListSet<>();
+
+    /**
+     * Load the open orders of every employee from the database. The loads in memory are replaced, so the method must
+     * not be called while purchases are being created.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reload() {
+        loads.clear();
+        queue.clear();
+        for (EmployeeNode employee: employeeRepository.findAllNodes()) {
+            track(employee.getId());
+        }
+        for (EmployeeLoad load: purchaseRepository.countByEmployeeAndStatusIn(Purchase.Status.ACTIVE)) {
+            adjust(load.getEmployeeId(), load.getOpenOrders());
+        }
+        logger.info("Loaded the open orders of {} employees", loads.size());
+    }
+
+    /**
+     * @return the open orders of the employee, or an empty value if the employee is not tracked.
+     */
+    public Optional<Long> getOpenOrders(Long employeeId) {
+        return Optional.ofNullable(loads.get(employeeId)).map((load) -> load.openOrders);
+    }
+
+    /**
+     * Assign a new purchase to the least loaded employee, counting it among his/her open orders. When called in a
+     * transaction, the purchase is discounted if the transaction rolls back.
+     * @return the id of the employee, or an empty value if no employee is tracked.
+     */
+    public Optional<Long> assign() {
+        return assign((employeeId) -> true);
+    }
+
+    /**
+     * Assign a new purchase to the least loaded of the eligible employees, counting it among his/her open orders.
+     * The employees are visited from the least loaded one, so the assignment takes O(log n) when the least loaded
+     * employees are eligible. When called in a transaction, the purchase is discounted if the transaction rolls back.
+     * @param eligible the test of the ids of the employees who can take the purchase.
+     * @return the id of the employee, or an empty value if no tracked employee is eligible.
+     */
+    public Optional<Long> assign(Predicate<Long> eligible) {
+        retry:
+        while (true) {
+            for (Load candidate: queue) {
+                if (!eligible.test(candidate.employeeId)) {
+                    continue;
+                }
+                if (!tryIncrement(candidate)) {
+                    // another thread changed the load of the candidate, the order of the list must be read again
+                    continue retry;
+                }
+                discountOnRollback(candidate.employeeId);
+                return Optional.of(candidate.employeeId);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Count a purchase opened by the employee, for example when the employee is chosen by the caller. When called in
+     * a transaction, the purchase is discounted if the transaction rolls back.
+     */
+    public void opened(Long employeeId) {
+        adjust(employeeId, 1);
+        discountOnRollback(employeeId);
+    }
+
+    /**
+     * Discount a purchase of the employee no longer open, when the transaction commits.
+     */
+    public void closed(Long employeeId) {
+        afterCommit(() -> adjust(employeeId, -1));
+    }
+
+    /**
+     * Start tracking a new employee, without open orders, when the transaction commits.
+     */
+    public void employeeCreated(Long employeeId) {
+        afterCommit(() -> track(employeeId));
+    }
+
+    /**
+     * Stop tracking an employee. When called in a transaction, the employee is removed when it commits.
+     */
+    public void employeeDeleted(Long employeeId) {
+        afterCommit(() -> untrack(employeeId));
+    }
+
+    /**
+     * Stop tracking an employee at once, for example when an assigned employee no longer exists.
+     */
+    public void untrack(Long employeeId) {
+        loads.computeIfPresent(employeeId, (id, load) -> {
+            queue.remove(load);
+            return null;
+        });
+    }
+
+    private void track(Long employeeId) {
+        loads.computeIfAbsent(employeeId, (id) -> {
+            var load = new Load(id, 0);
+            queue.add(load);
+            return load;
+        });
+    }
+
+    private void adjust(Long employeeId, long delta) {
+        loads.computeIfPresent(employeeId,
+                (id, load) -> move(load, new Load(id, Math.max(load.openOrders + delta, 0))));
+    }
+
+    // Increment the load of the candidate only if it has not changed since it was read from the list
+    private boolean tryIncrement(Load candidate) {
+        var next = new Load(candidate.employeeId, candidate.openOrders + 1);
+        return loads.computeIfPresent(candidate.employeeId,
+                (id, load) -> load.equals(candidate) ? move(load, next) : load) == next;
+    }
+
+    // Must be called while holding the lock of the entry of the employee. The new entry is added before removing
+    // the old one, so that the employee is never missing from the list
+    private Load move(Load from, Load to) {
+        if (from.equals(to)) {
+            return from;
+        }
+        queue.add(to);
+        queue.remove(from);
+        return to;
+    }
+
+    private void discountOnRollback(Long employeeId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        adjust(employeeId, -1);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * The open orders of an employee, sorted by load and then by id. The entries are never modified, a change of the
+     * load replaces the entry.
+     */
+    private static class Load implements Comparable<Load> {
+        private final long employeeId;
+
+        private final long openOrders;
+
+        private Load(long employeeId, long openOrders) {
+            this.employeeId = employeeId;
+            this.openOrders = openOrders;
+        }
+
+        @Override
+        public int compareTo(Load other) {
+            var byLoad = Long.compare(openOrders, other.openOrders);
+            return byLoad != 0 ? byLoad : Long.compare(employeeId, other.employeeId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Load)) return false;
+            var other = (Load) o;
+            return employeeId == other.employeeId && openOrders == other.openOrders;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(employeeId, openOrders);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeNode;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Answers the questions on the hierarchy of the employees defined by their supervisors.
+ * The subordinates and the management chain of an employee are read with a single recursive query each, whatever the
+ * number of levels. The checks on the request path, such as whether an employee manages another one, are answered by
+ * a copy of the hierarchy kept in memory: it is loaded with one query when first needed and discarded when a
+ * transaction changing an employee commits.
+ */
+@Service
+public class EmployeeHierarchyService {
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Incremented by every committed change, a hierarchy loaded at an older generation is stale
+    private long generation;
+
+    private Hierarchy hierarchy;
+
+    /**
+     * @return all the employees under the employee, at any level, in no particular order.
+     */
+    @Transactional(readOnly = true)
+    public List<Employee> getSubordinates(Long employeeId) {
+        var ids = employeeRepository.findSubordinates(employeeId)
+                .stream()
+                .map(EmployeeNode::getId)
+                .collect(Collectors.toList());
+        return ids.isEmpty() ? List.of() : employeeRepository.findAllById(ids);
+    }
+
+    /**
+     * @return the number of employees under the employee, at any level.
+     */
+    @Transactional(readOnly = true)
+    public long countSubordinates(Long employeeId) {
+        return employeeRepository.countSubordinates(employeeId);
+    }
+
+    /**
+     * @return the supervisors of the employee, from the direct supervisor to the top of the hierarchy.
+     */
+    @Transactional(readOnly = true)
+    public List<Employee> getManagementChain(Long employeeId) {
+        var ids = employeeRepository.findManagementChain(employeeId)
+                .stream()
+                .map(EmployeeNode::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var employees = employeeRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+        return ids.stream().map(employees::get).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the number of supervisors above the employee, 0 for the employees at the top of the hierarchy.
+     */
+    @Transactional(readOnly = true)
+    public int getDepth(Long employeeId) {
+        return employeeRepository.findManagementChain(employeeId).size();
+    }
+
+    /**
+     * Check on the hierarchy in memory whether an employee is above another one, at any level. The changes made by
+     * the current transaction are not visible until it commits.
+     * @param managerId the id of the possible manager.
+     * @param employeeId the id of the employee.
+     * @return {@code true} if the manager supervises the employee, directly or not.
+     */
+    public boolean isManagerOf(Long managerId, Long employeeId) {
+        return currentHierarchy().isManagerOf(managerId, employeeId);
+    }
+
+    /**
+     * Discard the hierarchy in memory when the current transaction commits, or immediately outside a transaction.
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private synchronized void invalidate() {
+        generation++;
+    }
+
+    private Hierarchy currentHierarchy() {
+        long loadedGeneration;
+        synchronized (this) {
+            if (hierarchy != null && hierarchy.generation == generation) {
+                return hierarchy;
+            }
+            loadedGeneration = generation;
+        }
+
+        // read in a new transaction, so that the uncommitted changes of the caller are never cached
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        var loaded = new Hierarchy(loadedGeneration, transactionTemplate.execute((status) ->
+                employeeRepository.findAllNodes()));
+
+        synchronized (this) {
+            // a change committed during the load makes it stale, but it is still the most recent hierarchy read
+            if (hierarchy == null || hierarchy.generation <= loadedGeneration) {
+                hierarchy = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private static class Hierarchy {
+        private final long generation;
+
+        private final Map<Long, Long> supervisors = new HashMap<>();
+
+        private Hierarchy(long generation, List<EmployeeNode> nodes) {
+            this.generation = generation;
+            for (EmployeeNode node: nodes) {
+                supervisors.put(node.getId(), node.getSupervisorId());
+            }
+        }
+
+        private boolean isManagerOf(Long managerId, Long employeeId) {
+            var current = employeeId;
+            // a cycle of supervisors is walked at most once
+            for (int i = 0; i < supervisors.size(); i++) {
+                var supervisor = supervisors.get(current);
+                if (supervisor == null || supervisor.equals(current)) {
+                    return false;
+                }
+                if (supervisor.equals(managerId)) {
+                    return true;
+                }
+                current = supervisor;
+            }
+            return false;
+        }
+    }
+}
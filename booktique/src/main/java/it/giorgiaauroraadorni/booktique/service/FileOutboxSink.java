@@ -0,0 +1,66 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Appends the outbox events to the file {@code booktique.outbox.file}, one JSON object per line, enabled only when the
+ * property is set. Every batch is written with a single append and forced to the disk before it is acknowledged.
+ */
+@Component
+@ConditionalOnProperty(name = "booktique.outbox.file")
+public class FileOutboxSink implements OutboxSink {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Path path;
+
+    public FileOutboxSink(@Value("${booktique.outbox.file}") String file) {
+        this.path = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        var lines = new StringBuilder();
+        for (OutboxEvent event: events) {
+            var line = new LinkedHashMap<String, Object>();
+            line.put("id", event.getId());
+            line.put("aggregateType", event.getAggregateType());
+            line.put("aggregateId", event.getAggregateId());
+            line.put("eventType", event.getEventType());
+            line.put("createdAt", event.getCreatedAt());
+            try {
+                line.put("payload", objectMapper.readTree(event.getPayload()));
+                lines.append(objectMapper.writeValueAsString(line)).append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot serialize the outbox event " + event.getId(), e);
+            }
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            var buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the outbox events to " + path, e);
+        }
+    }
+}
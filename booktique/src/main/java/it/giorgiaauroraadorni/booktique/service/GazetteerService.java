@@ -0,0 +1,288 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.model.Address;
+import it.giorgiaauroraadorni.booktique.utility.TextNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates and completes the Italian addresses with the postal codes (CAP) of a gazetteer, without any external
+ * service.
+ * <p>
+ * The gazetteer is read from {@code booktique.gazetteer.file}, a CSV file with the postal code, the city, the province
+ * and the region of every city of a postal code. It is held in primitive arrays: the postal codes sorted as numbers,
+ * with the index of their city in a parallel array, and the indexes of the province of every city and of the region of
+ * every province; the names are stored once. A postal code is found with a binary search, without creating objects.
+ * <p>
+ * An address is Italian when its country is Italy. The city of an Italian address can be omitted when its postal code
+ * has only one city, and the province and the region are filled from the city. When {@code booktique.gazetteer.strict}
+ * is set, because the gazetteer is complete, the postal code must be in the gazetteer, the city must be one of its
+ * cities and a different province or region is rejected; otherwise the addresses that do not match the gazetteer are
+ * kept as they are, since the bundled file contains only the postal codes of the provincial capitals.
+ */
+@Service
+public class GazetteerService {
+    private static final Logger logger = LoggerFactory.getLogger(GazetteerService.class);
+
+    private static final Set<String> ITALY = Set.of("italia", "italy", "it");
+
+    // The postal codes, sorted, and the index of their city
+    private final int[] postalCodes;
+
+    private final int[] postalCodeCities;
+
+    private final String[] cities;
+
+    // The normalized names of the cities, compared with the ones of the addresses
+    private final String[] normalizedCities;
+
+    private final short[] cityProvinces;
+
+    private final String[] provinces;
+
+    private final byte[] provinceRegions;
+
+    private final String[] regions;
+
+    // Reject the addresses that do not match the gazetteer, instead of keeping them as they are
+    private final boolean strict;
+
+    @Autowired
+    public GazetteerService(@Value("${booktique.gazetteer.file:classpath:gazetteer/postal-codes-it.csv}")
+                                    Resource file,
+                            @Value("${booktique.gazetteer.strict:false}") boolean strict) {
+        this(open(file), strict);
+        logger.info("Loaded {} postal codes of {} cities from {}{}", postalCodes.length, cities.length, file,
+                strict ? ", the addresses that do not match are rejected" : "");
+    }
+
+    /**
+     * Load the gazetteer from a CSV file, with a header and lines {@code postal_code,city,province,region}. The lines
+     * starting with {@code #} are comments.
+     */
+    GazetteerService(BufferedReader reader, boolean strict) {
+        this.strict = strict;
+        var cityIndexes = new HashMap<String, Integer>();
+        var cityNames = new ArrayList<String>();
+        var cityProvinceIndexes = new ArrayList<Integer>();
+        var provinceIndexes = new HashMap<String, Integer>();
+        var provinceRegionIndexes = new ArrayList<Integer>();
+        var regionIndexes = new HashMap<String, Integer>();
+        var entries = new ArrayList<long[]>();
+        try (reader) {
+            var header = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                var fields = line.split(",", -1);
+                var postalCode = fields.length == 4 ? parsePostalCode(fields[0]) : -1;
+                if (postalCode < 0) {
+                    throw new IllegalArgumentException("Invalid line of the gazetteer: " + line);
+                }
+                var region = index(regionIndexes, fields[3].trim());
+                var province = provinceIndexes.computeIfAbsent(fields[2].trim(), (name) -> {
+                    provinceRegionIndexes.add(region);
+                    return provinceRegionIndexes.size() - 1;
+                });
+                var city = cityIndexes.computeIfAbsent(fields[2].trim() + "," + fields[1].trim(), (key) -> {
+                    cityNames.add(fields[1].trim());
+                    cityProvinceIndexes.add(province);
+                    return cityNames.size() - 1;
+                });
+                entries.add(new long[] {postalCode, city});
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the gazetteer", e);
+        }
+        if (regionIndexes.size() > Byte.MAX_VALUE || provinceIndexes.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many regions or provinces in the gazetteer");
+        }
+
+        entries.sort((a, b) -> Long.compare(a[0], b[0]));
+        postalCodes = new int[entries.size()];
+        postalCodeCities = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            postalCodes[i] = (int) entries.get(i)[0];
+            postalCodeCities[i] = (int) entries.get(i)[1];
+        }
+        cities = cityNames.toArray(new String[0]);
+        normalizedCities = new String[cities.length];
+        cityProvinces = new short[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            normalizedCities[i] = TextNormalizer.normalize(cities[i]);
+            cityProvinces[i] = cityProvinceIndexes.get(i).shortValue();
+        }
+        provinces = names(provinceIndexes);
+        provinceRegions = new byte[provinces.length];
+        for (int i = 0; i < provinces.length; i++) {
+            provinceRegions[i] = provinceRegionIndexes.get(i).byteValue();
+        }
+        regions = names(regionIndexes);
+    }
+
+    private static BufferedReader open(Resource file) {
+        try {
+            return new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the gazetteer " + file, e);
+        }
+    }
+
+    private static int index(Map<String, Integer> indexes, String name) {
+        return indexes.computeIfAbsent(name, (n) -> indexes.size());
+    }
+
+    private static String[] names(Map<String, Integer> indexes) {
+        var names = new String[indexes.size()];
+        indexes.forEach((name, index) -> names[index] = name);
+        return names;
+    }
+
+    /**
+     * @return {@code true} if the address is in Italy.
+     */
+    public boolean isItalian(Address address) {
+        return ITALY.contains(TextNormalizer.normalize(address.getCountry()));
+    }
+
+    /**
+     * @return the names of the cities of a postal code, empty if the postal code is not in the gazetteer.
+     */
+    public List<String> findCities(String postalCode) {
+        var found = new ArrayList<String>();
+        var first = firstIndex(postalCode);
+        for (int i = first; i >= 0 && i < postalCodes.length && postalCodes[i] == postalCodes[first]; i++) {
+            found.add(cities[postalCodeCities[i]]);
+        }
+        return found;
+    }
+
+    /**
+     * Validate an Italian address and fill its city, province and region from the postal code. The other addresses
+     * are not changed, as the Italian addresses that do not match the gazetteer when it is not strict.
+     * @param address the address to complete.
+     * @throws InvalidRequestException if the gazetteer is strict and the postal code is unknown, the city is not one
+     *                                 of the cities of the postal code, or the province or the region are not the
+     *                                 ones of the city.
+     */
+    public void complete(Address address) throws InvalidRequestException {
+        if (!isItalian(address)) {
+            return;
+        }
+        var first = firstIndex(address.getPostalCode());
+        if (first < 0) {
+            reject("Unknown postal code " + address.getPostalCode());
+            return;
+        }
+
+        var city = findCity(first, address.getCity());
+        if (city < 0) {
+            return;
+        }
+        var province = cityProvinces[city];
+        var region = provinceRegions[province];
+        if (!isBlank(address.getProvince()) && !provinces[province].equalsIgnoreCase(address.getProvince().trim())) {
+            reject("The city " + cities[city] + " is not in the province " + address.getProvince());
+            return;
+        }
+        if (!isBlank(address.getRegion()) &&
+                !TextNormalizer.normalize(regions[region]).equals(TextNormalizer.normalize(address.getRegion()))) {
+            reject("The city " + cities[city] + " is not in the region " + address.getRegion());
+            return;
+        }
+        address.setCity(cities[city]);
+        address.setProvince(provinces[province]);
+        address.setRegion(regions[region]);
+    }
+
+    // The city of an address among the ones of its postal code, starting from the given index, or -1 if it is not
+    // found and the gazetteer is not strict
+    private int findCity(int first, String name) throws InvalidRequestException {
+        var normalized = TextNormalizer.normalize(name);
+        var found = -1;
+        var count = 0;
+        for (int i = first; i < postalCodes.length && postalCodes[i] == postalCodes[first]; i++) {
+            var city = postalCodeCities[i];
+            if (normalized.isEmpty() || normalizedCities[city].equals(normalized)) {
+                found = city;
+            }
+            count++;
+        }
+        if (found < 0) {
+            reject("The city " + name + " does not have the postal code " + String.format("%05d", postalCodes[first]));
+            return -1;
+        }
+        if (normalized.isEmpty() && count > 1) {
+            reject("The postal code " + String.format("%05d", postalCodes[first]) +
+                    " has more cities, the city is required");
+            return -1;
+        }
+        return found;
+    }
+
+    private void reject(String message) throws InvalidRequestException {
+        if (strict) {
+            throw new InvalidRequestException(message);
+        }
+        logger.debug("{}, the address is kept as it is", message);
+    }
+
+    // The index of the first line of a postal code, or -1 if it is not in the gazetteer
+    private int firstIndex(String postalCode) {
+        var code = parsePostalCode(postalCode);
+        if (code < 0) {
+            return -1;
+        }
+        var index = Arrays.binarySearch(postalCodes, code);
+        if (index < 0) {
+            return -1;
+        }
+        while (index > 0 && postalCodes[index - 1] == code) {
+            index--;
+        }
+        return index;
+    }
+
+    // The postal code as a number, or -1 if it is not made of five digits
+    private static int parsePostalCode(String postalCode) {
+        if (postalCode == null || postalCode.length() != 5) {
+            return -1;
+        }
+        var code = 0;
+        for (int i = 0; i < postalCode.length(); i++) {
+            var c = postalCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            code = code * 10 + c - '0';
+        }
+        return code;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,200 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.giorgiaauroraadorni.booktique.exception.AuthenticationFailedException;
+import it.giorgiaauroraadorni.booktique.model.Journaled;
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate listener that records the committed inserts, updates and deletes of the {@link Journaled} entities in the
+ * change journal.
+ * The listener is registered for the post-commit events, so the changes rolled back are never recorded, and takes the
+ * attributes changed from the states compared by Hibernate while flushing, without reading the entity again: the
+ * entities are referenced by id and the collections are left out. The author of a change is the customer or employee
+ * authenticated by the access token of the request, if any. The entries are handed over to the {@link JournalService},
+ * that writes them in the background.
+ * The changes made by native statements, such as the amounts refreshed by the triggers, are not recorded.
+ */
+@Component
+public class JournalListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(JournalListener.class);
+
+    // The attributes of the audit model, that change with every update
+    private static final Set<String> AUDIT_ATTRIBUTES = Set.of("createdAt", "updatedAt");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The attributes never recorded by journaled class
+    private final Map<Class<?>, Set<String>> ignoredAttributes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void register() {
+        var registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return persister.getMappedClass().isAnnotationPresent(Journaled.class);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getPersister(), event.getId(), JournalEntry.Operation.CREATED, null, event.getState(), null,
+                event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        record(event.getPersister(), event.getId(), JournalEntry.Operation.UPDATED, event.getOldState(),
+                event.getState(), event.getDirtyProperties(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getPersister(), event.getId(), JournalEntry.Operation.DELETED, event.getDeletedState(), null,
+                null, event.getSession());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private void record(EntityPersister persister, Object id, JournalEntry.Operation operation, Object[] oldState,
+                        Object[] state, int[] dirtyProperties, EventSource session) {
+        // the transaction has already committed, a failure must not fail the request
+        try {
+            var entry = new JournalEntry();
+            entry.setEntityType(persister.getMappedClass().getSimpleName());
+            entry.setEntityId(((Number) id).longValue());
+            entry.setOperation(operation);
+            entry.setChangedAt(new Date());
+            if (persister.isVersioned()) {
+                var version = (state != null ? state : oldState)[persister.getVersionProperty()];
+                entry.setEntityVersion(version != null ? ((Number) version).longValue() : null);
+            }
+            entry.setChanges(objectMapper.writeValueAsString(diff(persister, oldState, state, dirtyProperties,
+                    session)));
+            var actor = currentActor();
+            if (actor != null) {
+                entry.setActorAccount(actor.getAccount().name());
+                entry.setActorId(actor.getPersonId());
+            }
+            journalService.append(entry);
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Cannot record the change of {} {} in the journal", persister.getEntityName(), id, e);
+        }
+    }
+
+    // The old and new value of every attribute changed, or set by an insert or a delete
+    private Map<String, Object[]> diff(EntityPersister persister, Object[] oldState, Object[] state,
+                                       int[] dirtyProperties, EventSource session) {
+        var names = persister.getPropertyNames();
+        var types = persister.getPropertyTypes();
+        var ignored = ignoredAttributes.computeIfAbsent(persister.getMappedClass(),
+                (mappedClass) -> Set.of(mappedClass.getAnnotation(Journaled.class).ignore()));
+        Map<String, Object[]> changes = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (dirtyProperties != null && !contains(dirtyProperties, i)) {
+                continue;
+            }
+            if (types[i].isCollectionType() || (persister.isVersioned() && i == persister.getVersionProperty()) ||
+                    AUDIT_ATTRIBUTES.contains(names[i]) || ignored.contains(names[i])) {
+                continue;
+            }
+            var oldValue = oldState != null ? value(types[i], oldState[i], session) : null;
+            var newValue = state != null ? value(types[i], state[i], session) : null;
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.put(names[i], new Object[]{oldValue, newValue});
+            }
+        }
+        return changes;
+    }
+
+    private static boolean contains(int[] properties, int property) {
+        for (int candidate: properties) {
+            if (candidate == property) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The entities are replaced by their id, without initializing the proxies
+    private static Object value(Type type, Object value, EventSource session) {
+        if (value == null || !type.isEntityType()) {
+            return value;
+        }
+        return ForeignKeys.getEntityIdentifierIfNotUnsaved(((EntityType) type).getAssociatedEntityName(), value,
+                session);
+    }
+
+    private AccessToken currentActor() {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        var authorization = ((ServletRequestAttributes) attributes).getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            return null;
+        }
+        try {
+            return tokenService.verifyAuthorization(authorization);
+        } catch (AuthenticationFailedException e) {
+            return null;
+        }
+    }
+}
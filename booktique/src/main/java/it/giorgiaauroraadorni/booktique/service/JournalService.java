@@ -0,0 +1,158 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
+import it.giorgiaauroraadorni.booktique.repository.JournalEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the change journal in the background and reads the changes of an entity.
+ * <p>
+ * The entries recorded by the {@link JournalListener} when a transaction commits are appended to a lock-free queue,
+ * so the transactions never wait for the journal, and written every {@code booktique.journal.flush-interval}
+ * milliseconds in JDBC batches of {@code booktique.journal.batch-size} rows. The loss is bounded: at most
+ * {@code booktique.journal.capacity} entries wait in memory, the entries beyond it are dropped, and a crash loses the
+ * entries not yet written; the entries of a batch that cannot be written are lost too. The entries dropped and lost
+ * are counted and logged. The changes are visible in the history of an entity once written.
+ */
+@Service
+public class JournalService {
+    private static final Logger logger = LoggerFactory.getLogger(JournalService.class);
+
+    @Value("${booktique.journal.capacity:10000}")
+    private int capacity;
+
+    @Value("${booktique.journal.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    private final ConcurrentLinkedQueue<JournalEntry> queue = new ConcurrentLinkedQueue<>();
+
+    // The size of the queue, whose own size() traverses it
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong lost = new AtomicLong();
+
+    /**
+     * Append a committed change to the journal, without waiting for it to be written.
+     * @return {@code false} if the queue is full and the entry has been dropped.
+     */
+    public boolean append(JournalEntry entry) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            if (dropped.incrementAndGet() % capacity == 1) {
+                logger.warn("The journal queue is full, {} entries dropped so far", dropped.get());
+            }
+            return false;
+        }
+        queue.offer(entry);
+        return true;
+    }
+
+    /**
+     * Write the entries in the queue, one batch after the other, until the queue is empty or a batch fails.
+     * @return the number of entries written.
+     */
+    @Scheduled(fixedDelayString = "${booktique.journal.flush-interval:1000}")
+    public synchronized int flush() {
+        int total = 0;
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            JournalEntry entry;
+            while (batch.size() < batchSize && (entry = queue.poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return total;
+            }
+            pending.addAndGet(-batch.size());
+            try {
+                write(batch);
+            } catch (DataAccessException e) {
+                lost.addAndGet(batch.size());
+                logger.warn("Cannot write {} journal entries, they are lost", batch.size(), e);
+                return total;
+            }
+            written.addAndGet(batch.size());
+            total += batch.size();
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // the entries appended after the last flush are written before the database is closed
+        flush();
+    }
+
+    private void write(List<JournalEntry> batch) {
+        var now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate("insert into journal_entries (id, created_at, updated_at, version, entity_type, " +
+                "entity_id, operation, entity_version, changes, actor_account, actor_id, changed_at) " +
+                "values (nextval('hibernate_sequence'), ?, ?, 0, ?, ?, ?, ?, ?, ?, ?, ?)",
+                batch, batch.size(), (statement, entry) -> {
+                    statement.setTimestamp(1, now);
+                    statement.setTimestamp(2, now);
+                    statement.setString(3, entry.getEntityType());
+                    statement.setLong(4, entry.getEntityId());
+                    statement.setString(5, entry.getOperation().name());
+                    statement.setObject(6, entry.getEntityVersion(), Types.BIGINT);
+                    statement.setString(7, entry.getChanges());
+                    statement.setString(8, entry.getActorAccount());
+                    statement.setObject(9, entry.getActorId(), Types.BIGINT);
+                    statement.setTimestamp(10, new Timestamp(entry.getChangedAt().getTime()));
+                });
+    }
+
+    /**
+     * Get a page of the changes written for an entity, from the most recent one.
+     * @param entityClass the class of a journaled entity.
+     */
+    public Page<JournalEntry> getHistory(Class<?> entityClass, Long entityId, Pageable pageable) {
+        return journalEntryRepository.findByEntityTypeAndEntityIdOrderByIdDesc(entityClass.getSimpleName(), entityId,
+                pageable);
+    }
+
+    // Getters
+    public int getPendingEntries() {
+        return pending.get();
+    }
+
+    public long getWrittenEntries() {
+        return written.get();
+    }
+
+    public long getDroppedEntries() {
+        return dropped.get();
+    }
+
+    public long getLostEntries() {
+        return lost.get();
+    }
+}
@@ -0,0 +1,26 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Writes the outbox events to the log, enabled unless {@code booktique.outbox.log-sink} is {@code false}.
+ */
+@Component
+@ConditionalOnProperty(name = "booktique.outbox.log-sink", havingValue = "true", matchIfMissing = true)
+public class LoggingOutboxSink implements OutboxSink {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event: events) {
+            logger.info("Event {}: {} {} {} {}", event.getId(), event.getAggregateType(), event.getAggregateId(),
+                    event.getEventType(), event.getPayload());
+        }
+    }
+}
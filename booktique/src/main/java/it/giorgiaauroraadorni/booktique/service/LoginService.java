@@ -0,0 +1,142 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.LoginResponse;
+import it.giorgiaauroraadorni.booktique.exception.AuthenticationFailedException;
+import it.giorgiaauroraadorni.booktique.exception.ServiceUnavailableException;
+import it.giorgiaauroraadorni.booktique.repository.Credentials;
+import it.giorgiaauroraadorni.booktique.repository.CustomerRepository;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Authenticates the customers and the employees with their username and password.
+ * <p>
+ * The stored password is read on the calling thread, while the password is verified on the hashing threads of the
+ * {@link PasswordService}, so the login answers asynchronously. When the stored password is hashed with a lower cost
+ * than the current one, it is replaced by a hash at the current cost after a successful login. The passwords stored
+ * in clear, before the passwords were hashed on write, are never verified: they are hashed once at startup.
+ * <p>
+ * A successful login returns an access token issued by the {@link TokenService}, that authenticates the next requests
+ * without reading the account again.
+ */
+@Service
+public class LoginService {
+    private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+
+    // The accounts are stored in the tokens by position, new ones must be added at the end
+    public enum Account {
+        CUSTOMER,
+        EMPLOYEE
+    }
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Hash the passwords stored in clear before the passwords were hashed on write, that cannot be used to login
+     * until then. A password changed in the meantime is left to its new hash.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void hashClearPasswords() {
+        var customers = 0;
+        for (Credentials credentials: customerRepository.findClearCredentials()) {
+            var stored = credentials.getPassword();
+            customers += customerRepository.replacePassword(credentials.getId(), stored, passwordService.hash(stored),
+                    new Date());
+        }
+        var employees = 0;
+        for (Credentials credentials: employeeRepository.findClearCredentials()) {
+            var stored = credentials.getPassword();
+            employees += employeeRepository.replacePassword(credentials.getId(), stored, passwordService.hash(stored),
+                    new Date());
+        }
+        if (customers > 0 || employees > 0) {
+            logger.info("Hashed the passwords in clear of {} customers and {} employees", customers, employees);
+        }
+    }
+
+    /**
+     * Verify the password of a customer or an employee.
+     * @return the authenticated account, completed exceptionally with {@link AuthenticationFailedException} if the
+     *         username does not exist or the password is wrong. The two cases take the same time and are not told
+     *         apart.
+     * @throws ServiceUnavailableException if too many logins are in progress.
+     */
+    public CompletableFuture<LoginResponse> login(Account account, String username, String password)
+            throws ServiceUnavailableException {
+        var credentials = findCredentials(account, username);
+        var stored = credentials.map(Credentials::getPassword).orElse(null);
+        return passwordService.submit(() -> {
+            if (!passwordService.verify(password, stored) || credentials.isEmpty()) {
+                throw new AuthenticationFailedException("Invalid username or password");
+            }
+            var id = credentials.get().getId();
+            if (passwordService.needsUpgrade(stored)) {
+                upgrade(account, id, stored, passwordService.hash(password));
+            }
+            var token = tokenService.issue(account, id);
+            return new LoginResponse(id, username, token.getValue(), token.getExpiresAt());
+        });
+    }
+
+    private Optional<Credentials> findCredentials(Account account, String username) {
+        switch (account) {
+            case CUSTOMER:
+                return customerRepository.findCredentialsByUsername(username);
+            case EMPLOYEE:
+                return employeeRepository.findCredentialsByUsername(username);
+            default:
+                throw new IllegalArgumentException("Unknown account " + account);
+        }
+    }
+
+    /**
+     * Replace the stored password with the new hash, unless it has been changed since it was read. A failed upgrade
+     * does not fail the login, the password is upgraded by a later one.
+     */
+    private void upgrade(Account account, Long id, String stored, String hash) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.execute((status) -> {
+                if (account == Account.CUSTOMER) {
+                    customerRepository.findById(id)
+                            .filter((customer) -> stored.equals(customer.getPassword()))
+                            .ifPresent((customer) -> customer.setPasswordHash(hash));
+                } else {
+                    employeeRepository.findById(id)
+                            .filter((employee) -> stored.equals(employee.getPassword()))
+                            .ifPresent((employee) -> employee.setPasswordHash(hash));
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Cannot upgrade the password hash of the {} {}", account.name().toLowerCase(), id, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.ConcurrentUpdateException;
+import it.giorgiaauroraadorni.booktique.exception.PreconditionFailedException;
+import it.giorgiaauroraadorni.booktique.model.AuditModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs the updates that can be repeated safely, because they read the entities again and apply the same change, and
+ * retries them when they fail for a concurrent update of the same entities.
+ * Every attempt runs in a new transaction: the version of the updated entities is checked when it commits, and on a
+ * conflict the attempt is repeated after a random backoff, up to {@code booktique.retry.max-attempts} times. The
+ * attempts and the conflicts are counted, so that the conflict rate can be monitored.
+ */
+@Component
+public class OptimisticRetry {
+    @Value("${booktique.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    // Maximum wait before the first retry, doubled at every attempt
+    @Value("${booktique.retry.backoff-millis:10}")
+    private long backoffMillis;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong executions = new AtomicLong();
+
+    private final AtomicLong conflicts = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Check that the version of an entity is the one expected by the client, for example in the {@code If-Match}
+     * header.
+     * @param entity the entity to update.
+     * @param expectedVersion the expected version, or {@code null} if any version is accepted.
+     * @throws PreconditionFailedException if the entity has a different version.
+     */
+    public static void checkVersion(AuditModel entity, Long expectedVersion) throws PreconditionFailedException {
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            throw new PreconditionFailedException("Expected version " + expectedVersion + " but found " +
+                    entity.getVersion());
+        }
+    }
+
+    /**
+     * Run an update in a transaction, retrying it on optimistic locking conflicts.
+     * When a transaction is already active the update runs in it only once, because after a conflict its
+     * persistence context can no longer be used: the caller's transaction must be retried instead.
+     * @param update the update, that must read again the entities it modifies.
+     * @return the result of the update.
+     * @throws ConcurrentUpdateException if the update conflicts at every attempt.
+     */
+    public <T> T execute(Supplier<T> update) throws ConcurrentUpdateException {
+        executions.incrementAndGet();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return update.get();
+        }
+
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute((status) -> update.get());
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    failures.incrementAndGet();
+                    throw new ConcurrentUpdateException("The update conflicted with concurrent updates " +
+                            attempt + " times", e);
+                }
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, OptimisticLockingFailureException conflict) {
+        // the random wait spreads the retries of the updates that conflicted with each other
+        var maxWait = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxWait + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while retrying a conflicting update", conflict);
+        }
+    }
+
+    // Getters
+
+    /**
+     * @return the number of updates executed, each one counted once regardless of its attempts.
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return the number of attempts failed for a conflict.
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * @return the number of updates failed after the last attempt.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,100 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import it.giorgiaauroraadorni.booktique.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers the outbox events to the sinks in the background, every {@code booktique.outbox.publish-interval}
+ * milliseconds.
+ * The events are read in batches of {@code booktique.outbox.batch-size}, each one in its own transaction that locks
+ * the rows, so that several instances of the application can publish at the same time without delivering the same
+ * batch twice. A batch is marked as published only after all the sinks have received it: when a sink fails, the
+ * attempts of the events are incremented and the batch is delivered again at the next run (at least once delivery).
+ * The events of an aggregate are never delivered before the older ones.
+ */
+@Service
+public class OutboxPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxPublisher.class);
+
+    @Value("${booktique.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private List<OutboxSink> sinks = List.of();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Publish the pending events, one batch after the other, until no batch is full or a sink fails.
+     * @return the number of events published.
+     */
+    @Scheduled(fixedDelayString = "${booktique.outbox.publish-interval:500}")
+    public int publishPending() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        int total = 0;
+        int count;
+        do {
+            count = transactionTemplate.execute((status) -> publishBatch());
+            total += Math.max(count, 0);
+        } while (count == batchSize);
+        return total;
+    }
+
+    // Return the number of events published, or -1 if a sink failed
+    private int publishBatch() {
+        var events = outboxEventRepository.lockPublishable(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        var ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        try {
+            for (OutboxSink sink: sinks) {
+                sink.publish(events);
+            }
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            outboxEventRepository.incrementAttempts(ids, new Date());
+            logger.warn("Cannot publish the outbox events from {} to {}, retrying at the next run", ids.get(0),
+                    ids.get(ids.size() - 1), e);
+            return -1;
+        }
+        outboxEventRepository.markPublished(ids, new Date());
+        published.addAndGet(events.size());
+        return events.size();
+    }
+
+    /**
+     * @return the number of events published since the application started.
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * @return the number of batches that at least one sink failed to receive.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,81 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.giorgiaauroraadorni.booktique.model.AuditModel;
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import it.giorgiaauroraadorni.booktique.model.Payment;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the outbox events of the purchases, payments and books, on the changes reported by the
+ * {@link it.giorgiaauroraadorni.booktique.listener.OutboxListener}.
+ * The event is inserted with JDBC on the connection of the transaction of the change, so it is committed or rolled
+ * back together with the change.
+ */
+@Service
+public class OutboxService {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Insert the event of a change of a purchase, payment or book, with the attributes stored in its row.
+     * @throws IllegalArgumentException if the entity has no outbox events.
+     */
+    public void record(AuditModel entity, OutboxEvent.Type type) throws IllegalArgumentException {
+        // only the attributes stored in the row are read, the flush must not load the associations
+        Map<String, Object> payload = new LinkedHashMap<>();
+        String aggregateType;
+        Long aggregateId;
+        if (entity instanceof Purchase) {
+            var purchase = (Purchase) entity;
+            aggregateType = "Purchase";
+            aggregateId = purchase.getId();
+            payload.put("status", purchase.getStatus());
+            payload.put("amount", purchase.getAmount());
+            payload.put("orderDate", purchase.getOrderDate());
+            payload.put("shippingDate", purchase.getShippingDate());
+        } else if (entity instanceof Payment) {
+            // the card details are never published
+            var payment = (Payment) entity;
+            aggregateType = "Payment";
+            aggregateId = payment.getId();
+            payload.put("paymentDate", payment.getPaymentDate());
+        } else if (entity instanceof Book) {
+            var book = (Book) entity;
+            aggregateType = "Book";
+            aggregateId = book.getId();
+            payload.put("isbn", book.getIsbn());
+            payload.put("title", book.getTitle());
+            payload.put("publisher", book.getPublisher());
+            payload.put("edition", book.getEdition());
+        } else {
+            throw new IllegalArgumentException("No outbox events for " + entity.getClass().getName());
+        }
+        payload.put("version", entity.getVersion());
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the outbox event of " + aggregateType + " " +
+                    aggregateId, e);
+        }
+        var now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("insert into outbox_events (id, created_at, updated_at, version, aggregate_type, " +
+                "aggregate_id, event_type, payload, attempts) " +
+                "values (nextval('hibernate_sequence'), ?, ?, 0, ?, ?, ?, ?, 0)",
+                now, now, aggregateType, aggregateId, type.name(), json);
+    }
+}
@@ -0,0 +1,20 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * A consumer of the outbox events, such as a message broker or the log. Every bean implementing this interface
+ * receives all the events from the outbox publisher.
+ * The delivery is at least once: when a sink fails, the whole batch is delivered again to all the sinks, so the
+ * consumers must ignore the events they have already received, for example by their id.
+ */
+public interface OutboxSink {
+    /**
+     * Deliver a batch of events. The events of the same aggregate are in the order they must be processed.
+     * @param events the events, ordered by id.
+     * @throws RuntimeException if the events cannot be delivered, to have them delivered again later.
+     */
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,204 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and verifies the passwords with PBKDF2 (HMAC-SHA256), with a random salt for every password and a cost, the
+ * number of iterations, set by {@code booktique.password.iterations}.
+ * <p>
+ * A hash is stored as {@code pbkdf2_sha256$<iterations>$<salt>$<hash>}, with the salt and the hash in Base64, so the
+ * cost can be raised without invalidating the stored hashes: a hash of a lower cost is verified as it is and then
+ * reported by {@link #needsUpgrade(String)}. A password stored in clear, before the passwords were hashed on write
+ * by the {@link it.giorgiaauroraadorni.booktique.listener.PasswordHashingListener}, is never verified: it is hashed
+ * once at startup by the {@link LoginService}. The hashes of fewer than {@code booktique.password.min-iterations}
+ * iterations, the current cost unless set lower while the hashes of the previous cost are upgraded, are rejected.
+ * <p>
+ * The hashes are computed by a dedicated pool of {@code booktique.password.threads} threads, with a queue of
+ * {@code booktique.password.queue-size} tasks: a burst of logins uses at most those processors and never the request
+ * threads, and the logins exceeding the queue are rejected instead of waiting.
+ */
+@Service
+public class PasswordService {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final String PREFIX = "pbkdf2_sha256";
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BYTES = 32;
+
+    private final int iterations;
+
+    private final int minIterations;
+
+    private final ThreadPoolExecutor executor;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Verified when the account does not exist, so that the unknown usernames take the same time as the known ones
+    private volatile String dummyHash;
+
+    @Autowired
+    public PasswordService(@Value("${booktique.password.iterations:310000}") int iterations,
+                           @Value("${booktique.password.min-iterations:${booktique.password.iterations:310000}}")
+                                   int minIterations,
+                           @Value("${booktique.password.threads:2}") int threads,
+                           @Value("${booktique.password.queue-size:64}") int queueSize) {
+        if (iterations <= 0 || threads <= 0 || queueSize <= 0) {
+            throw new IllegalArgumentException("The iterations, threads and queue size must be positive");
+        }
+        if (minIterations <= 0 || minIterations > iterations) {
+            throw new IllegalArgumentException("The minimum iterations must be positive and not more than the " +
+                    "iterations");
+        }
+        this.iterations = iterations;
+        this.minIterations = minIterations;
+        var count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), (task) -> {
+                    var thread = new Thread(task, "password-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Run a task on the hashing threads.
+     * @throws ServiceUnavailableException if the queue of the hashing threads is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) throws ServiceUnavailableException {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many logins in progress, retry later");
+        }
+    }
+
+    /**
+     * @return the hash of the password with a new salt, at the current cost.
+     */
+    public String hash(String password) {
+        var salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        var hash = pbkdf2(password, salt, iterations);
+        var encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify a password against a stored hash. When there is no hash to verify against, the password is verified
+     * against a dummy hash, so every verification takes the time of a hash at the current cost whether the account
+     * exists or not, and the comparison takes the same time wherever the first difference is.
+     * @param password the password to verify.
+     * @param stored the stored hash, or {@code null} if the account does not exist.
+     * @return {@code true} if the password matches, always {@code false} for a stored password in clear or a hash of
+     *         fewer than the minimum iterations.
+     */
+    public boolean verify(String password, String stored) {
+        var hash = stored == null ? null : Hash.parse(stored);
+        if (hash == null || hash.iterations < minIterations) {
+            // spend the same time as for an account whose password is hashed
+            var dummy = Hash.parse(getDummyHash());
+            MessageDigest.isEqual(pbkdf2(password, dummy.salt, dummy.iterations), dummy.hash);
+            return false;
+        }
+        return MessageDigest.isEqual(pbkdf2(password, hash.salt, hash.iterations), hash.hash);
+    }
+
+    /**
+     * @return {@code true} if the stored password is in clear or hashed with a lower cost than the current one.
+     */
+    public boolean needsUpgrade(String stored) {
+        var hash = Hash.parse(stored);
+        return hash == null || hash.iterations < iterations;
+    }
+
+    /**
+     * @return {@code true} if the stored password is a hash, {@code false} if it is in clear. A password in clear that
+     *         looks like a hash but has invalid fields is in clear.
+     */
+    public boolean isHash(String stored) {
+        return Hash.parse(stored) != null;
+    }
+
+    private String getDummyHash() {
+        if (dummyHash == null) {
+            dummyHash = hash("");
+        }
+        return dummyHash;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        var spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // The fields of a stored hash
+    private static class Hash {
+        private final int iterations;
+
+        private final byte[] salt;
+
+        private final byte[] hash;
+
+        private Hash(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        // The hash, or null if the stored password is not a well-formed hash
+        private static Hash parse(String stored) {
+            var fields = stored.split("\\$", -1);
+            if (fields.length != 4 || !fields[0].equals(PREFIX)) {
+                return null;
+            }
+            try {
+                var iterations = Integer.parseInt(fields[1]);
+                var decoder = Base64.getDecoder();
+                var salt = decoder.decode(fields[2]);
+                var hash = decoder.decode(fields[3]);
+                if (iterations <= 0 || salt.length != SALT_BYTES || hash.length != HASH_BYTES) {
+                    return null;
+                }
+                return new Hash(iterations, salt, hash);
+            } catch (IllegalArgumentException e) {
+                // the iterations are not a number, or the salt or the hash are not in Base64
+                return null;
+            }
+        }
+    }
+}
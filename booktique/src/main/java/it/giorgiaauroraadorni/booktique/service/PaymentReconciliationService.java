@@ -0,0 +1,389 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.ReconciliationReport;
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.repository.PaymentAmount;
+import it.giorgiaauroraadorni.booktique.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Properties;
+
+/**
+ * Reconciles the payments of a date range with a settlement file of the payment provider, reporting the payments
+ * missing from the file, the settled payments unknown to the store and the amounts that differ.
+ * <p>
+ * The settlement files are read from the directory {@code booktique.reconciliation.directory}. They contain a line
+ * {@code payment_id,amount} for every settled payment, sorted by payment id, optionally preceded by a header. The
+ * payments are streamed from the database in the same order with a server-side cursor and merged with the lines of
+ * the file, so the memory used does not depend on the size of the range.
+ * <p>
+ * The mismatches are written to the file {@code <settlement file>.mismatches.csv}. Every
+ * {@code booktique.reconciliation.chunk-size} payments or lines, the mismatches found are forced to the disk and a
+ * checkpoint with the last payment and the position in the settlement file is saved next to it: a reconciliation of
+ * the same file and range that finds the checkpoint continues from it, after discarding the mismatches written after
+ * the checkpoint. The checkpoint is deleted when the reconciliation completes. A settlement file must not be
+ * reconciled by two runs at the same time.
+ */
+@Service
+public class PaymentReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final String MISMATCHES_HEADER = "payment_id,purchase_id,type,store_amount,settled_amount\n";
+
+    public enum Mismatch {
+        // A payment of the range is not in the settlement file
+        MISSING_IN_SETTLEMENT,
+        // A settled payment is not a payment of the range
+        MISSING_IN_STORE,
+        // The settled amount is not the amount of the purchase
+        AMOUNT_MISMATCH
+    }
+
+    @Value("${booktique.reconciliation.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    private final Path directory;
+
+    public PaymentReconciliationService(@Value("${booktique.reconciliation.directory:settlements}") String directory) {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Reconcile the payments made in the date range with a settlement file, resuming the previous run on the same
+     * file and range if it did not complete.
+     * @param fileName the name of the settlement file, relative to the settlement directory.
+     * @param from the first day of the range.
+     * @param to the last day of the range.
+     * @return the number of payments, lines and mismatches, including those of the resumed run.
+     * @throws ResourceNotFoundException if the settlement file does not exist.
+     * @throws InvalidRequestException if the file is outside the settlement directory, if a line is not valid or if
+     *                                 the lines are not sorted by payment id.
+     */
+    @Transactional(readOnly = true)
+    public ReconciliationReport reconcile(String fileName, LocalDate from, LocalDate to)
+            throws ResourceNotFoundException, InvalidRequestException {
+        return reconcile(fileName, from, to, chunkSize);
+    }
+
+    // Must be called in a transaction, which keeps the cursor of the payments open
+    ReconciliationReport reconcile(String fileName, LocalDate from, LocalDate to, int chunkSize)
+            throws ResourceNotFoundException, InvalidRequestException {
+        var settlement = directory.resolve(fileName).normalize();
+        if (!settlement.startsWith(directory)) {
+            throw new InvalidRequestException("The settlement file " + fileName + " is outside the settlement " +
+                    "directory");
+        }
+        if (!Files.isRegularFile(settlement)) {
+            throw new ResourceNotFoundException("Settlement file not found " + fileName);
+        }
+        var mismatchesPath = settlement.resolveSibling(settlement.getFileName() + ".mismatches.csv");
+        var checkpointPath = settlement.resolveSibling(settlement.getFileName() + ".checkpoint");
+
+        var checkpoint = Checkpoint.read(checkpointPath, from, to);
+        var resumed = checkpoint != null;
+        if (!resumed) {
+            checkpoint = new Checkpoint(from, to);
+        }
+
+        try (var output = FileChannel.open(mismatchesPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             var reader = new SettlementReader(settlement, checkpoint.settlementOffset);
+             var stream = paymentRepository.streamAmountsByPaymentDateBetween(from, to, checkpoint.lastPaymentId)) {
+            var pending = new StringBuilder();
+            if (resumed) {
+                // the mismatches written after the checkpoint are found again
+                output.truncate(checkpoint.mismatchesLength);
+            } else {
+                output.truncate(0);
+                pending.append(MISMATCHES_HEADER);
+            }
+            output.position(output.size());
+
+            var payments = stream.iterator();
+            var payment = next(payments);
+            var line = reader.next();
+            long steps = 0;
+            while (payment != null || line != null) {
+                if (line == null || (payment != null && payment.getPaymentId() < line.paymentId)) {
+                    checkpoint.mismatch(pending, Mismatch.MISSING_IN_SETTLEMENT, payment.getPaymentId(),
+                            payment.getPurchaseId(), payment.getAmount(), null);
+                    checkpoint.consume(payment);
+                    payment = next(payments);
+                } else if (payment == null || line.paymentId < payment.getPaymentId()) {
+                    checkpoint.mismatch(pending, Mismatch.MISSING_IN_STORE, line.paymentId, null, null,
+                            line.amount);
+                    checkpoint.settled++;
+                    line = reader.next();
+                } else {
+                    if (payment.getAmount().compareTo(line.amount) != 0) {
+                        checkpoint.mismatch(pending, Mismatch.AMOUNT_MISMATCH, payment.getPaymentId(),
+                                payment.getPurchaseId(), payment.getAmount(), line.amount);
+                    } else {
+                        checkpoint.matched++;
+                    }
+                    checkpoint.consume(payment);
+                    checkpoint.settled++;
+                    payment = next(payments);
+                    line = reader.next();
+                }
+
+                if (++steps % chunkSize == 0) {
+                    checkpoint.settlementOffset = line != null ? line.offset : reader.position;
+                    write(output, pending);
+                    checkpoint.mismatchesLength = output.position();
+                    checkpoint.write(checkpointPath);
+                }
+            }
+            write(output, pending);
+            checkpoint.mismatchesLength = output.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reconcile the settlement file " + fileName, e);
+        }
+
+        try {
+            Files.deleteIfExists(checkpointPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete the checkpoint of " + fileName, e);
+        }
+        logger.info("Reconciled {} payments from {} to {} with {} settled payments of {}: {} mismatches",
+                checkpoint.payments, from, to, checkpoint.settled, fileName, checkpoint.mismatches);
+        return new ReconciliationReport(fileName, directory.relativize(mismatchesPath).toString(), from, to,
+                checkpoint.payments, checkpoint.settled, checkpoint.matched, checkpoint.mismatches, resumed);
+    }
+
+    private static PaymentAmount next(Iterator<PaymentAmount> payments) {
+        return payments.hasNext() ? payments.next() : null;
+    }
+
+    // Append the pending mismatches to the file and force them to the disk
+    private static void write(FileChannel output, StringBuilder pending) throws IOException {
+        var buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        output.force(false);
+        pending.setLength(0);
+    }
+
+    /**
+     * The progress of a reconciliation: the last payment read, the position of the first line of the settlement file
+     * not read, the length of the mismatches file and the counters.
+     */
+    private static class Checkpoint {
+        private final LocalDate from;
+
+        private final LocalDate to;
+
+        private long lastPaymentId;
+
+        private long settlementOffset;
+
+        private long mismatchesLength;
+
+        private long payments;
+
+        private long settled;
+
+        private long matched;
+
+        private long mismatches;
+
+        private Checkpoint(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void consume(PaymentAmount payment) {
+            lastPaymentId = payment.getPaymentId();
+            payments++;
+        }
+
+        private void mismatch(StringBuilder pending, Mismatch type, Long paymentId, Long purchaseId,
+                              BigDecimal storeAmount, BigDecimal settledAmount) {
+            pending.append(paymentId).append(',')
+                    .append(purchaseId != null ? purchaseId : "").append(',')
+                    .append(type).append(',')
+                    .append(storeAmount != null ? storeAmount.toPlainString() : "").append(',')
+                    .append(settledAmount != null ? settledAmount.toPlainString() : "").append('\n');
+            mismatches++;
+        }
+
+        /**
+         * Read the checkpoint of a previous run on the same date range.
+         * @return the checkpoint, or {@code null} if there is no checkpoint or it belongs to another range.
+         */
+        private static Checkpoint read(Path path, LocalDate from, LocalDate to) throws InvalidRequestException {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            var properties = new Properties();
+            try (var input = Files.newInputStream(path)) {
+                properties.load(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the checkpoint " + path, e);
+            }
+            if (!from.toString().equals(properties.getProperty("from")) ||
+                    !to.toString().equals(properties.getProperty("to"))) {
+                logger.warn("Ignoring the checkpoint {} of another date range", path);
+                return null;
+            }
+            var checkpoint = new Checkpoint(from, to);
+            try {
+                checkpoint.lastPaymentId = Long.parseLong(properties.getProperty("lastPaymentId"));
+                checkpoint.settlementOffset = Long.parseLong(properties.getProperty("settlementOffset"));
+                checkpoint.mismatchesLength = Long.parseLong(properties.getProperty("mismatchesLength"));
+                checkpoint.payments = Long.parseLong(properties.getProperty("payments"));
+                checkpoint.settled = Long.parseLong(properties.getProperty("settled"));
+                checkpoint.matched = Long.parseLong(properties.getProperty("matched"));
+                checkpoint.mismatches = Long.parseLong(properties.getProperty("mismatches"));
+            } catch (NumberFormatException e) {
+                throw new InvalidRequestException("The checkpoint " + path.getFileName() + " is not valid", e);
+            }
+            return checkpoint;
+        }
+
+        // The checkpoint replaces the previous one with an atomic move, so a crash never leaves a partial checkpoint
+        private void write(Path path) throws IOException {
+            var properties = new Properties();
+            properties.setProperty("from", from.toString());
+            properties.setProperty("to", to.toString());
+            properties.setProperty("lastPaymentId", Long.toString(lastPaymentId));
+            properties.setProperty("settlementOffset", Long.toString(settlementOffset));
+            properties.setProperty("mismatchesLength", Long.toString(mismatchesLength));
+            properties.setProperty("payments", Long.toString(payments));
+            properties.setProperty("settled", Long.toString(settled));
+            properties.setProperty("matched", Long.toString(matched));
+            properties.setProperty("mismatches", Long.toString(mismatches));
+
+            var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                properties.store(Channels.newOutputStream(channel), null);
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static class SettlementLine {
+        private final long paymentId;
+
+        private final BigDecimal amount;
+
+        // The position of the line in the file
+        private final long offset;
+
+        private SettlementLine(long paymentId, BigDecimal amount, long offset) {
+            this.paymentId = paymentId;
+            this.amount = amount;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Reads the lines of a settlement file from a position, keeping track of the position of every line.
+     */
+    private static class SettlementReader implements Closeable {
+        private final String fileName;
+
+        private final InputStream input;
+
+        // The position of the first byte not read
+        private long position;
+
+        private long previousId = Long.MIN_VALUE;
+
+        private SettlementReader(Path path, long offset) throws IOException {
+            this.fileName = path.getFileName().toString();
+            var channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(offset);
+            this.input = new BufferedInputStream(Channels.newInputStream(channel));
+            this.position = offset;
+        }
+
+        /**
+         * @return the next line, or {@code null} at the end of the file.
+         * @throws InvalidRequestException if the line is not valid or its payment id is not greater than the one of
+         *                                 the previous line.
+         */
+        private SettlementLine next() throws IOException, InvalidRequestException {
+            while (true) {
+                var offset = position;
+                var text = readLine();
+                if (text == null) {
+                    return null;
+                }
+                if (text.isBlank() || (offset == 0 && text.startsWith("payment_id"))) {
+                    continue;
+                }
+
+                var fields = text.split(",");
+                SettlementLine line;
+                try {
+                    if (fields.length != 2) {
+                        throw new NumberFormatException("Expected 2 fields, found " + fields.length);
+                    }
+                    line = new SettlementLine(Long.parseLong(fields[0].trim()), new BigDecimal(fields[1].trim()),
+                            offset);
+                } catch (NumberFormatException e) {
+                    throw new InvalidRequestException("Invalid line at byte " + offset + " of the settlement file " +
+                            fileName, e);
+                }
+                if (line.paymentId <= previousId) {
+                    throw new InvalidRequestException("The settlement file " + fileName + " is not sorted by " +
+                            "payment id at byte " + offset);
+                }
+                previousId = line.paymentId;
+                return line;
+            }
+        }
+
+        private String readLine() throws IOException {
+            var bytes = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    break;
+                }
+                bytes.write(b);
+            }
+            if (b == -1 && bytes.size() == 0) {
+                return null;
+            }
+            var text = bytes.toString(StandardCharsets.UTF_8);
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.CheckoutRequest;
+import it.giorgiaauroraadorni.booktique.dto.PurchaseHistoryEntry;
+import it.giorgiaauroraadorni.booktique.dto.SupplierPrice;
+import it.giorgiaauroraadorni.booktique.exception.IllegalStatusChangeException;
+import it.giorgiaauroraadorni.booktique.exception.InsufficientStockException;
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.exception.PaymentDeclinedException;
+import it.giorgiaauroraadorni.booktique.exception.PreconditionFailedException;
+import it.giorgiaauroraadorni.booktique.exception.PriceChangedException;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.model.*;
+import it.giorgiaauroraadorni.booktique.repository.*;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the purchases and changes their status, keeping the daily sales and the status log updated.
+ * The revenue of a purchase is counted on its order date when it becomes completed or shipped, and removed when a
+ * completed or shipped purchase is canceled.
+ */
+@Service
+@Transactional
+public class PurchaseService {
+    // Id of the rows containing the sales of the whole store
+    public static final long TOTAL_ID = 0;
+
+    // Maximum number of statements sent in a single JDBC batch by the checkout
+    private static final int CHECKOUT_BATCH_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private PurchaseStatusChangeRepository purchaseStatusChangeRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private EmployeeAssignmentService employeeAssignmentService;
+
+    @Autowired
+    private VelocityService velocityService;
+
+    @Autowired
+    private SupplierPriceService supplierPriceService;
+
+    /**
+     * @param status the status of a purchase.
+     * @return {@code true} if the revenue of the purchases in the given status is counted in the daily sales.
+     */
+    public static boolean isRevenue(Purchase.Status status) {
+        return status == Purchase.Status.COMPLETED || status == Purchase.Status.SHIPPED;
+    }
+
+    public Purchase createPurchase(Purchase purchase) {
+        if (purchase.getStatus() != null && purchase.getStatus().isActive() && purchase.getEmployee() != null &&
+                purchase.getEmployee().getId() != null) {
+            employeeAssignmentService.opened(purchase.getEmployee().getId());
+        }
+        return save(purchase);
+    }
+
+    private Purchase save(Purchase purchase) {
+        var savedPurchase = purchaseRepository.save(purchase);
+        if (savedPurchase.getStatus() != null) {
+            purchaseStatusChangeRepository.save(new PurchaseStatusChange(savedPurchase, null,
+                    savedPurchase.getStatus()));
+        }
+        if (isRevenue(savedPurchase.getStatus())) {
+            addSales(savedPurchase, 1);
+        }
+        return savedPurchase;
+    }
+
+    /**
+     * Create a purchase from a cart, with its items and payment, in a single transaction.
+     * The existence of the referenced entities is checked with one query per table, and all the new rows are written by
+     * a single flush, so that Hibernate sends the inserts of every table in one JDBC batch.
+     * The units of the items are reserved on the stock levels in memory before writing, and given back if the
+     * transaction rolls back.
+     * When the cart does not name an employee, the purchase is assigned to the employee with the fewest open orders.
+     * The lines without a supplier are bought from the cheapest supplier of the book. Every line is charged the price
+     * of the book in the price list of its supplier, the price sent with a line is only checked against it.
+     * @param request the content of the cart.
+     * @return the persisted purchase, with its items initialized.
+     * @throws InvalidRequestException if the cart references a customer, employee, book or supplier that does not
+     *                                 exist, if no employee can take the purchase or if the price of a line is
+     *                                 unknown.
+     * @throws PriceChangedException if the price sent with a line is not the price of the book from the supplier.
+     * @throws InsufficientStockException if a book is not available in the requested quantity.
+     * @throws PaymentDeclinedException if the payment exceeds the velocity of its card, cardholder or customer.
+     */
+    public Purchase checkout(CheckoutRequest request) throws InvalidRequestException, PriceChangedException,
+            InsufficientStockException, PaymentDeclinedException {
+        var customer = customerRepository.findById(request.getCustomerId())
+                .orElseThrow(() -> new InvalidRequestException("Customer not found with id " +
+                        request.getCustomerId()));
+        Employee employee;
+        if (request.getEmployeeId() != null) {
+            employee = employeeRepository.findById(request.getEmployeeId())
+                    .orElseThrow(() -> new InvalidRequestException("Employee not found with id " +
+                            request.getEmployeeId()));
+            employeeAssignmentService.opened(employee.getId());
+        } else {
+            employee = assignEmployee();
+        }
+
+        chooseSuppliers(request.getItems());
+
+        // only the existence of the books and suppliers is checked, the items reference them through proxies
+        checkExist("Book", bookRepository.findIdsByIdIn(request.getItems().stream()
+                .map(CheckoutRequest.Line::getBookId)
+                .collect(Collectors.toSet())), request.getItems(), CheckoutRequest.Line::getBookId);
+        checkExist("Supplier", supplierRepository.findIdsByIdIn(request.getItems().stream()
+                .map(CheckoutRequest.Line::getSupplierId)
+                .collect(Collectors.toSet())), request.getItems(), CheckoutRequest.Line::getSupplierId);
+
+        var reservation = stockService.reserve(request.getItems());
+
+        Set<Item> items = new HashSet<>();
+        for (CheckoutRequest.Line line: request.getItems()) {
+            var item = new Item();
+            item.setBookItem(bookRepository.getOne(line.getBookId()));
+            item.setSupplier(supplierRepository.getOne(line.getSupplierId()));
+            item.setUnitPrice(line.getUnitPrice());
+            item.setQuantityPerUnit(line.getQuantity());
+            // the units of the tracked stocks are subtracted by the stock service after the commit
+            item.setStockSynced(!reservation.isTracked(line));
+            items.add(item);
+        }
+
+        var payment = request.getPayment();
+        payment.setId(null);
+        if (payment.getPaymentDate() == null) {
+            payment.setPaymentDate(LocalDate.now());
+        }
+
+        var purchase = new Purchase();
+        purchase.setCustomer(customer);
+        purchase.setEmployee(employee);
+        purchase.setPaymentDetails(payment);
+        purchase.setItems(items);
+        purchase.setOrderDate(LocalDate.now());
+        purchase.setStatus(Purchase.Status.PROCESSING);
+
+        // the payments exceeding the velocity of their card, cardholder or customer are declined before writing, the
+        // other ones are counted and discounted if the checkout rolls back
+        velocityService.check(customer.getId(), payment, purchase.getAmount());
+
+        // the batches are enabled only for the checkout, the other operations keep reporting the failures of every
+        // single statement
+        entityManager.unwrap(Session.class).setJdbcBatchSize(CHECKOUT_BATCH_SIZE);
+        var savedPurchase = save(purchase);
+        purchaseRepository.flush();
+        return savedPurchase;
+    }
+
+    // Complete the lines without a supplier with the prices kept in memory, preferring the suppliers whose stock has
+    // enough units of the book, and set the price of every line to the one in the price list of its supplier
+    private void chooseSuppliers(List<CheckoutRequest.Line> lines)
+            throws InvalidRequestException, PriceChangedException {
+        for (CheckoutRequest.Line line: lines) {
+            SupplierPrice price;
+            if (line.getSupplierId() == null) {
+                price = supplierPriceService.getBestPrice(line.getBookId(), (supplierId) -> stockService
+                        .getAvailable(line.getBookId(), supplierId).orElse(Long.MAX_VALUE) >= line.getQuantity())
+                        .or(() -> supplierPriceService.getBestPrice(line.getBookId()))
+                        .orElseThrow(() -> new InvalidRequestException("No supplier sells the book " +
+                                line.getBookId()));
+                line.setSupplierId(price.getSupplierId());
+            } else {
+                price = supplierPriceService.getPrice(line.getBookId(), line.getSupplierId())
+                        .orElseThrow(() -> new InvalidRequestException("No price of the book " + line.getBookId() +
+                                " from the supplier " + line.getSupplierId()));
+            }
+            // the price sent by the client is only the one it expects to pay
+            if (line.getUnitPrice() != null && line.getUnitPrice().compareTo(price.getUnitPrice()) != 0) {
+                throw new PriceChangedException(line.getBookId(), line.getSupplierId(), price.getUnitPrice());
+            }
+            line.setUnitPrice(price.getUnitPrice());
+        }
+    }
+
+    // The least loaded employee, skipping the ones deleted by changes that the assignment has not seen
+    private Employee assignEmployee() throws InvalidRequestException {
+        while (true) {
+            var employeeId = employeeAssignmentService.assign()
+                    .orElseThrow(() -> new InvalidRequestException("No employee can take the purchase"));
+            var employee = employeeRepository.findById(employeeId);
+            if (employee.isPresent()) {
+                return employee.get();
+            }
+            employeeAssignmentService.untrack(employeeId);
+        }
+    }
+
+    private static void checkExist(String entityName, List<Long> existingIds, List<CheckoutRequest.Line> lines,
+                                   Function<CheckoutRequest.Line, Long> getId) throws InvalidRequestException {
+        var existing = new HashSet<>(existingIds);
+        for (CheckoutRequest.Line line: lines) {
+            if (!existing.contains(getId.apply(line))) {
+                throw new InvalidRequestException(entityName + " not found with id " + getId.apply(line));
+            }
+        }
+    }
+
+    /**
+     * Get a page of the order history of a customer, from the most recent order, with the items of every purchase and
+     * the titles of their books.
+     * The page is read with a fixed number of queries, whatever the number of purchases and items: the ids of the
+     * page, the total count when the page is full, and the items of the purchases with the titles of their books.
+     * @param customerId the id of the customer.
+     * @param pageable the page number and size, the sort is ignored.
+     * @return the page of purchases.
+     * @throws ResourceNotFoundException if the customer does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Page<PurchaseHistoryEntry> getPurchaseHistory(Long customerId, Pageable pageable)
+            throws ResourceNotFoundException {
+        var ids = purchaseRepository.findHistoryIdsByCustomerId(customerId,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        if (ids.isEmpty()) {
+            if (ids.getTotalElements() == 0 && !customerRepository.existsById(customerId)) {
+                throw new ResourceNotFoundException("Customer not found with id " + customerId);
+            }
+            return new PageImpl<>(List.of(), ids.getPageable(), ids.getTotalElements());
+        }
+
+        Map<Long, PurchaseHistoryEntry> purchases = new HashMap<>();
+        for (PurchaseHistoryRow row: purchaseRepository.findHistoryRowsByIdIn(ids.getContent())) {
+            purchases.computeIfAbsent(row.getPurchaseId(), (id) -> new PurchaseHistoryEntry(row)).addItem(row);
+        }
+        return ids.map(purchases::get);
+    }
+
+    /**
+     * Change the status of a purchase, adding its revenue to the daily sales or removing it when needed.
+     * Only the transitions allowed by {@link Purchase.Status#canChangeTo(Purchase.Status)} are applied, and every
+     * change is recorded in the status log. Changing a purchase to its current status has no effect.
+     * @param purchaseId the id of the purchase.
+     * @param status the new status.
+     * @return the updated purchase.
+     * @throws ResourceNotFoundException if the purchase does not exist.
+     * @throws IllegalStatusChangeException if the purchase cannot move from its status to the new one.
+     */
+    public Purchase changeStatus(Long purchaseId, Purchase.Status status)
+            throws ResourceNotFoundException, IllegalStatusChangeException {
+        return changeStatus(purchaseId, status, null);
+    }
+
+    /**
+     * Change the status of a purchase if it still has the expected version.
+     * @param purchaseId the id of the purchase.
+     * @param status the new status.
+     * @param expectedVersion the version of the purchase read by the client, or {@code null} to accept any version.
+     * @return the updated purchase, with its new version.
+     * @throws ResourceNotFoundException if the purchase does not exist.
+     * @throws PreconditionFailedException if the purchase has been modified after the expected version.
+     * @throws IllegalStatusChangeException if the purchase cannot move from its status to the new one.
+     */
+    public Purchase changeStatus(Long purchaseId, Purchase.Status status, Long expectedVersion)
+            throws ResourceNotFoundException, PreconditionFailedException, IllegalStatusChangeException {
+        var purchase = purchaseRepository.findLockedById(purchaseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with id " + purchaseId));
+        OptimisticRetry.checkVersion(purchase, expectedVersion);
+
+        var currentStatus = purchase.getStatus();
+        if (currentStatus == status) {
+            return purchase;
+        }
+        if (currentStatus != null && !currentStatus.canChangeTo(status)) {
+            throw new IllegalStatusChangeException("The purchase " + purchaseId + " cannot change from " +
+                    currentStatus + " to " + status);
+        }
+        purchaseStatusChangeRepository.save(new PurchaseStatusChange(purchase, currentStatus, status));
+
+        // the open orders of the employee change when the purchase enters or leaves the active statuses
+        var open = (status != null && status.isActive() ? 1 : 0) -
+                (currentStatus != null && currentStatus.isActive() ? 1 : 0);
+        if (open > 0) {
+            employeeAssignmentService.opened(purchase.getEmployee().getId());
+        } else if (open < 0) {
+            employeeAssignmentService.closed(purchase.getEmployee().getId());
+        }
+
+        var sign = (isRevenue(status) ? 1 : 0) - (isRevenue(currentStatus) ? 1 : 0);
+        purchase.setStatus(status);
+        if (sign != 0) {
+            addSales(purchase, sign);
+        }
+        // the update increments the version returned to the client
+        purchaseRepository.flush();
+        return purchase;
+    }
+
+    /**
+     * Add the revenue of the purchase to the row of every dimension, or remove it if the sign is negative.
+     * Only the items are loaded, the ids of the other associations are read from the proxies.
+     */
+    private void addSales(Purchase purchase, int sign) {
+        var total = new Sales();
+        Map<Long, Sales> books = new HashMap<>();
+        Map<Long, Sales> suppliers = new HashMap<>();
+
+        for (Item i: purchase.getItems()) {
+            var cents = i.getTotalPriceCents();
+            var quantity = i.getQuantityPerUnit();
+            total.add(cents, quantity);
+            books.computeIfAbsent(i.getBookItem().getId(), (id) -> new Sales()).add(cents, quantity);
+            suppliers.computeIfAbsent(i.getSupplier().getId(), (id) -> new Sales()).add(cents, quantity);
+        }
+
+        var day = purchase.getOrderDate();
+        addSales(day, DailySales.Dimension.TOTAL, TOTAL_ID, total, sign);
+        addSales(day, DailySales.Dimension.EMPLOYEE, purchase.getEmployee().getId(), total, sign);
+        books.forEach((id, sales) -> addSales(day, DailySales.Dimension.BOOK, id, sales, sign));
+        suppliers.forEach((id, sales) -> addSales(day, DailySales.Dimension.SUPPLIER, id, sales, sign));
+    }
+
+    private void addSales(LocalDate day, DailySales.Dimension dimension, long dimensionId, Sales sales, int sign) {
+        dailySalesRepository.addSales(day, dimension.name(), dimensionId,
+                Money.ofCents(Math.multiplyExact(sales.cents, sign)).toBigDecimal(),
+                Math.multiplyExact(sales.quantity, sign), sign);
+    }
+
+    // Revenue and quantity of the items of a purchase belonging to the same dimension
+    private static class Sales {
+        private long cents;
+
+        private long quantity;
+
+        private void add(long cents, long quantity) {
+            this.cents = Math.addExact(this.cents, cents);
+            this.quantity = Math.addExact(this.quantity, quantity);
+        }
+    }
+}
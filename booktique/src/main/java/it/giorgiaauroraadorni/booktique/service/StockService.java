@@ -0,0 +1,290 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.CheckoutRequest;
+import it.giorgiaauroraadorni.booktique.exception.InsufficientStockException;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.StockQuantity;
+import it.giorgiaauroraadorni.booktique.repository.StockRepository;
+import it.giorgiaauroraadorni.booktique.repository.SupplierRepository;
+import it.giorgiaauroraadorni.booktique.utility.StripedCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reserves the units of the books sold by the checkout on stock levels kept in memory, so that concurrent checkouts
+ * of the same book never wait for a row lock.
+ * <p>
+ * The available units of every book and supplier are held in a {@link StripedCounter}, from which the checkout
+ * takes the units of its items before writing the purchase. The reservation is committed when the transaction of the
+ * checkout commits and released when it rolls back. The items of the reserved lines are written by the checkout as not
+ * yet synced with their stock, in the transaction of the sale; their units are subtracted from the stocks table in the
+ * background every {@code booktique.stock.flush-interval} milliseconds by a statement that also marks them as synced,
+ * and the ones still not synced when the application stopped are subtracted when it starts.
+ * <p>
+ * The books without a stock row for the supplier are not tracked, and their reservations always succeed.
+ */
+@Service
+public class StockService {
+    private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+
+    @Value("${booktique.stock.stripes:4}")
+    private int stripes;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    private final ConcurrentHashMap<StockKey, StockLevel> levels = new ConcurrentHashMap<>();
+
+    // Levels with units sold and not yet written
+    private final Set<StockLevel> unsynced = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Load the stock levels from the database, after subtracting the sales that were not written before the
+     * application stopped. The levels in memory are replaced, so the method must not be called while checkouts are
+     * running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcile() {
+        var reconciled = stockRepository.subtractUnsyncedSales(new Date());
+        levels.clear();
+        unsynced.clear();
+        for (StockQuantity stock: stockRepository.findAllQuantities()) {
+            var level = new StockLevel(stock.getId(), stripes);
+            level.available.add(Math.max(stock.getQuantity(), 0));
+            levels.put(new StockKey(stock.getBookId(), stock.getSupplierId()), level);
+        }
+        logger.info("Loaded {} stock levels, {} reconciled with the unsynced sales", levels.size(), reconciled);
+    }
+
+    /**
+     * Add units to the stock of a book from a supplier, starting to track it if needed. The units can be reserved
+     * once the transaction commits.
+     * @param bookId the id of the book.
+     * @param supplierId the id of the supplier.
+     * @param quantity the units to add.
+     * @throws ResourceNotFoundException if the book or the supplier does not exist.
+     */
+    @Transactional
+    public void restock(Long bookId, Long supplierId, long quantity) throws ResourceNotFoundException {
+        if (!bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found with id " + bookId);
+        }
+        if (!supplierRepository.existsById(supplierId)) {
+            throw new ResourceNotFoundException("Supplier not found with id " + supplierId);
+        }
+
+        stockRepository.addQuantity(bookId, supplierId, quantity, new Date());
+        var stockId = stockRepository.findByBook_IdAndSupplier_Id(bookId, supplierId).get().getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                levels.computeIfAbsent(new StockKey(bookId, supplierId), (key) -> new StockLevel(stockId, stripes))
+                        .available.add(quantity);
+            }
+        });
+    }
+
+    /**
+     * @return the units of the book from the supplier that can be reserved, or an empty value if the stock is not
+     *         tracked.
+     */
+    public OptionalLong getAvailable(Long bookId, Long supplierId) {
+        var level = levels.get(new StockKey(bookId, supplierId));
+        return level == null ? OptionalLong.empty() : OptionalLong.of(level.available.sum());
+    }
+
+    /**
+     * Reserve the units of every line of a cart. The reservation is all or nothing: if a line cannot be reserved,
+     * the units taken for the previous ones are given back.
+     * When called in a transaction, the reservation is committed when the transaction commits and released when it
+     * rolls back, otherwise it must be committed or released by the caller.
+     * @param lines the books to reserve, each one from a supplier.
+     * @return the reservation.
+     * @throws InsufficientStockException if the stock of a line does not have enough units.
+     */
+    public Reservation reserve(List<CheckoutRequest.Line> lines) throws InsufficientStockException {
+        var reservation = new Reservation();
+        for (CheckoutRequest.Line line: lines) {
+            var level = levels.get(new StockKey(line.getBookId(), line.getSupplierId()));
+            if (level == null) {
+                continue;
+            }
+            if (!level.available.tryAcquire(line.getQuantity())) {
+                release(reservation);
+                throw new InsufficientStockException("Not enough units of the book " + line.getBookId() +
+                        " from the supplier " + line.getSupplierId());
+            }
+            reservation.add(level, line);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        commit(reservation);
+                    } else {
+                        release(reservation);
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    /**
+     * Confirm that the reserved units are sold, so that they are subtracted from the stocks table.
+     */
+    public void commit(Reservation reservation) {
+        for (int i = 0; i < reservation.levels.size(); i++) {
+            var level = reservation.levels.get(i);
+            level.sold.addAndGet(reservation.quantities.get(i));
+            unsynced.add(level);
+        }
+        reservation.clear();
+    }
+
+    /**
+     * Give back the reserved units, making them available to other reservations.
+     */
+    public void release(Reservation reservation) {
+        for (int i = 0; i < reservation.levels.size(); i++) {
+            reservation.levels.get(i).available.release(reservation.quantities.get(i));
+        }
+        reservation.clear();
+    }
+
+    /**
+     * Subtract the items not yet synced from the stocks table, with one update per stock whose reservations have been
+     * committed since the previous flush. The stocks that cannot be written are flushed again the next time.
+     */
+    @Scheduled(fixedDelayString = "${booktique.stock.flush-interval:1000}")
+    public void flush() {
+        for (var iterator = unsynced.iterator(); iterator.hasNext();) {
+            var level = iterator.next();
+            iterator.remove();
+
+            // the units are only a hint that the stock has items to sync, the update subtracts the items written by
+            // the committed checkouts
+            var sold = level.sold.getAndSet(0);
+            if (sold == 0) {
+                continue;
+            }
+            try {
+                if (stockRepository.subtractSold(level.stockId, new Date()) == 0) {
+                    // the stock has been deleted, the book is no longer tracked
+                    levels.values().remove(level);
+                }
+            } catch (RuntimeException e) {
+                level.sold.addAndGet(sold);
+                unsynced.add(level);
+                logger.warn("Cannot write the units sold of the stock {}, retrying at the next flush",
+                        level.stockId, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Units taken from the stock levels, to be committed or released exactly once.
+     */
+    public static class Reservation {
+        private final List<StockLevel> levels = new ArrayList<>();
+
+        private final List<Long> quantities = new ArrayList<>();
+
+        private final List<CheckoutRequest.Line> lines = new ArrayList<>();
+
+        private void add(StockLevel level, CheckoutRequest.Line line) {
+            levels.add(level);
+            quantities.add((long) line.getQuantity());
+            lines.add(line);
+        }
+
+        private void clear() {
+            levels.clear();
+            quantities.clear();
+            lines.clear();
+        }
+
+        /**
+         * @return {@code true} if the units of the line are reserved on a tracked stock, so its item must be written
+         *         as not yet synced with the stock.
+         */
+        public boolean isTracked(CheckoutRequest.Line line) {
+            return lines.contains(line);
+        }
+
+        /**
+         * @return {@code true} if no units are reserved, because the books are not tracked or the reservation has
+         *         already been committed or released.
+         */
+        public boolean isEmpty() {
+            return levels.isEmpty();
+        }
+    }
+
+    private static class StockLevel {
+        private final long stockId;
+
+        private final StripedCounter available;
+
+        // Units committed since the last flush of the stock
+        private final AtomicLong sold = new AtomicLong();
+
+        private StockLevel(long stockId, int stripes) {
+            this.stockId = stockId;
+            this.available = new StripedCounter(stripes);
+        }
+    }
+
+    private static class StockKey {
+        private final long bookId;
+
+        private final long supplierId;
+
+        private StockKey(long bookId, long supplierId) {
+            this.bookId = bookId;
+            this.supplierId = supplierId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StockKey)) return false;
+            var other = (StockKey) o;
+            return bookId == other.bookId && supplierId == other.supplierId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(bookId) + Long.hashCode(supplierId);
+        }
+    }
+}
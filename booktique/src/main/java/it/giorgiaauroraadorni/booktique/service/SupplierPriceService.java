@@ -0,0 +1,240 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.SupplierPrice;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.CatalogPriceRepository;
+import it.giorgiaauroraadorni.booktique.repository.CatalogPriceRow;
+import it.giorgiaauroraadorni.booktique.repository.SupplierRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps in memory the price of every book from every supplier, as set in the price lists of the suppliers
+ * ({@link it.giorgiaauroraadorni.booktique.model.CatalogPrice}), so that the cheapest supplier of a book is found
+ * without reading the database. The prices charged by the purchases are not prices of the suppliers and never change
+ * the price list.
+ * <p>
+ * The prices of a book are held in an array sorted from the cheapest, replaced as a whole when a price changes, so
+ * the readers never lock and the best price is the first element. The prices are loaded when the application starts
+ * and updated when the transactions changing the price list commit; a price is replaced only by one of a later row or a
+ * later version of the same row, so the updates committed out of order never bring back an older price.
+ */
+@Service
+public class SupplierPriceService {
+    private static final Logger logger = LoggerFactory.getLogger(SupplierPriceService.class);
+
+    private static final Comparator<Price> CHEAPEST_FIRST = Comparator.comparing((Price p) -> p.unitPrice)
+            .thenComparingLong((p) -> p.supplierId);
+
+    @Autowired
+    private CatalogPriceRepository catalogPriceRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    private final ConcurrentHashMap<Long, Price[]> prices = new ConcurrentHashMap<>();
+
+    /**
+     * Load the prices of all the books from the price lists. The prices in memory are replaced, so the method must not
+     * be called while the price lists are being changed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reload() {
+        prices.clear();
+        for (CatalogPriceRow price: catalogPriceRepository.findAllPrices()) {
+            update(new Price(price));
+        }
+        logger.info("Loaded the prices of {} books", prices.size());
+    }
+
+    /**
+     * @return the cheapest supplier of the book and its price, or an empty value if no supplier sells the book.
+     */
+    public Optional<SupplierPrice> getBestPrice(Long bookId) {
+        var bookPrices = prices.get(bookId);
+        return bookPrices == null ? Optional.empty() : Optional.of(bookPrices[0].toSupplierPrice(bookId));
+    }
+
+    /**
+     * Find the cheapest of the eligible suppliers of a book. The suppliers are tested from the cheapest, so the search
+     * takes O(1) when the cheapest supplier is eligible.
+     * @param bookId the id of the book.
+     * @param eligible the test of the ids of the suppliers that can be chosen.
+     * @return the cheapest eligible supplier and its price, or an empty value if no supplier is eligible.
+     */
+    public Optional<SupplierPrice> getBestPrice(Long bookId, Predicate<Long> eligible) {
+        var bookPrices = prices.get(bookId);
+        if (bookPrices == null) {
+            return Optional.empty();
+        }
+        return Arrays.stream(bookPrices)
+                .filter((price) -> eligible.test(price.supplierId))
+                .findFirst()
+                .map((price) -> price.toSupplierPrice(bookId));
+    }
+
+    /**
+     * @return the price of the book from the supplier, or an empty value if the supplier does not sell the book.
+     */
+    public Optional<SupplierPrice> getPrice(Long bookId, Long supplierId) {
+        var bookPrices = prices.get(bookId);
+        if (bookPrices == null) {
+            return Optional.empty();
+        }
+        return Arrays.stream(bookPrices)
+                .filter((price) -> price.supplierId == supplierId)
+                .findFirst()
+                .map((price) -> price.toSupplierPrice(bookId));
+    }
+
+    /**
+     * @return the prices of the book from every supplier, from the cheapest.
+     */
+    public List<SupplierPrice> getPrices(Long bookId) {
+        var bookPrices = prices.get(bookId);
+        if (bookPrices == null) {
+            return List.of();
+        }
+        return Arrays.stream(bookPrices).map((price) -> price.toSupplierPrice(bookId)).collect(Collectors.toList());
+    }
+
+    /**
+     * Set the price of the book in the price list of the supplier. The price in memory is updated when the current
+     * transaction commits.
+     * @throws ResourceNotFoundException if the book or the supplier does not exist.
+     */
+    @Transactional
+    public SupplierPrice setPrice(Long bookId, Long supplierId, BigDecimal unitPrice) throws ResourceNotFoundException {
+        if (!bookRepository.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found with id " + bookId);
+        }
+        if (!supplierRepository.existsById(supplierId)) {
+            throw new ResourceNotFoundException("Supplier not found with id " + supplierId);
+        }
+
+        catalogPriceRepository.setPrice(bookId, supplierId, unitPrice, new Date());
+        var price = new Price(catalogPriceRepository.findPrice(bookId, supplierId).get());
+        afterCommit(() -> update(price));
+        return price.toSupplierPrice(bookId);
+    }
+
+    /**
+     * Remove the book from the price list of the supplier. The price in memory is removed when the current transaction
+     * commits.
+     * @throws ResourceNotFoundException if the supplier does not sell the book.
+     */
+    @Transactional
+    public void deletePrice(Long bookId, Long supplierId) throws ResourceNotFoundException {
+        var deleted = catalogPriceRepository.findPrice(bookId, supplierId)
+                .orElseThrow(() -> new ResourceNotFoundException("No price of the book " + bookId +
+                        " from the supplier " + supplierId));
+        catalogPriceRepository.deletePrice(bookId, supplierId);
+        afterCommit(() -> remove(new Price(deleted)));
+    }
+
+    // Replace the price of the book from the supplier, unless a later version has already replaced it
+    void update(Price price) {
+        prices.compute(price.bookId, (id, bookPrices) -> {
+            var updated = new ArrayList<Price>();
+            if (bookPrices != null) {
+                for (Price current: bookPrices) {
+                    if (current.supplierId != price.supplierId) {
+                        updated.add(current);
+                    } else if (current.isLaterThan(price)) {
+                        return bookPrices;
+                    }
+                }
+            }
+            updated.add(price);
+            return sorted(updated);
+        });
+    }
+
+    // Remove the price of the book from the supplier, unless it has been set again after the deletion
+    void remove(Price price) {
+        prices.computeIfPresent(price.bookId, (id, bookPrices) -> {
+            var updated = new ArrayList<Price>();
+            for (Price current: bookPrices) {
+                if (current.supplierId != price.supplierId || current.isLaterThan(price)) {
+                    updated.add(current);
+                }
+            }
+            return updated.isEmpty() ? null : sorted(updated);
+        });
+    }
+
+    private static Price[] sorted(List<Price> prices) {
+        var array = prices.toArray(new Price[0]);
+        Arrays.sort(array, CHEAPEST_FIRST);
+        return array;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    static class Price {
+        // The row of the price list that set the price, and its version
+        private final long rowId;
+
+        private final long version;
+
+        private final long bookId;
+
+        private final long supplierId;
+
+        private final BigDecimal unitPrice;
+
+        Price(long rowId, long version, long bookId, long supplierId, BigDecimal unitPrice) {
+            this.rowId = rowId;
+            this.version = version;
+            this.bookId = bookId;
+            this.supplierId = supplierId;
+            this.unitPrice = unitPrice;
+        }
+
+        private Price(CatalogPriceRow price) {
+            this(price.getId(), price.getVersion(), price.getBookId(), price.getSupplierId(), price.getUnitPrice());
+        }
+
+        private boolean isLaterThan(Price price) {
+            return rowId > price.rowId || (rowId == price.rowId && version > price.version);
+        }
+
+        private SupplierPrice toSupplierPrice(Long bookId) {
+            return new SupplierPrice(bookId, supplierId, unitPrice);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.AuthenticationFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and verifies the access tokens of the authenticated customers and employees.
+ * <p>
+ * A token contains the account, the id of the person, a random token id and the times of issue and expiry, signed with
+ * HMAC-SHA256, so it is verified without reading the database. The signing key changes every
+ * {@code booktique.token.rotation-interval} milliseconds: the key of every interval is derived from a secret, so all
+ * the instances sharing the secret sign with the same keys, and only the keys of the current and the previous interval
+ * are accepted. The tokens expire after {@code booktique.token.lifetime} milliseconds, that cannot be longer than the
+ * rotation interval.
+ * <p>
+ * The secrets are listed by {@code booktique.token.secrets} with their key id, written in the tokens: the new tokens
+ * are signed with the first secret, and the tokens signed with the other ones are still accepted. A secret is replaced
+ * without logging out everyone by adding the new one first, and removing the old one once its tokens have expired.
+ * <p>
+ * The revoked tokens are kept in memory until they expire, by token id. The revocations are not shared with the other
+ * instances and are lost by a restart.
+ */
+@Service
+public class TokenService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    // Changes whenever the format of the tokens changes, the tokens of another format are rejected
+    private static final byte VERSION = 2;
+
+    // The version, the key id, the account, the person id, the token id, the issue and the expiry time
+    private static final int PAYLOAD_BYTES = 3 + 4 * Long.BYTES;
+
+    private static final int SIGNATURE_BYTES = 32;
+
+    private static final int SECRET_BYTES = 32;
+
+    // The secrets by key id, the one signing the new tokens first
+    private final Map<Integer, Secret> secrets = new LinkedHashMap<>();
+
+    private final Secret signingSecret;
+
+    private final long lifetime;
+
+    private final long rotationInterval;
+
+    // The expiry times of the revoked tokens by token id
+    private final ConcurrentHashMap<Long, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(TokenService::createMac);
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param secrets the secrets as a comma separated list of key ids, from 0 to 255, and Base64 secrets of at least
+     *                32 bytes, such as {@code 2:c2VjcmV0...,1:b2xk...}; the first one signs the new tokens. A random
+     *                secret is used when empty.
+     */
+    public TokenService(@Value("${booktique.token.secrets:}") String secrets,
+                        @Value("${booktique.token.lifetime:3600000}") long lifetime,
+                        @Value("${booktique.token.rotation-interval:86400000}") long rotationInterval) {
+        if (lifetime <= 0 || rotationInterval < lifetime) {
+            throw new IllegalArgumentException("The lifetime must be positive and not longer than the rotation " +
+                    "interval");
+        }
+        if (secrets.isBlank()) {
+            logger.warn("No token secret is set, the tokens are valid only on this instance until it stops");
+            var secretBytes = new byte[SECRET_BYTES];
+            random.nextBytes(secretBytes);
+            this.secrets.put(0, new Secret(0, secretBytes));
+        } else {
+            for (String entry: secrets.split(",")) {
+                var separator = entry.indexOf(':');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("The token secrets must be written as key id:secret");
+                }
+                int keyId;
+                try {
+                    keyId = Integer.parseInt(entry.substring(0, separator).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("The token key ids must be numbers", e);
+                }
+                if (keyId < 0 || keyId > 255) {
+                    throw new IllegalArgumentException("The token key ids must be between 0 and 255");
+                }
+                var secretBytes = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+                if (secretBytes.length < SECRET_BYTES) {
+                    throw new IllegalArgumentException("The token secret must be at least " + SECRET_BYTES + " bytes");
+                }
+                if (this.secrets.putIfAbsent(keyId, new Secret(keyId, secretBytes)) != null) {
+                    throw new IllegalArgumentException("The token key id " + keyId + " is repeated");
+                }
+            }
+        }
+        this.signingSecret = this.secrets.values().iterator().next();
+        this.lifetime = lifetime;
+        this.rotationInterval = rotationInterval;
+    }
+
+    /**
+     * Issue a new token to an authenticated customer or employee.
+     */
+    public AccessToken issue(LoginService.Account account, long personId) {
+        return issue(account, personId, System.currentTimeMillis());
+    }
+
+    AccessToken issue(LoginService.Account account, long personId, long now) {
+        var tokenId = random.nextLong();
+        var expiresAt = now + lifetime;
+        // the accounts are stored by position, so new accounts must be added at the end
+        var payload = ByteBuffer.allocate(PAYLOAD_BYTES)
+                .put(VERSION)
+                .put((byte) signingSecret.keyId)
+                .put((byte) account.ordinal())
+                .putLong(personId)
+                .putLong(tokenId)
+                .putLong(now)
+                .putLong(expiresAt)
+                .array();
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        var value = encoder.encodeToString(payload) + "." +
+                encoder.encodeToString(sign(signingSecret, payload, Math.floorDiv(now, rotationInterval)));
+        return new AccessToken(value, account, personId, tokenId, Instant.ofEpochMilli(now),
+                Instant.ofEpochMilli(expiresAt));
+    }
+
+    /**
+     * Verify the token of an {@code Authorization: Bearer} header.
+     * @throws AuthenticationFailedException if the header is missing or the token is not valid.
+     */
+    public AccessToken verifyAuthorization(String authorization) throws AuthenticationFailedException {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new AuthenticationFailedException("Missing bearer token");
+        }
+        return verify(authorization.substring(BEARER_PREFIX.length()).trim());
+    }
+
+    /**
+     * Verify the signature and the validity of a token.
+     * @return the claims of the token.
+     * @throws AuthenticationFailedException if the token is malformed, was not signed by a current key of a listed
+     *                                       secret, has expired or has been revoked.
+     */
+    public AccessToken verify(String token) throws AuthenticationFailedException {
+        return verify(token, System.currentTimeMillis());
+    }
+
+    AccessToken verify(String token, long now) throws AuthenticationFailedException {
+        var separator = token.indexOf('.');
+        if (separator < 0) {
+            throw new AuthenticationFailedException("Invalid token");
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            var decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, separator));
+            signature = decoder.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new AuthenticationFailedException("Invalid token");
+        }
+        if (payload.length != PAYLOAD_BYTES || signature.length != SIGNATURE_BYTES || payload[0] != VERSION) {
+            throw new AuthenticationFailedException("Invalid token");
+        }
+
+        var buffer = ByteBuffer.wrap(payload, 1, PAYLOAD_BYTES - 1);
+        var secret = secrets.get(buffer.get() & 0xff);
+        var account = buffer.get();
+        var personId = buffer.getLong();
+        var tokenId = buffer.getLong();
+        var issuedAt = buffer.getLong();
+        var expiresAt = buffer.getLong();
+
+        // the key of the previous interval is still accepted for the tokens issued just before the rotation, and the
+        // one of the next interval for the tokens issued by an instance whose clock is ahead
+        var interval = Math.floorDiv(issuedAt, rotationInterval);
+        var currentInterval = Math.floorDiv(now, rotationInterval);
+        if (secret == null || interval < currentInterval - 1 || interval > currentInterval + 1 ||
+                !MessageDigest.isEqual(sign(secret, payload, interval), signature) ||
+                account < 0 || account >= LoginService.Account.values().length) {
+            throw new AuthenticationFailedException("Invalid token");
+        }
+        if (expiresAt <= now) {
+            throw new AuthenticationFailedException("The token has expired");
+        }
+        if (revokedTokens.containsKey(tokenId)) {
+            throw new AuthenticationFailedException("The token has been revoked");
+        }
+        return new AccessToken(token, LoginService.Account.values()[account], personId, tokenId,
+                Instant.ofEpochMilli(issuedAt), Instant.ofEpochMilli(expiresAt));
+    }
+
+    /**
+     * Revoke a token, that is rejected from now on by this instance.
+     */
+    public void revoke(AccessToken token) {
+        revokedTokens.put(token.getTokenId(), token.getExpiresAt().toEpochMilli());
+    }
+
+    /**
+     * @return the number of revoked tokens not yet expired.
+     */
+    public int countRevokedTokens() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * Forget the revoked tokens that have expired and the keys that are no longer accepted.
+     */
+    @Scheduled(fixedDelayString = "${booktique.token.prune-interval:60000}")
+    public void prune() {
+        prune(System.currentTimeMillis());
+    }
+
+    void prune(long now) {
+        revokedTokens.values().removeIf((expiresAt) -> expiresAt <= now);
+        var currentInterval = Math.floorDiv(now, rotationInterval);
+        for (Secret secret: secrets.values()) {
+            secret.keys.keySet().removeIf((interval) -> interval < currentInterval - 1);
+        }
+    }
+
+    private byte[] sign(Secret secret, byte[] payload, long interval) {
+        var key = secret.keys.computeIfAbsent(interval, (i) -> deriveKey(secret, i));
+        return hmac(key, payload);
+    }
+
+    private SecretKeySpec deriveKey(Secret secret, long interval) {
+        var label = ("booktique-token-key-" + interval).getBytes(StandardCharsets.UTF_8);
+        return new SecretKeySpec(hmac(secret.key, label), ALGORITHM);
+    }
+
+    private byte[] hmac(SecretKeySpec key, byte[] data) {
+        // a Mac is not thread-safe, every thread reinitializes its own one with the key
+        var mac = macs.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid " + ALGORITHM + " key", e);
+        }
+        return mac.doFinal(data);
+    }
+
+    private static Mac createMac() {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static class Secret {
+        private final int keyId;
+
+        private final SecretKeySpec key;
+
+        // The keys derived from the secret by interval
+        private final ConcurrentHashMap<Long, SecretKeySpec> keys = new ConcurrentHashMap<>();
+
+        private Secret(int keyId, byte[] key) {
+            this.keyId = keyId;
+            this.key = new SecretKeySpec(key, ALGORITHM);
+        }
+    }
+}
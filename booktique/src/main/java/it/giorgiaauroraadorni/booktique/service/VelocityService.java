@@ -0,0 +1,370 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.PaymentDeclinedException;
+import it.giorgiaauroraadorni.booktique.model.Money;
+import it.giorgiaauroraadorni.booktique.model.Payment;
+import it.giorgiaauroraadorni.booktique.utility.SlidingWindowCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Screens the payments of the checkout by their velocity: the number of payments and their total amount made with
+ * the same card, by the same cardholder or by the same customer in the last minute, hour and day.
+ * <p>
+ * The payments are counted in memory, in a ring of buckets for every window ({@link SlidingWindowCounter}), so a
+ * check never queries the payments table. The card numbers and the cardholder names are kept only as HMACs keyed by
+ * the secret {@code booktique.velocity.secret}, so the hashes of the snapshot cannot be reversed by trying every card
+ * number without the secret. A payment is declined if it would exceed the maximum number of payments or the maximum
+ * amount of a window, configured by the {@code booktique.velocity.*} properties, and otherwise counted at once by the
+ * same check, so that concurrent payments of the same card see each other; it is discounted if the transaction of the
+ * checkout rolls back.
+ * <p>
+ * The windows are saved to {@code booktique.velocity.snapshot-file} every {@code booktique.velocity.snapshot-interval}
+ * milliseconds and when the application stops, and loaded when it starts, so they survive the restarts: only the
+ * payments made after the last snapshot are lost by a crash. The snapshots written with another secret are ignored.
+ */
+@Service
+public class VelocityService {
+    private static final Logger logger = LoggerFactory.getLogger(VelocityService.class);
+
+    // Changes whenever the format of the snapshot changes, the snapshots of another format are ignored
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int SECRET_BYTES = 32;
+
+    // Hashed in the snapshots, whose keys are hashed with the same secret only if the hash matches
+    private static final String SECRET_CHECK = "booktique-velocity-snapshot";
+
+    public enum Dimension {
+        CARD,
+        CARDHOLDER,
+        CUSTOMER
+    }
+
+    public enum Window {
+        MINUTE(60, 1000),
+        HOUR(60, 60 * 1000),
+        DAY(96, 15 * 60 * 1000);
+
+        private final int buckets;
+
+        private final long bucketMillis;
+
+        Window(int buckets, long bucketMillis) {
+            this.buckets = buckets;
+            this.bucketMillis = bucketMillis;
+        }
+    }
+
+    private final Map<Window, Long> maxPayments;
+
+    private final Map<Window, Long> maxCents;
+
+    private final SecretKeySpec secret;
+
+    private final Path snapshotFile;
+
+    // A Mac is not thread-safe, every thread initializes its own one with the secret
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+
+    private final ConcurrentHashMap<Key, SlidingWindowCounter[]> counters = new ConcurrentHashMap<>();
+
+    public VelocityService(@Value("${booktique.velocity.minute.max-payments:5}") long minuteMaxPayments,
+                           @Value("${booktique.velocity.minute.max-amount:500}") BigDecimal minuteMaxAmount,
+                           @Value("${booktique.velocity.hour.max-payments:20}") long hourMaxPayments,
+                           @Value("${booktique.velocity.hour.max-amount:2000}") BigDecimal hourMaxAmount,
+                           @Value("${booktique.velocity.day.max-payments:50}") long dayMaxPayments,
+                           @Value("${booktique.velocity.day.max-amount:5000}") BigDecimal dayMaxAmount,
+                           @Value("${booktique.velocity.secret:}") String secret,
+                           @Value("${booktique.velocity.snapshot-file:}") String snapshotFile) {
+        this.maxPayments = Map.of(Window.MINUTE, minuteMaxPayments, Window.HOUR, hourMaxPayments,
+                Window.DAY, dayMaxPayments);
+        this.maxCents = Map.of(Window.MINUTE, Money.toCents(minuteMaxAmount), Window.HOUR,
+                Money.toCents(hourMaxAmount), Window.DAY, Money.toCents(dayMaxAmount));
+        byte[] secretBytes;
+        if (secret.isEmpty()) {
+            logger.warn("No velocity secret is set, the snapshots are not restored after a restart");
+            secretBytes = new byte[SECRET_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+        } else {
+            secretBytes = Base64.getDecoder().decode(secret);
+            if (secretBytes.length < SECRET_BYTES) {
+                throw new IllegalArgumentException("The velocity secret must be at least " + SECRET_BYTES + " bytes");
+            }
+        }
+        this.secret = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.snapshotFile = snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
+    }
+
+    /**
+     * Check that a payment does not exceed the velocity of its card, cardholder and customer in any window, and count
+     * it. When called in a transaction, the payment is discounted if the transaction rolls back.
+     * @param customerId the id of the customer paying.
+     * @param payment the card details.
+     * @param amount the amount to pay.
+     * @throws PaymentDeclinedException if the payment would exceed the maximum number of payments or the maximum
+     *                                  amount of a window.
+     */
+    public void check(Long customerId, Payment payment, BigDecimal amount) throws PaymentDeclinedException {
+        var now = System.currentTimeMillis();
+        var cents = Money.toCents(amount);
+        var keys = keys(customerId, payment);
+        for (int i = 0; i < keys.length; i++) {
+            var exceeded = tryAdd(keys[i], now, cents);
+            if (exceeded != null) {
+                // the payment is not counted in any window
+                remove(Arrays.copyOf(keys, i), now, cents);
+                // the message does not contain the card details
+                throw new PaymentDeclinedException("Too many payments of the " +
+                        keys[i].dimension.name().toLowerCase() + " in the last " + exceeded.name().toLowerCase());
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        remove(keys, now, cents);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the number of payments of the card in the window, ending now.
+     */
+    public long countCardPayments(String cardNumber, Window window) {
+        var windows = counters.get(new Key(Dimension.CARD, hash(normalizeCardNumber(cardNumber))));
+        return windows == null ? 0 : windows[window.ordinal()].count(System.currentTimeMillis());
+    }
+
+    // Count a payment in the windows of the key unless it exceeds one of them, and return the window exceeded
+    private Window tryAdd(Key key, long now, long cents) {
+        var exceeded = new AtomicReference<Window>();
+        // the payment is checked and added while holding the entry, so that the concurrent payments of the same key
+        // are counted one after the other and the eviction never drops it
+        counters.compute(key, (k, windows) -> {
+            var updated = windows != null ? windows : newWindows();
+            for (Window window: Window.values()) {
+                var counter = updated[window.ordinal()];
+                if (counter.count(now) + 1 > maxPayments.get(window) ||
+                        counter.sum(now) + cents > maxCents.get(window)) {
+                    exceeded.set(window);
+                    return windows;
+                }
+            }
+            for (SlidingWindowCounter counter: updated) {
+                counter.add(now, cents);
+            }
+            return updated;
+        });
+        return exceeded.get();
+    }
+
+    private void remove(Key[] keys, long time, long cents) {
+        for (Key key: keys) {
+            counters.computeIfPresent(key, (k, windows) -> {
+                for (SlidingWindowCounter counter: windows) {
+                    counter.remove(time, cents);
+                }
+                return windows;
+            });
+        }
+    }
+
+    private static SlidingWindowCounter[] newWindows() {
+        var windows = new SlidingWindowCounter[Window.values().length];
+        for (Window window: Window.values()) {
+            windows[window.ordinal()] = new SlidingWindowCounter(window.buckets, window.bucketMillis);
+        }
+        return windows;
+    }
+
+    private Key[] keys(Long customerId, Payment payment) {
+        return new Key[] {
+                new Key(Dimension.CARD, hash(normalizeCardNumber(payment.getCardNumber()))),
+                new Key(Dimension.CARDHOLDER, hash(Objects.toString(payment.getCardholderName(), "").trim()
+                        .toLowerCase())),
+                new Key(Dimension.CUSTOMER, customerId.toString())
+        };
+    }
+
+    // The card numbers can be written with or without separators
+    private static String normalizeCardNumber(String cardNumber) {
+        return Objects.toString(cardNumber, "").replaceAll("[^0-9]", "");
+    }
+
+    private String hash(String value) {
+        var digest = macs.get().doFinal(value.getBytes(StandardCharsets.UTF_8));
+        var hex = new StringBuilder();
+        for (byte b: digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private Mac createMac() {
+        try {
+            var mac = Mac.getInstance(ALGORITHM);
+            mac.init(secret);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Forget the cards, cardholders and customers without payments in the last day, whose windows are all empty, and
+     * save the other windows to the snapshot file.
+     */
+    @Scheduled(fixedDelayString = "${booktique.velocity.snapshot-interval:60000}")
+    public void evictAndSnapshot() {
+        var now = System.currentTimeMillis();
+        for (Key key: counters.keySet()) {
+            counters.computeIfPresent(key, (k, windows) -> windows[Window.DAY.ordinal()].isEmpty(now) ? null : windows);
+        }
+        if (snapshotFile != null) {
+            try {
+                snapshot(snapshotFile);
+            } catch (IOException e) {
+                logger.warn("Cannot save the velocity windows to {}", snapshotFile, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        evictAndSnapshot();
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            restore(snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Cannot load the velocity windows from {}, starting with empty windows", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Write the windows to a file. The snapshot replaces the file with an atomic move, so a crash never leaves a
+     * partial snapshot.
+     */
+    void snapshot(Path path) throws IOException {
+        var now = System.currentTimeMillis();
+        var directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeUTF(hash(SECRET_CHECK));
+                for (Map.Entry<Key, SlidingWindowCounter[]> entry: counters.entrySet()) {
+                    output.writeBoolean(true);
+                    output.writeByte(entry.getKey().dimension.ordinal());
+                    output.writeUTF(entry.getKey().value);
+                    for (SlidingWindowCounter counter: entry.getValue()) {
+                        counter.write(output, now);
+                    }
+                }
+                output.writeBoolean(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Replace the windows with the ones written to a file by {@link #snapshot(Path)}.
+     */
+    void restore(Path path) throws IOException {
+        Map<Key, SlidingWindowCounter[]> restored = new ConcurrentHashMap<>();
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring the velocity windows of {}, written in another format", path);
+                return;
+            }
+            if (!input.readUTF().equals(hash(SECRET_CHECK))) {
+                logger.warn("Ignoring the velocity windows of {}, written with another secret", path);
+                return;
+            }
+            while (input.readBoolean()) {
+                var key = new Key(Dimension.values()[input.readByte()], input.readUTF());
+                var windows = newWindows();
+                for (SlidingWindowCounter counter: windows) {
+                    counter.read(input);
+                }
+                restored.put(key, windows);
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        counters.clear();
+        counters.putAll(restored);
+        logger.info("Loaded the velocity windows of {} cards, cardholders and customers", restored.size());
+    }
+
+    private static class Key {
+        private final Dimension dimension;
+
+        // The HMAC of the card number or cardholder name, or the id of the customer
+        private final String value;
+
+        private Key(Dimension dimension, String value) {
+            this.dimension = dimension;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            var other = (Key) o;
+            return dimension == other.dimension && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, value);
+        }
+    }
+}
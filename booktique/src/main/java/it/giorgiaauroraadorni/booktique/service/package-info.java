@@ -0,0 +1,5 @@
+/**
+ * Contains the services that implement the operations involving more than one repository.
+ * Every public method that reads or writes the database is executed in a transaction.
+ */
+package it.giorgiaauroraadorni.booktique.service;
@@ -0,0 +1,74 @@
+package it.giorgiaauroraadorni.booktique.statistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements executed while serving every HTTP request.
+ * A warning is logged when the same statement is executed more than {@code booktique.statements.repeated-threshold}
+ * times in a single request, and when {@code booktique.statements.header-enabled} is set the number of statements is
+ * returned to the client in the {@code X-Query-Count} header.
+ * <p>
+ * The asynchronous requests are counted in every dispatch: the header reports the statements of the dispatch that
+ * writes the response, the statements executed by other threads are not counted.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    @Value("${booktique.statements.header-enabled:false}")
+    private boolean headerEnabled;
+
+    @Value("${booktique.statements.repeated-threshold:10}")
+    private int repeatedThreshold;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // the response of an asynchronous request is written and copied in the async dispatch
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // the header must be added before the body is committed, so the response is buffered only when needed
+        ContentCachingResponseWrapper wrappedResponse = null;
+        if (headerEnabled) {
+            // the async dispatch receives the response wrapped by the initial one
+            wrappedResponse = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (wrappedResponse == null) {
+                wrappedResponse = new ContentCachingResponseWrapper(response);
+            }
+        }
+
+        StatementCounter.start();
+        StatementStatistics statistics;
+        try {
+            chain.doFilter(request, wrappedResponse != null ? wrappedResponse : response);
+        } finally {
+            statistics = StatementCounter.stop();
+        }
+
+        statistics.getRepeatedStatements(repeatedThreshold).forEach((sql, executions) ->
+                logger.warn("Possible N+1 select in {} {}: statement executed {} times: {}",
+                        request.getMethod(), request.getRequestURI(), executions, sql));
+
+        if (wrappedResponse != null && !isAsyncStarted(request)) {
+            wrappedResponse.setHeader(QUERY_COUNT_HEADER, String.valueOf(statistics.getCount()));
+            wrappedResponse.copyBodyToResponse();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package it.giorgiaauroraadorni.booktique.statistics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate calls the inspector for every SQL statement prepared by a session. The statement is recorded in the
+ * {@link StatementCounter} of the current thread and returned unchanged.
+ * The inspector is registered through the {@code hibernate.session_factory.statement_inspector} property.
+ */
+public class StatementCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.record(sql);
+        return sql;
+    }
+}
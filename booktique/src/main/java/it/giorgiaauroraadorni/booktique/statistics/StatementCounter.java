@@ -0,0 +1,57 @@
+package it.giorgiaauroraadorni.booktique.statistics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps track of the SQL statements executed by the current thread.
+ * A unit of work (an HTTP request, a test) is delimited by {@link #start()} and {@link #stop()}; units of work can be
+ * nested, for example a test performing requests through MockMvc, and every statement is recorded in all the active
+ * ones.
+ */
+public final class StatementCounter {
+    private static final ThreadLocal<Deque<StatementStatistics>> ACTIVE = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private StatementCounter() {}
+
+    /**
+     * Start counting the statements executed by the current thread.
+     * @return the statistics that will be populated until {@link #stop()} is called.
+     */
+    public static StatementStatistics start() {
+        var statistics = new StatementStatistics();
+        ACTIVE.get().push(statistics);
+        return statistics;
+    }
+
+    /**
+     * Stop counting the statements for the innermost unit of work started by the current thread.
+     * @return the collected statistics, or {@code null} if no unit of work has been started.
+     */
+    public static StatementStatistics stop() {
+        var active = ACTIVE.get();
+        var statistics = active.poll();
+        if (active.isEmpty()) {
+            ACTIVE.remove();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of the innermost unit of work started by the current thread, or {@code null}.
+     */
+    public static StatementStatistics current() {
+        return ACTIVE.get().peek();
+    }
+
+    static void record(String sql) {
+        var active = ACTIVE.get();
+        if (active.isEmpty()) {
+            ACTIVE.remove();
+            return;
+        }
+        for (StatementStatistics statistics: active) {
+            statistics.record(sql);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package it.giorgiaauroraadorni.booktique.statistics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class StatementStatistics {
+    private int count;
+
+    // Number of executions for every distinct statement, in order of first execution
+    private final Map<String, Integer> statements = new LinkedHashMap<>();
+
+    void record(String sql) {
+        count++;
+        statements.merge(sql, 1, Integer::sum);
+    }
+
+    // Getters
+    public int getCount() {
+        return count;
+    }
+
+    public Map<String, Integer> getStatements() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    /**
+     * Return the statements that have been executed more than {@code threshold} times. Since Hibernate binds every
+     * value as a parameter, the same statement executed many times is usually the shape of an N+1 select.
+     * @param threshold maximum number of executions allowed for a single statement.
+     * @return a dictionary containing the repeated statements and the number of executions.
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        return statements.entrySet()
+                .stream()
+                .filter((e) -> e.getValue() > threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Contains the classes that collect statistics about the SQL statements executed by Hibernate.
+ * The statements are counted for every thread, so that each HTTP request and each test can be checked in isolation
+ * for N+1 selects.
+ */
+package it.giorgiaauroraadorni.booktique.statistics;
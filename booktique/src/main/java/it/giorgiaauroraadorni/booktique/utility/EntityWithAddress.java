@@ -0,0 +1,16 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import it.giorgiaauroraadorni.booktique.model.Address;
+
+public interface EntityWithAddress {
+
+    /**
+     * @return the postal address of the entity.
+     */
+    Address getAddress();
+
+    /**
+     * @param address the postal address of the entity.
+     */
+    void setAddress(Address address);
+}
@@ -0,0 +1,30 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+public interface EntityWithPassword {
+
+    /**
+     * @return the hash of the password of the entity, or the password in clear set since the entity was last loaded or
+     *         written.
+     */
+    String getPassword();
+
+    /**
+     * @param password the new password of the entity, in clear, hashed when the entity is written.
+     */
+    void setPassword(String password);
+
+    /**
+     * @return the hash of the password as last loaded or written, or {@code null} if the entity has never been.
+     */
+    String getWrittenPassword();
+
+    void setWrittenPassword(String writtenPassword);
+
+    /**
+     * Replace the hash of the password with another hash of the same password, that is written as it is.
+     */
+    default void setPasswordHash(String hash) {
+        setPassword(hash);
+        setWrittenPassword(hash);
+    }
+}
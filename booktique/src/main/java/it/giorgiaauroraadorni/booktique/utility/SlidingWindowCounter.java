@@ -0,0 +1,145 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Counts the events and sums their amounts over a sliding window of time, such as the last hour.
+ * The window is a ring of buckets, each one covering an interval of the same length: an event is added to the bucket
+ * of its time, and a bucket is reset when the ring comes back to it for a later interval. The totals include the
+ * current interval and the previous ones up to the size of the ring, so the window slides one bucket at a time and
+ * the memory used does not depend on the number of events.
+ */
+public class SlidingWindowCounter {
+    private final long bucketMillis;
+
+    // The interval of every bucket, as the number of bucket lengths since the epoch
+    private final long[] intervals;
+
+    private final long[] counts;
+
+    private final long[] sums;
+
+    /**
+     * @param buckets the number of buckets of the ring.
+     * @param bucketMillis the length of the interval of a bucket, in milliseconds.
+     */
+    public SlidingWindowCounter(int buckets, long bucketMillis) {
+        if (buckets <= 0 || bucketMillis <= 0) {
+            throw new IllegalArgumentException("The buckets and their length must be positive");
+        }
+        this.bucketMillis = bucketMillis;
+        this.intervals = new long[buckets];
+        this.counts = new long[buckets];
+        this.sums = new long[buckets];
+    }
+
+    /**
+     * @return the length of the window, in milliseconds.
+     */
+    public long getWindowMillis() {
+        return bucketMillis * intervals.length;
+    }
+
+    /**
+     * Add an event to the window.
+     * @param now the time of the event, in milliseconds since the epoch.
+     * @param amount the amount of the event.
+     */
+    public synchronized void add(long now, long amount) {
+        var interval = now / bucketMillis;
+        var bucket = (int) (interval % intervals.length);
+        if (intervals[bucket] != interval) {
+            intervals[bucket] = interval;
+            counts[bucket] = 0;
+            sums[bucket] = 0;
+        }
+        counts[bucket]++;
+        sums[bucket] += amount;
+    }
+
+    /**
+     * Remove an event added to the window, such as an event that has been canceled. The event is removed only if its
+     * bucket has not been reused for a later interval, otherwise it has already left the window.
+     * @param time the time of the event, as passed to {@link #add(long, long)}.
+     * @param amount the amount of the event.
+     */
+    public synchronized void remove(long time, long amount) {
+        var interval = time / bucketMillis;
+        var bucket = (int) (interval % intervals.length);
+        if (intervals[bucket] == interval) {
+            counts[bucket]--;
+            sums[bucket] -= amount;
+        }
+    }
+
+    /**
+     * @return the number of events in the window ending at the given time.
+     */
+    public synchronized long count(long now) {
+        long count = 0;
+        var first = firstInterval(now);
+        for (int i = 0; i < intervals.length; i++) {
+            if (intervals[i] >= first) {
+                count += counts[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the amounts of the events in the window ending at the given time.
+     */
+    public synchronized long sum(long now) {
+        long sum = 0;
+        var first = firstInterval(now);
+        for (int i = 0; i < intervals.length; i++) {
+            if (intervals[i] >= first) {
+                sum += sums[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return {@code true} if there are no events in the window ending at the given time.
+     */
+    public boolean isEmpty(long now) {
+        return count(now) == 0;
+    }
+
+    // The oldest interval in the window, the interval of a bucket never used is 0 and is always out of the window
+    private long firstInterval(long now) {
+        return Math.max(now / bucketMillis - intervals.length + 1, 1);
+    }
+
+    /**
+     * Write the buckets in the window ending at the given time.
+     */
+    public synchronized void write(DataOutput output, long now) throws IOException {
+        var first = firstInterval(now);
+        for (int i = 0; i < intervals.length; i++) {
+            if (intervals[i] >= first) {
+                output.writeLong(intervals[i]);
+                output.writeLong(counts[i]);
+                output.writeLong(sums[i]);
+            } else {
+                output.writeLong(0);
+                output.writeLong(0);
+                output.writeLong(0);
+            }
+        }
+    }
+
+    /**
+     * Replace the buckets with the ones written by {@link #write(DataOutput, long)} from a counter of the same size.
+     */
+    public synchronized void read(DataInput input) throws IOException {
+        for (int i = 0; i < intervals.length; i++) {
+            intervals[i] = input.readLong();
+            counts[i] = input.readLong();
+            sums[i] = input.readLong();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A non-negative counter split in stripes, that many threads can decrement concurrently without contending on a
+ * single memory location.
+ * The value is the sum of the stripes. Every thread starts from a random stripe and takes units from the others only
+ * when its stripe does not have enough, so that concurrent acquisitions mostly update different cache lines. A stripe
+ * never becomes negative, therefore the counter never gives out more units than it holds.
+ */
+public class StripedCounter {
+    // Distance between two stripes in the array, so that every stripe is on a different 64 bytes cache line
+    private static final int PADDING = 8;
+
+    private final int stripes;
+
+    private final AtomicLongArray values;
+
+    public StripedCounter(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The stripes must be positive");
+        }
+        this.stripes = stripes;
+        this.values = new AtomicLongArray(stripes * PADDING);
+    }
+
+    /**
+     * Add units to the counter, spreading them over all the stripes.
+     * @param units the units to add.
+     */
+    public void add(long units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("The units to add must not be negative");
+        }
+        var share = units / stripes;
+        var rest = units % stripes;
+        var start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            var amount = share + (i < rest ? 1 : 0);
+            if (amount > 0) {
+                values.addAndGet(index(start + i), amount);
+            }
+        }
+    }
+
+    /**
+     * Take units from the counter if it holds enough of them.
+     * When the last units are spread over several stripes and other threads are taking and giving back units at the
+     * same time, the acquisition can fail even if the sum is enough: the counter never gives out more units than it
+     * holds, but near zero it may give out fewer.
+     * @param units the units to take.
+     * @return {@code true} if the units have been taken, {@code false} if the counter is left unchanged because it
+     *         does not hold enough units.
+     */
+    public boolean tryAcquire(long units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("The units to acquire must be positive");
+        }
+        var start = ThreadLocalRandom.current().nextInt(stripes);
+
+        // fast path: a single stripe holds all the units
+        for (int i = 0; i < stripes; i++) {
+            var index = index(start + i);
+            long value;
+            while ((value = values.get(index)) >= units) {
+                if (values.compareAndSet(index, value, value - units)) {
+                    return true;
+                }
+            }
+        }
+
+        // the units are spread over several stripes, they are taken one stripe at a time and given back if they
+        // are not enough
+        long taken = 0;
+        for (int i = 0; i < stripes && taken < units; i++) {
+            var index = index(start + i);
+            long value;
+            while ((value = values.get(index)) > 0) {
+                var amount = Math.min(value, units - taken);
+                if (values.compareAndSet(index, value, value - amount)) {
+                    taken += amount;
+                    break;
+                }
+            }
+        }
+        if (taken < units) {
+            if (taken > 0) {
+                values.addAndGet(index(start), taken);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give back units previously taken with {@link #tryAcquire(long)}.
+     * @param units the units to give back.
+     */
+    public void release(long units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("The units to release must not be negative");
+        }
+        values.addAndGet(index(ThreadLocalRandom.current().nextInt(stripes)), units);
+    }
+
+    /**
+     * @return the units held by the counter. While other threads update it, the sum may not correspond to any
+     *         instant, but it is never negative.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += values.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private int index(int stripe) {
+        return (stripe % stripes) * PADDING;
+    }
+}
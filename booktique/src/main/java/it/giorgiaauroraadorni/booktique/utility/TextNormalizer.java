@@ -0,0 +1,29 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class TextNormalizer {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextNormalizer() {}
+
+    /**
+     * Normalize a text written by a person, so that the same text written in different ways is equal: the accents,
+     * the punctuation, the repeated spaces and the case are removed.
+     * @param text the text, can be {@code null}.
+     * @return the normalized text, empty if the text is {@code null}.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        var stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        return SEPARATORS.matcher(stripped).replaceAll(" ")
+                .trim()
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,24 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The string must be a card number of 16 digits, that passes the Luhn check. A {@code null} value is valid.
+ */
+@Documented
+@Constraint(validatedBy = CardNumberValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CardNumber {
+    String message() default "must be a valid card number";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
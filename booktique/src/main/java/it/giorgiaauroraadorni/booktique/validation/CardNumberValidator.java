@@ -0,0 +1,33 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts 16 digits, written together or in groups of 4 separated by the same character, a hyphen or a space, whose
+ * last digit is the Luhn check digit of the others.
+ */
+public class CardNumberValidator implements ConstraintValidator<CardNumber, CharSequence> {
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        if (value.length() != 16 && value.length() != 19) {
+            return false;
+        }
+        var grouped = value.length() == 19;
+        var separator = grouped ? value.charAt(4) : 0;
+        if (grouped && separator != '-' && separator != ' ') {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (grouped && i % 5 == 4 ? c != separator : !Checksums.isDigit(c)) {
+                return false;
+            }
+        }
+        return Checksums.luhnSum(value, true) == 0;
+    }
+}
@@ -0,0 +1,46 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+/**
+ * The check digits shared by more validators.
+ */
+class Checksums {
+    private Checksums() {}
+
+    /**
+     * Compute the Luhn sum of the digits of a string, doubling every second digit from the right. The characters
+     * that are not digits are skipped.
+     * @param value the digits, with the check digit as the last one if {@code withCheckDigit}.
+     * @param withCheckDigit if {@code true} the last digit is the check digit, otherwise the sum is computed for a
+     *                       check digit still to be appended.
+     * @return the sum modulo 10, that is 0 for a valid number with its check digit.
+     */
+    static int luhnSum(CharSequence value, boolean withCheckDigit) {
+        var sum = 0;
+        var doubled = !withCheckDigit;
+        for (int i = value.length() - 1; i >= 0; i--) {
+            var c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            var digit = c - '0';
+            if (doubled) {
+                digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    static boolean isLetterOrDigit(char c) {
+        return isDigit(c) || isLetter(c);
+    }
+}
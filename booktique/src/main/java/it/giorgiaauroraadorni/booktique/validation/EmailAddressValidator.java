@@ -0,0 +1,69 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts the email addresses of up to 254 characters made of:
+ * <ul>
+ *     <li>a local part of letters, digits and the separators {@code - . _ +}, starting and ending with a letter or a
+ *     digit;</li>
+ *     <li>an {@code @};</li>
+ *     <li>a domain of letters and digits separated by single hyphens or dots, ending with a dot and a top level domain
+ *     of 2 to 6 letters.</li>
+ * </ul>
+ * Every character is read once, so the time is linear in the length of the address whatever its content.
+ */
+public class EmailAddressValidator implements ConstraintValidator<EmailAddress, CharSequence> {
+    private static final int MAX_LENGTH = 254;
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        var length = value.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return false;
+        }
+
+        // the local part
+        int i = 0;
+        char c = 0;
+        for (; i < length && (c = value.charAt(i)) != '@'; i++) {
+            var separator = c == '-' || c == '.' || c == '_' || c == '+';
+            if (!separator && !Checksums.isLetterOrDigit(c)) {
+                return false;
+            }
+            if (separator && i == 0) {
+                return false;
+            }
+        }
+        if (i == 0 || i == length || !Checksums.isLetterOrDigit(value.charAt(i - 1))) {
+            return false;
+        }
+
+        // the domain, as runs of letters and digits between the separators
+        var run = 0;
+        var letters = true;
+        var lastSeparator = (char) 0;
+        for (i++; i < length; i++) {
+            c = value.charAt(i);
+            if (c == '-' || c == '.') {
+                if (run == 0) {
+                    return false;
+                }
+                lastSeparator = c;
+                run = 0;
+                letters = true;
+            } else if (Checksums.isLetterOrDigit(c)) {
+                run++;
+                letters &= Checksums.isLetter(c);
+            } else {
+                return false;
+            }
+        }
+        return lastSeparator == '.' && letters && run >= 2 && run <= 6;
+    }
+}
@@ -0,0 +1,77 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts the italian fiscal codes (codice fiscale) of the persons, in upper or lower case: 6 letters of the surname
+ * and the name, 2 digits of the year, the letter of the month, 2 digits of the day, the letter and 3 digits of the
+ * place of birth, and the check character. The digits can be replaced by the letters {@code LMNPQRSTUV}, as in the
+ * codes assigned to the homonyms.
+ */
+public class FiscalCodeValidator implements ConstraintValidator<FiscalCode, CharSequence> {
+    private static final int LENGTH = 16;
+
+    private static final String MONTHS = "ABCDEHLMPRST";
+
+    private static final String DIGIT_LETTERS = "LMNPQRSTUV";
+
+    // The values of the characters in the odd positions, by digit and by letter
+    private static final int[] ODD_DIGITS = {1, 0, 5, 7, 9, 13, 15, 17, 19, 21};
+
+    private static final int[] ODD_LETTERS = {1, 0, 5, 7, 9, 13, 15, 17, 19, 21, 2, 4, 18, 20, 11, 3, 6, 8, 12, 14, 16,
+            10, 22, 25, 24, 23};
+
+    // The kind of every character before the check character: L a letter, D a digit or its letter, M a month
+    private static final String LAYOUT = "LLLLLLDDMDDLDDD";
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        if (value.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LAYOUT.length(); i++) {
+            var c = Character.toUpperCase(value.charAt(i));
+            switch (LAYOUT.charAt(i)) {
+                case 'L':
+                    if (!Checksums.isLetter(c)) {
+                        return false;
+                    }
+                    break;
+                case 'D':
+                    if (!Checksums.isDigit(c) && DIGIT_LETTERS.indexOf(c) < 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (MONTHS.indexOf(c) < 0) {
+                        return false;
+                    }
+            }
+        }
+        return Character.toUpperCase(value.charAt(LENGTH - 1)) == checkCharacter(value);
+    }
+
+    /**
+     * @param value the first 15 characters of the fiscal code, the others are not read.
+     * @return the check character of the fiscal code, in upper case.
+     */
+    public static char checkCharacter(CharSequence value) {
+        var sum = 0;
+        for (int i = 0; i < LENGTH - 1; i++) {
+            var c = Character.toUpperCase(value.charAt(i));
+            var index = Checksums.isDigit(c) ? c - '0' : c - 'A';
+            // the positions are counted from 1, so the first character is in an odd position
+            if (i % 2 == 0) {
+                sum += Checksums.isDigit(c) ? ODD_DIGITS[index] : ODD_LETTERS[index];
+            } else {
+                sum += index;
+            }
+        }
+        return (char) ('A' + sum % 26);
+    }
+}
@@ -0,0 +1,86 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts the ISBN-10, whose last character can be {@code X}, and the ISBN-13 starting with 978 or 979, with the
+ * right check digit. The groups of digits can be separated by single hyphens, en dashes or spaces.
+ */
+public class IsbnValidator implements ConstraintValidator<Isbn, CharSequence> {
+    // Longer than any ISBN with separators between all the digits
+    private static final int MAX_LENGTH = 25;
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        var length = value.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return false;
+        }
+
+        // the sums of both the ISBN-10 and the ISBN-13 are computed in the same pass
+        var digits = 0;
+        var sum10 = 0;
+        var sum13 = 0;
+        var prefix = 0;
+        var check10 = false;
+        var previousSeparator = true;
+        for (int i = 0; i < length; i++) {
+            var c = value.charAt(i);
+            if (c == '-' || c == '–' || c == ' ') {
+                if (previousSeparator) {
+                    return false;
+                }
+                previousSeparator = true;
+                continue;
+            }
+            previousSeparator = false;
+            if (check10) {
+                // nothing can follow the X
+                return false;
+            }
+            int digit;
+            if (Checksums.isDigit(c)) {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                digit = 10;
+                check10 = true;
+            } else {
+                return false;
+            }
+            digits++;
+            if (digits <= 3) {
+                prefix = prefix * 10 + digit;
+            }
+            sum10 += digit * (11 - digits);
+            sum13 += digit * (digits % 2 == 0 ? 3 : 1);
+        }
+        if (previousSeparator) {
+            return false;
+        }
+        if (digits == 10) {
+            return sum10 % 11 == 0;
+        }
+        return digits == 13 && !check10 && (prefix == 978 || prefix == 979) && sum13 % 10 == 0;
+    }
+
+    /**
+     * @param digits the first 12 digits of an ISBN-13, with or without separators.
+     * @return the check digit to append.
+     */
+    public static char checkDigit13(CharSequence digits) {
+        var sum = 0;
+        var position = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            var c = digits.charAt(i);
+            if (Checksums.isDigit(c)) {
+                sum += (c - '0') * (position++ % 2 == 0 ? 1 : 3);
+            }
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
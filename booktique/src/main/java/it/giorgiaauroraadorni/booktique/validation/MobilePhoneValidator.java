@@ -0,0 +1,35 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts the italian mobile phone numbers: 10 digits starting with 3 and a digit from 1 to 9, optionally preceded by
+ * the {@code +39} prefix.
+ */
+public class MobilePhoneValidator implements ConstraintValidator<MobilePhone, CharSequence> {
+    private static final String PREFIX = "+39";
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        var start = value.length() == 13 ? PREFIX.length() : 0;
+        if (value.length() - start != 10) {
+            return false;
+        }
+        for (int i = 0; i < start; i++) {
+            if (value.charAt(i) != PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Checksums.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return value.charAt(start) == '3' && value.charAt(start + 1) != '0';
+    }
+}
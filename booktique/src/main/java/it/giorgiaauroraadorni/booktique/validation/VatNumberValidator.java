@@ -0,0 +1,36 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * Accepts the italian VAT numbers (partita IVA): 11 digits, optionally preceded by {@code IT}, whose last digit is the
+ * Luhn check digit of the others.
+ */
+public class VatNumberValidator implements ConstraintValidator<VatNumber, CharSequence> {
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        var start = value.length() == 13 && value.charAt(0) == 'I' && value.charAt(1) == 'T' ? 2 : 0;
+        if (value.length() - start != 11) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Checksums.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return Checksums.luhnSum(value, true) == 0;
+    }
+
+    /**
+     * @param digits the first 10 digits of a VAT number.
+     * @return the check digit to append.
+     */
+    public static char checkDigit(CharSequence digits) {
+        return (char) ('0' + (10 - Checksums.luhnSum(digits, false)) % 10);
+    }
+}
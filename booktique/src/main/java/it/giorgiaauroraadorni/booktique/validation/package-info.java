@@ -0,0 +1,5 @@
+/**
+ * Contains the constraints of the entity attributes and their validators. The validators read the values one
+ * character at a time, in linear time and without allocating, so that no input can make them backtrack.
+ */
+package it.giorgiaauroraadorni.booktique.validation;
@@ -0,0 +1,9 @@
+-- Executed by Hibernate after import.sql when the persons are mapped to a single table, one statement per line.
+-- The native queries of the employees read the employees table of the joined mapping, replaced by a view of the rows
+-- of the employees in the persons table.
+create or replace view employees as select * from persons where person_type = 'EMPLOYEE';
+-- The columns of the subclasses are nullable in the single table, the checks require them for the rows of the subclass.
+alter table persons drop constraint if exists persons_customer_check;
+alter table persons add constraint persons_customer_check check (person_type <> 'CUSTOMER' or (username is not null and password is not null and address_id is not null));
+alter table persons drop constraint if exists persons_employee_check;
+alter table persons add constraint persons_employee_check check (person_type <> 'EMPLOYEE' or (username is not null and password is not null and supervisor_id is not null));
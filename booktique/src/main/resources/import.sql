@@ -0,0 +1,32 @@
+-- Executed by Hibernate after the schema has been created, one statement per line. The statements can be executed
+-- again on an existing schema, as done by the benchmark dataset seeder.
+-- The amount of a purchase is kept equal to the total of its items when the items are added, removed or modified.
+-- The triggers run once per statement on the rows it changed, and a purchase is rewritten only if its amount differs,
+-- so the items of a new purchase, whose amount has been computed by the application, write nothing more.
+-- PostgreSQL 10 allows the transition tables only on single event triggers without a column list.
+drop trigger if exists purchases_items_refresh_amount on purchases_items;
+drop trigger if exists items_refresh_amount on items;
+drop function if exists purchases_items_refresh_amount();
+drop function if exists items_refresh_amount();
+drop function if exists refresh_purchase_amount(bigint);
+create or replace function refresh_purchase_amounts(bigint[]) returns void as $$ update purchases p set amount = t.amount from (select ids.id, coalesce(sum(i.unit_price * i.quantity_per_unit), 0) as amount from unnest($1) as ids (id) left join purchases_items pi on pi.purchase_id = ids.id left join items i on i.id = pi.items_id group by ids.id) t where p.id = t.id and p.amount <> t.amount $$ language sql;
+create or replace function purchases_items_inserted_amount() returns trigger as $$ begin perform refresh_purchase_amounts(array(select distinct purchase_id from new_rows)); return null; end $$ language plpgsql;
+create or replace function purchases_items_deleted_amount() returns trigger as $$ begin perform refresh_purchase_amounts(array(select distinct purchase_id from old_rows)); return null; end $$ language plpgsql;
+create or replace function purchases_items_updated_amount() returns trigger as $$ begin perform refresh_purchase_amounts(array(select purchase_id from old_rows union select purchase_id from new_rows)); return null; end $$ language plpgsql;
+create or replace function items_updated_amount() returns trigger as $$ begin perform refresh_purchase_amounts(array(select distinct pi.purchase_id from new_rows n join old_rows o on o.id = n.id join purchases_items pi on pi.items_id = n.id where n.unit_price is distinct from o.unit_price or n.quantity_per_unit is distinct from o.quantity_per_unit)); return null; end $$ language plpgsql;
+drop trigger if exists purchases_items_inserted_amount on purchases_items;
+create trigger purchases_items_inserted_amount after insert on purchases_items referencing new table as new_rows for each statement execute procedure purchases_items_inserted_amount();
+drop trigger if exists purchases_items_deleted_amount on purchases_items;
+create trigger purchases_items_deleted_amount after delete on purchases_items referencing old table as old_rows for each statement execute procedure purchases_items_deleted_amount();
+drop trigger if exists purchases_items_updated_amount on purchases_items;
+create trigger purchases_items_updated_amount after update on purchases_items referencing old table as old_rows new table as new_rows for each statement execute procedure purchases_items_updated_amount();
+drop trigger if exists items_updated_amount on items;
+create trigger items_updated_amount after update on items referencing old table as old_rows new table as new_rows for each statement execute procedure items_updated_amount();
+-- The purchases still to be fulfilled are a small fraction of the table, the partial indexes contain only them.
+create index if not exists purchases_active_status_idx on purchases (status, order_date) where status in ('PENDING_PAYMENT', 'PAYMENT_REVIEW', 'PROCESSING', 'IN_PRODUCTION');
+create index if not exists purchases_active_queue_idx on purchases (order_date, id) where status in ('PENDING_PAYMENT', 'PAYMENT_REVIEW', 'PROCESSING', 'IN_PRODUCTION');
+-- The outbox publisher reads only the unpublished events, in order and by aggregate.
+create index if not exists outbox_events_unpublished_idx on outbox_events (id) where published_at is null;
+create index if not exists outbox_events_unpublished_aggregate_idx on outbox_events (aggregate_type, aggregate_id, id) where published_at is null;
+-- The stock service subtracts only the items sold and not yet synced, a small fraction of the table.
+create index if not exists items_stock_unsynced_idx on items (book_item_id, supplier_id) where not stock_synced;
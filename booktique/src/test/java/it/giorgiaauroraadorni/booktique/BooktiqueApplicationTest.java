@@ -1,13 +1,26 @@
 package it.giorgiaauroraadorni.booktique;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 public class BooktiqueApplicationTest {
+    @Autowired
+    private ApplicationContext applicationContext;
 
     @Test
     public void contextLoads() {
     }
 
+    @Test
+    public void testSchedulingDisabled() {
+        // the background tasks never run against the schema of another application context
+        assertEquals(0, applicationContext.getBeanNamesForType(ScheduledAnnotationBeanPostProcessor.class).length);
+    }
+
 }
@@ -0,0 +1,208 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.Item;
+import it.giorgiaauroraadorni.booktique.model.Supplier;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.ItemRepository;
+import it.giorgiaauroraadorni.booktique.repository.SupplierRepository;
+import it.giorgiaauroraadorni.booktique.service.SupplierPriceService;
+import it.giorgiaauroraadorni.booktique.utility.StatementBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static it.giorgiaauroraadorni.booktique.statistics.StatementCountFilter.QUERY_COUNT_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class BookControllerTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private SupplierPriceService supplierPriceService;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private EntityFactory<Supplier> supplierFactory;
+
+    private List<Book> dummyBooks;
+
+    @BeforeEach
+    void createDummyBooks() {
+        // create a list of valid books entities and save the created entities in the bookRepository
+        dummyBooks = bookRepository.saveAll(bookFactory.createValidEntities(2));
+
+        // write the books and empty the persistence context, so that the requests load them from the database
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    // the page loads the sequel and the authors of every book with a separate statement
+    @StatementBudget(5)
+    public void testGetBooks() throws Exception {
+        mockMvc.perform(get("/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(QUERY_COUNT_HEADER))
+                .andExpect(jsonPath("$.content.length()").value(dummyBooks.size()));
+    }
+
+    private String createPriceJson(String unitPrice) {
+        return "{\"unitPrice\": " + unitPrice + "}";
+    }
+
+    @Test
+    public void testGetPrices() throws Exception {
+        var book = bookRepository.getOne(dummyBooks.get(0).getId());
+        var suppliers = supplierRepository.saveAll(supplierFactory.createValidEntities(2));
+        var prices = List.of("13.49", "9.99", "11.50");
+        // the second price of the first supplier replaces the first one
+        var priceSuppliers = List.of(suppliers.get(0), suppliers.get(1), suppliers.get(0));
+        for (int i = 0; i < prices.size(); i++) {
+            mockMvc.perform(put("/books/{bookId}/prices/{supplierId}", book.getId(), priceSuppliers.get(i).getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createPriceJson(prices.get(i))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.unitPrice").value(Double.valueOf(prices.get(i))));
+        }
+
+        // the price charged by a purchase is not a price of the supplier
+        var item = new Item();
+        item.setBookItem(book);
+        item.setSupplier(suppliers.get(1));
+        item.setUnitPrice(new BigDecimal("0.01"));
+        item.setQuantityPerUnit(1);
+        itemRepository.save(item);
+
+        // the prices in memory are updated when the transaction commits, the one of the test never commits
+        entityManager.flush();
+        supplierPriceService.reload();
+
+        mockMvc.perform(get("/books/{bookId}/prices", book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].supplierId").value(suppliers.get(1).getId()))
+                .andExpect(jsonPath("$[0].unitPrice").value(9.99))
+                .andExpect(jsonPath("$[1].supplierId").value(suppliers.get(0).getId()))
+                .andExpect(jsonPath("$[1].unitPrice").value(11.50));
+
+        mockMvc.perform(delete("/books/{bookId}/prices/{supplierId}", book.getId(), suppliers.get(1).getId()))
+                .andExpect(status().isOk());
+        entityManager.flush();
+        supplierPriceService.reload();
+        mockMvc.perform(get("/books/{bookId}/prices", book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].supplierId").value(suppliers.get(0).getId()));
+
+        // a book without prices has no prices, a book that does not exist is not found
+        mockMvc.perform(get("/books/{bookId}/prices", dummyBooks.get(1).getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/books/{bookId}/prices", dummyBooks.get(1).getId() + 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testSetInvalidPrice() throws Exception {
+        var book = dummyBooks.get(0);
+        var supplier = supplierRepository.save(supplierFactory.createValidEntity());
+
+        mockMvc.perform(put("/books/{bookId}/prices/{supplierId}", book.getId(), supplier.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createPriceJson("-1.00")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/books/{bookId}/prices/{supplierId}", book.getId(), supplier.getId() + 1000)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createPriceJson("10.00")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/books/{bookId}/prices/{supplierId}", book.getId(), supplier.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    private String createBookJson(Book book, String title) {
+        return "{\"isbn\": \"" + book.getIsbn() + "\", \"title\": \"" + title + "\"}";
+    }
+
+    @Test
+    public void testUpdateBook() throws Exception {
+        var book = dummyBooks.get(0);
+
+        // the update returns the new version, that is required by the next conditional update
+        mockMvc.perform(put("/books/{bookId}", book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBookJson(book, "Nuovo titolo"))
+                .header(HttpHeaders.IF_MATCH, "\"" + book.getVersion() + "\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (book.getVersion() + 1) + "\""))
+                .andExpect(jsonPath("$.title").value("Nuovo titolo"));
+
+        // the update without the If-Match header is applied to the latest version
+        mockMvc.perform(put("/books/{bookId}", book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBookJson(book, "Altro titolo")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (book.getVersion() + 2) + "\""));
+
+        entityManager.clear();
+        assertEquals("Altro titolo", bookRepository.findById(book.getId()).get().getTitle());
+    }
+
+    @Test
+    public void testUpdateStaleBook() throws Exception {
+        var book = dummyBooks.get(0);
+        mockMvc.perform(put("/books/{bookId}", book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBookJson(book, "Nuovo titolo")))
+                .andExpect(status().isOk());
+
+        // the version read before the first update is stale
+        mockMvc.perform(put("/books/{bookId}", book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBookJson(book, "Titolo perso"))
+                .header(HttpHeaders.IF_MATCH, "\"" + book.getVersion() + "\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/books/{bookId}", book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBookJson(book, "Titolo perso"))
+                .header(HttpHeaders.IF_MATCH, "\"unknown\""))
+                .andExpect(status().isPreconditionFailed());
+
+        entityManager.clear();
+        assertEquals("Nuovo titolo", bookRepository.findById(book.getId()).get().getTitle());
+    }
+}
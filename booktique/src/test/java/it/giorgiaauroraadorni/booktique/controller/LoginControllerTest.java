@@ -0,0 +1,201 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import it.giorgiaauroraadorni.booktique.model.Customer;
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.repository.AddressRepository;
+import it.giorgiaauroraadorni.booktique.repository.CustomerRepository;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import it.giorgiaauroraadorni.booktique.service.LoginService;
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests of the login endpoints. The passwords are verified on the hashing threads, which read and upgrade the
+ * committed accounts, so the accounts are committed and deleted at the end of every test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class LoginControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private PasswordService passwordService;
+
+    @Autowired
+    private LoginService loginService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityFactory<Customer> customerFactory;
+
+    @Autowired
+    private EntityFactory<Employee> employeeFactory;
+
+    private Customer customer;
+
+    private Employee employee;
+
+    @BeforeEach
+    void createAccounts() {
+        // the passwords are hashed when the accounts are written
+        customer = customerRepository.save(customerFactory.createValidEntity(0));
+        // the entities with the same index share the address
+        employee = employeeRepository.save(employeeFactory.createValidEntity(1));
+    }
+
+    // Store the password of the customer, bypassing the hashing on write
+    private void storePassword(String password) {
+        jdbcTemplate.update("update customers set password = ? where id = ?", password, customer.getId());
+    }
+
+    // A hash of the password at the previous cost, still verified
+    private String cheaperHash() {
+        var cheaper = new PasswordService(500, 500, 1, 1);
+        try {
+            return cheaper.hash("Qwerty1234");
+        } finally {
+            cheaper.shutdown();
+        }
+    }
+
+    @AfterEach
+    void deleteAccounts() {
+        customerRepository.deleteById(customer.getId());
+        employeeRepository.deleteById(employee.getId());
+        addressRepository.deleteById(customer.getAddress().getId());
+        addressRepository.deleteById(employee.getAddress().getId());
+    }
+
+    private ResultActions login(String path, String username, String password) throws Exception {
+        var result = mockMvc.perform(post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\": \"" + username + "\", \"password\": \"" + password + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private String loginToken(String path, String username) throws Exception {
+        var body = login(path, username, "Qwerty1234").andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.token");
+    }
+
+    @Test
+    public void testLogin() throws Exception {
+        login("/customers/login", "CUserNo0", "Qwerty1234")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(customer.getId()))
+                .andExpect(jsonPath("$.username").value("CUserNo0"))
+                .andExpect(jsonPath("$.token").isString())
+                .andExpect(jsonPath("$.expiresAt").isString());
+
+        login("/employees/login", "EUserNo1", "Qwerty1234")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(employee.getId()));
+
+        // the passwords have never been stored in clear
+        assertTrue(passwordService.isHash(customerRepository.findById(customer.getId()).get().getPassword()));
+        assertTrue(passwordService.isHash(employeeRepository.findById(employee.getId()).get().getPassword()));
+    }
+
+    @Test
+    public void testUpgradeOnLogin() throws Exception {
+        var hash = cheaperHash();
+        storePassword(hash);
+        login("/customers/login", "CUserNo0", "Qwerty1234").andExpect(status().isOk());
+
+        // the hash of the previous cost has been replaced by a hash at the current cost, verified by the next logins
+        var stored = customerRepository.findById(customer.getId()).get().getPassword();
+        assertNotEquals(hash, stored);
+        assertFalse(passwordService.needsUpgrade(stored));
+        login("/customers/login", "CUserNo0", "Qwerty1234").andExpect(status().isOk());
+        assertEquals(stored, customerRepository.findById(customer.getId()).get().getPassword());
+    }
+
+    @Test
+    public void testHashClearPasswords() throws Exception {
+        // a password stored in clear, as before the passwords were hashed on write, is never verified
+        storePassword("Qwerty1234");
+        login("/customers/login", "CUserNo0", "Qwerty1234").andExpect(status().isUnauthorized());
+        var employeeHash = employeeRepository.findById(employee.getId()).get().getPassword();
+
+        // until it is hashed, leaving the hashes as they are
+        loginService.hashClearPasswords();
+        var stored = customerRepository.findById(customer.getId()).get().getPassword();
+        assertTrue(passwordService.isHash(stored));
+        assertFalse(passwordService.needsUpgrade(stored));
+        assertEquals(employeeHash, employeeRepository.findById(employee.getId()).get().getPassword());
+        login("/customers/login", "CUserNo0", "Qwerty1234").andExpect(status().isOk());
+    }
+
+    @Test
+    public void testInvalidLogin() throws Exception {
+        var hash = cheaperHash();
+        storePassword(hash);
+        login("/customers/login", "CUserNo0", "Qwerty1235").andExpect(status().isUnauthorized());
+        login("/customers/login", "CUserNo1", "Qwerty1234").andExpect(status().isUnauthorized());
+        // the usernames of the customers are not the ones of the employees
+        login("/employees/login", "CUserNo0", "Qwerty1234").andExpect(status().isUnauthorized());
+
+        // a failed login does not upgrade the password
+        assertEquals(hash, customerRepository.findById(customer.getId()).get().getPassword());
+
+        mockMvc.perform(post("/customers/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\": \"CUserNo0\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testTokenAuthentication() throws Exception {
+        var customerToken = loginToken("/customers/login", "CUserNo0");
+        mockMvc.perform(get("/customers/me/purchases").header(HttpHeaders.AUTHORIZATION, "Bearer " + customerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+
+        // only the customers have purchases
+        var employeeToken = loginToken("/employees/login", "EUserNo1");
+        mockMvc.perform(get("/customers/me/purchases").header(HttpHeaders.AUTHORIZATION, "Bearer " + employeeToken))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/customers/me/purchases")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/customers/me/purchases").header(HttpHeaders.AUTHORIZATION, "Bearer " +
+                customerToken.substring(1))).andExpect(status().isUnauthorized());
+
+        // the token is rejected after the logout
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + customerToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/customers/me/purchases").header(HttpHeaders.AUTHORIZATION, "Bearer " + customerToken))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,342 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import it.giorgiaauroraadorni.booktique.exception.PriceChangedException;
+import it.giorgiaauroraadorni.booktique.model.*;
+import it.giorgiaauroraadorni.booktique.repository.*;
+import it.giorgiaauroraadorni.booktique.service.EmployeeAssignmentService;
+import it.giorgiaauroraadorni.booktique.service.StockService;
+import it.giorgiaauroraadorni.booktique.service.SupplierPriceService;
+import it.giorgiaauroraadorni.booktique.statistics.StatementCounter;
+import it.giorgiaauroraadorni.booktique.utility.StatementBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class PurchaseControllerTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private EmployeeAssignmentService employeeAssignmentService;
+
+    @Autowired
+    private SupplierPriceService supplierPriceService;
+
+    @Autowired
+    private EntityFactory<Customer> customerFactory;
+
+    @Autowired
+    private EntityFactory<Employee> employeeFactory;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private EntityFactory<Supplier> supplierFactory;
+
+    private Customer customer;
+
+    private Employee employee;
+
+    private List<Book> books;
+
+    private Supplier supplier;
+
+    @BeforeEach
+    void createDummyEntities() {
+        // create the entities referenced by the carts
+        customer = customerRepository.save(customerFactory.createValidEntity(0));
+        employee = employeeRepository.save(employeeFactory.createValidEntity(0));
+        books = bookRepository.saveAll(bookFactory.createValidEntities(2));
+        supplier = supplierRepository.save(supplierFactory.createValidEntity(0));
+        supplierPriceService.setPrice(books.get(0).getId(), supplier.getId(), new BigDecimal("13.49"));
+        supplierPriceService.setPrice(books.get(1).getId(), supplier.getId(), new BigDecimal("5.00"));
+
+        // write the entities and empty the persistence context, so that the requests load them from the database
+        entityManager.flush();
+        entityManager.clear();
+        // the prices in memory are updated when the transaction commits, the one of the test never commits
+        supplierPriceService.reload();
+    }
+
+    private String createCartJson(Long customerId, Long bookId) {
+        return "{\"customerId\": " + customerId + ", " +
+                "\"employeeId\": " + employee.getId() + ", " +
+                "\"payment\": {\"cardNumber\": \"0000000000000000\", \"cardholderName\": \"Nome Cognome\", " +
+                "\"expireDate\": \"2030-01-01\", \"cvc\": \"000\"}, " +
+                "\"items\": [" +
+                "{\"bookId\": " + bookId + ", \"supplierId\": " + supplier.getId() + ", " +
+                "\"unitPrice\": 13.49, \"quantity\": 2}, " +
+                "{\"bookId\": " + books.get(1).getId() + ", \"supplierId\": " + supplier.getId() + ", " +
+                "\"unitPrice\": 5.00, \"quantity\": 1}]}";
+    }
+
+    @Test
+    // one query per referenced table, a sequence value per new row and one batch of inserts per table (including the
+    // status log), plus the final check of the test
+    @StatementBudget(15)
+    public void testCheckout() throws Exception {
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), books.get(0).getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").isNumber())
+                .andExpect(jsonPath("$.paymentId").isNumber())
+                .andExpect(jsonPath("$.customerId").value(customer.getId()))
+                .andExpect(jsonPath("$.status").value(Purchase.Status.PROCESSING.name()))
+                .andExpect(jsonPath("$.amount").value(31.98))
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        assertEquals(1, purchaseRepository.findByCustomer(customer).size());
+    }
+
+    @Test
+    public void testCheckoutAssignsEmployee() throws Exception {
+        // track the employee created by the test, whose creation is not committed
+        employeeAssignmentService.reload();
+        try {
+            mockMvc.perform(post("/purchases/checkout")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createCartJson(customer.getId(), books.get(0).getId())))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.employeeId").value(employee.getId()));
+            assertEquals(Optional.of(1L), employeeAssignmentService.getOpenOrders(employee.getId()));
+
+            // without an employee in the cart, the purchase is assigned to one of the least loaded employees
+            var response = mockMvc.perform(post("/purchases/checkout")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createCartJson(customer.getId(), books.get(0).getId())
+                            .replace("\"employeeId\": " + employee.getId() + ", ", "")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.employeeId").isNumber())
+                    .andReturn();
+            var employeeId = Long.valueOf(
+                    JsonPath.read(response.getResponse().getContentAsString(), "$.employeeId").toString());
+            // the least loaded employees had no open orders, unless the only one is the employee of the test
+            var expected = employeeId.equals(employee.getId()) ? 2L : 1L;
+            assertEquals(Optional.of(expected), employeeAssignmentService.getOpenOrders(employeeId));
+        } finally {
+            // the employee disappears with the rollback of the test
+            employeeAssignmentService.untrack(employee.getId());
+        }
+    }
+
+    @Test
+    public void testCheckoutChoosesSupplier() throws Exception {
+        // the first book is sold by two suppliers, the second one is cheaper but has only one unit
+        var cheapSupplier = supplierRepository.save(supplierFactory.createValidEntity(1));
+        var cheapestSupplier = supplierRepository.save(supplierFactory.createValidEntity(2));
+        var suppliers = List.of(supplier, cheapSupplier, cheapestSupplier);
+        var prices = List.of("13.49", "12.00", "11.00");
+        for (int i = 0; i < suppliers.size(); i++) {
+            supplierPriceService.setPrice(books.get(0).getId(), suppliers.get(i).getId(),
+                    new BigDecimal(prices.get(i)));
+        }
+        stockService.restock(books.get(0).getId(), cheapestSupplier.getId(), 1);
+        stockService.reconcile();
+        supplierPriceService.reload();
+
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"customerId\": " + customer.getId() + ", \"employeeId\": " + employee.getId() + ", " +
+                        "\"payment\": {\"cardNumber\": \"0000000000000000\", \"cardholderName\": \"Nome Cognome\", " +
+                        "\"expireDate\": \"2030-01-01\", \"cvc\": \"000\"}, " +
+                        "\"items\": [{\"bookId\": " + books.get(0).getId() + ", \"quantity\": 2}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].supplierId").value(cheapSupplier.getId()))
+                .andExpect(jsonPath("$.items[0].unitPrice").value(12.00))
+                .andExpect(jsonPath("$.amount").value(24.00));
+
+        // without a price known for the supplier the cart is rejected
+        supplierPriceService.deletePrice(books.get(1).getId(), supplier.getId());
+        entityManager.flush();
+        supplierPriceService.reload();
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"customerId\": " + customer.getId() + ", \"employeeId\": " + employee.getId() + ", " +
+                        "\"payment\": {\"cardNumber\": \"0000000000000000\", \"cardholderName\": \"Nome Cognome\", " +
+                        "\"expireDate\": \"2030-01-01\", \"cvc\": \"000\"}, " +
+                        "\"items\": [{\"bookId\": " + books.get(1).getId() + ", \"quantity\": 1}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testCheckoutInvalidCart() throws Exception {
+        // the cart must contain at least one item
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"customerId\": " + customer.getId() + ", \"employeeId\": " + employee.getId() + ", " +
+                        "\"payment\": {}, \"items\": []}"))
+                .andExpect(status().isBadRequest());
+
+        // the books and the customer must exist
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), -1L)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(-1L, books.get(0).getId())))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, purchaseRepository.count());
+    }
+
+    @Test
+    public void testCheckoutPriceMismatch() throws Exception {
+        // the line is charged the price of the supplier, a different price sent by the client is rejected with it
+        var exception = mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), books.get(0).getId()).replace("13.49", "0.01")))
+                .andExpect(status().isConflict())
+                .andReturn().getResolvedException();
+        assertTrue(exception instanceof PriceChangedException);
+        assertEquals(books.get(0).getId(), ((PriceChangedException) exception).getBookId());
+        assertEquals(supplier.getId(), ((PriceChangedException) exception).getSupplierId());
+        assertEquals(0, new BigDecimal("13.49").compareTo(((PriceChangedException) exception).getCurrentPrice()));
+        assertEquals(0, purchaseRepository.count());
+
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), books.get(0).getId())
+                        .replace("\"unitPrice\": 13.49, ", "")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amount").value(31.98));
+    }
+
+    @Test
+    public void testCheckoutInsufficientStock() throws Exception {
+        // the cart contains 2 units of the first book, but only 1 is available
+        stockService.restock(books.get(0).getId(), supplier.getId(), 1);
+        stockService.reconcile();
+
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), books.get(0).getId())))
+                .andExpect(status().isConflict());
+
+        assertEquals(0, purchaseRepository.count());
+        assertEquals(1, stockService.getAvailable(books.get(0).getId(), supplier.getId()).getAsLong());
+    }
+
+    @Test
+    public void testChangeStatusIfMatch() throws Exception {
+        mockMvc.perform(post("/purchases/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createCartJson(customer.getId(), books.get(0).getId())))
+                .andExpect(status().isOk());
+        var purchase = purchaseRepository.findByCustomer(customer).get(0);
+        var version = purchase.getVersion();
+
+        mockMvc.perform(put("/purchases/{purchaseId}/status", purchase.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("\"SHIPPED\"")
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (version + 1) + "\""));
+
+        // the purchase has been modified after the version read by the client
+        mockMvc.perform(put("/purchases/{purchaseId}/status", purchase.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("\"CANCELED\"")
+                .header(HttpHeaders.IF_MATCH, "\"" + version + "\""))
+                .andExpect(status().isPreconditionFailed());
+
+        entityManager.clear();
+        assertEquals(Purchase.Status.SHIPPED, purchaseRepository.findById(purchase.getId()).get().getStatus());
+    }
+
+    @Test
+    public void testPurchaseHistory() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/purchases/checkout")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(createCartJson(customer.getId(), books.get(0).getId())))
+                    .andExpect(status().isOk());
+        }
+        var ids = purchaseRepository.findByCustomer(customer)
+                .stream()
+                .map(Purchase::getId)
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        entityManager.flush();
+        entityManager.clear();
+
+        // the ids of the page, the count and the purchases with their items and books, however many items they have
+        var statistics = StatementCounter.start();
+        try {
+            mockMvc.perform(get("/customers/{customerId}/purchases", customer.getId())
+                    .param("page", "0")
+                    .param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(3))
+                    .andExpect(jsonPath("$.content.length()").value(2))
+                    .andExpect(jsonPath("$.content[0].id").value(ids.get(0)))
+                    .andExpect(jsonPath("$.content[1].id").value(ids.get(1)))
+                    .andExpect(jsonPath("$.content[0].amount").value(31.98))
+                    .andExpect(jsonPath("$.content[0].items.length()").value(2))
+                    .andExpect(jsonPath("$.content[0].items[0].title").value(books.get(0).getTitle()))
+                    .andExpect(jsonPath("$.content[0].items[*].totalPrice", containsInAnyOrder(26.98, 5.0)));
+        } finally {
+            StatementCounter.stop();
+        }
+        assertEquals(3, statistics.getCount());
+
+        mockMvc.perform(get("/customers/{customerId}/purchases", customer.getId())
+                .param("page", "1")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(ids.get(2)));
+
+        mockMvc.perform(get("/customers/{customerId}/purchases", -1L))
+                .andExpect(status().isNotFound());
+    }
+}
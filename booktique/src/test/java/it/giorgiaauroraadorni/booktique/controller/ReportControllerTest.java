@@ -0,0 +1,102 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseRepository;
+import it.giorgiaauroraadorni.booktique.utility.StatementBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ReportControllerTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private EntityFactory<Purchase> purchaseFactory;
+
+    private List<Purchase> dummyPurchases;
+
+    @BeforeEach
+    void createDummyPurchases() throws Exception {
+        // create a list of valid purchases and complete them through the api
+        dummyPurchases = purchaseRepository.saveAll(purchaseFactory.createValidEntities(2));
+        entityManager.flush();
+
+        for (Purchase p: dummyPurchases) {
+            mockMvc.perform(put("/purchases/{purchaseId}/status", p.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("\"COMPLETED\""))
+                    .andExpect(status().isOk());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    // the revenue is read from the rollup rows with a single statement
+    @StatementBudget(1)
+    public void testGetSales() throws Exception {
+        var expectedRevenue = dummyPurchases.get(0).getAmount().add(dummyPurchases.get(1).getAmount());
+
+        mockMvc.perform(get("/reports/sales")
+                .param("from", LocalDate.now().minusYears(1).toString())
+                .param("to", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].revenue").value(expectedRevenue.doubleValue()))
+                .andExpect(jsonPath("$[0].purchases").value(2));
+    }
+
+    @Test
+    public void testGetSupplierSales() throws Exception {
+        // every purchase has an item of a different supplier
+        mockMvc.perform(get("/reports/sales")
+                .param("from", LocalDate.now().minusYears(1).toString())
+                .param("to", LocalDate.now().toString())
+                .param("dimension", "SUPPLIER"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    public void testGetDailySales() throws Exception {
+        mockMvc.perform(get("/reports/sales/daily")
+                .param("from", LocalDate.now().toString())
+                .param("to", LocalDate.now().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].day").value(LocalDate.now().toString()));
+    }
+
+    @Test
+    public void testChangeStatusNotFound() throws Exception {
+        mockMvc.perform(put("/purchases/{purchaseId}/status", -1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("\"COMPLETED\""))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,123 @@
+package it.giorgiaauroraadorni.booktique.controller;
+
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.Supplier;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.StockRepository;
+import it.giorgiaauroraadorni.booktique.repository.SupplierRepository;
+import it.giorgiaauroraadorni.booktique.service.StockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class StockControllerTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private EntityFactory<Supplier> supplierFactory;
+
+    private Book book;
+
+    private Supplier supplier;
+
+    @BeforeEach
+    void createDummyEntities() {
+        book = bookRepository.save(bookFactory.createValidEntity(0));
+        supplier = supplierRepository.save(supplierFactory.createValidEntity(0));
+    }
+
+    private String createStockJson(Long bookId, long quantity) {
+        return "{\"bookId\": " + bookId + ", \"supplierId\": " + supplier.getId() + ", \"quantity\": " + quantity + "}";
+    }
+
+    @Test
+    public void testGetStock() throws Exception {
+        stockService.restock(book.getId(), supplier.getId(), 10);
+        stockService.reconcile();
+
+        mockMvc.perform(get("/stocks")
+                .param("bookId", book.getId().toString())
+                .param("supplierId", supplier.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value(book.getId()))
+                .andExpect(jsonPath("$.quantity").value(10));
+    }
+
+    @Test
+    public void testGetUntrackedStock() throws Exception {
+        mockMvc.perform(get("/stocks")
+                .param("bookId", book.getId().toString())
+                .param("supplierId", supplier.getId().toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testRestock() throws Exception {
+        // the units are written in the test transaction, they become available in memory when it commits
+        mockMvc.perform(post("/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createStockJson(book.getId(), 5)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createStockJson(book.getId(), 3)))
+                .andExpect(status().isOk());
+
+        entityManager.clear();
+        assertEquals(8, (long) stockRepository.findByBook_IdAndSupplier_Id(book.getId(), supplier.getId()).get()
+                .getQuantity());
+    }
+
+    @Test
+    public void testRestockInvalidRequest() throws Exception {
+        // the quantity must be positive
+        mockMvc.perform(post("/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createStockJson(book.getId(), 0)))
+                .andExpect(status().isBadRequest());
+
+        // the book must exist
+        mockMvc.perform(post("/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createStockJson(-1L, 5)))
+                .andExpect(status().isNotFound());
+
+        assertEquals(0, stockRepository.count());
+    }
+}
@@ -10,7 +10,8 @@ public class AddressFactory implements EntityFactory<Address> {
         var address = new Address();
 
         // mandatory attributes
-        address.setStreetAddress("Via Nomevia 99");
+        // the addresses with a different index are not interned to the same row
+        address.setStreetAddress("Via Nomevia " + (99 + idx));
         address.setCity("Città");
         address.setProvince("CT");
         address.setPostalCode("00000");
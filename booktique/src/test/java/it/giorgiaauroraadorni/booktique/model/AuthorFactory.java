@@ -1,5 +1,6 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.validation.FiscalCodeValidator;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -12,7 +13,8 @@ public class AuthorFactory implements EntityFactory<Author> {
         var author = new Author();
 
         // mandatory attributes (inherit from person)
-        author.setFiscalCode("CGNNMO00T00L00" + idx + "A");
+        var fiscalCode = "CGNNMO00T00A00" + idx;
+        author.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
         author.setName("Nome" + idx);
         author.setSurname("Cognome" + idx);
 
@@ -1,5 +1,6 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.validation.IsbnValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -18,7 +19,8 @@ public class BookFactory implements EntityFactory<Book> {
         var author = authorFactory.createValidEntity(idx);
 
         // mandatory attribute
-        book.setIsbn("978-00-00-00000-" + idx);
+        var isbn = String.format("978-00-00-%05d-", idx);
+        book.setIsbn(isbn + IsbnValidator.checkDigit13(isbn));
         book.setTitle("Titolo");
         book.setPublisher("Editore");
 
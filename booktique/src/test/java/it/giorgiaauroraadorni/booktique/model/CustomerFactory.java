@@ -1,5 +1,7 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.validation.FiscalCodeValidator;
+import it.giorgiaauroraadorni.booktique.validation.VatNumberValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -16,7 +18,8 @@ public class CustomerFactory implements EntityFactory<Customer> {
         var address = addressFactory.createValidEntity(idx);
 
         // mandatory attributes
-        customer.setFiscalCode("CGNNMO00T00L00" + idx + "C");
+        var fiscalCode = "CGNNMO00T00C00" + idx;
+        customer.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
         customer.setName("Nome" + idx);
         customer.setSurname("Cognome" + idx);
         customer.setUsername("CUserNo" + idx);
@@ -29,7 +32,7 @@ public class CustomerFactory implements EntityFactory<Customer> {
         customer.setDateOfBirth(LocalDate.now().minusYears(20 + idx));
         customer.setEmail(customer.getName() + customer.getSurname() + "@customer-mail.com");
         customer.setMobilePhone("333111111" + idx);
-        customer.setVatNumber("IT10000000000");
+        customer.setVatNumber("IT1000000000" + VatNumberValidator.checkDigit("1000000000"));
 
         return customer;
     }
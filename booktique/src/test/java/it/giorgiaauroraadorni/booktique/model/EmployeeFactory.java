@@ -1,5 +1,6 @@
 package it.giorgiaauroraadorni.booktique.model;
 
+import it.giorgiaauroraadorni.booktique.validation.FiscalCodeValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -16,7 +17,8 @@ public class EmployeeFactory implements EntityFactory<Employee> {
         var address = addressFactory.createValidEntity(idx);
 
         // mandatory attributes
-        employee.setFiscalCode("CGNNMO00T00L00" + idx + "E");
+        var fiscalCode = "CGNNMO00T00E00" + idx;
+        employee.setFiscalCode(fiscalCode + FiscalCodeValidator.checkCharacter(fiscalCode));
         employee.setName("Nome" + idx);
         employee.setSurname("Cognome" +idx);
         employee.setUsername("EUserNo" + idx);
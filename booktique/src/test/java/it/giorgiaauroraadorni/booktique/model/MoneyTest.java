@@ -0,0 +1,74 @@
+package it.giorgiaauroraadorni.booktique.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    /**
+     * Check that the conversions from and to BigDecimal do not lose any digit.
+     */
+    @Test
+    public void testExactConversion() {
+        assertEquals(1349, Money.of(BigDecimal.valueOf(13.49)).getCents());
+        assertEquals(1250, Money.of(BigDecimal.valueOf(12.5)).getCents());
+        assertEquals(-100, Money.of(BigDecimal.valueOf(-1)).getCents());
+        assertEquals(new BigDecimal("13.49"), Money.ofCents(1349).toBigDecimal());
+        assertEquals(Money.ZERO, Money.of(new BigDecimal("0.000")));
+    }
+
+    /**
+     * Throws an exception when attempting to convert an amount that would be rounded or does not fit in a long.
+     */
+    @Test
+    public void testIllegalConversion() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testArithmetic() {
+        var price = Money.ofCents(1349);
+
+        assertEquals(Money.ofCents(2698), price.plus(price));
+        assertEquals(Money.ZERO, price.minus(price));
+        assertEquals(Money.ofCents(4047), price.times(3));
+        assertTrue(price.minus(price).isZero());
+        assertTrue(price.compareTo(price.times(2)) < 0);
+        assertEquals("13.49", price.toString());
+    }
+
+    /**
+     * Throws an exception instead of overflowing.
+     */
+    @Test
+    public void testOverflow() {
+        var max = Money.ofCents(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).minus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+    }
+
+    /**
+     * Check that the price of an item is the unit price multiplied by the quantity.
+     */
+    @Test
+    public void testItemTotalPrice() {
+        var item = new Item();
+        item.setUnitPrice(BigDecimal.valueOf(34.99));
+        item.setQuantityPerUnit(2);
+
+        assertEquals(new BigDecimal("69.98"), item.getTotalPrice().toBigDecimal());
+        assertEquals(6998, item.getTotalPriceCents());
+
+        // the converted unit price must follow the changes of the item
+        item.setUnitPrice(BigDecimal.valueOf(10));
+        item.setQuantityPerUnit(3);
+
+        assertEquals(3000, item.getTotalPriceCents());
+    }
+}
@@ -11,7 +11,7 @@ public class SupplierFactory implements EntityFactory<Supplier> {
     @Override
     public Supplier createValidEntity(int idx) {
         var supplier = new Supplier();
-        var address = addressFactory.createValidEntity();
+        var address = addressFactory.createValidEntity(idx);
 
         // mandatory attribute
         supplier.setCompanyName("Compagnia" + idx);
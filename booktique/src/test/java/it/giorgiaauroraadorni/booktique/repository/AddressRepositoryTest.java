@@ -7,7 +7,6 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.orm.jpa.JpaSystemException;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
@@ -78,6 +77,59 @@ class AddressRepositoryTest {
         });
     }
 
+    /**
+     * Throws an exception when attempting to create an address equal to an existing one, even if written in another
+     * way.
+     */
+    @Test
+    public void testIllegalDuplicateAddress() {
+        Address duplicateAddress = addressFactory.createValidEntity(0);
+        duplicateAddress.setCity(duplicateAddress.getCity().toUpperCase());
+
+        assertThrows(DataIntegrityViolationException.class, () -> {
+            addressRepository.saveAndFlush(duplicateAddress);
+        });
+    }
+
+    /**
+     * Check that the city, province and region of an Italian address are filled from the postal code.
+     */
+    @Test
+    public void testCompleteItalianAddress() {
+        Address italianAddress = addressFactory.createValidEntity(2);
+        italianAddress.setPostalCode("20121");
+        italianAddress.setCountry("Italia");
+        italianAddress.setCity(null);
+        italianAddress.setProvince(null);
+        italianAddress.setRegion(null);
+
+        italianAddress = addressRepository.saveAndFlush(italianAddress);
+
+        assertEquals("Milano", italianAddress.getCity());
+        assertEquals("MI", italianAddress.getProvince());
+        assertEquals("Lombardia", italianAddress.getRegion());
+    }
+
+    /**
+     * Check that an Italian address with an unknown postal code or with a city that does not have the postal code is
+     * kept as it is, since the bundled gazetteer is not complete and is not strict.
+     */
+    @Test
+    public void testUnknownItalianAddress() {
+        Address unknownAddress = addressFactory.createValidEntity(2);
+        unknownAddress.setCountry("Italia");
+        unknownAddress.setPostalCode("20099");
+        unknownAddress.setCity("Sesto San Giovanni");
+        unknownAddress.setProvince("MI");
+        unknownAddress.setRegion(null);
+
+        unknownAddress = addressRepository.saveAndFlush(unknownAddress);
+
+        assertEquals("Sesto San Giovanni", unknownAddress.getCity());
+        assertEquals("MI", unknownAddress.getProvince());
+        assertNull(unknownAddress.getRegion());
+    }
+
     @Test
     public void testSave() {
         var address = addressFactory.createValidEntity(2);
@@ -149,7 +201,8 @@ class AddressRepositoryTest {
             addressRepository.saveAndFlush(invalidAddress);
         });
 
-        assertThrows(JpaSystemException.class, () -> {
+        // the address has been given an id by the failed insert, so it is saved as an update, that is rejected
+        assertThrows(DataIntegrityViolationException.class, () -> {
             invalidAddress.setPostalCode("1111");
             addressRepository.saveAndFlush(invalidAddress);
         });
@@ -169,33 +222,16 @@ class AddressRepositoryTest {
     }
 
     /**
-     * Update one entry partially, edit different attributes and check if the fields are changed correctly.
+     * Throws an exception when attempting to update an address, that can be shared by many people.
      */
     @Test
-    public void testUpdateAddress() {
-        // get an Address from the repository
+    public void testIllegalUpdateAddress() {
+        // get an Address from the repository and change its attributes
         Address savedAddress = dummyAddresses.get(0);
-
-        // change attributes and update the address object
         savedAddress.setStreetAddress("Largo Nomelargo 100");
         savedAddress.setCity("Nuova Città");
-        savedAddress.setProvince("NC");
-        savedAddress.setPostalCode("11111");
-        savedAddress.setRegion("Nuova Regione");
-        savedAddress.setCountry("Nuovo Stato");
-        savedAddress.setBuilding("Edificio 1");
-
-        savedAddress = addressRepository.save(savedAddress);
-
-        // clear the memory in order to get a new instance of the saved address from the db
-        addressRepository.flush();
-        entityManager.clear();
-
-        // check that all the attributes have been updated correctly and contain the expected value
-        Address updatedAddress = addressRepository.findById(savedAddress.getId()).get();
 
-        assertTrue(addressRepository.existsById(savedAddress.getId()));
-        assertAttributesEquals(savedAddress, updatedAddress, true);
+        assertThrows(DataIntegrityViolationException.class, () -> addressRepository.saveAndFlush(savedAddress));
     }
 
     /**
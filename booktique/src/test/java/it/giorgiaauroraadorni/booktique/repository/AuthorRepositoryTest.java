@@ -96,7 +96,7 @@ class AuthorRepositoryTest {
         var duplicatedAuthor = authorFactory.createValidEntity(2);
 
         assertThrows(DataIntegrityViolationException.class, () -> {
-            duplicatedAuthor.setFiscalCode("CGNNMO00T00L000A");
+            duplicatedAuthor.setFiscalCode("CGNNMO00T00A000Q");
             authorRepository.saveAndFlush(duplicatedAuthor);
         });
     }
@@ -277,7 +277,7 @@ class AuthorRepositoryTest {
         Author savedAuthor = dummyAuthors.get(0);
 
         assertThrows(JpaSystemException.class, () -> {
-            savedAuthor.setFiscalCode("CGNNMO00A00L000A");
+            savedAuthor.setFiscalCode("CGNNMO00A00A000D");
             authorRepository.saveAndFlush(savedAuthor);
         }, "It's not possible to updated an author fiscal code!");
     }
@@ -3,6 +3,7 @@ package it.giorgiaauroraadorni.booktique.repository;
 import it.giorgiaauroraadorni.booktique.model.Author;
 import it.giorgiaauroraadorni.booktique.model.Book;
 import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.utility.StatementBudget;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
@@ -52,6 +53,9 @@ class BookRepositoryTest {
 
         // save the created entities in the bookRepository and persist addresses
         dummyBooks = bookRepository.saveAll(dummyBooks);
+
+        // write the books, so that the statement budgets only account for the statements executed by the tests
+        bookRepository.flush();
     }
 
     @Test
@@ -100,7 +104,7 @@ class BookRepositoryTest {
     public void testCreationDeniesWithoutAuthors() {
         Book invalidBook = new Book();
 
-        invalidBook.setIsbn("978-00-00-00000-5");
+        invalidBook.setIsbn("978-00-00-00005-7");
         invalidBook.setTitle("Titolo");
         invalidBook.setPublisher("Editore");
 
@@ -125,7 +129,7 @@ class BookRepositoryTest {
         Book duplicatedBook = bookFactory.createValidEntity();
 
         assertThrows(DataIntegrityViolationException.class, () -> {
-            duplicatedBook.setIsbn("978-00-00-00000-0");
+            duplicatedBook.setIsbn("978-00-00-00000-2");
             bookRepository.saveAndFlush(duplicatedBook);
         });
     }
@@ -268,7 +272,7 @@ class BookRepositoryTest {
         Book savedBook = dummyBooks.get(0);
 
         assertThrows(JpaSystemException.class, () -> {
-            savedBook.setIsbn("978-00-00-00000-4");
+            savedBook.setIsbn("978-00-00-00004-0");
             bookRepository.saveAndFlush(savedBook);
         }, "It's not possible to updated a book isbn!");
     }
@@ -482,6 +486,7 @@ class BookRepositoryTest {
     }
 
     @Test
+    @StatementBudget(2)
     public void testFindByIsbn() {
         // check the correct reading of all the books via findByIsbn
         var foundBook = bookRepository.findByIsbn(dummyBooks.get(0).getIsbn());
@@ -496,6 +501,7 @@ class BookRepositoryTest {
     }
 
     @Test
+    @StatementBudget(2)
     public void testFindByAuthorName() {
         // check the correct reading of all the books via findByAuthors_Name
         for (Author a: dummyBooks.get(0).getAuthors()) {
@@ -3,6 +3,8 @@ package it.giorgiaauroraadorni.booktique.repository;
 import it.giorgiaauroraadorni.booktique.model.Address;
 import it.giorgiaauroraadorni.booktique.model.Customer;
 import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.service.AddressService;
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
@@ -32,9 +34,15 @@ class CustomerRepositoryTest {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private PasswordService passwordService;
+
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private AddressService addressService;
+
     @Autowired
     private EntityFactory<Customer> customerFactory;
 
@@ -69,8 +77,13 @@ class CustomerRepositoryTest {
             assertNotNull(dummyCustomers.get(i).getUpdatedAt());
             assertNotNull(dummyCustomers.get(i).getId());
 
+            // check that the password has been stored hashed
+            var expectedCustomer = customerFactory.createValidEntity(i);
+            assertTrue(passwordService.verify(expectedCustomer.getPassword(), dummyCustomers.get(i).getPassword()));
+            expectedCustomer.setPassword(dummyCustomers.get(i).getPassword());
+
             // check that all the attributes have been created correctly and contain the expected value
-            assertAttributesEquals(customerFactory.createValidEntity(i), dummyCustomers.get(i), false);
+            assertAttributesEquals(expectedCustomer, dummyCustomers.get(i), false);
         }
     }
 
@@ -102,7 +115,7 @@ class CustomerRepositoryTest {
         var duplicatedCustomer = customerFactory.createValidEntity(2);
 
         assertThrows(DataIntegrityViolationException.class, () -> {
-            duplicatedCustomer.setFiscalCode("CGNNMO00T00L000C");
+            duplicatedCustomer.setFiscalCode("CGNNMO00T00C000S");
             customerRepository.saveAndFlush(duplicatedCustomer);
         });
     }
@@ -236,18 +249,49 @@ class CustomerRepositoryTest {
     public void testIllegalPasswordSize() {
         var invalidCustomer = customerFactory.createValidEntity(2);
 
-        assertThrows(DataIntegrityViolationException.class, () -> {
+        // the limits are checked on the password in clear, before it is hashed
+        assertThrows(ConstraintViolationException.class, () -> {
             invalidCustomer.setPassword("-X2LPM4r`2.SJn)nGxW3Dt}4$C+z??\"d7np=fHWDTB`y2ye:w2>\\5Kf,}\\Ks?*NBq7FG./Qp" +
                     "(>uxFtfs~U(A!tLHSGk>a5bhue^2wq#~3K9mc2[P(J:]c&hez(Jm&F?j2");
             customerRepository.saveAndFlush(invalidCustomer);
         }, "Password cannot be longer than 128 characters");
 
-        assertThrows(JpaSystemException.class, () -> {
-            invalidCustomer.setPassword("Qwerty12");
+        assertThrows(ConstraintViolationException.class, () -> {
+            invalidCustomer.setPassword("Qwerty1");
             customerRepository.saveAndFlush(invalidCustomer);
         }, "Password must be at least 8 characters long");
     }
 
+    /**
+     * A password shaped like a hash is hashed and checked as any other password, while the hash loaded from the db is
+     * written as it is.
+     */
+    @Test
+    public void testHashShapedPassword() {
+        var customer = customerFactory.createValidEntity(2);
+        var hashShaped = "pbkdf2_sha256$1$AAAAAAAAAAAAAAAAAAAAAA$AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+        assertTrue(passwordService.isHash(hashShaped));
+
+        customer.setPassword(hashShaped);
+        customerRepository.saveAndFlush(customer);
+        var hash = customer.getPassword();
+        assertNotEquals(hashShaped, hash);
+        assertTrue(passwordService.verify(hashShaped, hash));
+
+        // the loaded hash isn't hashed again on update
+        entityManager.clear();
+        var savedCustomer = customerRepository.findById(customer.getId()).get();
+        savedCustomer.setName("Nuovo Nome");
+        customerRepository.saveAndFlush(savedCustomer);
+        assertEquals(hash, savedCustomer.getPassword());
+
+        // and a new hash shaped password is checked before it is hashed
+        assertThrows(ConstraintViolationException.class, () -> {
+            savedCustomer.setPassword(hashShaped + hashShaped);
+            customerRepository.saveAndFlush(savedCustomer);
+        }, "Password cannot be longer than 128 characters");
+    }
+
     /**
      * Throws an exception when attempting to create or update a customer with illegal size for the vat number attribute.
      */
@@ -304,7 +348,7 @@ class CustomerRepositoryTest {
         savedCustomer.setDateOfBirth(LocalDate.now().minusYears(20));
         savedCustomer.setEmail("NuovoNomeNuovoCognome@customer-mail.com");
         savedCustomer.setMobilePhone("3331111100");
-        savedCustomer.setVatNumber("IT10000000011");
+        savedCustomer.setVatNumber("IT10000000017");
 
         savedCustomer = customerRepository.save(savedCustomer);
 
@@ -328,7 +372,7 @@ class CustomerRepositoryTest {
         Customer savedCustomer = dummyCustomers.get(0);
 
         assertThrows(JpaSystemException.class, () -> {
-            savedCustomer.setFiscalCode("CGNNMO00A00L000C");
+            savedCustomer.setFiscalCode("CGNNMO00A00C000F");
             customerRepository.saveAndFlush(savedCustomer);
         }, "It's not possible to updated a customer fiscal code!");
     }
@@ -342,14 +386,17 @@ class CustomerRepositoryTest {
         Customer savedCustomer = dummyCustomers.get(0);
         Address savedAddress = savedCustomer.getAddress();
 
-        // modified some address attributes and update the istances
-        savedAddress.setStreetAddress("Largo Nomelargo 100");
-        savedAddress.setRegion("Nuova Regione");
+        // the address can be shared with other people, so the customer is given a new address with the changed
+        // attributes
+        Address newAddress = savedAddress.copy();
+        newAddress.setStreetAddress("Largo Nomelargo 100");
+        newAddress.setRegion("Nuova Regione");
+        savedCustomer.setAddress(addressService.intern(newAddress));
 
-        savedAddress = addressRepository.save(savedAddress);
+        customerRepository.save(savedCustomer);
 
         // clear the memory in order to get a new instance of the saved customer and address from the db
-        addressRepository.flush();
+        customerRepository.flush();
         entityManager.clear();
 
         // get the updated customer and address from the repository
@@ -362,6 +409,10 @@ class CustomerRepositoryTest {
 
         // check that the address attribute have been updated correctly
         assertAttributesEquals(savedCustomer, updatedCustomer, true);
+
+        // the old address is left unchanged
+        assertNotEquals(savedAddress.getId(), updatedAddress.getId());
+        assertTrue(addressRepository.existsById(savedAddress.getId()));
     }
 
     /**
@@ -3,6 +3,8 @@ package it.giorgiaauroraadorni.booktique.repository;
 import it.giorgiaauroraadorni.booktique.model.Address;
 import it.giorgiaauroraadorni.booktique.model.Employee;
 import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.service.AddressService;
+import it.giorgiaauroraadorni.booktique.service.PasswordService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
@@ -17,7 +19,10 @@ import javax.persistence.PersistenceContext;
 import javax.validation.ConstraintViolationException;
 import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static it.giorgiaauroraadorni.booktique.utility.Assertions.assertAttributesEquals;
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,9 +37,15 @@ class EmployeeRepositoryTest {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private PasswordService passwordService;
+
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private AddressService addressService;
+
     @Autowired
     private EntityFactory<Employee> employeeFactory;
 
@@ -75,8 +86,13 @@ class EmployeeRepositoryTest {
             assertNotNull(dummyEmployees.get(i).getUpdatedAt());
             assertNotNull(dummyEmployees.get(i).getId());
 
+            // check that the password has been stored hashed
+            var expectedEmployee = employeeFactory.createValidEntity(i);
+            assertTrue(passwordService.verify(expectedEmployee.getPassword(), dummyEmployees.get(i).getPassword()));
+            expectedEmployee.setPassword(dummyEmployees.get(i).getPassword());
+
             // check that all the attributes have been created correctly and contain the expected value
-            assertAttributesEquals(employeeFactory.createValidEntity(i), dummyEmployees.get(i), false);
+            assertAttributesEquals(expectedEmployee, dummyEmployees.get(i), false);
             assertAttributesEquals(dummyEmployees.get(0), dummyEmployees.get(i).getSupervisor(), true);
         }
     }
@@ -108,7 +124,7 @@ class EmployeeRepositoryTest {
         var duplicatedEmployee = employeeFactory.createValidEntity(2);
 
         assertThrows(DataIntegrityViolationException.class, () -> {
-            duplicatedEmployee.setFiscalCode("CGNNMO00T00L000E");
+            duplicatedEmployee.setFiscalCode("CGNNMO00T00E000U");
             employeeRepository.saveAndFlush(duplicatedEmployee);
         });
     }
@@ -253,14 +269,15 @@ class EmployeeRepositoryTest {
     public void testIllegalPasswordSize() {
         var invalidEmployee = employeeFactory.createValidEntity(2);
 
-        assertThrows(DataIntegrityViolationException.class, () -> {
+        // the limits are checked on the password in clear, before it is hashed
+        assertThrows(ConstraintViolationException.class, () -> {
             invalidEmployee.setPassword("-X2LPM4r`2.SJn)nGxW3Dt}4$C+z??\"d7np=fHWDTB`y2ye:w2>\\5Kf,}\\Ks?*NBq7FG./Qp" +
                     "(>uxFtfs~U(A!tLHSGk>a5bhue^2wq#~3K9mc2[P(J:]c&hez(Jm&F?j2");
             employeeRepository.saveAndFlush(invalidEmployee);
         }, "Password cannot be longer than 128 characters");
 
-        assertThrows(JpaSystemException.class, () -> {
-            invalidEmployee.setPassword("Qwerty12");
+        assertThrows(ConstraintViolationException.class, () -> {
+            invalidEmployee.setPassword("Qwerty1");
             employeeRepository.saveAndFlush(invalidEmployee);
         }, "Password must be at least 8 characters long");
     }
@@ -332,7 +349,7 @@ class EmployeeRepositoryTest {
         Employee savedEmployee = dummyEmployees.get(0);
 
         assertThrows(JpaSystemException.class, () -> {
-            savedEmployee.setFiscalCode("CGNNMO00A00L000E");
+            savedEmployee.setFiscalCode("CGNNMO00A00E000H");
             employeeRepository.saveAndFlush(savedEmployee);
         }, "It's not possible to updated an employee fiscal code!");
     }
@@ -346,14 +363,17 @@ class EmployeeRepositoryTest {
         Employee savedEmployee = dummyEmployees.get(0);
         Address savedAddress = savedEmployee.getAddress();
 
-        // modified some address attributes and update the istances
-        savedAddress.setStreetAddress("Largo Nomelargo 100");
-        savedAddress.setRegion("Nuova Regione");
+        // the address can be shared with other people, so the employee is given a new address with the changed
+        // attributes
+        Address newAddress = savedAddress.copy();
+        newAddress.setStreetAddress("Largo Nomelargo 100");
+        newAddress.setRegion("Nuova Regione");
+        savedEmployee.setAddress(addressService.intern(newAddress));
 
-        savedAddress = addressRepository.save(savedAddress);
+        employeeRepository.save(savedEmployee);
 
         // clear the memory in order to get a new instance of the saved employee and address from the db
-        addressRepository.flush();
+        employeeRepository.flush();
         entityManager.clear();
 
         // get the updated employee and address from the repository
@@ -366,6 +386,10 @@ class EmployeeRepositoryTest {
 
         // check that the address attribute have been updated correctly
         assertAttributesEquals(savedEmployee, updatedEmployee, true);
+
+        // the old address is left unchanged
+        assertNotEquals(savedAddress.getId(), updatedAddress.getId());
+        assertTrue(addressRepository.existsById(savedAddress.getId()));
     }
 
     /**
@@ -596,4 +620,60 @@ class EmployeeRepositoryTest {
 
         assertTrue(notFoundEmployees.isEmpty());
     }
+
+    // Build the hierarchy 0 <- 1 <- 2 <- 3 and 0 <- 4, where the employee 0 is his/her own supervisor
+    private List<Employee> createHierarchy() {
+        var employees = new ArrayList<>(dummyEmployees);
+        employees.addAll(employeeFactory.createValidEntities(5).subList(2, 5));
+        for (int i = 2; i < 4; i++) {
+            employees.get(i).setSupervisor(employees.get(i - 1));
+        }
+        employees.get(4).setSupervisor(employees.get(0));
+        employeeRepository.saveAll(employees);
+        employeeRepository.flush();
+        return employees;
+    }
+
+    private List<Long> ids(List<EmployeeNode> nodes) {
+        return nodes.stream().map(EmployeeNode::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindSubordinates() {
+        var employees = createHierarchy();
+
+        var subordinates = employeeRepository.findSubordinates(employees.get(0).getId());
+
+        assertEquals(Set.of(employees.get(1).getId(), employees.get(2).getId(), employees.get(3).getId(),
+                employees.get(4).getId()), Set.copyOf(ids(subordinates)));
+        assertEquals(4, employeeRepository.countSubordinates(employees.get(0).getId()));
+        assertEquals(List.of(employees.get(3).getId()), ids(employeeRepository.findSubordinates(
+                employees.get(2).getId())));
+        assertEquals(0, employeeRepository.countSubordinates(employees.get(3).getId()));
+    }
+
+    @Test
+    public void testFindManagementChain() {
+        var employees = createHierarchy();
+
+        // from the direct supervisor to the top
+        assertEquals(List.of(employees.get(2).getId(), employees.get(1).getId(), employees.get(0).getId()),
+                ids(employeeRepository.findManagementChain(employees.get(3).getId())));
+        assertTrue(employeeRepository.findManagementChain(employees.get(0).getId()).isEmpty());
+    }
+
+    @Test
+    public void testHierarchyWithCycle() {
+        var employees = createHierarchy();
+
+        // 0 <- 1 <- 2 <- 3 <- 0, the queries terminate and visit every employee once
+        employees.get(0).setSupervisor(employees.get(3));
+        employeeRepository.flush();
+
+        assertEquals(List.of(employees.get(2).getId(), employees.get(1).getId(), employees.get(0).getId()),
+                ids(employeeRepository.findManagementChain(employees.get(3).getId())));
+        assertEquals(4, employeeRepository.countSubordinates(employees.get(0).getId()));
+        assertFalse(ids(employeeRepository.findSubordinates(employees.get(0).getId()))
+                .contains(employees.get(0).getId()));
+    }
 }
@@ -170,7 +170,7 @@ class PaymentRepositoryTest {
 
         savedPayment.setPaymentDate(LocalDate.now().minusDays(1));
         savedPayment.setCVC("120");
-        savedPayment.setCardNumber("0000000000000001");
+        savedPayment.setCardNumber("0000000000000018");
         savedPayment.setCardholderName("Nuovonome Nuovocognome");
 
         savedPayment = paymentRepository.save(savedPayment);
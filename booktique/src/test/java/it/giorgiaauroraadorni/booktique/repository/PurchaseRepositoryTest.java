@@ -7,6 +7,8 @@ import org.opentest4j.AssertionFailedError;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
@@ -92,8 +94,17 @@ class PurchaseRepositoryTest {
             assertNotNull(dummyPurchases.get(i).getAmount());
             assertNotEquals(0, dummyPurchases.get(i).getAmount());
 
-            // check that all the attributes have been created correctly and contain the expected value
-            assertAttributesEquals(purchaseFactory.createValidEntity(i), dummyPurchases.get(i), false);
+            // check that the amount has been computed from the items
+            var item = itemFactory.createValidEntity(i);
+            var expectedAmount = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantityPerUnit()));
+            assertEquals(0, expectedAmount.compareTo(dummyPurchases.get(i).getAmount()));
+
+            // check that all the attributes have been created correctly and contain the expected value, the passwords
+            // of the customer and of the employee have been stored hashed
+            var expectedPurchase = purchaseFactory.createValidEntity(i);
+            expectedPurchase.getCustomer().setPassword(dummyPurchases.get(i).getCustomer().getPassword());
+            expectedPurchase.getEmployee().setPassword(dummyPurchases.get(i).getEmployee().getPassword());
+            assertAttributesEquals(expectedPurchase, dummyPurchases.get(i), false);
             assertAssociationEquals(Set.of(itemFactory.createValidEntity(i)), dummyPurchases.get(i).getItems(), false);
         }
     }
@@ -131,6 +142,24 @@ class PurchaseRepositoryTest {
         });
     }
 
+    /**
+     * Throws an exception when attempting to create a purchase with an item without quantity, that is left out of the
+     * amount until then.
+     */
+    @Test
+    public void testIllegalItemQuantity() {
+        Purchase invalidPurchase = purchaseFactory.createValidEntity(2);
+        var item = itemFactory.createValidEntity(2);
+        item.setQuantityPerUnit(null);
+
+        invalidPurchase.setItems(Set.of(item));
+        assertEquals(0, BigDecimal.ZERO.compareTo(invalidPurchase.getAmount()));
+
+        assertThrows(DataIntegrityViolationException.class, () -> {
+            purchaseRepository.saveAndFlush(invalidPurchase);
+        });
+    }
+
     @Test
     public void testSave() {
         var purchase = purchaseFactory.createValidEntity(3);
@@ -260,7 +289,7 @@ class PurchaseRepositoryTest {
         savedCustomer.setDateOfBirth(LocalDate.now().minusYears(20));
         savedCustomer.setEmail("NuovoNomeNuovoCognome@customer-mail.com");
         savedCustomer.setMobilePhone("3331111100");
-        savedCustomer.setVatNumber("IT10000000011");
+        savedCustomer.setVatNumber("IT10000000017");
 
         savedCustomer = customerRepository.save(savedCustomer);
 
@@ -323,7 +352,7 @@ class PurchaseRepositoryTest {
 
         savedPayment.setPaymentDate(LocalDate.now().minusDays(1));
         savedPayment.setCVC("120");
-        savedPayment.setCardNumber("0000000000000001");
+        savedPayment.setCardNumber("0000000000000018");
         savedPayment.setCardholderName("Nuovonome Nuovocognome");
 
         savedPayment = paymentRepository.save(savedPayment);
@@ -374,6 +403,66 @@ class PurchaseRepositoryTest {
         assertAssociationEquals(savedItems, updatedItems, true);
     }
 
+    /**
+     * Check that the amount of a persisted purchase is updated by the database when the price or the quantity of its
+     * items change.
+     */
+    @Test
+    public void testUpdatePurchaseItemsAmount() {
+        Purchase savedPurchase = dummyPurchases.get(0);
+        var expectedAmount = BigDecimal.ZERO;
+
+        for (Item item: savedPurchase.getItems()) {
+            item.setQuantityPerUnit(3);
+            item.setUnitPrice(BigDecimal.valueOf(12.50));
+            itemRepository.save(item);
+            expectedAmount = expectedAmount.add(BigDecimal.valueOf(37.50));
+        }
+
+        purchaseRepository.flush();
+        entityManager.clear();
+
+        var updatedPurchase = purchaseRepository.findById(savedPurchase.getId()).get();
+
+        assertEquals(0, expectedAmount.compareTo(updatedPurchase.getAmount()));
+    }
+
+    /**
+     * Check that a statement changing the items of several purchases updates the amount of all of them.
+     */
+    @Test
+    public void testBulkUpdatePurchaseItemsAmount() {
+        purchaseRepository.flush();
+        entityManager.createNativeQuery("update items set unit_price = 10.00, quantity_per_unit = 2").executeUpdate();
+        entityManager.clear();
+
+        for (Purchase purchase: dummyPurchases) {
+            var updatedPurchase = purchaseRepository.findById(purchase.getId()).get();
+            var expectedAmount = BigDecimal.valueOf(20L * updatedPurchase.getItems().size());
+            assertEquals(0, expectedAmount.compareTo(updatedPurchase.getAmount()));
+        }
+    }
+
+    /**
+     * Check that the amount of a persisted purchase is updated when an item is added to it.
+     */
+    @Test
+    public void testAddPurchaseItemAmount() {
+        Purchase savedPurchase = dummyPurchases.get(0);
+        var previousAmount = savedPurchase.getAmount();
+
+        var item = itemRepository.save(itemFactory.createValidEntity(2));
+        savedPurchase.getItems().add(item);
+        purchaseRepository.saveAndFlush(savedPurchase);
+        entityManager.clear();
+
+        var updatedPurchase = purchaseRepository.findById(savedPurchase.getId()).get();
+        var expectedAmount = previousAmount.add(item.getUnitPrice().multiply(
+                BigDecimal.valueOf(item.getQuantityPerUnit())));
+
+        assertEquals(0, expectedAmount.compareTo(updatedPurchase.getAmount()));
+    }
+
     /**
      * Delete an entry and check if the purchase was removed correctly.
      */
@@ -551,4 +640,111 @@ class PurchaseRepositoryTest {
 
         assertTrue(notFoundPurchases.isEmpty());
     }
+
+    @Test
+    public void testFindByCustomerSortedByAmount() {
+        // add a second purchase to the customer with a greater amount
+        var customer = dummyPurchases.get(0).getCustomer();
+        var otherPurchase = purchaseFactory.createValidEntity(2);
+        otherPurchase.setCustomer(customer);
+        for (Item i: otherPurchase.getItems()) {
+            i.setUnitPrice(dummyPurchases.get(0).getAmount().add(BigDecimal.ONE));
+        }
+        otherPurchase.setItems(otherPurchase.getItems());
+        otherPurchase = purchaseRepository.saveAndFlush(otherPurchase);
+
+        // check the correct reading of the purchases via findByCustomer sorted by amount
+        var pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "amount"));
+        var foundPurchases = purchaseRepository.findByCustomer(customer, pageable);
+
+        assertEquals(2, foundPurchases.getTotalElements());
+        assertEquals(otherPurchase, foundPurchases.getContent().get(0));
+        assertEquals(dummyPurchases.get(0), foundPurchases.getContent().get(1));
+    }
+
+    @Test
+    public void testFindByAmountBetween() {
+        // check the correct reading of all the purchases via findByAmountBetween
+        var amount = dummyPurchases.get(0).getAmount();
+        var foundPurchases = purchaseRepository.findByAmountBetween(amount, amount);
+
+        assertTrue(foundPurchases.contains(dummyPurchases.get(0)));
+        for (Purchase p: foundPurchases) {
+            assertEquals(0, amount.compareTo(p.getAmount()));
+        }
+
+        // try to search for purchases by an amount range not containing any purchase
+        var notFoundPurchases = purchaseRepository.findByAmountBetween(BigDecimal.valueOf(-2), BigDecimal.valueOf(-1));
+
+        assertTrue(notFoundPurchases.isEmpty());
+    }
+
+    @Test
+    public void testFindByStatus() {
+        // the dummy purchases are in production, the first one is moved to processing
+        dummyPurchases.get(0).setStatus(Purchase.Status.PROCESSING);
+        purchaseRepository.flush();
+
+        assertEquals(List.of(dummyPurchases.get(0)), purchaseRepository.findByStatus(Purchase.Status.PROCESSING));
+        assertEquals(1, purchaseRepository.countByStatus(Purchase.Status.IN_PRODUCTION));
+        assertEquals(0, purchaseRepository.countByStatus(Purchase.Status.COMPLETED));
+    }
+
+    @Test
+    public void testFindByStatusAndOrderDateBetween() {
+        var purchase = dummyPurchases.get(1);
+        var foundPurchases = purchaseRepository.findByStatusAndOrderDateBetween(Purchase.Status.IN_PRODUCTION,
+                purchase.getOrderDate(), purchase.getOrderDate(), PageRequest.of(0, 10));
+
+        assertEquals(List.of(purchase), foundPurchases.getContent());
+
+        // try to search for purchases in a status not having any purchase
+        assertTrue(purchaseRepository.findByStatusAndOrderDateBetween(Purchase.Status.SHIPPED,
+                purchase.getOrderDate(), purchase.getOrderDate(), PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    public void testFindWorkQueue() {
+        // the queue contains the active purchases from the oldest order
+        var queue = purchaseRepository.findByStatusInOrderByOrderDateAscIdAsc(Purchase.Status.ACTIVE,
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(dummyPurchases.get(1), dummyPurchases.get(0)), queue.getContent());
+
+        dummyPurchases.get(1).setStatus(Purchase.Status.COMPLETED);
+        purchaseRepository.flush();
+        queue = purchaseRepository.findByStatusInOrderByOrderDateAscIdAsc(Purchase.Status.ACTIVE,
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(dummyPurchases.get(0)), queue.getContent());
+    }
+
+    @Test
+    public void testFindHistory() {
+        // both purchases belong to the first customer
+        var customer = dummyPurchases.get(0).getCustomer();
+        dummyPurchases.get(1).setCustomer(customer);
+        purchaseRepository.flush();
+        entityManager.clear();
+
+        // the history starts from the most recent order
+        var ids = purchaseRepository.findHistoryIdsByCustomerId(customer.getId(), PageRequest.of(0, 1));
+
+        assertEquals(List.of(dummyPurchases.get(0).getId()), ids.getContent());
+        assertEquals(2, ids.getTotalElements());
+
+        ids = purchaseRepository.findHistoryIdsByCustomerId(customer.getId(), PageRequest.of(1, 1));
+        var rows = purchaseRepository.findHistoryRowsByIdIn(ids.getContent());
+
+        // a row for every item, with the title of its book
+        var purchase = dummyPurchases.get(1);
+        assertEquals(purchase.getItems().size(), rows.size());
+        for (PurchaseHistoryRow row: rows) {
+            var item = itemRepository.findById(row.getItemId()).get();
+            assertEquals(purchase.getId(), row.getPurchaseId());
+            assertEquals(purchase.getStatus(), row.getStatus());
+            assertEquals(item.getBookItem().getTitle(), row.getTitle());
+            assertEquals(item.getQuantityPerUnit(), (int) row.getQuantity());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package it.giorgiaauroraadorni.booktique.repository;
 import it.giorgiaauroraadorni.booktique.model.Address;
 import it.giorgiaauroraadorni.booktique.model.EntityFactory;
 import it.giorgiaauroraadorni.booktique.model.Supplier;
+import it.giorgiaauroraadorni.booktique.service.AddressService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
@@ -32,6 +33,9 @@ class SupplierRepositoryTest {
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private AddressService addressService;
+
     @Autowired
     private EntityFactory<Supplier> supplierFactory;
 
@@ -173,10 +177,14 @@ class SupplierRepositoryTest {
         Supplier savedSupplier = dummySuppliers.get(0);
         Address savedAddress = savedSupplier.getAddress();
 
-        savedAddress.setStreetAddress("Largo Nomelargo 100");
-        savedAddress.setRegion("Nuova Regione");
+        // the address can be shared with other people, so the supplier is given a new address with the changed
+        // attributes
+        Address newAddress = savedAddress.copy();
+        newAddress.setStreetAddress("Largo Nomelargo 100");
+        newAddress.setRegion("Nuova Regione");
+        savedSupplier.setAddress(addressService.intern(newAddress));
 
-        savedAddress = addressRepository.save(savedAddress);
+        supplierRepository.save(savedSupplier);
 
         // clear the memory in order to get a new instance of the saved supplier from the db
         supplierRepository.flush();
@@ -189,6 +197,10 @@ class SupplierRepositoryTest {
         assertTrue(supplierRepository.existsById(updatedSupplier.getId()));
         assertTrue(addressRepository.existsById(updatedAddress.getId()));
         assertAttributesEquals(savedSupplier, updatedSupplier, true);
+
+        // the old address is left unchanged
+        assertNotEquals(savedAddress.getId(), updatedAddress.getId());
+        assertTrue(addressRepository.existsById(savedAddress.getId()));
     }
 
     /**
@@ -0,0 +1,112 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Address;
+import it.giorgiaauroraadorni.booktique.model.Customer;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.repository.AddressRepository;
+import it.giorgiaauroraadorni.booktique.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AddressServiceTest {
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityFactory<Address> addressFactory;
+
+    @Autowired
+    private EntityFactory<Customer> customerFactory;
+
+    // The same address as the one created with the given index, written in another way
+    private Address respelled(int idx) {
+        var address = addressFactory.createValidEntity(idx);
+        address.setStreetAddress("  VIA NOMEVIA, " + (99 + idx));
+        address.setCity("Citta");
+        address.setBuilding("appartamento 2 - terzo piano");
+        return address;
+    }
+
+    @Test
+    public void testCanonicalKey() {
+        var address = addressFactory.createValidEntity(0);
+
+        assertEquals(64, address.computeCanonicalKey().length());
+        assertEquals(address.computeCanonicalKey(), respelled(0).computeCanonicalKey());
+        assertNotEquals(address.computeCanonicalKey(), addressFactory.createValidEntity(1).computeCanonicalKey());
+
+        // the attributes are not merged
+        var other = addressFactory.createValidEntity(0);
+        other.setCity(address.getCity() + " " + address.getProvince());
+        other.setProvince("");
+        assertNotEquals(address.computeCanonicalKey(), other.computeCanonicalKey());
+    }
+
+    /**
+     * Check that a bulk import inserts only once the addresses shared by the customers.
+     */
+    @Test
+    @Transactional
+    public void testInternInTransaction() {
+        var addresses = addressRepository.count();
+        var customers = customerFactory.createValidEntities(3);
+        customers.get(1).setAddress(respelled(0));
+
+        customers = customerRepository.saveAll(customers);
+        customerRepository.flush();
+
+        assertEquals(addresses + 2, addressRepository.count());
+        assertEquals(customers.get(0).getAddress().getId(), customers.get(1).getAddress().getId());
+        assertNotEquals(customers.get(0).getAddress().getId(), customers.get(2).getAddress().getId());
+    }
+
+    @Test
+    @Transactional
+    public void testInternSavedAddress() {
+        var saved = addressRepository.saveAndFlush(addressFactory.createValidEntity(5));
+        var customer = customerFactory.createValidEntity(5);
+
+        customer = customerRepository.saveAndFlush(customer);
+
+        assertEquals(saved.getId(), customer.getAddress().getId());
+    }
+
+    /**
+     * Check that the committed addresses are interned, and that they are no more once deleted.
+     */
+    @Test
+    public void testInternCommittedAddress() {
+        var customers = List.of(customerFactory.createValidEntity(6), customerFactory.createValidEntity(7));
+        customers.get(1).setAddress(respelled(6));
+        customerRepository.save(customers.get(0));
+        var addressId = customers.get(0).getAddress().getId();
+        try {
+            customerRepository.save(customers.get(1));
+
+            assertEquals(addressId, customers.get(1).getAddress().getId());
+        } finally {
+            for (Customer c: customers) {
+                if (c.getId() != null) {
+                    customerRepository.deleteById(c.getId());
+                }
+            }
+            addressRepository.deleteById(addressId);
+        }
+
+        var address = respelled(6);
+        assertSame(address, addressService.intern(address));
+    }
+}
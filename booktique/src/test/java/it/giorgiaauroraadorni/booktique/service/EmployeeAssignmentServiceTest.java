@@ -0,0 +1,136 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.repository.AddressRepository;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the assignment of the purchases. Only the committed employees are tracked, so the employees are committed
+ * and deleted at the end of every test, and the assignments are restricted to them.
+ */
+@SpringBootTest
+class EmployeeAssignmentServiceTest {
+    @Autowired
+    private EmployeeAssignmentService employeeAssignmentService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private EntityFactory<Employee> employeeFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Employee> employees;
+
+    private Set<Long> ids;
+
+    @BeforeEach
+    void createEmployees() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        employees = employeeRepository.saveAll(employeeFactory.createValidEntities(3));
+        ids = employees.stream().map(Employee::getId).collect(Collectors.toSet());
+    }
+
+    @AfterEach
+    void deleteEmployees() {
+        transactionTemplate.execute((status) -> {
+            employeeRepository.deleteAll(employeeRepository.findAllById(ids));
+            return null;
+        });
+        for (Employee e: employees) {
+            addressRepository.deleteById(e.getAddress().getId());
+        }
+        for (Long id: ids) {
+            assertEquals(Optional.empty(), employeeAssignmentService.getOpenOrders(id));
+        }
+    }
+
+    private Long id(int employee) {
+        return employees.get(employee).getId();
+    }
+
+    @Test
+    public void testAssignLeastLoaded() {
+        for (Long id: ids) {
+            assertEquals(Optional.of(0L), employeeAssignmentService.getOpenOrders(id));
+        }
+        employeeAssignmentService.opened(id(0));
+        employeeAssignmentService.opened(id(0));
+        employeeAssignmentService.opened(id(2));
+
+        // the ties are broken by id
+        assertEquals(Optional.of(id(1)), employeeAssignmentService.assign(ids::contains));
+        assertEquals(Optional.of(id(1)), employeeAssignmentService.assign(ids::contains));
+        assertEquals(Optional.of(id(2)), employeeAssignmentService.assign(ids::contains));
+        assertEquals(Optional.of(2L), employeeAssignmentService.getOpenOrders(id(1)));
+        assertEquals(Optional.of(2L), employeeAssignmentService.getOpenOrders(id(2)));
+
+        employeeAssignmentService.closed(id(0));
+        employeeAssignmentService.closed(id(0));
+        assertEquals(Optional.of(id(0)), employeeAssignmentService.assign(ids::contains));
+
+        // only the eligible employees are assigned
+        assertEquals(Optional.of(id(2)), employeeAssignmentService.assign(id(2)::equals));
+        assertEquals(Optional.empty(), employeeAssignmentService.assign((id) -> false));
+    }
+
+    @Test
+    public void testRolledBackAssignmentIsDiscounted() {
+        transactionTemplate.execute((status) -> {
+            assertEquals(Optional.of(id(0)), employeeAssignmentService.assign(ids::contains));
+            employeeAssignmentService.opened(id(1));
+            employeeAssignmentService.closed(id(2));
+            assertEquals(Optional.of(1L), employeeAssignmentService.getOpenOrders(id(0)));
+            assertEquals(Optional.of(1L), employeeAssignmentService.getOpenOrders(id(1)));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        for (Long id: ids) {
+            assertEquals(Optional.of(0L), employeeAssignmentService.getOpenOrders(id));
+        }
+    }
+
+    @Test
+    public void testConcurrentAssignments() throws InterruptedException {
+        // every thread assigns the same number of purchases, which are spread evenly over the employees
+        var threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 300; j++) {
+                    employeeAssignmentService.assign(ids::contains);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        for (Long id: ids) {
+            assertEquals(Optional.of(400L), employeeAssignmentService.getOpenOrders(id));
+        }
+    }
+}
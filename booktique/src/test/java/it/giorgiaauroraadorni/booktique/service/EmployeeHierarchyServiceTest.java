@@ -0,0 +1,131 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Employee;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.repository.AddressRepository;
+import it.giorgiaauroraadorni.booktique.repository.EmployeeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the employee hierarchy. The hierarchy in memory contains only the committed employees, so the employees
+ * are committed and deleted at the end of every test.
+ */
+@SpringBootTest
+class EmployeeHierarchyServiceTest {
+    @Autowired
+    private EmployeeHierarchyService employeeHierarchyService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private EntityFactory<Employee> employeeFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Employee> employees;
+
+    @BeforeEach
+    void createHierarchy() {
+        // 0 <- 1 <- 2 <- 3 and 0 <- 4, where the employee 0 is his/her own supervisor
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        employees = employeeFactory.createValidEntities(5);
+        for (int i = 1; i < 4; i++) {
+            employees.get(i).setSupervisor(employees.get(i - 1));
+        }
+        employees.get(4).setSupervisor(employees.get(0));
+        employees = employeeRepository.saveAll(employees);
+    }
+
+    @AfterEach
+    void deleteHierarchy() {
+        transactionTemplate.execute((status) -> {
+            // every employee supervises himself/herself, so that they can be deleted in any order
+            var saved = employeeRepository.findAllById(ids(employees));
+            for (Employee e: saved) {
+                e.setSupervisor(e);
+            }
+            employeeRepository.flush();
+            employeeRepository.deleteAll(saved);
+            return null;
+        });
+        for (Employee e: employees) {
+            addressRepository.deleteById(e.getAddress().getId());
+        }
+    }
+
+    private List<Long> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+
+    private void changeSupervisor(int employee, int supervisor) {
+        var saved = employeeRepository.findById(employees.get(employee).getId()).get();
+        saved.setSupervisor(employeeRepository.getOne(employees.get(supervisor).getId()));
+    }
+
+    @Test
+    public void testHierarchyQueries() {
+        assertEquals(Set.copyOf(ids(employees.subList(1, 5))),
+                Set.copyOf(ids(employeeHierarchyService.getSubordinates(employees.get(0).getId()))));
+        assertEquals(4, employeeHierarchyService.countSubordinates(employees.get(0).getId()));
+        assertEquals(List.of(employees.get(2).getId(), employees.get(1).getId(), employees.get(0).getId()),
+                ids(employeeHierarchyService.getManagementChain(employees.get(3).getId())));
+        assertEquals(3, employeeHierarchyService.getDepth(employees.get(3).getId()));
+        assertEquals(0, employeeHierarchyService.getDepth(employees.get(0).getId()));
+    }
+
+    @Test
+    public void testIsManagerOf() {
+        assertTrue(employeeHierarchyService.isManagerOf(employees.get(0).getId(), employees.get(3).getId()));
+        assertTrue(employeeHierarchyService.isManagerOf(employees.get(2).getId(), employees.get(3).getId()));
+        assertFalse(employeeHierarchyService.isManagerOf(employees.get(3).getId(), employees.get(0).getId()));
+        assertFalse(employeeHierarchyService.isManagerOf(employees.get(4).getId(), employees.get(3).getId()));
+        // nobody manages himself/herself, not even the top of the hierarchy
+        assertFalse(employeeHierarchyService.isManagerOf(employees.get(0).getId(), employees.get(0).getId()));
+    }
+
+    /**
+     * Check that the hierarchy in memory is refreshed when a change commits, and only then.
+     */
+    @Test
+    public void testHierarchyRefreshedOnCommit() {
+        assertFalse(employeeHierarchyService.isManagerOf(employees.get(4).getId(), employees.get(3).getId()));
+
+        transactionTemplate.execute((status) -> {
+            changeSupervisor(3, 4);
+            employeeRepository.flush();
+            // the change is not committed yet
+            assertFalse(employeeHierarchyService.isManagerOf(employees.get(4).getId(), employees.get(3).getId()));
+            return null;
+        });
+
+        assertTrue(employeeHierarchyService.isManagerOf(employees.get(4).getId(), employees.get(3).getId()));
+        assertFalse(employeeHierarchyService.isManagerOf(employees.get(1).getId(), employees.get(3).getId()));
+
+        transactionTemplate.execute((status) -> {
+            changeSupervisor(3, 2);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertTrue(employeeHierarchyService.isManagerOf(employees.get(4).getId(), employees.get(3).getId()));
+    }
+}
@@ -0,0 +1,130 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.model.Address;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerServiceTest {
+    private GazetteerService gazetteerService;
+
+    private static GazetteerService createGazetteer(boolean strict) {
+        return new GazetteerService(new BufferedReader(new StringReader(
+                "# comment\n" +
+                "postal_code,city,province,region\n" +
+                "40033,Casalecchio di Reno,BO,Emilia-Romagna\n" +
+                "20121,Milano,MI,Lombardia\n" +
+                "40060,Dozza,BO,Emilia-Romagna\n" +
+                "40060,Toscanella,BO,Emilia-Romagna\n" +
+                "11100,Aosta,AO,Valle d'Aosta\n")), strict);
+    }
+
+    @BeforeEach
+    void createGazetteer() {
+        gazetteerService = createGazetteer(true);
+    }
+
+    private static Address address(String postalCode, String city, String province, String region) {
+        var address = new Address();
+        address.setStreetAddress("Via Nomevia 1");
+        address.setPostalCode(postalCode);
+        address.setCity(city);
+        address.setProvince(province);
+        address.setRegion(region);
+        address.setCountry("Italia");
+        return address;
+    }
+
+    @Test
+    public void testFindCities() {
+        assertEquals(List.of("Milano"), gazetteerService.findCities("20121"));
+        assertEquals(List.of("Dozza", "Toscanella"), gazetteerService.findCities("40060"));
+        assertEquals(List.of(), gazetteerService.findCities("20122"));
+        assertEquals(List.of(), gazetteerService.findCities("abc"));
+    }
+
+    @Test
+    public void testComplete() {
+        var address = address("20121", null, null, null);
+        gazetteerService.complete(address);
+        assertEquals("Milano", address.getCity());
+        assertEquals("MI", address.getProvince());
+        assertEquals("Lombardia", address.getRegion());
+
+        // the names are compared without accents, punctuation and case, and replaced by the ones of the gazetteer
+        address = address("11100", "AOSTA", "ao", "Valle d’Aosta");
+        gazetteerService.complete(address);
+        assertEquals("Aosta", address.getCity());
+        assertEquals("AO", address.getProvince());
+        assertEquals("Valle d'Aosta", address.getRegion());
+
+        // the city of a postal code shared by more cities is required
+        address = address("40060", "toscanella", null, null);
+        gazetteerService.complete(address);
+        assertEquals("Toscanella", address.getCity());
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address("40060", " ", null, null)));
+    }
+
+    @Test
+    public void testIllegalAddress() {
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address("20122", "Milano", null, null)));
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address(null, "Milano", null, null)));
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address("20121", "Roma", null, null)));
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address("20121", "Milano", "RM", null)));
+        assertThrows(InvalidRequestException.class,
+                () -> gazetteerService.complete(address("20121", "Milano", "MI", "Lazio")));
+
+        // the addresses outside Italy are not checked
+        var address = address("99999", "Città", "CT", null);
+        address.setCountry("Stato");
+        gazetteerService.complete(address);
+        assertEquals("Città", address.getCity());
+    }
+
+    @Test
+    public void testNotStrict() {
+        gazetteerService = createGazetteer(false);
+
+        // the addresses that do not match the gazetteer are kept as they are
+        var address = address("20122", "Milano", null, null);
+        gazetteerService.complete(address);
+        assertNull(address.getProvince());
+        address = address("20121", "Sesto San Giovanni", "MI", null);
+        gazetteerService.complete(address);
+        assertEquals("Sesto San Giovanni", address.getCity());
+        assertNull(address.getRegion());
+        address = address("20121", "Milano", "RM", null);
+        gazetteerService.complete(address);
+        assertEquals("RM", address.getProvince());
+
+        // the ones that match are still completed
+        address = address("20121", null, null, null);
+        gazetteerService.complete(address);
+        assertEquals("Milano", address.getCity());
+        assertEquals("Lombardia", address.getRegion());
+    }
+
+    @Test
+    public void testBundledGazetteer() {
+        gazetteerService = new GazetteerService(new ClassPathResource("gazetteer/postal-codes-it.csv"), false);
+
+        assertEquals(List.of("Roma"), gazetteerService.findCities("00118"));
+        assertEquals(List.of("Cagliari"), gazetteerService.findCities("09121"));
+        var address = address("50121", "Firenze", null, null);
+        gazetteerService.complete(address);
+        assertEquals("FI", address.getProvince());
+        assertEquals("Toscana", address.getRegion());
+    }
+}
@@ -0,0 +1,170 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Author;
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.JournalEntry;
+import it.giorgiaauroraadorni.booktique.repository.AuthorRepository;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.JournalEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the change journal, with at most 3 entries waiting to be written. The changes are committed, so the book
+ * and its journal are deleted at the end of every test, and the journal is written only when the tests flush it.
+ */
+@SpringBootTest(properties = "booktique.journal.capacity=3")
+class JournalServiceTest {
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Book book;
+
+    @BeforeEach
+    void createTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void deleteBook() {
+        RequestContextHolder.resetRequestAttributes();
+        if (book != null) {
+            bookRepository.deleteById(book.getId());
+            for (Author author: book.getAuthors()) {
+                authorRepository.deleteById(author.getId());
+            }
+        }
+        journalService.flush();
+        journalEntryRepository.deleteAll();
+    }
+
+    private void updateTitle(String title) {
+        transactionTemplate.execute((status) -> {
+            bookRepository.findById(book.getId()).get().setTitle(title);
+            return null;
+        });
+    }
+
+    private List<JournalEntry> history() {
+        return journalService.getHistory(Book.class, book.getId(), Pageable.unpaged()).getContent();
+    }
+
+    /**
+     * Check that the attributes changed are recorded with their old and new value, from the most recent change.
+     */
+    @Test
+    public void testChangesAreJournaled() {
+        book = bookRepository.save(bookFactory.createValidEntity(0));
+        updateTitle("Titolo 1");
+
+        // the entries are written in the background
+        assertEquals(2, journalService.getPendingEntries());
+        assertTrue(history().isEmpty());
+        assertEquals(2, journalService.flush());
+
+        var history = history();
+        assertEquals(2, history.size());
+        var update = history.get(0);
+        assertEquals(JournalEntry.Operation.UPDATED, update.getOperation());
+        assertEquals("{\"title\":[\"Titolo\",\"Titolo 1\"]}", update.getChanges());
+        assertEquals(1L, (long) update.getEntityVersion());
+        assertNull(update.getActorAccount());
+        assertNull(update.getActorId());
+
+        var creation = history.get(1);
+        assertEquals(JournalEntry.Operation.CREATED, creation.getOperation());
+        assertTrue(creation.getChanges().contains("\"title\":[null,\"Titolo\"]"));
+        assertFalse(creation.getChanges().contains("updatedAt"));
+        assertEquals(0L, (long) creation.getEntityVersion());
+        assertFalse(creation.getChangedAt().after(update.getChangedAt()));
+    }
+
+    /**
+     * Check that the author of a change is taken from the access token of the request.
+     */
+    @Test
+    public void testActorIsJournaled() {
+        book = bookRepository.save(bookFactory.createValidEntity(1));
+        var request = new MockHttpServletRequest();
+        var token = tokenService.issue(LoginService.Account.EMPLOYEE, 7);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token.getValue());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        updateTitle("Titolo 2");
+        journalService.flush();
+
+        var update = history().get(0);
+        assertEquals("EMPLOYEE", update.getActorAccount());
+        assertEquals(7L, (long) update.getActorId());
+    }
+
+    /**
+     * Check that the changes rolled back are not recorded.
+     */
+    @Test
+    public void testRolledBackChangeIsNotJournaled() {
+        transactionTemplate.execute((status) -> {
+            bookRepository.saveAndFlush(bookFactory.createValidEntity(2));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(0, journalService.getPendingEntries());
+        assertEquals(0, journalService.flush());
+    }
+
+    /**
+     * Check that the entries beyond the capacity of the queue are dropped and counted.
+     */
+    @Test
+    public void testFullQueueDropsEntries() {
+        var dropped = journalService.getDroppedEntries();
+        for (int i = 0; i < 4; i++) {
+            var entry = new JournalEntry();
+            entry.setEntityType("Book");
+            entry.setEntityId(-1L);
+            entry.setOperation(JournalEntry.Operation.UPDATED);
+            entry.setChanges("{}");
+            entry.setChangedAt(new Date());
+            assertEquals(i < 3, journalService.append(entry));
+        }
+        assertEquals(dropped + 1, journalService.getDroppedEntries());
+        assertEquals(3, journalService.flush());
+        assertEquals(3, journalService.getHistory(Book.class, -1L, Pageable.unpaged()).getTotalElements());
+    }
+}
@@ -0,0 +1,165 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.ConcurrentUpdateException;
+import it.giorgiaauroraadorni.booktique.model.*;
+import it.giorgiaauroraadorni.booktique.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests of the optimistic locking. The updates run in their own transactions, so the entities are committed
+ * and deleted at the end of every test.
+ */
+@SpringBootTest
+class OptimisticRetryTest {
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetryTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private EntityFactory<Supplier> supplierFactory;
+
+    private Stock stock;
+
+    @BeforeEach
+    void createDummyStock() {
+        // the row updated concurrently by all the threads, with the entities it references
+        stock = new Stock();
+        stock.setBook(bookRepository.save(bookFactory.createValidEntity(0)));
+        stock.setSupplier(supplierRepository.save(supplierFactory.createValidEntity(0)));
+        stock.setQuantity(0L);
+        stock = stockRepository.save(stock);
+    }
+
+    @AfterEach
+    void deleteDummyStock() {
+        stockRepository.deleteById(stock.getId());
+        bookRepository.deleteById(stock.getBook().getId());
+        for (Author author: stock.getBook().getAuthors()) {
+            authorRepository.deleteById(author.getId());
+        }
+        supplierRepository.deleteById(stock.getSupplier().getId());
+        addressRepository.deleteById(stock.getSupplier().getAddress().getId());
+    }
+
+    // Read the stock, increment its quantity and write it back, a read-modify-write that loses updates without locking
+    private void incrementQuantity() {
+        var current = stockRepository.findById(stock.getId()).get();
+        current.setQuantity(current.getQuantity() + 1);
+    }
+
+    private List<Future<Integer>> runConcurrently(Runnable update) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        var start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    var failed = 0;
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        try {
+                            update.run();
+                        } catch (ConcurrentUpdateException e) {
+                            failed++;
+                        }
+                    }
+                    return failed;
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Check that no update is lost when all the threads increment the same row, and report the conflict rate.
+     */
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        var executions = optimisticRetry.getExecutions();
+        var conflicts = optimisticRetry.getConflicts();
+
+        var results = runConcurrently(() -> optimisticRetry.execute(() -> {
+            incrementQuantity();
+            return null;
+        }));
+
+        var failed = 0;
+        for (Future<Integer> result: results) {
+            failed += result.get();
+        }
+        var updates = THREADS * UPDATES_PER_THREAD;
+        var conflictRate = (double) (optimisticRetry.getConflicts() - conflicts) / updates;
+        logger.info("{} concurrent updates, {} failed after the retries, {} conflicts per update", updates, failed,
+                conflictRate);
+
+        // every update is either applied or reported as failed, never silently lost
+        assertEquals(updates, optimisticRetry.getExecutions() - executions);
+        assertEquals(updates - failed, (long) stockRepository.findById(stock.getId()).get().getQuantity());
+    }
+
+    /**
+     * Check that a stale entity is never written over a newer version.
+     */
+    @Test
+    public void testStaleUpdateIsRejected() {
+        var stale = stockRepository.findById(stock.getId()).get();
+        optimisticRetry.execute(() -> {
+            incrementQuantity();
+            return null;
+        });
+
+        stale.setQuantity(100L);
+        var conflicts = optimisticRetry.getConflicts();
+        var failures = optimisticRetry.getFailures();
+        // the detached entity keeps its version, so every attempt conflicts
+        assertThrows(ConcurrentUpdateException.class, () -> optimisticRetry.execute(() -> stockRepository.save(stale)));
+
+        assertTrue(optimisticRetry.getConflicts() > conflicts);
+        assertEquals(failures + 1, optimisticRetry.getFailures());
+        assertEquals(1, (long) stockRepository.findById(stock.getId()).get().getQuantity());
+    }
+}
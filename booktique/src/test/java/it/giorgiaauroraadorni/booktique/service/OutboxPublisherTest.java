@@ -0,0 +1,155 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.Author;
+import it.giorgiaauroraadorni.booktique.model.Book;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import it.giorgiaauroraadorni.booktique.repository.AuthorRepository;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the outbox events. The changes are committed, so the book is deleted at the end of every test, and the
+ * events are published only when the tests run the publisher.
+ */
+@SpringBootTest
+class OutboxPublisherTest {
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Book book;
+
+    @BeforeEach
+    void createTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void deleteBook() {
+        if (book == null || !bookRepository.existsById(book.getId())) {
+            return;
+        }
+        bookRepository.deleteById(book.getId());
+        for (Author author: book.getAuthors()) {
+            authorRepository.deleteById(author.getId());
+        }
+        awaitPublished((received) -> received.get(received.size() - 1).getEventType() == OutboxEvent.Type.DELETED);
+        outboxEventRepository.deleteAll(outboxEventRepository.findByAggregateTypeAndAggregateIdOrderByIdAsc("Book",
+                book.getId()));
+    }
+
+    private void updateTitle(String title) {
+        transactionTemplate.execute((status) -> {
+            bookRepository.findById(book.getId()).get().setTitle(title);
+            return null;
+        });
+    }
+
+    // Publish the pending events until the events received for the book satisfy the condition, then return them
+    private List<OutboxEvent> awaitPublished(Predicate<List<OutboxEvent>> condition) {
+        for (int i = 0; i < 100; i++) {
+            outboxPublisher.publishPending();
+            var received = RecordingOutboxSink.received("Book", book.getId());
+            if (!received.isEmpty() && condition.test(received)) {
+                return received;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        fail("The events of the book " + book.getId() + " have not been published");
+        return null;
+    }
+
+    /**
+     * Check that the changes of an entity are published in the order they were committed.
+     */
+    @Test
+    public void testEventsArePublishedInOrder() {
+        book = bookRepository.save(bookFactory.createValidEntity(0));
+        updateTitle("Titolo 1");
+        updateTitle("Titolo 2");
+
+        var events = awaitPublished((received) -> received.size() >= 3);
+
+        assertEquals(List.of(OutboxEvent.Type.CREATED, OutboxEvent.Type.UPDATED, OutboxEvent.Type.UPDATED),
+                events.stream().map(OutboxEvent::getEventType).collect(Collectors.toList()));
+        assertTrue(events.get(0).getPayload().contains("\"title\":\"Titolo\""));
+        assertTrue(events.get(1).getPayload().contains("\"title\":\"Titolo 1\""));
+        assertTrue(events.get(2).getPayload().contains("\"title\":\"Titolo 2\""));
+        assertTrue(events.get(0).getId() < events.get(1).getId());
+        assertTrue(events.get(1).getId() < events.get(2).getId());
+        for (OutboxEvent event: outboxEventRepository.findByAggregateTypeAndAggregateIdOrderByIdAsc("Book",
+                book.getId())) {
+            assertNotNull(event.getPublishedAt());
+        }
+    }
+
+    /**
+     * Check that the events are written in the transaction of the change, and discarded with it.
+     */
+    @Test
+    public void testRolledBackChangeHasNoEvents() {
+        var rolledBack = transactionTemplate.execute((status) -> {
+            var saved = bookRepository.saveAndFlush(bookFactory.createValidEntity(1));
+            assertEquals(1, outboxEventRepository.findByAggregateTypeAndAggregateIdOrderByIdAsc("Book",
+                    saved.getId()).size());
+            status.setRollbackOnly();
+            return saved;
+        });
+
+        assertTrue(outboxEventRepository.findByAggregateTypeAndAggregateIdOrderByIdAsc("Book", rolledBack.getId())
+                .isEmpty());
+    }
+
+    /**
+     * Check that the events are delivered again when a sink fails.
+     */
+    @Test
+    public void testFailedDeliveryIsRetried() {
+        book = transactionTemplate.execute((status) -> {
+            var saved = bookRepository.save(bookFactory.createValidEntity(2));
+            RecordingOutboxSink.rejectOnce("Book", saved.getId());
+            return saved;
+        });
+
+        var events = awaitPublished((received) -> true);
+
+        assertEquals(1, events.size());
+        var stored = outboxEventRepository.findById(events.get(0).getId()).get();
+        assertEquals(1, (int) stored.getAttempts());
+        assertNotNull(stored.getPublishedAt());
+    }
+}
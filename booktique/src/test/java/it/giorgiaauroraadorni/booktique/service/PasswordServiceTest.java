@@ -0,0 +1,98 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the password hashes, with a low cost and a single hashing thread.
+ */
+class PasswordServiceTest {
+    private PasswordService passwordService;
+
+    @BeforeEach
+    void createService() {
+        passwordService = new PasswordService(1000, 500, 1, 1);
+    }
+
+    @AfterEach
+    void shutdownService() {
+        passwordService.shutdown();
+    }
+
+    @Test
+    public void testHashAndVerify() {
+        var hash = passwordService.hash("Qwerty1234");
+        assertTrue(hash.startsWith("pbkdf2_sha256$1000$"));
+        assertTrue(hash.length() <= 128);
+        assertTrue(passwordService.verify("Qwerty1234", hash));
+        assertFalse(passwordService.verify("Qwerty1235", hash));
+
+        // every hash has its own salt
+        assertNotEquals(hash, passwordService.hash("Qwerty1234"));
+
+        // an unknown account never matches
+        assertFalse(passwordService.verify("", null));
+    }
+
+    @Test
+    public void testUpgrade() {
+        // the passwords in clear are never verified, they are hashed before
+        assertFalse(passwordService.verify("Qwerty1234", "Qwerty1234"));
+        assertTrue(passwordService.needsUpgrade("Qwerty1234"));
+
+        // a password in clear shaped like a hash, with invalid fields, is still a password in clear
+        for (String clear: List.of("pbkdf2_sha256$x$y$z", "pbkdf2_sha256$1000$!!$!!", "pbkdf2_sha256$1000$AAAA$AAAA")) {
+            assertFalse(passwordService.isHash(clear));
+            assertFalse(passwordService.verify(clear, clear));
+            assertTrue(passwordService.needsUpgrade(clear));
+        }
+
+        // the hashes of a lower cost are still verified, and upgraded
+        var cheaper = new PasswordService(500, 500, 1, 1);
+        var hash = cheaper.hash("Qwerty1234");
+        cheaper.shutdown();
+        assertTrue(passwordService.verify("Qwerty1234", hash));
+        assertTrue(passwordService.needsUpgrade(hash));
+        assertFalse(passwordService.needsUpgrade(passwordService.hash("Qwerty1234")));
+
+        // but not the ones below the minimum cost
+        var cheapest = new PasswordService(1, 1, 1, 1);
+        var weak = cheapest.hash("Qwerty1234");
+        cheapest.shutdown();
+        assertTrue(passwordService.isHash(weak));
+        assertFalse(passwordService.verify("Qwerty1234", weak));
+    }
+
+    @Test
+    public void testIllegalIterations() {
+        assertThrows(IllegalArgumentException.class, () -> new PasswordService(1000, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PasswordService(1000, 1001, 1, 1));
+    }
+
+    @Test
+    public void testBoundedQueue() throws Exception {
+        // the thread and the queue are taken, the next task is rejected
+        var release = new CountDownLatch(1);
+        var running = passwordService.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+        var queued = passwordService.submit(() -> true);
+        assertThrows(ServiceUnavailableException.class, () -> passwordService.submit(() -> true));
+
+        release.countDown();
+        assertTrue(running.get());
+        assertTrue(queued.get());
+    }
+}
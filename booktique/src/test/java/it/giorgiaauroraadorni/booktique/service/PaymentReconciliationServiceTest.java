@@ -0,0 +1,164 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.InvalidRequestException;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class PaymentReconciliationServiceTest {
+    private static final String FILE_NAME = "settlement-test.csv";
+
+    // A range without the payments of the other tests
+    private static final LocalDate DAY = LocalDate.of(2001, 1, 1);
+
+    @Autowired
+    private PaymentReconciliationService paymentReconciliationService;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private EntityFactory<Purchase> purchaseFactory;
+
+    @Value("${booktique.reconciliation.directory}")
+    private String directory;
+
+    private Path settlement;
+
+    // The purchases sorted by payment id
+    private List<Purchase> purchases;
+
+    @BeforeEach
+    void createPayments() throws IOException {
+        purchases = purchaseFactory.createValidEntities(5);
+        for (Purchase p: purchases) {
+            p.getPaymentDetails().setPaymentDate(DAY);
+        }
+        purchases = purchaseRepository.saveAll(purchases);
+        purchaseRepository.flush();
+        purchases.sort(Comparator.comparing((p) -> p.getPaymentDetails().getId()));
+
+        Files.createDirectories(Paths.get(directory));
+        settlement = Paths.get(directory, FILE_NAME);
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        Files.deleteIfExists(settlement);
+        Files.deleteIfExists(Paths.get(directory, FILE_NAME + ".mismatches.csv"));
+        Files.deleteIfExists(Paths.get(directory, FILE_NAME + ".checkpoint"));
+    }
+
+    private String line(int purchase, BigDecimal amount) {
+        return purchases.get(purchase).getPaymentDetails().getId() + "," + amount.toPlainString() + "\n";
+    }
+
+    private String line(int purchase) {
+        return line(purchase, purchases.get(purchase).getAmount());
+    }
+
+    // The payment 1 and 4 are not settled, the payment 2 is settled with another amount and an unknown payment is
+    // settled after the others
+    private List<String> expectedMismatches() {
+        return List.of("payment_id,purchase_id,type,store_amount,settled_amount",
+                mismatch(1, "MISSING_IN_SETTLEMENT", purchases.get(1).getAmount(), null),
+                mismatch(2, "AMOUNT_MISMATCH", purchases.get(2).getAmount(), BigDecimal.ONE),
+                mismatch(4, "MISSING_IN_SETTLEMENT", purchases.get(4).getAmount(), null),
+                unknownPaymentId() + ",,MISSING_IN_STORE,,9.99");
+    }
+
+    private String mismatch(int purchase, String type, BigDecimal storeAmount, BigDecimal settledAmount) {
+        var p = purchases.get(purchase);
+        return p.getPaymentDetails().getId() + "," + p.getId() + "," + type + "," + storeAmount.toPlainString() +
+                "," + (settledAmount != null ? settledAmount.toPlainString() : "");
+    }
+
+    private long unknownPaymentId() {
+        return purchases.get(4).getPaymentDetails().getId() + 1000;
+    }
+
+    private List<String> readMismatches(String mismatchesFile) throws IOException {
+        return Files.readAllLines(Paths.get(directory, mismatchesFile));
+    }
+
+    @Test
+    public void testReconcile() throws IOException {
+        Files.writeString(settlement, "payment_id,amount\n" + line(0) + line(2, BigDecimal.ONE) + line(3) +
+                unknownPaymentId() + ",9.99\n");
+
+        var report = paymentReconciliationService.reconcile(FILE_NAME, DAY, DAY);
+
+        assertEquals(5, report.getPayments());
+        assertEquals(4, report.getSettled());
+        assertEquals(2, report.getMatched());
+        assertEquals(4, report.getMismatches());
+        assertFalse(report.isResumed());
+        assertEquals(expectedMismatches(), readMismatches(report.getMismatchesFile()));
+        assertFalse(Files.exists(Paths.get(directory, FILE_NAME + ".checkpoint")));
+
+        // the payments outside the range are not reconciled
+        report = paymentReconciliationService.reconcile(FILE_NAME, DAY.plusDays(1), DAY.plusDays(1));
+        assertEquals(0, report.getPayments());
+        assertEquals(4, report.getMismatches());
+    }
+
+    /**
+     * Check that a reconciliation stopped by an invalid line resumes from the last checkpoint, without reporting the
+     * mismatches twice.
+     */
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        var prefix = "payment_id,amount\n" + line(0) + line(2, BigDecimal.ONE);
+        Files.writeString(settlement, prefix + "invalid line\n" + line(3));
+
+        // the checkpoint is written after the first two payments
+        assertThrows(InvalidRequestException.class,
+                () -> paymentReconciliationService.reconcile(FILE_NAME, DAY, DAY, 2));
+        assertTrue(Files.exists(Paths.get(directory, FILE_NAME + ".checkpoint")));
+
+        Files.writeString(settlement, prefix + line(3) + unknownPaymentId() + ",9.99\n");
+        var report = paymentReconciliationService.reconcile(FILE_NAME, DAY, DAY, 2);
+
+        assertTrue(report.isResumed());
+        assertEquals(5, report.getPayments());
+        assertEquals(4, report.getSettled());
+        assertEquals(2, report.getMatched());
+        assertEquals(4, report.getMismatches());
+        assertEquals(expectedMismatches(), readMismatches(report.getMismatchesFile()));
+        assertFalse(Files.exists(Paths.get(directory, FILE_NAME + ".checkpoint")));
+    }
+
+    @Test
+    public void testInvalidSettlementFile() throws IOException {
+        assertThrows(ResourceNotFoundException.class,
+                () -> paymentReconciliationService.reconcile(FILE_NAME, DAY, DAY));
+        assertThrows(InvalidRequestException.class,
+                () -> paymentReconciliationService.reconcile("../" + FILE_NAME, DAY, DAY));
+
+        // the lines must be sorted by payment id
+        Files.writeString(settlement, line(3) + line(0));
+        assertThrows(InvalidRequestException.class,
+                () -> paymentReconciliationService.reconcile(FILE_NAME, DAY, DAY));
+    }
+}
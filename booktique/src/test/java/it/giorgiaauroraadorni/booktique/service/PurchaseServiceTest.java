@@ -0,0 +1,210 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.IllegalStatusChangeException;
+import it.giorgiaauroraadorni.booktique.exception.ResourceNotFoundException;
+import it.giorgiaauroraadorni.booktique.model.DailySales;
+import it.giorgiaauroraadorni.booktique.model.EntityFactory;
+import it.giorgiaauroraadorni.booktique.model.Item;
+import it.giorgiaauroraadorni.booktique.model.Purchase;
+import it.giorgiaauroraadorni.booktique.repository.DailySalesRepository;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseRepository;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseStatusChangeRepository;
+import it.giorgiaauroraadorni.booktique.repository.SalesTotal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class PurchaseServiceTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private PurchaseStatusChangeRepository purchaseStatusChangeRepository;
+
+    @Autowired
+    private EntityFactory<Purchase> purchaseFactory;
+
+    private List<Purchase> dummyPurchases;
+
+    private LocalDate from = LocalDate.now().minusYears(1);
+
+    private LocalDate to = LocalDate.now();
+
+    @BeforeEach
+    void createDummyEntities() {
+        // create a list of valid purchases entities, that are not completed, and save them in the purchaseRepository
+        dummyPurchases = purchaseRepository.saveAll(purchaseFactory.createValidEntities(2));
+        purchaseRepository.flush();
+    }
+
+    private SalesTotal getTotal(DailySales.Dimension dimension, long dimensionId) {
+        return dailySalesRepository.sumByDimensionAndDayBetween(dimension, from, to)
+                .stream()
+                .filter((s) -> s.getDimensionId() == dimensionId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void assertSales(BigDecimal expectedRevenue, long expectedPurchases, SalesTotal sales) {
+        assertNotNull(sales);
+        assertEquals(0, expectedRevenue.compareTo(sales.getRevenue()));
+        assertEquals(expectedPurchases, (long) sales.getPurchases());
+    }
+
+    /**
+     * Check that the revenue of a completed purchase is added to the total and to all the dimensions.
+     */
+    @Test
+    public void testCompletePurchase() {
+        var purchase = dummyPurchases.get(0);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.COMPLETED);
+
+        assertEquals(Purchase.Status.COMPLETED, purchaseRepository.findById(purchase.getId()).get().getStatus());
+        assertSales(purchase.getAmount(), 1, getTotal(DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID));
+        assertSales(purchase.getAmount(), 1, getTotal(DailySales.Dimension.EMPLOYEE, purchase.getEmployee().getId()));
+        for (Item i: purchase.getItems()) {
+            var book = getTotal(DailySales.Dimension.BOOK, i.getBookItem().getId());
+            assertSales(i.getTotalPrice().toBigDecimal(), 1, book);
+            assertEquals(i.getQuantityPerUnit(), (long) book.getQuantity());
+            assertSales(i.getTotalPrice().toBigDecimal(), 1,
+                    getTotal(DailySales.Dimension.SUPPLIER, i.getSupplier().getId()));
+        }
+    }
+
+    /**
+     * Check that the revenue of many purchases is summed, and that it is counted only once when the purchase is
+     * shipped after being completed.
+     */
+    @Test
+    public void testShipCompletedPurchases() {
+        for (Purchase p: dummyPurchases) {
+            purchaseService.changeStatus(p.getId(), Purchase.Status.COMPLETED);
+            purchaseService.changeStatus(p.getId(), Purchase.Status.SHIPPED);
+        }
+
+        var expectedRevenue = dummyPurchases.get(0).getAmount().add(dummyPurchases.get(1).getAmount());
+        assertSales(expectedRevenue, 2, getTotal(DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID));
+
+        // the purchases are ordered on different days, every day has its own row
+        var days = dailySalesRepository.findByDimensionAndDimensionIdAndDayBetweenOrderByDay(
+                DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID, from, to);
+
+        assertEquals(2, days.size());
+        assertEquals(dummyPurchases.get(1).getOrderDate(), days.get(0).getDay());
+        assertEquals(dummyPurchases.get(0).getOrderDate(), days.get(1).getDay());
+    }
+
+    /**
+     * Check that the revenue is removed when a completed purchase is canceled, and that canceling a purchase that
+     * was not completed does not change the sales.
+     */
+    @Test
+    public void testCancelPurchase() {
+        var purchase = dummyPurchases.get(0);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.SHIPPED);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.CANCELED);
+        purchaseService.changeStatus(dummyPurchases.get(1).getId(), Purchase.Status.CANCELED);
+
+        assertSales(BigDecimal.ZERO, 0, getTotal(DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID));
+    }
+
+    /**
+     * Check that a purchase created as completed is counted.
+     */
+    @Test
+    public void testCreateCompletedPurchase() {
+        var purchase = purchaseFactory.createValidEntity(2);
+        purchase.setStatus(Purchase.Status.COMPLETED);
+        purchase = purchaseService.createPurchase(purchase);
+
+        assertTrue(purchaseRepository.existsById(purchase.getId()));
+        assertSales(purchase.getAmount(), 1, getTotal(DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID));
+    }
+
+    /**
+     * Check that every status change is recorded in the log, starting from the creation of the purchase.
+     */
+    @Test
+    public void testStatusChangeLog() {
+        var purchase = purchaseFactory.createValidEntity(2);
+        purchase.setStatus(Purchase.Status.PENDING_PAYMENT);
+        purchase = purchaseService.createPurchase(purchase);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.PROCESSING);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.SHIPPED);
+        // the change to the current status is ignored
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.SHIPPED);
+
+        var changes = purchaseStatusChangeRepository.findByPurchase_IdOrderByCreatedAtAscIdAsc(purchase.getId());
+
+        assertEquals(3, changes.size());
+        assertNull(changes.get(0).getFromStatus());
+        assertEquals(Purchase.Status.PENDING_PAYMENT, changes.get(0).getToStatus());
+        assertEquals(Purchase.Status.PENDING_PAYMENT, changes.get(1).getFromStatus());
+        assertEquals(Purchase.Status.PROCESSING, changes.get(1).getToStatus());
+        assertEquals(Purchase.Status.PROCESSING, changes.get(2).getFromStatus());
+        assertEquals(Purchase.Status.SHIPPED, changes.get(2).getToStatus());
+    }
+
+    /**
+     * Throws an exception when attempting a transition that is not allowed, leaving the purchase and the sales
+     * unchanged.
+     */
+    @Test
+    public void testIllegalStatusChange() {
+        var purchase = dummyPurchases.get(0);
+        purchaseService.changeStatus(purchase.getId(), Purchase.Status.CANCELED);
+
+        // a canceled purchase cannot be resumed, and a purchase in production cannot go back to the payment
+        assertThrows(IllegalStatusChangeException.class,
+                () -> purchaseService.changeStatus(purchase.getId(), Purchase.Status.COMPLETED));
+        assertThrows(IllegalStatusChangeException.class,
+                () -> purchaseService.changeStatus(dummyPurchases.get(1).getId(), Purchase.Status.PENDING_PAYMENT));
+
+        assertEquals(Purchase.Status.CANCELED, purchaseRepository.findById(purchase.getId()).get().getStatus());
+        assertNull(getTotal(DailySales.Dimension.TOTAL, PurchaseService.TOTAL_ID));
+        assertEquals(1, purchaseStatusChangeRepository.findByPurchase_IdOrderByCreatedAtAscIdAsc(purchase.getId())
+                .size());
+    }
+
+    /**
+     * Check that the terminal status has no transitions and that the active statuses are the ones not fulfilled.
+     */
+    @Test
+    public void testStatusTransitions() {
+        assertTrue(Purchase.Status.CANCELED.getNextStatuses().isEmpty());
+        assertTrue(Purchase.Status.PENDING_PAYMENT.canChangeTo(Purchase.Status.PROCESSING));
+        assertFalse(Purchase.Status.SHIPPED.canChangeTo(Purchase.Status.PROCESSING));
+        assertTrue(Purchase.Status.IN_PRODUCTION.isActive());
+        assertFalse(Purchase.Status.COMPLETED.isActive());
+    }
+
+    /**
+     * Throws an exception when attempting to change the status of a purchase that does not exist.
+     */
+    @Test
+    public void testChangeStatusNotFound() {
+        assertThrows(ResourceNotFoundException.class,
+                () -> purchaseService.changeStatus(-1L, Purchase.Status.COMPLETED));
+    }
+}
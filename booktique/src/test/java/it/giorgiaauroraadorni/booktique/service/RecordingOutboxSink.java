@@ -0,0 +1,55 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.model.OutboxEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Sink that keeps the outbox events received by the publishers of all the application contexts started by the
+ * tests, since each of them can publish the events committed by any test.
+ */
+@Component
+public class RecordingOutboxSink implements OutboxSink {
+    private static final Queue<OutboxEvent> events = new ConcurrentLinkedQueue<>();
+
+    // Aggregates whose next delivery fails
+    private static final Set<String> rejected = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void publish(List<OutboxEvent> batch) {
+        for (OutboxEvent event: batch) {
+            if (rejected.remove(key(event.getAggregateType(), event.getAggregateId()))) {
+                throw new IllegalStateException("Rejected event " + event.getId());
+            }
+        }
+        events.addAll(batch);
+    }
+
+    /**
+     * Make the next delivery of a batch containing an event of the aggregate fail.
+     */
+    public static void rejectOnce(String aggregateType, Long aggregateId) {
+        rejected.add(key(aggregateType, aggregateId));
+    }
+
+    /**
+     * @return the events of the aggregate received so far, in the order they were received.
+     */
+    public static List<OutboxEvent> received(String aggregateType, Long aggregateId) {
+        return events.stream()
+                .filter((e) -> e.getAggregateType().equals(aggregateType) &&
+                        Objects.equals(e.getAggregateId(), aggregateId))
+                .collect(Collectors.toList());
+    }
+
+    private static String key(String aggregateType, Long aggregateId) {
+        return aggregateType + ":" + aggregateId;
+    }
+}
@@ -0,0 +1,217 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.CheckoutRequest;
+import it.giorgiaauroraadorni.booktique.exception.InsufficientStockException;
+import it.giorgiaauroraadorni.booktique.model.*;
+import it.giorgiaauroraadorni.booktique.repository.BookRepository;
+import it.giorgiaauroraadorni.booktique.repository.PurchaseRepository;
+import it.giorgiaauroraadorni.booktique.repository.StockRepository;
+import it.giorgiaauroraadorni.booktique.repository.SupplierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class StockServiceTest {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private EntityFactory<Book> bookFactory;
+
+    @Autowired
+    private EntityFactory<Supplier> supplierFactory;
+
+    @Autowired
+    private EntityFactory<Purchase> purchaseFactory;
+
+    private List<Book> books;
+
+    private Supplier supplier;
+
+    @BeforeEach
+    void createDummyStocks() {
+        // create 10 units of the first book and 1 unit of the second one, the restocks of the test transaction are
+        // loaded in memory by the reconciliation
+        books = bookRepository.saveAll(bookFactory.createValidEntities(3));
+        supplier = supplierRepository.save(supplierFactory.createValidEntity(0));
+        stockService.restock(books.get(0).getId(), supplier.getId(), 10);
+        stockService.restock(books.get(1).getId(), supplier.getId(), 1);
+        stockService.reconcile();
+    }
+
+    private CheckoutRequest.Line createLine(Book book, int quantity) {
+        var line = new CheckoutRequest.Line();
+        line.setBookId(book.getId());
+        line.setSupplierId(supplier.getId());
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    // Write a purchase of the units of the book, as the checkout does in the transaction of the sale
+    private void savePurchase(int idx, Book book, int quantity, boolean stockSynced) {
+        var purchase = purchaseFactory.createValidEntity(idx);
+        var item = new Item();
+        item.setBookItem(book);
+        item.setSupplier(supplier);
+        item.setUnitPrice(purchase.getItems().iterator().next().getUnitPrice());
+        item.setQuantityPerUnit(quantity);
+        item.setStockSynced(stockSynced);
+        purchase.setItems(Set.of(item));
+        purchaseRepository.saveAndFlush(purchase);
+    }
+
+    private long getAvailable(Book book) {
+        return stockService.getAvailable(book.getId(), supplier.getId()).getAsLong();
+    }
+
+    private long getPersistedQuantity(Book book) {
+        entityManager.clear();
+        return stockRepository.findByBook_IdAndSupplier_Id(book.getId(), supplier.getId()).get().getQuantity();
+    }
+
+    @Test
+    public void testReserve() {
+        var reservation = stockService.reserve(List.of(createLine(books.get(0), 3), createLine(books.get(1), 1)));
+
+        assertFalse(reservation.isEmpty());
+        assertEquals(7, getAvailable(books.get(0)));
+        assertEquals(0, getAvailable(books.get(1)));
+
+        stockService.release(reservation);
+
+        assertEquals(10, getAvailable(books.get(0)));
+        assertEquals(1, getAvailable(books.get(1)));
+    }
+
+    @Test
+    public void testReserveInsufficientStock() {
+        // the reservation is all or nothing
+        assertThrows(InsufficientStockException.class,
+                () -> stockService.reserve(List.of(createLine(books.get(0), 3), createLine(books.get(1), 2))));
+
+        assertEquals(10, getAvailable(books.get(0)));
+        assertEquals(1, getAvailable(books.get(1)));
+    }
+
+    @Test
+    public void testReserveUntrackedBook() {
+        var reservation = stockService.reserve(List.of(createLine(books.get(2), 100)));
+
+        assertTrue(reservation.isEmpty());
+        assertTrue(stockService.getAvailable(books.get(2).getId(), supplier.getId()).isEmpty());
+    }
+
+    @Test
+    public void testReserveTracksLines() {
+        var tracked = createLine(books.get(0), 3);
+        var untracked = createLine(books.get(2), 1);
+        var reservation = stockService.reserve(List.of(tracked, untracked));
+
+        assertTrue(reservation.isTracked(tracked));
+        assertFalse(reservation.isTracked(untracked));
+    }
+
+    @Test
+    public void testCommitAndFlush() {
+        var reservation = stockService.reserve(List.of(createLine(books.get(0), 3)));
+        savePurchase(0, books.get(0), 3, false);
+        stockService.commit(reservation);
+
+        // the units sold are subtracted from the table only by the flush
+        assertEquals(10, getPersistedQuantity(books.get(0)));
+        stockService.flush();
+        assertEquals(7, getPersistedQuantity(books.get(0)));
+        assertEquals(7, getAvailable(books.get(0)));
+
+        // a committed reservation cannot be released
+        stockService.release(reservation);
+        assertEquals(7, getAvailable(books.get(0)));
+
+        // the synced items are not subtracted again
+        stockService.reconcile();
+        assertEquals(7, getPersistedQuantity(books.get(0)));
+        assertEquals(7, getAvailable(books.get(0)));
+    }
+
+    @Test
+    public void testReconcileUnsyncedSales() {
+        // sell 2 units without subtracting them from the stock, as if the application stopped before the flush, and
+        // 1 unit of an untracked sale
+        savePurchase(0, books.get(0), 2, false);
+        savePurchase(1, books.get(0), 1, true);
+
+        stockService.reconcile();
+
+        assertEquals(8, getAvailable(books.get(0)));
+        assertEquals(8, getPersistedQuantity(books.get(0)));
+
+        // the sales are subtracted only once
+        stockService.reconcile();
+        assertEquals(8, getAvailable(books.get(0)));
+    }
+
+    /**
+     * Check that concurrent reservations never give out more units than available.
+     */
+    @Test
+    public void testConcurrentReservations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    var reserved = 0;
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            stockService.reserve(List.of(createLine(books.get(0), 1)));
+                            reserved++;
+                        } catch (InsufficientStockException e) {
+                            // sold out
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+
+            var reserved = 0;
+            for (Future<Integer> result: results) {
+                reserved += result.get(1, TimeUnit.MINUTES);
+            }
+            assertEquals(10, reserved);
+            assertEquals(0, getAvailable(books.get(0)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
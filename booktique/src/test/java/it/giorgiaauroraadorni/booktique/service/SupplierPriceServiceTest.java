@@ -0,0 +1,66 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.dto.SupplierPrice;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the prices kept in memory, updated outside a transaction with the ids of books, suppliers and rows of the
+ * price list that do not exist in the database.
+ */
+@SpringBootTest
+class SupplierPriceServiceTest {
+    @Autowired
+    private SupplierPriceService supplierPriceService;
+
+    private static List<Long> suppliers(List<SupplierPrice> prices) {
+        return prices.stream().map(SupplierPrice::getSupplierId).collect(Collectors.toList());
+    }
+
+    private static SupplierPriceService.Price price(long rowId, long version, long bookId, long supplierId,
+                                                    String unitPrice) {
+        return new SupplierPriceService.Price(rowId, version, bookId, supplierId, new BigDecimal(unitPrice));
+    }
+
+    @Test
+    public void testBestPrice() {
+        var bookId = -1L;
+        supplierPriceService.update(price(-10L, 0, bookId, -100L, "12.00"));
+        supplierPriceService.update(price(-9L, 0, bookId, -200L, "9.50"));
+        supplierPriceService.update(price(-8L, 0, bookId, -300L, "15.00"));
+
+        assertEquals(Long.valueOf(-200L), supplierPriceService.getBestPrice(bookId).get().getSupplierId());
+        assertEquals(List.of(-200L, -100L, -300L), suppliers(supplierPriceService.getPrices(bookId)));
+        assertEquals(new BigDecimal("12.00"), supplierPriceService.getPrice(bookId, -100L).get().getUnitPrice());
+        assertEquals(Long.valueOf(-100L),
+                supplierPriceService.getBestPrice(bookId, (id) -> id != -200L).get().getSupplierId());
+        assertTrue(supplierPriceService.getBestPrice(bookId, (id) -> false).isEmpty());
+        assertTrue(supplierPriceService.getBestPrice(-2L).isEmpty());
+
+        // a later version of the row replaces the price, an earlier one is ignored
+        supplierPriceService.update(price(-8L, 2, bookId, -300L, "8.00"));
+        supplierPriceService.update(price(-8L, 1, bookId, -300L, "1.00"));
+        assertEquals(new BigDecimal("8.00"), supplierPriceService.getBestPrice(bookId).get().getUnitPrice());
+        assertEquals(List.of(-300L, -200L, -100L), suppliers(supplierPriceService.getPrices(bookId)));
+
+        // the deletion of an earlier version keeps the price, a row inserted after the deletion replaces it
+        supplierPriceService.remove(price(-8L, 1, bookId, -300L, "1.00"));
+        assertEquals(3, supplierPriceService.getPrices(bookId).size());
+        supplierPriceService.update(price(-7L, 0, bookId, -300L, "20.00"));
+        supplierPriceService.remove(price(-8L, 2, bookId, -300L, "8.00"));
+        assertEquals(List.of(-200L, -100L, -300L), suppliers(supplierPriceService.getPrices(bookId)));
+        supplierPriceService.remove(price(-7L, 0, bookId, -300L, "20.00"));
+        assertEquals(List.of(-200L, -100L), suppliers(supplierPriceService.getPrices(bookId)));
+
+        supplierPriceService.remove(price(-9L, 0, bookId, -200L, "9.50"));
+        supplierPriceService.remove(price(-10L, 0, bookId, -100L, "12.00"));
+        assertTrue(supplierPriceService.getPrices(bookId).isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.AuthenticationFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the access tokens, valid for 1 hour and signed with a key that changes every day.
+ */
+class TokenServiceTest {
+    private static final String SECRET = "1:" + Base64.getEncoder().encodeToString(new byte[32]);
+
+    private static final String OTHER_SECRET = "2:" + Base64.getEncoder().encodeToString(new byte[]{1, 2, 3, 4, 5, 6,
+            7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32});
+
+    private static final long HOUR = 3_600_000;
+
+    private static final long DAY = 24 * HOUR;
+
+    // Two hours after the start of a rotation interval
+    private static final long NOW = 1000 * DAY + 2 * HOUR;
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void createService() {
+        tokenService = new TokenService(SECRET, HOUR, DAY);
+    }
+
+    @Test
+    public void testIssueAndVerify() {
+        var issued = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW);
+        var token = tokenService.verify(issued.getValue(), NOW + 1000);
+        assertEquals(LoginService.Account.CUSTOMER, token.getAccount());
+        assertEquals(42, token.getPersonId());
+        assertEquals(issued.getTokenId(), token.getTokenId());
+        assertEquals(NOW + HOUR, token.getExpiresAt().toEpochMilli());
+
+        // the tokens of the employees are told apart
+        var employeeToken = tokenService.issue(LoginService.Account.EMPLOYEE, 42, NOW);
+        assertEquals(LoginService.Account.EMPLOYEE, tokenService.verify(employeeToken.getValue(), NOW).getAccount());
+        assertNotEquals(issued.getTokenId(), employeeToken.getTokenId());
+
+        var current = tokenService.issue(LoginService.Account.CUSTOMER, 42);
+        assertEquals(42, tokenService.verifyAuthorization("Bearer " + current.getValue()).getPersonId());
+    }
+
+    @Test
+    public void testExpiry() {
+        var token = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW).getValue();
+        tokenService.verify(token, NOW + HOUR - 1);
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(token, NOW + HOUR));
+    }
+
+    @Test
+    public void testKeyRotation() {
+        // a token issued just before the rotation is still valid with the previous key
+        var beforeRotation = 1001 * DAY - HOUR / 2;
+        var token = tokenService.issue(LoginService.Account.CUSTOMER, 42, beforeRotation).getValue();
+        tokenService.verify(token, 1001 * DAY + HOUR / 4);
+
+        // the keys are derived from the secret, another instance with the same secret accepts the token
+        new TokenService(SECRET, HOUR, DAY).verify(token, beforeRotation);
+        assertThrows(AuthenticationFailedException.class,
+                () -> new TokenService(OTHER_SECRET, HOUR, DAY).verify(token, beforeRotation));
+
+        // the tokens cannot outlive the key of the next interval
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenService(SECRET, 2 * DAY, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("1:c2hvcnQ=", HOUR, DAY));
+    }
+
+    @Test
+    public void testSecretRotation() {
+        var token = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW).getValue();
+
+        // the new secret signs the new tokens, and the tokens of the previous secret are still accepted
+        var rotated = new TokenService(OTHER_SECRET + "," + SECRET, HOUR, DAY);
+        rotated.verify(token, NOW);
+        var newToken = rotated.issue(LoginService.Account.CUSTOMER, 42, NOW).getValue();
+        rotated.verify(newToken, NOW);
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(newToken, NOW));
+
+        // once the previous secret is removed, its tokens are rejected
+        var retired = new TokenService(OTHER_SECRET, HOUR, DAY);
+        retired.verify(newToken, NOW);
+        assertThrows(AuthenticationFailedException.class, () -> retired.verify(token, NOW));
+    }
+
+    @Test
+    public void testIllegalSecrets() {
+        var secret = Base64.getEncoder().encodeToString(new byte[32]);
+        assertThrows(IllegalArgumentException.class, () -> new TokenService(secret, HOUR, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("a:" + secret, HOUR, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("256:" + secret, HOUR, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("1:" + secret + ",1:" + secret, HOUR,
+                DAY));
+    }
+
+    @Test
+    public void testTamperedTokens() {
+        var token = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW).getValue();
+        var separator = token.indexOf('.');
+
+        // another person id with the same signature
+        var payload = Base64.getUrlDecoder().decode(token.substring(0, separator));
+        payload[9] ^= 1;
+        var tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(payload) + token.substring(separator);
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(tampered, NOW));
+
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(token.substring(0, separator),
+                NOW));
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(token + "A", NOW));
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify("not a token", NOW));
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verifyAuthorization(null));
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verifyAuthorization(token));
+    }
+
+    @Test
+    public void testRevocation() {
+        var revoked = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW);
+        var other = tokenService.issue(LoginService.Account.CUSTOMER, 42, NOW);
+        tokenService.revoke(revoked);
+        assertThrows(AuthenticationFailedException.class, () -> tokenService.verify(revoked.getValue(), NOW));
+        tokenService.verify(other.getValue(), NOW);
+
+        // the revoked tokens are forgotten once expired
+        tokenService.prune(NOW + HOUR - 1);
+        assertEquals(1, tokenService.countRevokedTokens());
+        tokenService.prune(NOW + HOUR);
+        assertEquals(0, tokenService.countRevokedTokens());
+    }
+}
@@ -0,0 +1,118 @@
+package it.giorgiaauroraadorni.booktique.service;
+
+import it.giorgiaauroraadorni.booktique.exception.PaymentDeclinedException;
+import it.giorgiaauroraadorni.booktique.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the velocity checks, with at most 2 payments and 100 euros a minute.
+ */
+class VelocityServiceTest {
+    private static final BigDecimal TEN = new BigDecimal("10.00");
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private VelocityService velocityService;
+
+    @BeforeEach
+    void createService() {
+        velocityService = new VelocityService(2, new BigDecimal("100"), 20, new BigDecimal("2000"), 50,
+                new BigDecimal("5000"), SECRET, "");
+    }
+
+    private static Payment payment(String cardNumber, String cardholderName) {
+        var payment = new Payment();
+        payment.setCardNumber(cardNumber);
+        payment.setCardholderName(cardholderName);
+        return payment;
+    }
+
+    @Test
+    public void testMaxPayments() {
+        var payment = payment("1111222233334444", "Nome Cognome");
+        for (int i = 0; i < 2; i++) {
+            velocityService.check(1L, payment, TEN);
+        }
+        assertEquals(2, velocityService.countCardPayments("1111222233334444", VelocityService.Window.MINUTE));
+        assertThrows(PaymentDeclinedException.class, () -> velocityService.check(1L, payment, TEN));
+
+        // the card is recognized however its number is written
+        assertThrows(PaymentDeclinedException.class,
+                () -> velocityService.check(2L, payment("1111 2222 3333 4444", "Altro Nome"), TEN));
+        // and so are the cardholder and the customer
+        assertThrows(PaymentDeclinedException.class,
+                () -> velocityService.check(2L, payment("5555666677778888", "nome cognome"), TEN));
+        assertThrows(PaymentDeclinedException.class,
+                () -> velocityService.check(1L, payment("5555666677778888", "Altro Nome"), TEN));
+
+        // the declined payments are not counted
+        velocityService.check(2L, payment("5555666677778888", "Altro Nome"), TEN);
+        assertEquals(1, velocityService.countCardPayments("5555666677778888", VelocityService.Window.MINUTE));
+    }
+
+    @Test
+    public void testMaxAmount() {
+        var payment = payment("1111222233334444", "Nome Cognome");
+        velocityService.check(1L, payment, new BigDecimal("95.00"));
+
+        assertThrows(PaymentDeclinedException.class, () -> velocityService.check(1L, payment, new BigDecimal("5.01")));
+        velocityService.check(1L, payment, new BigDecimal("5.00"));
+    }
+
+    @Test
+    public void testRollback() {
+        var payment = payment("1111222233334444", "Nome Cognome");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            velocityService.check(1L, payment, TEN);
+            assertEquals(1, velocityService.countCardPayments("1111222233334444", VelocityService.Window.MINUTE));
+
+            // the payment of a checkout rolled back is discounted
+            for (TransactionSynchronization synchronization: TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+            assertEquals(0, velocityService.countCardPayments("1111222233334444", VelocityService.Window.MINUTE));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testSnapshotAndRestore() throws IOException {
+        var directory = Files.createTempDirectory("velocity");
+        var payment = payment("1111222233334444", "Nome Cognome");
+        velocityService.check(1L, payment, TEN);
+        velocityService.check(1L, payment, TEN);
+        velocityService.snapshot(directory.resolve("velocity.snapshot"));
+
+        // the windows of a new instance, such as after a restart, are loaded from the snapshot
+        var restarted = new VelocityService(2, new BigDecimal("100"), 20, new BigDecimal("2000"), 50,
+                new BigDecimal("5000"), SECRET, directory.resolve("velocity.snapshot").toString());
+        restarted.restore();
+        assertEquals(2, restarted.countCardPayments("1111222233334444", VelocityService.Window.DAY));
+        assertThrows(PaymentDeclinedException.class, () -> restarted.check(1L, payment, TEN));
+
+        // a missing snapshot leaves the windows unchanged
+        restarted.restore(directory.resolve("missing.snapshot"));
+        assertEquals(2, restarted.countCardPayments("1111222233334444", VelocityService.Window.DAY));
+
+        // the snapshot written with another secret is ignored
+        var otherSecret = new VelocityService(2, new BigDecimal("100"), 20, new BigDecimal("2000"), 50,
+                new BigDecimal("5000"), "", directory.resolve("velocity.snapshot").toString());
+        otherSecret.restore();
+        assertEquals(0, otherSecret.countCardPayments("1111222233334444", VelocityService.Window.DAY));
+
+        Files.delete(directory.resolve("velocity.snapshot"));
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,84 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+    // The time of the first event, the counters have a window of 10 seconds in buckets of 1 second
+    private static final long START = 1_000_000;
+
+    @Test
+    public void testSlidingWindow() {
+        var counter = new SlidingWindowCounter(10, 1000);
+        assertEquals(10_000, counter.getWindowMillis());
+        assertTrue(counter.isEmpty(START));
+
+        counter.add(START, 100);
+        counter.add(START + 500, 50);
+        counter.add(START + 3000, 10);
+        assertEquals(3, counter.count(START + 3000));
+        assertEquals(160, counter.sum(START + 3000));
+
+        // the first bucket leaves the window after 10 seconds
+        assertEquals(3, counter.count(START + 9999));
+        assertEquals(1, counter.count(START + 10_000));
+        assertEquals(10, counter.sum(START + 10_000));
+        assertTrue(counter.isEmpty(START + 13_000));
+    }
+
+    @Test
+    public void testBucketReused() {
+        var counter = new SlidingWindowCounter(10, 1000);
+        counter.add(START, 100);
+
+        // the same bucket of the ring, ten seconds later, starts from zero
+        counter.add(START + 10_000, 1);
+        assertEquals(1, counter.count(START + 10_000));
+        assertEquals(1, counter.sum(START + 10_000));
+    }
+
+    @Test
+    public void testRemove() {
+        var counter = new SlidingWindowCounter(10, 1000);
+        counter.add(START, 100);
+        counter.add(START + 500, 50);
+        counter.remove(START + 500, 50);
+        assertEquals(1, counter.count(START + 1000));
+        assertEquals(100, counter.sum(START + 1000));
+
+        // an event whose bucket has been reused is no longer in the window
+        counter.add(START + 10_000, 1);
+        counter.remove(START, 100);
+        assertEquals(1, counter.count(START + 10_000));
+        assertEquals(1, counter.sum(START + 10_000));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        var counter = new SlidingWindowCounter(10, 1000);
+        counter.add(START, 100);
+        counter.add(START + 2000, 20);
+
+        var bytes = new ByteArrayOutputStream();
+        counter.write(new DataOutputStream(bytes), START + 2000);
+        var copy = new SlidingWindowCounter(10, 1000);
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2, copy.count(START + 2000));
+        assertEquals(120, copy.sum(START + 2000));
+        assertEquals(1, copy.count(START + 10_000));
+    }
+
+    @Test
+    public void testIllegalSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(10, 0));
+    }
+}
@@ -0,0 +1,24 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the maximum number of SQL statements that a test is allowed to execute.
+ * Only the statements executed by the test method are counted, the ones executed by the {@code @BeforeEach} methods
+ * are excluded. The test fails when the budget is exceeded.
+ */
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(StatementBudgetExtension.class)
+public @interface StatementBudget {
+
+    /**
+     * @return the maximum number of statements.
+     */
+    int value();
+}
@@ -0,0 +1,38 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import it.giorgiaauroraadorni.booktique.statistics.StatementCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.stream.Collectors;
+
+/**
+ * Counts the SQL statements executed by a test method and fails the test if they exceed the {@link StatementBudget}.
+ */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        StatementCounter.start();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        var statistics = StatementCounter.stop();
+        var budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), StatementBudget.class);
+
+        if (budget.isPresent() && statistics.getCount() > budget.get().value()) {
+            var statements = statistics.getStatements()
+                    .entrySet()
+                    .stream()
+                    .map((e) -> e.getValue() + "x " + e.getKey())
+                    .collect(Collectors.joining("\n"));
+
+            throw new AssertionFailedError("Statement budget exceeded: expected at most " + budget.get().value() +
+                    " statements but " + statistics.getCount() + " were executed:\n" + statements);
+        }
+    }
+}
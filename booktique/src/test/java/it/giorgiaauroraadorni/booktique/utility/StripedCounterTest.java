@@ -0,0 +1,83 @@
+package it.giorgiaauroraadorni.booktique.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedCounterTest {
+    @Test
+    public void testAcquireAndRelease() {
+        var counter = new StripedCounter(4);
+        counter.add(10);
+        assertEquals(10, counter.sum());
+
+        // the units are spread over the stripes, but can be taken all at once
+        assertTrue(counter.tryAcquire(9));
+        assertEquals(1, counter.sum());
+        assertFalse(counter.tryAcquire(2));
+        assertEquals(1, counter.sum());
+
+        counter.release(9);
+        assertTrue(counter.tryAcquire(10));
+        assertEquals(0, counter.sum());
+        assertFalse(counter.tryAcquire(1));
+    }
+
+    @Test
+    public void testIllegalUnits() {
+        var counter = new StripedCounter(4);
+
+        assertThrows(IllegalArgumentException.class, () -> new StripedCounter(0));
+        assertThrows(IllegalArgumentException.class, () -> counter.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> counter.tryAcquire(0));
+        assertThrows(IllegalArgumentException.class, () -> counter.release(-1));
+    }
+
+    /**
+     * Check that the threads taking and giving back units concurrently never take more units than the counter
+     * holds, and that no unit is lost.
+     */
+    @Test
+    public void testConcurrentAcquisitions() throws Exception {
+        var counter = new StripedCounter(4);
+        counter.add(1000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    long taken = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        var units = 1 + i % 3;
+                        if (counter.tryAcquire(units)) {
+                            taken += units;
+                            // give back a part of the units to keep the stripes changing
+                            if (i % 2 == 0) {
+                                counter.release(units);
+                                taken -= units;
+                            }
+                        }
+                    }
+                    return taken;
+                }));
+            }
+
+            long taken = 0;
+            for (Future<Long> result: results) {
+                taken += result.get(1, TimeUnit.MINUTES);
+            }
+            assertTrue(taken <= 1000);
+            assertEquals(1000, taken + counter.sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
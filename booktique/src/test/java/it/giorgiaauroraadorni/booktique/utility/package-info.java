@@ -1,4 +1,5 @@
 /**
- * Contains the definition of new useful assertions.
+ * Contains the definition of new useful assertions, and of the {@code StatementBudget} extension that fails the tests
+ * executing more SQL statements than declared.
  */
 package it.giorgiaauroraadorni.booktique.utility;
@@ -0,0 +1,116 @@
+package it.giorgiaauroraadorni.booktique.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidatorsTest {
+    // Far longer than any valid value, the time must stay linear in the length
+    private static final int ADVERSARIAL_LENGTH = 100_000;
+
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+
+    @Test
+    public void testEmailAddress() {
+        assertTrue(EmailAddressValidator.isValid("nome.cognome@mail.com"));
+        assertTrue(EmailAddressValidator.isValid("nome_cognome+libri@mail-1.example.it"));
+        assertTrue(EmailAddressValidator.isValid("n@mail.com"));
+
+        assertFalse(EmailAddressValidator.isValid(""));
+        assertFalse(EmailAddressValidator.isValid("NomeCognome@mail@10.com"));
+        assertFalse(EmailAddressValidator.isValid(".nome@mail.com"));
+        assertFalse(EmailAddressValidator.isValid("nome.@mail.com"));
+        assertFalse(EmailAddressValidator.isValid("nome@mail"));
+        assertFalse(EmailAddressValidator.isValid("nome@mail..com"));
+        assertFalse(EmailAddressValidator.isValid("nome@mail-.com"));
+        assertFalse(EmailAddressValidator.isValid("nome@mail.c0m"));
+        assertFalse(EmailAddressValidator.isValid("nome@mail.informatica"));
+        assertFalse(EmailAddressValidator.isValid("nome cognome@mail.com"));
+    }
+
+    @Test
+    public void testFiscalCode() {
+        assertTrue(FiscalCodeValidator.isValid("RSSMRA85T10A562S"));
+        assertTrue(FiscalCodeValidator.isValid("rssmra85t10a562s"));
+        // the digits replaced by letters after a homonymy (omocodia)
+        var omocode = "RSSMRA85T10A56N";
+        assertTrue(FiscalCodeValidator.isValid(omocode + FiscalCodeValidator.checkCharacter(omocode)));
+
+        assertFalse(FiscalCodeValidator.isValid("RSSMRA85T10A562T"));
+        assertFalse(FiscalCodeValidator.isValid("RSSMRA85Z10A562S"));
+        assertFalse(FiscalCodeValidator.isValid("ABCDEFGHIJKLMNOP"));
+        assertFalse(FiscalCodeValidator.isValid("RSSMRA85T10A562"));
+    }
+
+    @Test
+    public void testIsbn() {
+        assertTrue(IsbnValidator.isValid("0-306-40615-2"));
+        assertTrue(IsbnValidator.isValid("0306406152"));
+        assertTrue(IsbnValidator.isValid("978-0-306-40615-7"));
+        assertTrue(IsbnValidator.isValid("978 0 306 40615 7"));
+        assertTrue(IsbnValidator.isValid("9780306406157"));
+        assertTrue(IsbnValidator.isValid("080442957X"));
+        var isbn = "979-10-90636-07-";
+        assertTrue(IsbnValidator.isValid(isbn + IsbnValidator.checkDigit13(isbn)));
+
+        assertFalse(IsbnValidator.isValid("978-0-306-40615-8"));
+        assertFalse(IsbnValidator.isValid("977-0-306-40615-8"));
+        assertFalse(IsbnValidator.isValid("0-306-40615-3"));
+        assertFalse(IsbnValidator.isValid("-978-0-306-40615-7"));
+        assertFalse(IsbnValidator.isValid("978--0-306-40615-7"));
+        assertFalse(IsbnValidator.isValid("978-0-306-40615-7-"));
+        assertFalse(IsbnValidator.isValid("08044295X7"));
+    }
+
+    @Test
+    public void testCardNumber() {
+        assertTrue(CardNumberValidator.isValid("4111111111111111"));
+        assertTrue(CardNumberValidator.isValid("4111-1111-1111-1111"));
+        assertTrue(CardNumberValidator.isValid("4111 1111 1111 1111"));
+
+        assertFalse(CardNumberValidator.isValid("4111111111111112"));
+        assertFalse(CardNumberValidator.isValid("4111-1111 1111-1111"));
+        assertFalse(CardNumberValidator.isValid("4643r17337747076"));
+        assertFalse(CardNumberValidator.isValid("411111111111111"));
+    }
+
+    @Test
+    public void testMobilePhone() {
+        assertTrue(MobilePhoneValidator.isValid("3331234567"));
+        assertTrue(MobilePhoneValidator.isValid("+393331234567"));
+
+        assertFalse(MobilePhoneValidator.isValid("3031234567"));
+        assertFalse(MobilePhoneValidator.isValid("0331234567"));
+        assertFalse(MobilePhoneValidator.isValid("+443331234567"));
+        assertFalse(MobilePhoneValidator.isValid("333123456"));
+    }
+
+    @Test
+    public void testVatNumber() {
+        assertTrue(VatNumberValidator.isValid("00743110157"));
+        assertTrue(VatNumberValidator.isValid("IT00743110157"));
+        assertEquals('7', VatNumberValidator.checkDigit("0074311015"));
+
+        assertFalse(VatNumberValidator.isValid("IT00743110158"));
+        assertFalse(VatNumberValidator.isValid("FR00743110157"));
+        assertFalse(VatNumberValidator.isValid("0074311015"));
+    }
+
+    @Test
+    public void testAdversarialInputs() {
+        // the inputs that make the backtracking regular expressions take exponential time
+        var letters = "a".repeat(ADVERSARIAL_LENGTH);
+        assertTimeout(TIMEOUT, () -> assertFalse(EmailAddressValidator.isValid(letters + "!")));
+        assertTimeout(TIMEOUT, () -> assertFalse(EmailAddressValidator.isValid(letters + "@" + letters)));
+        assertTimeout(TIMEOUT, () -> assertFalse(EmailAddressValidator.isValid("a.".repeat(ADVERSARIAL_LENGTH))));
+
+        var digits = "1".repeat(ADVERSARIAL_LENGTH);
+        assertTimeout(TIMEOUT, () -> assertFalse(IsbnValidator.isValid("978-" + digits)));
+        assertTimeout(TIMEOUT, () -> assertFalse(CardNumberValidator.isValid(digits)));
+        assertTimeout(TIMEOUT, () -> assertFalse(FiscalCodeValidator.isValid(letters)));
+        assertTimeout(TIMEOUT, () -> assertFalse(MobilePhoneValidator.isValid("+39" + digits)));
+        assertTimeout(TIMEOUT, () -> assertFalse(VatNumberValidator.isValid("IT" + digits)));
+    }
+}